@@ -0,0 +1,24 @@
+link_design -part $partname
+
+# Each request is a list of {libcellname belname config_dict filename}.  The
+# design is closed even if a request fails so the console can be reused.
+catch {
+  set i 0
+  foreach request $requests {
+    lassign $request libcellname belname config_dict filename
+
+    set libcell [get_lib_cells $libcellname]
+    set cell [create_cell -reference $libcell "tmpcell_$i"]
+    set bel [lindex [get_bels *$belname] 0]
+
+    # Create the actual pin mappings and write them to an xml file
+    set pin_mappings [tincr::cells::create_nondefault_pin_mappings $cell $bel $config_dict]
+    tincr::cells::write_nondefault_pin_mappings $cell $bel $pin_mappings $config_dict $filename
+
+    remove_cell $cell
+    incr i
+  }
+} result options
+
+close_design
+return -options $options $result
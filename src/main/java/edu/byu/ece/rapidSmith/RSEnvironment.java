@@ -22,6 +22,7 @@ package edu.byu.ece.rapidSmith;
 
 import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.FamilyType;
+import edu.byu.ece.rapidSmith.device.RoutingDistanceTable;
 import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.PartNameTools;
 import edu.byu.ece.rapidSmith.util.Exceptions;
@@ -49,8 +50,12 @@ public class RSEnvironment {
 	public static final String RSPATH_ENV_VARIABLE = "RAPIDSMITH_PATH";
 	/** Suffix of the device part files */
 	public static final String DEVICE_FILE_SUFFIX = "_db.dat";
+	/** Suffix of the routing distance table files stored next to the device files */
+	public static final String ROUTING_DISTANCE_FILE_SUFFIX = "_dist.dat";
 	/** Name of extended family information */
 	public static final String FAMILY_INFO_FILENAME = "familyInfo.xml";
+	/** Folder in the user's home directory holding files generated from the environment */
+	public static final String USER_FOLDER_NAME = ".rapidSmith";
 	/** The default environment */
 	private static RSEnvironment defaultEnv;
 
@@ -247,6 +252,21 @@ public class RSEnvironment {
 		return getDevicePath().resolve(familyType.name().toLowerCase());
 	}
 
+	/**
+	 * Returns the folder in the user's home directory where files generated from the
+	 * device files of a family, such as caches, are written.  This keeps the device
+	 * folders of the environment, which are usually part of the RapidSmith checkout,
+	 * unmodified.  The folder may not exist yet.
+	 *
+	 * @param familyType the family type of the generated files
+	 * @return the path of the user's folder for the family
+	 */
+	public Path getUserPartFolderPath(FamilyType familyType) {
+		Objects.requireNonNull(familyType);
+		return Paths.get(System.getProperty("user.home"), USER_FOLDER_NAME, "devices")
+				.resolve(familyType.name().toLowerCase());
+	}
+
 	/**
 	 * Returns a list of all parts for which a device file exists for in this environment.
 	 *
@@ -348,6 +368,46 @@ public class RSEnvironment {
 		}
 	}
 
+	/**
+	 * Returns the path of the routing distance table of the part {@code partName}.
+	 * The table is stored in the same folder as the device file.
+	 *
+	 * @param partName name of the part
+	 * @return the path of the routing distance table or null if the part is unknown
+	 * @see RoutingDistanceTable
+	 */
+	public Path getRoutingDistanceFilePath(String partName) {
+		Path devicePath = getDeviceFilePath(partName);
+		if (devicePath == null)
+			return null;
+		return devicePath.resolveSibling(PartNameTools.removeSpeedGrade(partName) + ROUTING_DISTANCE_FILE_SUFFIX);
+	}
+
+	/**
+	 * Loads the routing distance table of the device.  Tables are created with
+	 * {@link edu.byu.ece.rapidSmith.util.RoutingDistanceTableCreator}.
+	 *
+	 * @param device the device to load the table of
+	 * @return the routing distance table or null if no table exists for the device
+	 * @throws IOException if an error occurs reading the table
+	 */
+	public RoutingDistanceTable loadRoutingDistanceTable(Device device) throws IOException {
+		Path path = getRoutingDistanceFilePath(device.getPartName());
+		if (path == null || !Files.exists(path))
+			return null;
+		return RoutingDistanceTable.load(device, path);
+	}
+
+	/**
+	 * Writes the routing distance table next to the device file of its device.
+	 *
+	 * @param table the table to write
+	 * @throws IOException if an exception occurs writing the table
+	 */
+	public void writeRoutingDistanceTable(RoutingDistanceTable table) throws IOException {
+		table.write(getRoutingDistanceFilePath(table.getDevice().getPartName()));
+	}
+
 	/**
 	 * Writes the given device to a compressed, serialized device file in this
 	 * environment.
@@ -49,6 +49,13 @@ public abstract class AbstractDesign implements Serializable {
 		setPartName(partName);
 	}
 
+	protected AbstractDesign(String designName, String partName, Device device) {
+		this();
+		setName(designName);
+		this.partName = partName;
+		this.device = device;
+	}
+
 	/**
 	 * Returns the name of this design.
 	 *
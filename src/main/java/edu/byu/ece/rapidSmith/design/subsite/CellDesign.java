@@ -22,10 +22,14 @@ package edu.byu.ece.rapidSmith.design.subsite;
 
 import edu.byu.ece.rapidSmith.design.AbstractDesign;
 import edu.byu.ece.rapidSmith.device.Bel;
+import edu.byu.ece.rapidSmith.device.BelIndex;
+import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.Site;
 import edu.byu.ece.rapidSmith.interfaces.vivado.XdcConstraint;
 import edu.byu.ece.rapidSmith.util.Exceptions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -40,6 +44,8 @@ import static java.util.Collections.emptyMap;
  *  {@link #placeCell(Cell, edu.byu.ece.rapidSmith.device.Bel)}.  The
  *  placement information is stored in a two-level map of primitive sites and
  *  BELs allowing quick checking of cells located at both levels of hierarchy.
+ *  BEL occupancy is additionally tracked in flat tables indexed by the device's
+ *  {@link BelIndex} so that the BEL queries used by placers do not go through maps.
  *
  *  CellDesigns preserve attributes found in XDL designs for simpler conversion
  *  back to XDL.
@@ -52,6 +58,13 @@ public class CellDesign extends AbstractDesign {
 	private Map<String, Cell> internalCellMap;
 	/** A map used to keep track of all used primitive sites used by the design */
 	private Map<Site, Map<Bel, Cell>> placementMap;
+	/**
+	 * Flat BEL occupancy tables, built on the first placement and after deserialization.
+	 * The tables are published fully built so that threads only reading the placement,
+	 * such as the shards of a {@link edu.byu.ece.rapidSmith.util.CellDesignVerifier}, see
+	 * a consistent index and tables.
+	 */
+	private transient volatile BelOccupancy belOccupancy;
 	/** This is a list of all the nets in the design */
 	private Map<String, CellNet> netMap;
 	/** The properties of this design. */
@@ -68,6 +81,12 @@ public class CellDesign extends AbstractDesign {
 	private ImplementationMode mode;
 	/** Map of used PIPs to their Input Values in a Site **/
 	private Map<Site, Map<String, String>> pipInValues;
+	/** Cells placed or unplaced since the last call to {@link #clearModifications()} */
+	private transient Set<Cell> modifiedCells;
+	/** Nets routed or unrouted since the last call to {@link #clearModifications()} */
+	private transient Set<CellNet> modifiedNets;
+	/** Owning net of each used wire, built on the first call to {@link #getWireOccupancy()} */
+	private transient WireOccupancy wireOccupancy;
 	
 	/**
 	 * Constructor which initializes all member data structures. Sets name and
@@ -255,6 +274,14 @@ public class CellDesign extends AbstractDesign {
 		if (hasCell(cell.getName()))
 			throw new Exceptions.DesignAssemblyException("Cell with name already exists in design: " + cell.getName());
 
+		return putCell(cell);
+	}
+
+	/**
+	 * Adds a validated cell to the design without checking its name.  Used by
+	 * {@link CellDesignBuilder} which validates all of its cells at once.
+	 */
+	Cell putCell(Cell cell) {
 		cell.setDesign(this);
 		cellMap.put(cell.getName(), cell);
 		
@@ -292,6 +319,8 @@ public class CellDesign extends AbstractDesign {
 		
 		cellMap.remove(cell.getName());
 		cell.clearDesign();
+		if (modifiedCells != null)
+			modifiedCells.remove(cell);
 		
 		// remove all of the internal cells and nets if a macro cell is removed
 		if (cell.isMacro()) {
@@ -299,6 +328,8 @@ public class CellDesign extends AbstractDesign {
 				iCell.clearDesign();
 				_unplaceCell(iCell);
 				internalCellMap.remove(iCell.getName());
+				if (modifiedCells != null)
+					modifiedCells.remove(iCell);
 			}
 			cell.getPins().stream().filter(CellPin::isConnectedToNet).forEach(p -> p.getNet().disconnectFromPin(p));
 			cell.getInternalNets().forEach(this::_removeNet);
@@ -407,6 +438,14 @@ public class CellDesign extends AbstractDesign {
 		if (hasNet(net.getName()))
 			throw new Exceptions.DesignAssemblyException("Net with name already exists in design.");
 
+		return putNet(net);
+	}
+
+	/**
+	 * Adds a validated net to the design without checking its name.  Used by
+	 * {@link CellDesignBuilder} which validates all of its nets at once.
+	 */
+	CellNet putNet(CellNet net) {
 		if (net.isVCCNet()) {
 			// if (vccNet != null) {
 			// 	throw new DesignAssemblyException("VCC net already exists in design.");
@@ -422,10 +461,46 @@ public class CellDesign extends AbstractDesign {
 		
 		netMap.put(net.getName(), net);
 		net.setDesign(this);
+		if (wireOccupancy != null && net.hasIntersiteRouting())
+			wireOccupancy.update(net);
 		
 		return net;
 	}
 
+	/**
+	 * Grows the cell and net maps so that the specified number of additional
+	 * cells and nets can be added without rehashing.  A map is only replaced when
+	 * adding the elements would rehash it anyway, in which case collections returned
+	 * earlier by {@link #getCells()} or {@link #getNets()} no longer reflect the design.
+	 *
+	 * @param cells the number of cells that will be added
+	 * @param nets the number of nets that will be added
+	 */
+	void reserve(int cells, int nets) {
+		cellMap = reserve(cellMap, cells);
+		netMap = reserve(netMap, nets);
+	}
+
+	private static <V> Map<String, V> reserve(Map<String, V> map, int additional) {
+		int required = map.size() + additional;
+		// capacities only grow, so the map has at least the capacity its size requires
+		if (additional <= 0 || required <= 0.75f * hashCapacity(map.size()))
+			return map;
+		HashMap<String, V> resized = new HashMap<>(hashCapacity(required));
+		resized.putAll(map);
+		return resized;
+	}
+
+	/*
+	 * Returns the smallest HashMap capacity holding the entries without rehashing.
+	 */
+	private static int hashCapacity(int entries) {
+		int capacity = 16;
+		while (0.75f * capacity < entries)
+			capacity <<= 1;
+		return capacity;
+	}
+
 	/**
 	 * Disconnects and removes a net from this design.
 	 *
@@ -444,7 +519,11 @@ public class CellDesign extends AbstractDesign {
 	}
 
 	private void _removeNet(CellNet net) {
+		if (wireOccupancy != null)
+			wireOccupancy.release(net);
 		net.setDesign(null);
+		if (modifiedNets != null)
+			modifiedNets.remove(net);
 		
 		if (net.isVCCNet()) {
 			vccNet = null;
@@ -510,10 +589,12 @@ public class CellDesign extends AbstractDesign {
 	public Cell getCellAtBel(Bel bel) {
 		Objects.requireNonNull(bel);
 
-		Map<Bel, Cell> sitePlacementMap = placementMap.get(bel.getSite());
-		if (sitePlacementMap == null)
-			return null;
-		return sitePlacementMap.get(bel);
+		BelOccupancy occupancy = belOccupancy;
+		if (occupancy == null || occupancy.belIndex.getDevice() != _getDevice(bel)) {
+			Map<Bel, Cell> sitePlacementMap = placementMap.get(bel.getSite());
+			return sitePlacementMap == null ? null : sitePlacementMap.get(bel);
+		}
+		return occupancy.cellsAtBels[occupancy.belIndex.indexOf(bel)];
 	}
 
 	/**
@@ -542,8 +623,12 @@ public class CellDesign extends AbstractDesign {
 	public boolean isBelUsed(Bel bel) {
 		Objects.requireNonNull(bel);
 
-		Map<Bel, Cell> sitePlacementMap = placementMap.get(bel.getSite());
-		return sitePlacementMap != null && sitePlacementMap.containsKey(bel);
+		BelOccupancy occupancy = belOccupancy;
+		if (occupancy == null || occupancy.belIndex.getDevice() != _getDevice(bel)) {
+			Map<Bel, Cell> sitePlacementMap = placementMap.get(bel.getSite());
+			return sitePlacementMap != null && sitePlacementMap.containsKey(bel);
+		}
+		return occupancy.isUsed(occupancy.belIndex.indexOf(bel));
 	}
 
 	/**
@@ -577,7 +662,7 @@ public class CellDesign extends AbstractDesign {
 	 */
 	public boolean canPlaceCellAt(Cell cell, Bel bel) {
 		return bel != null && !isBelUsed(bel) &&
-			cell.getLibCell().getPossibleAnchors().contains(bel.getId());
+			cell.getLibCell().isPossibleAnchor(bel);
 	}
 
 	/**
@@ -646,6 +731,30 @@ public class CellDesign extends AbstractDesign {
 		});
 	}
 
+	private static Device _getDevice(Bel bel) {
+		return bel.getSite().getTile().getDevice();
+	}
+
+	// Returns the occupancy tables for the device of the BEL, rebuilding them
+	// from the placement map if they were built for a different device
+	private BelOccupancy _getBelOccupancy(Bel bel) {
+		Device belDevice = _getDevice(bel);
+		BelOccupancy occupancy = belOccupancy;
+		if (occupancy == null || occupancy.belIndex.getDevice() != belDevice) {
+			occupancy = new BelOccupancy(belDevice.getBelIndex(), placementMap);
+			belOccupancy = occupancy;
+		}
+		return occupancy;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		placementMap.values().stream()
+			.flatMap(m -> m.keySet().stream())
+			.findAny()
+			.ifPresent(this::_getBelOccupancy);
+	}
+
 	private void _placeCell(Cell cell, Bel bel) {
 		// update the placement map
 		Map<Bel, Cell> sitePlacementMap = placementMap.get(bel.getSite());
@@ -656,9 +765,11 @@ public class CellDesign extends AbstractDesign {
 			assert sitePlacementMap.get(bel) == null;
 		}
 		sitePlacementMap.put(bel, cell);
+		_getBelOccupancy(bel).set(bel, cell);
 
 		// set the location in the cell
 		cell.place(bel);
+		_markCellModified(cell);
 	}
 
 	/**
@@ -702,9 +813,99 @@ public class CellDesign extends AbstractDesign {
 		sitePlacementMap.remove(cell.getBel());
 		if (sitePlacementMap.size() == 0)
 			placementMap.remove(site);
+		_getBelOccupancy(cell.getBel()).set(cell.getBel(), null);
 
 		// clear the location from the cell
 		cell.unplace();
+		_markCellModified(cell);
+	}
+
+	// Records the cell and the nets connected to it, whose routes to the
+	// cell's pins no longer hold once the cell moves.  The VCC and GND nets
+	// connect to most cells, so only the pins of the cell are exported for them.
+	private void _markCellModified(Cell cell) {
+		if (cell.getDesign() != this)
+			return;
+		if (modifiedCells == null)
+			modifiedCells = new LinkedHashSet<>();
+		modifiedCells.add(cell);
+
+		for (CellPin pin : cell.getPins()) {
+			if (pin.isConnectedToNet() && !pin.getNet().isStaticNet())
+				markNetModified(pin.getNet());
+		}
+	}
+
+	/**
+	 * Records that the routing of the net has changed.  Routing changes made through
+	 * {@link CellNet}'s routing methods are recorded automatically; this method is
+	 * needed only after editing the {@link RouteTree}s of a net directly.
+	 *
+	 * @param net a net in this design
+	 * @see #getModifiedNets()
+	 */
+	public void markNetModified(CellNet net) {
+		if (net.getDesign() != this)
+			return;
+		if (modifiedNets == null)
+			modifiedNets = new LinkedHashSet<>();
+		modifiedNets.add(net);
+	}
+
+	/**
+	 * Returns the cells that have been placed or unplaced since the last call to
+	 * {@link #clearModifications()}.  Along with {@link #getModifiedNets()}, this
+	 * allows only the changes to a design to be exported to Vivado.
+	 *
+	 * @return an unmodifiable view of the modified cells, in the order they were modified
+	 */
+	public Set<Cell> getModifiedCells() {
+		return modifiedCells == null ? Collections.emptySet() : Collections.unmodifiableSet(modifiedCells);
+	}
+
+	/**
+	 * Returns the nets whose routing has changed since the last call to
+	 * {@link #clearModifications()}.  This includes the nets connected to the
+	 * cells that have been placed or unplaced, except for the static VCC and GND
+	 * nets, which are only included when their routing itself has changed.
+	 *
+	 * @return an unmodifiable view of the modified nets, in the order they were modified
+	 * @see #markNetModified(CellNet)
+	 */
+	public Set<CellNet> getModifiedNets() {
+		return modifiedNets == null ? Collections.emptySet() : Collections.unmodifiableSet(modifiedNets);
+	}
+
+	/**
+	 * Forgets the modified cells and nets of this design.  This is called when the
+	 * design has been synchronized with Vivado, ie. after importing or exporting it.
+	 */
+	public void clearModifications() {
+		modifiedCells = null;
+		modifiedNets = null;
+	}
+
+	/**
+	 * Returns the occupancy of the routing wires of the device by the nets of this
+	 * design.  The occupancy is built from the current routing on the first call
+	 * and is kept up to date by the routing methods of {@link CellNet} afterwards.
+	 *
+	 * @return the wire occupancy of this design
+	 */
+	public WireOccupancy getWireOccupancy() {
+		if (wireOccupancy == null) {
+			wireOccupancy = new WireOccupancy(this);
+			wireOccupancy.rebuild();
+		}
+		return wireOccupancy;
+	}
+
+	/**
+	 * Returns the wire occupancy if it has been built, else null.  Used by
+	 * {@link CellNet} to update the occupancy when its routing changes.
+	 */
+	WireOccupancy trackedWireOccupancy() {
+		return wireOccupancy;
 	}
 
 	/**
@@ -870,4 +1071,36 @@ public class CellDesign extends AbstractDesign {
 
 		return designCopy;
 	}
+
+	// The BEL occupancy of the design in flat tables indexed by the BEL index
+	private static final class BelOccupancy {
+		final BelIndex belIndex;
+		/** Bit set of the used BELs */
+		final long[] usedBels;
+		/** The cell placed at each BEL */
+		final Cell[] cellsAtBels;
+
+		BelOccupancy(BelIndex belIndex, Map<Site, Map<Bel, Cell>> placementMap) {
+			this.belIndex = belIndex;
+			usedBels = new long[(belIndex.size() + 63) >>> 6];
+			cellsAtBels = new Cell[belIndex.size()];
+			for (Map<Bel, Cell> sitePlacementMap : placementMap.values()) {
+				for (Map.Entry<Bel, Cell> e : sitePlacementMap.entrySet())
+					set(e.getKey(), e.getValue());
+			}
+		}
+
+		boolean isUsed(int index) {
+			return (usedBels[index >>> 6] & (1L << index)) != 0;
+		}
+
+		void set(Bel bel, Cell cell) {
+			int index = belIndex.indexOf(bel);
+			if (cell == null)
+				usedBels[index >>> 6] &= ~(1L << index);
+			else
+				usedBels[index >>> 6] |= 1L << index;
+			cellsAtBels[index] = cell;
+		}
+	}
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import edu.byu.ece.rapidSmith.util.Exceptions;
+
+/**
+ * Adds cells, nets and net connections to a {@link CellDesign} in bulk.  Elements
+ * are collected in the builder and committed together by {@link #build()}, which
+ * validates all of the elements in one pass, grows the maps of the design once for
+ * all of the new cells and nets, and sizes the pin set of each net for its
+ * connections before connecting them.  Importers and design generators that create
+ * large designs should prefer the builder to calling {@link CellDesign#addCell(Cell)},
+ * {@link CellDesign#addNet(CellNet)} and {@link CellNet#connectToPin(CellPin)} for
+ * each element.
+ * <p>
+ * Cells, nets and connections are validated with the same rules as the individual
+ * methods.  If a cell or net is invalid, {@link #build()} throws a
+ * {@link Exceptions.DesignAssemblyException} and leaves the design unmodified.
+ * Invalid connections are reported as they are connected.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * new CellDesignBuilder(design)
+ *     .addCells(cells)
+ *     .addNets(nets)
+ *     .connect(connectionNets, connectionPins)
+ *     .build();
+ * }</pre>
+ */
+public final class CellDesignBuilder {
+	private final CellDesign design;
+	private final List<Cell> cells = new ArrayList<>();
+	private final List<CellNet> nets = new ArrayList<>();
+	// connections as parallel arrays of nets and pins
+	private CellNet[] connectionNets = new CellNet[16];
+	private CellPin[] connectionPins = new CellPin[16];
+	private int numConnections = 0;
+
+	/**
+	 * Creates a new builder adding to the specified design.
+	 *
+	 * @param design the design to add the cells and nets to
+	 */
+	public CellDesignBuilder(CellDesign design) {
+		this.design = Objects.requireNonNull(design);
+	}
+
+	/**
+	 * @return the design this builder adds to
+	 */
+	public CellDesign getDesign() {
+		return design;
+	}
+
+	public CellDesignBuilder addCell(Cell cell) {
+		cells.add(cell);
+		return this;
+	}
+
+	public CellDesignBuilder addCells(Cell... cells) {
+		Collections.addAll(this.cells, cells);
+		return this;
+	}
+
+	public CellDesignBuilder addCells(Collection<Cell> cells) {
+		this.cells.addAll(cells);
+		return this;
+	}
+
+	public CellDesignBuilder addNet(CellNet net) {
+		nets.add(net);
+		return this;
+	}
+
+	public CellDesignBuilder addNets(CellNet... nets) {
+		Collections.addAll(this.nets, nets);
+		return this;
+	}
+
+	public CellDesignBuilder addNets(Collection<CellNet> nets) {
+		this.nets.addAll(nets);
+		return this;
+	}
+
+	/**
+	 * Adds a connection of the pin to the net.
+	 *
+	 * @param net the net to connect the pin to
+	 * @param pin the pin to connect
+	 * @return this builder
+	 */
+	public CellDesignBuilder connect(CellNet net, CellPin pin) {
+		ensureConnectionCapacity(numConnections + 1);
+		connectionNets[numConnections] = net;
+		connectionPins[numConnections] = pin;
+		numConnections++;
+		return this;
+	}
+
+	/**
+	 * Adds connections of pins to nets.  {@code pins[i]} is connected to {@code nets[i]}.
+	 *
+	 * @param nets the nets of the connections
+	 * @param pins the pins of the connections
+	 * @return this builder
+	 */
+	public CellDesignBuilder connect(CellNet[] nets, CellPin[] pins) {
+		if (nets.length != pins.length)
+			throw new IllegalArgumentException("nets and pins must have the same length");
+		ensureConnectionCapacity(numConnections + nets.length);
+		System.arraycopy(nets, 0, connectionNets, numConnections, nets.length);
+		System.arraycopy(pins, 0, connectionPins, numConnections, pins.length);
+		numConnections += nets.length;
+		return this;
+	}
+
+	private void ensureConnectionCapacity(int capacity) {
+		if (capacity > connectionNets.length) {
+			int newLength = Math.max(capacity, connectionNets.length * 2);
+			connectionNets = Arrays.copyOf(connectionNets, newLength);
+			connectionPins = Arrays.copyOf(connectionPins, newLength);
+		}
+	}
+
+	/**
+	 * Adds the collected cells and nets to the design and connects the collected
+	 * connections.  Cells are added before nets, so the internal nets of new macro
+	 * cells are part of the design before the nets of the builder are added.  The
+	 * builder is cleared afterwards and may be reused.  If the design has to grow to
+	 * hold the new cells or nets, collections returned earlier by
+	 * {@link CellDesign#getCells()} and {@link CellDesign#getNets()} no longer
+	 * reflect the design.
+	 *
+	 * @return the design
+	 * @throws Exceptions.DesignAssemblyException if a cell, net or connection is invalid
+	 */
+	public CellDesign build() {
+		try {
+			validate();
+			design.reserve(cells.size(), nets.size() + countInternalNets());
+			addCellsAndNets();
+			connectPins();
+			return design;
+		} finally {
+			cells.clear();
+			nets.clear();
+			Arrays.fill(connectionNets, 0, numConnections, null);
+			Arrays.fill(connectionPins, 0, numConnections, null);
+			numConnections = 0;
+		}
+	}
+
+	/*
+	 * Checks the cells and nets, including the names of the internal cells and nets
+	 * of macros, against the design and against the earlier elements of the builder
+	 * before anything is added to the design.
+	 */
+	private void validate() {
+		Set<String> cellNames = new HashSet<>();
+		Set<String> netNames = new HashSet<>();
+		for (Cell cell : cells) {
+			Objects.requireNonNull(cell);
+			if (cell.isInDesign())
+				throw new Exceptions.DesignAssemblyException("Cell already in a design.");
+			if (cell.isInternal())
+				throw new Exceptions.DesignAssemblyException("Cannot add internal cell to design. Must add parent macro instead.");
+			if (design.hasCell(cell.getName()) || !cellNames.add(cell.getName()))
+				throw new Exceptions.DesignAssemblyException("Cell with name already exists in design: " + cell.getName());
+			if (cell.isMacro()) {
+				for (Cell internal : cell.getInternalCells()) {
+					if (design.hasCell(internal.getName()) || !cellNames.add(internal.getName()))
+						throw new Exceptions.DesignAssemblyException("Cell with name already exists in design: " + internal.getName());
+				}
+				for (CellNet net : cell.getInternalNets())
+					validateNet(net, netNames);
+			}
+		}
+		for (CellNet net : nets)
+			validateNet(net, netNames);
+		for (int i = 0; i < numConnections; i++) {
+			Objects.requireNonNull(connectionNets[i]);
+			Objects.requireNonNull(connectionPins[i]);
+		}
+	}
+
+	private void validateNet(CellNet net, Set<String> netNames) {
+		Objects.requireNonNull(net);
+		if (net.isInDesign())
+			throw new Exceptions.DesignAssemblyException("Cannot add net from another design.");
+		if (design.hasNet(net.getName()) || !netNames.add(net.getName()))
+			throw new Exceptions.DesignAssemblyException("Net with name already exists in design: " + net.getName());
+	}
+
+	private int countInternalNets() {
+		int count = 0;
+		for (Cell cell : cells) {
+			if (cell.isMacro())
+				count += cell.getInternalNets().size();
+		}
+		return count;
+	}
+
+	/*
+	 * Adds the validated cells and nets to the design.
+	 */
+	private void addCellsAndNets() {
+		for (Cell cell : cells)
+			design.putCell(cell);
+		for (CellNet net : nets)
+			design.putNet(net);
+	}
+
+	/*
+	 * Connects the pins of each run of connections to the same net with a single
+	 * call so that the pin set of the net is sized once.
+	 */
+	private void connectPins() {
+		int start = 0;
+		for (int i = 1; i <= numConnections; i++) {
+			if (i == numConnections || connectionNets[i] != connectionNets[start]) {
+				connectionNets[start].connectToPins(connectionPins, start, i);
+				start = i;
+			}
+		}
+	}
+}
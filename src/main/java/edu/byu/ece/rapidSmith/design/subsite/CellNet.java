@@ -274,9 +274,22 @@ public class CellNet implements Serializable {
 		}
 	}
 	
+	/**
+	 * Connects the pins in {@code pins[from]} to {@code pins[to - 1]} to this net,
+	 * sizing the pin set of an unconnected net for the pins first.  Used by
+	 * {@link CellDesignBuilder} to connect each net's pins in one call.
+	 */
+	void connectToPins(CellPin[] pins, int from, int to) {
+		if (this.pins.isEmpty())
+			this.pins = new HashSet<>((int) ((to - from) / 0.75f) + 1);
+		for (int i = from; i < to; i++)
+			connectToPin(pins[i]);
+	}
+
 	private void connectToLeafPin(CellPin pin) {
 		Objects.requireNonNull(pin);
-		if (pins.contains(pin))
+		// a leaf pin is in the pin set exactly when it points to this net
+		if (pin.getNet() == this)
 			throw new Exceptions.DesignAssemblyException("Pin already exists in net: " + this.name + " " + pin.getFullName());
 		if (pin.getNet() != null)
 			throw new Exceptions.DesignAssemblyException("Pin " + pin.getFullName() + " already connected to net: " + pin.getNet().getName());
@@ -681,6 +694,7 @@ public class CellNet implements Serializable {
 	 * PIPs from placed relatively-routed molecules are preserved.
 	 */
 	public void unrouteFull() {
+		releaseWires();
 		intersiteRoutes = null;
 		sourceSitePinList = null;
 		source = null;
@@ -689,11 +703,32 @@ public class CellNet implements Serializable {
 		routedSinks = null;
 		isIntrasite = false;
 		routeStatus = RouteStatus.UNROUTED;
+		markModified();
 	}
 
 	public void unrouteIntersite() {
+		releaseWires();
 		intersiteRoutes = null;
 		computeRouteStatus();
+		markModified();
+	}
+
+	// records the routing change in the design for delta exports
+	private void markModified() {
+		if (design != null)
+			design.markNetModified(this);
+	}
+
+	// frees the wires of the intersite routing in the design's wire occupancy
+	private void releaseWires() {
+		WireOccupancy occupancy = wireOccupancy();
+		if (occupancy != null)
+			occupancy.release(this);
+	}
+
+	// the wire occupancy of the design if it is being tracked
+	private WireOccupancy wireOccupancy() {
+		return design == null ? null : design.trackedWireOccupancy();
 	}
 	
 	/**
@@ -729,6 +764,10 @@ public class CellNet implements Serializable {
 			intersiteRoutes = new ArrayList<>();
 		}
 		this.intersiteRoutes.add(intersite);
+		WireOccupancy occupancy = wireOccupancy();
+		if (occupancy != null)
+			occupancy.claim(this, intersite);
+		markModified();
 	}
 	
 	/**
@@ -737,6 +776,10 @@ public class CellNet implements Serializable {
 	 */
 	public void setIntersiteRouteTrees(List<RouteTree> routes) {
 		this.intersiteRoutes = routes;
+		WireOccupancy occupancy = wireOccupancy();
+		if (occupancy != null)
+			occupancy.update(this);
+		markModified();
 	}
 	
 	/**
@@ -22,8 +22,12 @@ package edu.byu.ece.rapidSmith.design.subsite;
 
 import edu.byu.ece.rapidSmith.device.Bel;
 import edu.byu.ece.rapidSmith.device.BelId;
+import edu.byu.ece.rapidSmith.device.BelTemplate;
+import edu.byu.ece.rapidSmith.device.SiteTemplate;
+import edu.byu.ece.rapidSmith.device.SiteType;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +47,8 @@ public abstract class LibraryCell implements Serializable {
 	private Map<String, Property> defaultProperties;
 	/** Cell configuration properties */
 	private final Map<String, LibraryCellProperty> configurableProperties;
+	/** Bit masks of the possible anchors in each site type, indexed by site type ordinal */
+	private transient volatile long[][] possibleAnchorMasks;
 
 	/**
 	 * Library Cell constructor
@@ -230,6 +236,63 @@ public abstract class LibraryCell implements Serializable {
 	 */
 	abstract public List<BelId> getPossibleAnchors();
 
+	/**
+	 * Returns {@code true} if cells of this type can be placed on the BEL, ie. if
+	 * the id of the BEL is in {@link #getPossibleAnchors()}.  The possible anchors
+	 * are stored as a bit mask over the BELs of each site type (see
+	 * {@link BelTemplate#getIndex()}) so this check does not search the anchor list.
+	 *
+	 * @param bel the BEL to test
+	 */
+	public final boolean isPossibleAnchor(Bel bel) {
+		BelTemplate template = bel.getTemplate();
+		int ordinal = template.getId().getSiteType().ordinal();
+		long[][] masks = possibleAnchorMasks;
+		long[] mask = masks != null && ordinal < masks.length ? masks[ordinal] : null;
+		if (mask == null) {
+			SiteTemplate siteTemplate = bel.getSite().getTile().getDevice()
+				.getSiteTemplate(template.getId().getSiteType());
+			mask = buildPossibleAnchorMask(siteTemplate);
+		}
+		int index = template.getIndex();
+		return (mask[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private synchronized long[] buildPossibleAnchorMask(SiteTemplate siteTemplate) {
+		SiteType type = siteTemplate.getType();
+		int ordinal = type.ordinal();
+		long[][] masks = possibleAnchorMasks;
+		if (masks != null && ordinal < masks.length && masks[ordinal] != null)
+			return masks[ordinal];
+
+		Map<String, BelTemplate> bels = siteTemplate.getBelTemplates();
+		long[] mask = new long[Math.max(1, (bels.size() + 63) >>> 6)];
+		List<BelId> anchors = getPossibleAnchors();
+		if (anchors != null) {
+			for (BelId id : anchors) {
+				if (id.getSiteType() != type)
+					continue;
+				BelTemplate bel = bels.get(id.getName());
+				if (bel != null)
+					mask[bel.getIndex() >>> 6] |= 1L << bel.getIndex();
+			}
+		}
+
+		long[][] copy = masks == null ? new long[ordinal + 1][] :
+			Arrays.copyOf(masks, Math.max(masks.length, ordinal + 1));
+		copy[ordinal] = mask;
+		possibleAnchorMasks = copy;
+		return mask;
+	}
+
+	/**
+	 * Discards the cached possible anchor masks.  Must be called by subclasses when
+	 * their possible anchors change.
+	 */
+	protected final synchronized void clearPossibleAnchorMasks() {
+		possibleAnchorMasks = null;
+	}
+
 	/**
 	 * Returns a list of site properties that are shared across a {@link Bel} Type.
 	 * For example, all Flip Flop Bels in a Site, must all be either rising edge or
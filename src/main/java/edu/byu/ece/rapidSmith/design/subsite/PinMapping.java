@@ -1,12 +1,18 @@
 package edu.byu.ece.rapidSmith.design.subsite;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -36,10 +42,20 @@ public class PinMapping {
 	public static final String PIN_MAPPINGS_FILENAME = "pinMappings.xml";
 	public static final String NEW_PIN_MAPPINGS_FILENAME = "newMapping.xml";
 	public static final String PIN_MAP_PROPERTIES_FILENAME = "pinMapProperties.xml";
+	/**
+	 * Binary copy of pinMappings.xml which is loaded instead of the XML when it is up to
+	 * date.  The copy is kept in {@link RSEnvironment#getUserPartFolderPath(FamilyType)}.
+	 */
+	public static final String PIN_MAPPINGS_CACHE_FILENAME = "pinMappings.dat";
+
+	private static final int CACHE_MAGIC = 0x504d4150; // "PMAP"
+	private static final int CACHE_VERSION = 1;
 
-	// These are static to ensure they will load from disk only once through the public get functions 
+	// These are static to ensure they will load from disk only once through the public get functions
 	private static Map<String, PinMapping> pinMappings = null;
 	private static Map<String, List<String>> pinMapProperties= null;
+	// Hash of the mapping owning each distinct set of pins in pinMappings, used to find duplicates
+	private static Map<Map<String, List<String>>, String> pinIndex = null;
 
    // These variables are per object
 	private String cellName;
@@ -95,42 +111,233 @@ public class PinMapping {
 	
 	// Load the pin mappings from disk if needed.  Then return them.
 	private static Map<String, PinMapping> getPinMappings(FamilyType family) {
-		if (pinMappings== null)
+		if (pinMappings== null) {
 			pinMappings = loadPinMappings(family);
+			pinIndex = null;
+		}
 		return pinMappings;
 	}
 
+	// Index the pins of the loaded mappings if needed.  Then return the index.
+	private static Map<Map<String, List<String>>, String> getPinIndex(FamilyType family) {
+		if (pinIndex == null) {
+			pinIndex = new HashMap<>();
+			for (PinMapping pm : getPinMappings(family).values()) {
+				if (!pm.hasDuplic())
+					pinIndex.putIfAbsent(pm.pins, pm.getHash());
+			}
+		}
+		return pinIndex;
+	}
+
+	/**
+	 * Returns the names of the properties which affect the pin mappings of a cell type
+	 * placed on a bel type.
+	 * @param family The family for the part
+	 * @param cellType The name of the cell type
+	 * @param belName The name of the bel type
+	 * @return The names of the properties, or null if no properties are listed for the combination
+	 */
+	static List<String> getPinMapPropertyNames(FamilyType family, String cellType, String belName) {
+		return getPinMapProperties(family).get(cellType + " " + belName);
+	}
+
+	/**
+	 * Adds a newly generated pin mapping to the in-memory cache of its family.  If the
+	 * pins of the mapping are identical to those of a mapping already in the cache, the new
+	 * mapping is stored as a duplicate of that mapping.  The cache is not saved to disk.
+	 * @param family The family for the part
+	 * @param pm The new pin mapping
+	 */
+	static void addPinMapping(FamilyType family, PinMapping pm) {
+		Map<String, PinMapping> pms = getPinMappings(family);
+		Map<Map<String, List<String>>, String> index = getPinIndex(family);
+
+		// Note: at this point pm.hasDuplic() == false
+		String dup = index.get(pm.pins);
+		if (dup != null && !dup.equals(pm.getHash())) {
+			pm.pins = null;
+			pm.duplic = dup;
+		}
+		else {
+			index.put(pm.pins, pm.getHash());
+		}
+		pms.put(pm.getHash(), pm);
+	}
+
+	/**
+	 * Save the in-memory pin mappings cache of a family to disk.
+	 * @param family The family for the part
+	 */
+	static void savePinMappings(FamilyType family) {
+		savePinMappings(family, getPinMappings(family));
+	}
+
 	/**
 	 * Load the pinmappings for a family from disk.
 	 * @param family The name of the family
 	 * @return A map of the pin mappings
 	 */
 	public static Map<String, PinMapping> loadPinMappings(FamilyType family) {
-		  Element pm = null;
-	  	try {
-	  		Path path = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve(PIN_MAPPINGS_FILENAME);
-	  		File tmp = new File(path.toString());
-	  		if (!tmp.exists()) {
-	  			System.out.println("Pin mappings file doesn't exist, creating: " + path.toString());
-	  			FileWriter out = new FileWriter(path.toString());
-	  			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<cells>\n</cells>\n");
-	  			out.close();
-	  		}
-	  		SAXBuilder builder = new SAXBuilder();
-			pm = builder.build(path.toFile()).getRootElement();
+		Path path = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve(PIN_MAPPINGS_FILENAME);
+		Path cache = getPinMappingsCachePath(family);
+		try {
+			File tmp = new File(path.toString());
+			if (!tmp.exists()) {
+				System.out.println("Pin mappings file doesn't exist, creating: " + path.toString());
+				FileWriter out = new FileWriter(path.toString());
+				out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<cells>\n</cells>\n");
+				out.close();
+			}
+
+			Map<String, PinMapping> ret = readPinMappingsCache(cache, path);
+			if (ret != null)
+				return ret;
+			ret = parsePinMappings(path);
+			updatePinMappingsCache(cache, path, ret);
+			return ret;
 		} catch (JDOMException | IOException e) {
-		// 	TODO Auto-generated catch block
+			// 	TODO Auto-generated catch block
 			e.printStackTrace();
-		}	  
-	  	if (pm==null)
-		  	return null;
-	  	else {
-	  		Map<String, PinMapping> ret = new HashMap<String, PinMapping>();
-	  		for (Element e : pm.getChildren("cell"))
-	  			ret.put(e.getAttributeValue("hash"), new PinMapping(e));
-	  		return ret;
-	  	}
-  	}
+			return null;
+		}
+	}
+
+	/**
+	 * Parse a pin mappings XML file.
+	 * @param path The path of the XML file
+	 * @return A map of the pin mappings keyed by their hash
+	 */
+	static Map<String, PinMapping> parsePinMappings(Path path) throws JDOMException, IOException {
+		SAXBuilder builder = new SAXBuilder();
+		Element pm = builder.build(path.toFile()).getRootElement();
+		Map<String, PinMapping> ret = new HashMap<String, PinMapping>();
+		for (Element e : pm.getChildren("cell"))
+			ret.put(e.getAttributeValue("hash"), new PinMapping(e));
+		return ret;
+	}
+
+	private static Path getPinMappingsCachePath(FamilyType family) {
+		return RSEnvironment.defaultEnv().getUserPartFolderPath(family).resolve(PIN_MAPPINGS_CACHE_FILENAME);
+	}
+
+	/*
+	 * Refreshes the binary copy of the pin mappings.  The copy only speeds up loading,
+	 * so failing to write it is not an error.
+	 */
+	private static void updatePinMappingsCache(Path cache, Path xml, Map<String, PinMapping> pinmappings) {
+		try {
+			Files.createDirectories(cache.getParent());
+			writePinMappingsCache(cache, xml, pinmappings);
+		} catch (IOException e) {
+			System.err.println("[Warning] Unable to write the pin mappings cache " + cache + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes a binary copy of the pin mappings.  The copy records the size and
+	 * modification time of the XML file it was made from so that a stale copy is
+	 * ignored by {@link #readPinMappingsCache(Path, Path)}.  The copy is written to a
+	 * temporary file that then replaces the cache, so a reader never sees a partly
+	 * written cache.
+	 * @param cache The path of the binary file to write
+	 * @param xml The path of the XML file holding the same pin mappings
+	 * @param pinmappings The pin mappings to write
+	 */
+	static void writePinMappingsCache(Path cache, Path xml, Map<String, PinMapping> pinmappings) throws IOException {
+		Path tmp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+		try {
+			writePinMappingsCacheTo(tmp, xml, pinmappings);
+			Files.move(tmp, cache, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static void writePinMappingsCacheTo(Path file, Path xml, Map<String, PinMapping> pinmappings) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeInt(CACHE_VERSION);
+			out.writeLong(Files.size(xml));
+			out.writeLong(Files.getLastModifiedTime(xml).toMillis());
+			out.writeInt(pinmappings.size());
+			for (PinMapping pm : pinmappings.values()) {
+				out.writeUTF(pm.cellName);
+				out.writeUTF(pm.belName);
+				out.writeUTF(pm.hash);
+				out.writeInt(pm.props.size());
+				for (Map.Entry<String, String> entry : pm.props.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeUTF(entry.getValue());
+				}
+				out.writeBoolean(pm.hasDuplic());
+				if (pm.hasDuplic()) {
+					out.writeUTF(pm.duplic);
+				}
+				else {
+					out.writeInt(pm.pins.size());
+					for (Map.Entry<String, List<String>> entry : pm.pins.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeInt(entry.getValue().size());
+						for (String bp : entry.getValue())
+							out.writeUTF(bp);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the binary copy of the pin mappings written by
+	 * {@link #writePinMappingsCache(Path, Path, Map)}.
+	 * @param cache The path of the binary file
+	 * @param xml The path of the XML file the copy was made from
+	 * @return The pin mappings, or null if the binary file does not exist, is older
+	 *   than the XML file or cannot be read
+	 */
+	static Map<String, PinMapping> readPinMappingsCache(Path cache, Path xml) {
+		if (!Files.exists(cache))
+			return null;
+
+		// the cache only speeds up loading, a truncated or corrupt cache is stale
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(cache)))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION)
+				return null;
+			if (in.readLong() != Files.size(xml) ||
+					in.readLong() != Files.getLastModifiedTime(xml).toMillis())
+				return null;
+
+			int count = in.readInt();
+			Map<String, PinMapping> ret = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				PinMapping pm = new PinMapping(in.readUTF(), in.readUTF(), in.readUTF());
+				int numProps = in.readInt();
+				for (int j = 0; j < numProps; j++)
+					pm.props.put(in.readUTF(), in.readUTF());
+				if (in.readBoolean()) {
+					pm.duplic = in.readUTF();
+				}
+				else {
+					pm.pins = new HashMap<>();
+					int numPins = in.readInt();
+					for (int j = 0; j < numPins; j++) {
+						String cp = in.readUTF();
+						int numBelPins = in.readInt();
+						List<String> bps = new ArrayList<>(numBelPins);
+						for (int k = 0; k < numBelPins; k++)
+							bps.add(in.readUTF());
+						pm.pins.put(cp, bps);
+					}
+				}
+				ret.put(pm.hash, pm);
+			}
+			return ret;
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
   
 	/**
 	 * Load the pinmap properties for a family from disk.  This file tells, for a given cell/bel combo, which properties "matter" - 
@@ -183,14 +390,30 @@ public class PinMapping {
 	 * @return The pin mappings loaded from disk.
 	 */
 	public static PinMapping loadNewPinMapping(FamilyType family) throws JDOMException, IOException {
-		Path path = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve("pinMappings").resolve("newMapping.xml");		
+		Path path = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve("pinMappings").resolve("newMapping.xml");
+		return loadPinMapping(path);
+	}
+
+	/**
+	 * Load the pin mappings for a single cell/bel combo from a file written by TINCR.
+	 * @param path The path of the file
+	 * @return The pin mappings loaded from disk.
+	 */
+	static PinMapping loadPinMapping(Path path) throws JDOMException, IOException {
 		SAXBuilder builder = new SAXBuilder();
 		Document d = builder.build(path.toFile());
 		Element e = d.getRootElement().getChild("cell");
 		PinMapping pm = new PinMapping(e);
-		return pm;	
+		return pm;
 	}
-	
+
+	private PinMapping(String cellName, String belName, String hash) {
+		this.cellName = cellName;
+		this.belName = belName;
+		this.hash = hash;
+		this.props = new HashMap<>();
+	}
+
 	private PinMapping(Element e) {
 		if (e != null) {
 			cellName = e.getAttributeValue("type");
@@ -291,11 +514,13 @@ public class PinMapping {
 	public static void savePinMappings(FamilyType family, Map<String, PinMapping> pinmappings) {
 	  try {
 		  Element e = buildDOMPinMappings(pinmappings);
-		  Path path = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve(PIN_MAPPINGS_FILENAME);
+		  Path folder = RSEnvironment.defaultEnv().getPartFolderPath(family);
+		  Path path = folder.resolve(PIN_MAPPINGS_FILENAME);
 		  OutputStream os = new FileOutputStream(path.toString());
 		  XMLOutputter xout = new XMLOutputter(Format.getPrettyFormat());
 		  xout.output(e, os);
 		  os.close();
+		  updatePinMappingsCache(getPinMappingsCachePath(family), path, pinmappings);
 	  } catch (IOException e) {
 		  // TODO Auto-generated catch block
 		  e.printStackTrace();
@@ -305,7 +530,7 @@ public class PinMapping {
 	// Create a hash string for a cell and the name of a bel it is to be placed onto.
 	// The cell is a handle to a real cell with its properties set as desired.
 	// The belName is not a full bel name but rather the name of the type, as in RAMB18E1.
-	private static String buildHashForCell(Cell cell, String belName) {
+	static String buildHashForCell(Cell cell, String belName) {
 		FamilyType family = cell.getDesign().getFamily();
 		getPinMappings(family);
 		getPinMapProperties(family);
@@ -374,26 +599,13 @@ public class PinMapping {
 		// If all goes well the file newMapping.xml will be created in the pinMappings subdirectory of the device architecture directory
 		// Now, let' load it in and add it to the cache
 		PinMapping pm = loadNewPinMapping(family);
-		
-		// Get the pinsmappings from the cache for this family
-		Map<String, PinMapping> pms = getPinMappings(family);
-		
-		// See if the pinmappings are a duplicate of another already in the cache
-		// If so, point them to the other entry using the duplic member
-		// Note: at this point pm.hasDuplic() == false
-		for (Map.Entry<String, PinMapping> entry : pms.entrySet()) {
-			String hash = entry.getKey();
-			PinMapping pm2 = entry.getValue();
-			if (pm.getPins().equals(pm2.getPins())) {
-				pm.pins = null;
-				pm.duplic = hash;
-			}
-		}
-		
-		// Add the new mapping to the mappings for this family
-		pms.put(pm.getHash(), pm);
-		
-		savePinMappings(family, pms);
+
+		// Add the new mapping to the mappings for this family.  If the pins are a duplicate
+		// of another entry already in the cache, it will point to the other entry using the
+		// duplic member
+		addPinMapping(family, pm);
+
+		savePinMappings(family);
 		return results;
 	}
 	
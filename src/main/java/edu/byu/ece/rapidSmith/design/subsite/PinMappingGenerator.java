@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jdom2.JDOMException;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.FamilyType;
+import edu.byu.ece.rapidSmith.util.Exceptions;
+import edu.byu.ece.rapidSmith.util.VivadoConsolePool;
+
+/**
+ * Generates the missing pin mappings of a design in batches.  Rather than starting
+ * Vivado once per cell/bel/properties combination as
+ * {@link PinMapping#createPinMappings(Cell, String, boolean)} does, the missing
+ * combinations are first collected, then split between the processes of a
+ * {@link VivadoConsolePool} which each create all of their mappings in one session.
+ * The new mappings are added to the pin mapping cache of the family and the cache
+ * is saved to disk once at the end.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ *   PinMappingGenerator generator = new PinMappingGenerator(design);
+ *   generator.addPlacedCells();
+ *   generator.generate(4);
+ * }</pre>
+ */
+public class PinMappingGenerator {
+	/** Script in the pinMappings directory of the family run for each batch */
+	public static final String BATCH_SCRIPT_FILENAME = "create_nondefault_pin_mappings_batch.tcl";
+
+	private final CellDesign design;
+	private final FamilyType family;
+	private final Path directory;
+	// cell and bel of each missing mapping, keyed by the hash of the mapping
+	private final Map<String, Request> requests = new LinkedHashMap<>();
+
+	/**
+	 * Creates a generator for the missing pin mappings of cells in the design.
+	 * @param design the design whose cells will be mapped
+	 */
+	public PinMappingGenerator(CellDesign design) {
+		this.design = design;
+		this.family = design.getFamily();
+		this.directory = RSEnvironment.defaultEnv().getPartFolderPath(family).resolve("pinMappings");
+	}
+
+	/**
+	 * Queues the pin mapping for placing the cell onto a bel if the mapping is not
+	 * already in the cache.  Cells sharing a mapping are only queued once.
+	 * @param cell the cell to map
+	 * @param belName the name of the bel type, as in RAMB18E1
+	 * @return true if the mapping was missing and has been queued
+	 */
+	public boolean add(Cell cell, String belName) {
+		String hash = PinMapping.buildHashForCell(cell, belName);
+		if (hash == null || requests.containsKey(hash))
+			return false;
+		if (PinMapping.findPinMappingForCell(cell, belName) != null)
+			return false;
+		requests.put(hash, new Request(cell, belName));
+		return true;
+	}
+
+	/**
+	 * Queues the missing pin mappings of every placed cell in the design, using the bels
+	 * the cells are currently placed on.
+	 * @return the number of mappings queued
+	 */
+	public int addPlacedCells() {
+		int count = 0;
+		for (Cell cell : design.getCells()) {
+			if (cell.isPlaced() && add(cell, cell.getBel().getName()))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the hashes of the queued mappings
+	 */
+	public Set<String> getMissingHashes() {
+		return Collections.unmodifiableSet(requests.keySet());
+	}
+
+	/**
+	 * Creates the queued mappings using a new pool of Vivado processes run in the
+	 * pinMappings directory of the family.  The pool is closed before returning.
+	 * @param processes the number of Vivado processes to use
+	 * @return the new pin mappings
+	 */
+	public List<PinMapping> generate(int processes) throws IOException, JDOMException {
+		if (requests.isEmpty())
+			return Collections.emptyList();
+		int size = Math.min(processes, requests.size());
+		try (VivadoConsolePool pool = new VivadoConsolePool(size, directory.toString())) {
+			return generate(pool, Long.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Creates the queued mappings using the processes of an existing pool.  The queued
+	 * mappings are split evenly between the processes.  Once generated, the mappings
+	 * are added to the pin mapping cache, duplicates are detected, and the cache is
+	 * saved.  The queue is then cleared.
+	 * @param pool the Vivado processes to run on
+	 * @param timeoutMilliseconds how long to wait for each batch to finish
+	 * @return the new pin mappings
+	 */
+	public List<PinMapping> generate(VivadoConsolePool pool, long timeoutMilliseconds)
+			throws IOException, JDOMException {
+		List<Request> pending = new ArrayList<>(requests.values());
+		int numBatches = Math.min(pool.size(), pending.size());
+		List<List<Request>> batches = new ArrayList<>(numBatches);
+		for (int i = 0; i < numBatches; i++)
+			batches.add(new ArrayList<>());
+		for (int i = 0; i < pending.size(); i++) {
+			Request request = pending.get(i);
+			request.file = directory.resolve("newMapping_" + i + ".xml").toAbsolutePath();
+			batches.get(i % numBatches).add(request);
+		}
+
+		List<CompletableFuture<List<String>>> futures = new ArrayList<>(numBatches);
+		for (int i = 0; i < numBatches; i++) {
+			Path setup = directory.resolve("setup_batch_" + i + ".tcl").toAbsolutePath();
+			writeSetupScript(setup, batches.get(i));
+			futures.add(pool.submit("source {" + toTclPath(setup) + "}"));
+		}
+
+		for (CompletableFuture<List<String>> future : futures) {
+			try {
+				future.get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while generating pin mappings", e);
+			} catch (ExecutionException e) {
+				throw new Exceptions.EnvironmentException(
+					"Failed to generate pin mappings: " + e.getCause().getMessage());
+			} catch (TimeoutException e) {
+				throw new IOException("Timed out generating pin mappings", e);
+			}
+		}
+
+		List<PinMapping> created = new ArrayList<>(pending.size());
+		for (Request request : pending) {
+			PinMapping pm = PinMapping.loadPinMapping(request.file);
+			PinMapping.addPinMapping(family, pm);
+			created.add(pm);
+		}
+		PinMapping.savePinMappings(family);
+		requests.clear();
+		return created;
+	}
+
+	private void writeSetupScript(Path setup, List<Request> batch) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(setup)) {
+			out.write("set partname " + design.getPartName() + "\n");
+			out.write("set requests [list]\n");
+			for (Request request : batch) {
+				String cellType = request.cell.getType();
+				StringBuilder propstring = new StringBuilder();
+				List<String> props = PinMapping.getPinMapPropertyNames(family, cellType, request.belName);
+				for (String p : props) {
+					propstring.append(p).append(" {")
+						.append(request.cell.getProperties().getValue(p)).append("} ");
+				}
+				out.write("lappend requests [list " + cellType + " " + request.belName +
+					" [dict create " + propstring + "] {" + toTclPath(request.file) + "}]\n");
+			}
+			out.write("source {" + toTclPath(directory.resolve(BATCH_SCRIPT_FILENAME).toAbsolutePath()) + "}\n");
+		}
+	}
+
+	// Tcl accepts forward slashes on every platform
+	private static String toTclPath(Path path) {
+		return path.toString().replace('\\', '/');
+	}
+
+	private static final class Request {
+		final Cell cell;
+		final String belName;
+		Path file;
+
+		Request(Cell cell, String belName) {
+			this.cell = cell;
+			this.belName = belName;
+		}
+	}
+}
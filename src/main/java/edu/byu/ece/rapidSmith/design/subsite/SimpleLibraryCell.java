@@ -131,6 +131,7 @@ public class SimpleLibraryCell extends LibraryCell {
 	 */
 	public void setPossibleBels(List<BelId> possibleBels) {
 		this.compatibleBels = possibleBels;
+		clearPossibleAnchorMasks();
 	}
 
 	@Override
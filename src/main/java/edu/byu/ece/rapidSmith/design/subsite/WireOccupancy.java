@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite;
+
+import edu.byu.ece.rapidSmith.device.TileWire;
+import edu.byu.ece.rapidSmith.device.Wire;
+
+import java.util.*;
+
+/**
+ * Records which net of a {@link CellDesign} uses each routing wire of the device.
+ * Wires are keyed by the unique address of their tile and their wire enum in an
+ * open addressing table, so finding the net using a wire, or whether a candidate
+ * route overlaps existing routing, takes constant time per wire.  Only the
+ * {@link TileWire}s of the intersite route trees of nets are recorded.
+ * <p>
+ * The occupancy of a design is obtained through {@link CellDesign#getWireOccupancy()},
+ * which builds it from the current routing on the first call.  From then on, the
+ * occupancy is updated by {@link CellNet#addIntersiteRouteTree(RouteTree)},
+ * {@link CellNet#setIntersiteRouteTrees(List)}, {@link CellNet#unrouteIntersite()},
+ * {@link CellNet#unrouteFull()} and by adding and removing nets.  Changes made
+ * directly to the {@link RouteTree}s of a net are not seen; call {@link #update(CellNet)}
+ * for the net afterwards, or {@link #rebuild()} after changing many nets.
+ * <p>
+ * Routing that uses a wire already used by another net is still recorded.  The
+ * first net to use the wire remains its owner and the wire is reported by
+ * {@link #getConflicts()} until all but one of the nets stop using it.
+ */
+public final class WireOccupancy {
+	private static final long EMPTY = -1;
+
+	private final CellDesign design;
+	// open addressing table from wire keys to the owning net
+	private long[] keys;
+	private CellNet[] owners;
+	private int size;
+	private int mask;
+	// keys of the wires recorded for each net, used to release the net's wires
+	private final Map<CellNet, Claims> claims = new IdentityHashMap<>();
+	// nets of the wires used by more than one net, including the owner
+	private final Map<Long, Conflict> conflicts = new HashMap<>();
+
+	WireOccupancy(CellDesign design) {
+		this.design = design;
+		allocate(16);
+	}
+
+	private void allocate(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		owners = new CellNet[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Rebuilds the occupancy from the current routing of every net in the design.
+	 * The table is sized once for all of the wires in the design.
+	 */
+	public void rebuild() {
+		int numWires = 0;
+		for (CellNet net : design.getNets()) {
+			for (RouteTree tree : net.getIntersiteRouteTreeList()) {
+				for (RouteTree ignored : tree)
+					numWires++;
+			}
+		}
+
+		allocate(numWires);
+		size = 0;
+		claims.clear();
+		conflicts.clear();
+		for (CellNet net : design.getNets()) {
+			for (RouteTree tree : net.getIntersiteRouteTreeList())
+				claim(net, tree);
+		}
+	}
+
+	/**
+	 * Replaces the wires recorded for the net with the wires of its current intersite
+	 * route trees.  Call this after editing the route trees of a net directly.
+	 *
+	 * @param net a net in the design
+	 */
+	public void update(CellNet net) {
+		release(net);
+		if (net.getDesign() == design) {
+			for (RouteTree tree : net.getIntersiteRouteTreeList())
+				claim(net, tree);
+		}
+	}
+
+	/**
+	 * @return the number of wires used by the routing of the design
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the net using the wire.  If several nets use the wire, the first of
+	 * them to be routed is returned.
+	 *
+	 * @param wire the wire to look up
+	 * @return the net using the wire or null if the wire is unused
+	 */
+	public CellNet getOwner(Wire wire) {
+		if (!(wire instanceof TileWire))
+			return null;
+		int i = find(keyOf((TileWire) wire));
+		return i < 0 ? null : owners[i];
+	}
+
+	/**
+	 * @param wire the wire to look up
+	 * @return true if the routing of any net uses the wire
+	 */
+	public boolean isUsed(Wire wire) {
+		return getOwner(wire) != null;
+	}
+
+	/**
+	 * Tests if the wire is used by a net other than the specified net, ie. whether a
+	 * router may use the wire for the net.
+	 *
+	 * @param wire the wire to test
+	 * @param net the net wanting to use the wire
+	 * @return true if another net uses the wire
+	 */
+	public boolean isUsedByOtherNet(Wire wire, CellNet net) {
+		CellNet owner = getOwner(wire);
+		if (owner == null)
+			return false;
+		if (owner != net)
+			return true;
+		// the net may share the wire with another net
+		return conflicts.containsKey(keyOf((TileWire) wire));
+	}
+
+	/**
+	 * Returns the wires of a candidate route that are already used by nets other
+	 * than the specified net.
+	 *
+	 * @param route the candidate route
+	 * @param net the net the route is for, or null if no net's wires should be excluded
+	 * @return the overlapping wires of the route in the iteration order of the route
+	 */
+	public List<Wire> getOverlaps(RouteTree route, CellNet net) {
+		List<Wire> overlaps = new ArrayList<>();
+		for (RouteTree rt : route) {
+			if (isUsedByOtherNet(rt.getWire(), net))
+				overlaps.add(rt.getWire());
+		}
+		return overlaps;
+	}
+
+	/**
+	 * @return true if any wire is used by more than one net
+	 */
+	public boolean hasConflicts() {
+		return !conflicts.isEmpty();
+	}
+
+	/**
+	 * Returns the wires used by more than one net and the nets using them.
+	 *
+	 * @return map from the conflicting wires to the nets using them
+	 */
+	public Map<Wire, Set<CellNet>> getConflicts() {
+		Map<Wire, Set<CellNet>> result = new LinkedHashMap<>();
+		for (Conflict conflict : conflicts.values())
+			result.put(conflict.wire, Collections.unmodifiableSet(conflict.nets));
+		return result;
+	}
+
+	/** Records the wires of the route tree as used by the net. */
+	void claim(CellNet net, RouteTree tree) {
+		Claims netClaims = claims.computeIfAbsent(net, k -> new Claims());
+		for (RouteTree rt : tree) {
+			Wire wire = rt.getWire();
+			if (!(wire instanceof TileWire))
+				continue;
+			long key = keyOf((TileWire) wire);
+			CellNet owner = put(key, net);
+			if (owner == null) {
+				netClaims.add(key);
+			} else if (owner != net) {
+				Conflict conflict = conflicts.computeIfAbsent(key, k -> new Conflict(wire, owner));
+				if (conflict.nets.add(net))
+					netClaims.add(key);
+			}
+		}
+	}
+
+	/** Releases all of the wires recorded for the net. */
+	void release(CellNet net) {
+		Claims netClaims = claims.remove(net);
+		if (netClaims == null)
+			return;
+		for (int c = 0; c < netClaims.size; c++) {
+			long key = netClaims.keys[c];
+			Conflict conflict = conflicts.get(key);
+			if (conflict != null) {
+				conflict.nets.remove(net);
+				int i = find(key);
+				if (owners[i] == net)
+					owners[i] = conflict.nets.iterator().next();
+				if (conflict.nets.size() == 1)
+					conflicts.remove(key);
+			} else {
+				remove(key);
+			}
+		}
+	}
+
+	private static long keyOf(TileWire wire) {
+		return ((long) wire.getTile().getUniqueAddress() << 32) | (wire.getWireEnum() & 0xFFFFFFFFL);
+	}
+
+	private static int spread(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int find(long key) {
+		int i = spread(key) & mask;
+		long k;
+		while ((k = keys[i]) != EMPTY) {
+			if (k == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/* Puts the key if absent and returns the previous owner or null if it was added. */
+	private CellNet put(long key, CellNet net) {
+		int i = spread(key) & mask;
+		long k;
+		while ((k = keys[i]) != EMPTY) {
+			if (k == key)
+				return owners[i];
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		owners[i] = net;
+		if (++size > (mask + 1) / 2)
+			grow();
+		return null;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		CellNet[] oldOwners = owners;
+		allocate(oldKeys.length);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] == EMPTY)
+				continue;
+			int i = spread(oldKeys[j]) & mask;
+			while (keys[i] != EMPTY)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			owners[i] = oldOwners[j];
+		}
+	}
+
+	/* Removes the key, shifting back later entries of its probe sequence. */
+	private void remove(long key) {
+		int i = find(key);
+		if (i < 0)
+			return;
+		size--;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == EMPTY)
+				break;
+			int home = spread(keys[j]) & mask;
+			// move the entry at j into the hole at i if i lies between home and j
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				owners[i] = owners[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		owners[i] = null;
+	}
+
+	private static final class Claims {
+		long[] keys = new long[8];
+		int size;
+
+		void add(long key) {
+			if (size == keys.length)
+				keys = Arrays.copyOf(keys, size * 2);
+			keys[size++] = key;
+		}
+	}
+
+	private static final class Conflict {
+		final Wire wire;
+		final Set<CellNet> nets = new LinkedHashSet<>();
+
+		Conflict(Wire wire, CellNet owner) {
+			this.wire = wire;
+			nets.add(owner);
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package edu.byu.ece.rapidSmith.design.xdl;
 
 import edu.byu.ece.rapidSmith.design.AbstractDesign;
+import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.device.Site;
 
 import java.util.*;
@@ -84,6 +85,20 @@ public class XdlDesign extends AbstractDesign {
 		init();
 	}
 
+	/**
+	 * Creates a new design for the part on the given device.  Unlike
+	 * {@link #XdlDesign(String, String)}, the device is not loaded from the
+	 * environment.
+	 *
+	 * @param designName the name for created design
+	 * @param partName the target part for the design
+	 * @param device the device of the part
+	 */
+	public XdlDesign(String designName, String partName, Device device){
+		super(designName, partName, device);
+		init();
+	}
+
 	private void init() {
 		modules = new HashMap<>();
 		instances = new HashMap<>();
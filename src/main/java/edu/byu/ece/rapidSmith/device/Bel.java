@@ -21,7 +21,6 @@
 package edu.byu.ece.rapidSmith.device;
 
 import java.io.Serializable;
-import java.lang.ref.SoftReference;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -32,7 +31,8 @@ import java.util.stream.Stream;
  *  As BELs do not have unique names, they are identified by their unique
  *  (site, name) pair.  Due to the number of BELs in a device, BELs are created
  *  upon request using the {@link edu.byu.ece.rapidSmith.device.Site#getBel(java.lang.String)}
- *  method on the site of the desired BEL.
+ *  method on the site of the desired BEL.  Each BEL is only created once, so
+ *  repeated requests for the same BEL return the same object.
  */
 public final class Bel implements Serializable {
 	private static final long serialVersionUID = -4092803033961128002L;
@@ -41,13 +41,10 @@ public final class Bel implements Serializable {
 	// The site the BEL exists in
 	private Site site;
 
-	// BelPins all have to be uniquely created for each BEL.  While most BELs do
-	// not have many pins, I don't want to be constantly recreating these pin
-	// objects so we'll create a cache to store the pins.  Use a soft reference
-	// to allow freeing the BelPins if they're not actively being used to reduce
-	// the memory footprint.
-	private transient SoftReference<Map<String, BelPin>> sources;
-	private transient SoftReference<Map<String, BelPin>> sinks;
+	// BelPins all have to be uniquely created for each BEL.  The pins of a BEL are
+	// created together upon the first request for any of them and then kept so
+	// that each pin is represented by a single object.
+	private transient volatile PinCache pins;
 
 	/**
 	 * Creates a new BEL in the given site backed by the given template.
@@ -116,91 +113,63 @@ public final class Bel implements Serializable {
 	public BelPin getBelPin(String pinName) {
 		// Since we don't know whether the pin is a source or sink of this BEL, we
 		// need to check both to locate it.
-
-		// First check if it exists in the source pins cache to avoid duplicating it.
-		Map<String, BelPin> sourcePins = (sources == null) ? null : sources.get();
-		if (sourcePins != null) {
-			BelPin pin = sourcePins.get(pinName);
-			if (pin != null)
-				return pin;
-		}
-		// Check if the pin is a source, and if so, create a new BelPin object
-		// and return it.
-		BelPinTemplate sourceTemplate = template.getSources().get(pinName);
-		if (sourceTemplate != null)
-			return new BelPin(this, sourceTemplate);
-
-		// It's not a source pin, now do the same checks to see if it's a sink pin
-		Map<String, BelPin> sinkPins = (sinks == null) ? null : sinks.get();
-		if (sinkPins != null) {
-			BelPin pin = sinkPins.get(pinName);
-			if (pin != null)
-				return pin;
-		}
-		BelPinTemplate sinkTemplate = template.getSinks().get(pinName);
-		if (sinkTemplate != null)
-			return new BelPin(this, sinkTemplate);
+		BelPinTemplate pinTemplate = template.getSources().get(pinName);
+		if (pinTemplate == null)
+			pinTemplate = template.getSinks().get(pinName);
 
 		// No pins of this name exist on this BEL.  Return null.
-		return null;
+		if (pinTemplate == null)
+			return null;
+		return getPinCache().getPin(pinTemplate);
+	}
+
+	/**
+	 * Returns the pin of this BEL backed by the template.
+	 *
+	 * @param pinTemplate the template of a pin of this BEL
+	 * @return the pin backed by the template
+	 */
+	BelPin getBelPin(BelPinTemplate pinTemplate) {
+		return getPinCache().getPin(pinTemplate);
 	}
 
 	/**
 	 * Return the source pins of this BEL.
 	 * <p>
-	 * The source pin objects are created dynamically upon the first call of this
-	 * method.  The pins are stored in a soft reference based cache.
+	 * The pin objects are created upon the first request for a pin of this BEL.
 	 *
 	 * @return a collection containing the source pins of this BEL
 	 */
 	public Collection<BelPin> getSources() {
-		// Check if the cache is valid, if not create it.
-		Map<String, BelPin> sourcePins = (sources == null) ? null : sources.get();
-		if (sourcePins == null) {
-			sourcePins = buildSources();
-		}
-		return sourcePins.values();
-	}
-
-	private Map<String, BelPin> buildSources() {
-		// Build the source pins and store the structure in a cache.
-		Map<String, BelPin> sourcePins = new HashMap<>(template.getSources().size());
-		for (BelPinTemplate belPinTemplate : template.getSources().values()) {
-			sourcePins.put(belPinTemplate.getName(), new BelPin(this, belPinTemplate));
-		}
-		sources = new SoftReference<>(sourcePins);
-		return sourcePins;
+		return getPinCache().sources;
 	}
 
 	/**
 	 * Return the sink pins of this BEL.
 	 * <p>
-	 * The sink pin objects are created dynamically upon the first call of this
-	 * method.  The pins are stored in a soft reference based cache.
+	 * The pin objects are created upon the first request for a pin of this BEL.
 	 *
 	 * @return a collection containing the sink pins of this BEL
 	 */
 	public Collection<BelPin> getSinks() {
-		// Check if the cache is valid, if not create it.
-		Map<String, BelPin> sinkPins = (sinks == null) ? null : sinks.get();
-		if (sinkPins == null) {
-			sinkPins = buildSinks();
-		}
-		return sinkPins.values();
+		return getPinCache().sinks;
 	}
 
 	public Stream<BelPin> getBelPins() {
 		return Stream.concat(getSources().stream(), getSinks().stream()).distinct();
 	}
 
-	private Map<String, BelPin> buildSinks() {
-		// Build the sink pins and store the structure in the cache.
-		Map<String, BelPin> sinkPins = new HashMap<>(template.getSinks().size());
-		for (BelPinTemplate belPinTemplate : template.getSinks().values()) {
-			sinkPins.put(belPinTemplate.getName(), new BelPin(this, belPinTemplate));
-		}
-		sinks = new SoftReference<>(sinkPins);
-		return sinkPins;
+	private PinCache getPinCache() {
+		PinCache cache = pins;
+		if (cache == null)
+			cache = buildPinCache();
+		return cache;
+	}
+
+	private synchronized PinCache buildPinCache() {
+		if (pins == null)
+			pins = new PinCache(this);
+		return pins;
 	}
 
 	/**
@@ -214,16 +183,8 @@ public final class Bel implements Serializable {
 	 */
 	public SiteWire getWireOfPin(String pinName) {
 		// Check both the sources and sinks structures to find the pin.
-		SiteType siteType = getId().getSiteType();
-		if (template.getSources().containsKey(pinName)) {
-			int wireEnum = template.getSources().get(pinName).getWire();
-			return new SiteWire(this.getSite(), siteType, wireEnum);
-		}
-		if (template.getSinks().containsKey(pinName)) {
-			int wireEnum = template.getSinks().get(pinName).getWire();
-			return new SiteWire(this.getSite(), siteType, wireEnum);
-		}
-		return null;
+		BelPin pin = getBelPin(pinName);
+		return pin == null ? null : pin.getWire();
 	}
 
 	@Override
@@ -266,4 +227,60 @@ public final class Bel implements Serializable {
 	public BelTemplate getTemplate() {
 		return template;
 	}
+
+	/**
+	 * The pins of a BEL indexed by the index of their templates.  The fields are
+	 * final so the cache is safely published to other threads.
+	 */
+	private static final class PinCache {
+		private final BelPin[] pins;
+		private final Collection<BelPin> sources;
+		private final Collection<BelPin> sinks;
+
+		PinCache(Bel bel) {
+			BelTemplate template = bel.template;
+			int numPins = 0;
+			for (BelPinTemplate pinTemplate : template.getSources().values())
+				numPins = Math.max(numPins, pinTemplate.getIndex() + 1);
+			for (BelPinTemplate pinTemplate : template.getSinks().values())
+				numPins = Math.max(numPins, pinTemplate.getIndex() + 1);
+
+			pins = new BelPin[numPins];
+			List<BelPin> sourcePins = new ArrayList<>(template.getSources().size());
+			for (BelPinTemplate pinTemplate : template.getSources().values())
+				sourcePins.add(create(bel, pinTemplate));
+			List<BelPin> sinkPins = new ArrayList<>(template.getSinks().size());
+			for (BelPinTemplate pinTemplate : template.getSinks().values())
+				sinkPins.add(create(bel, pinTemplate));
+			sources = Collections.unmodifiableList(sourcePins);
+			sinks = Collections.unmodifiableList(sinkPins);
+		}
+
+		private BelPin create(Bel bel, BelPinTemplate pinTemplate) {
+			BelPin pin = pins[pinTemplate.getIndex()];
+			if (pin == null || pin.getTemplate() != pinTemplate) {
+				pin = new BelPin(bel, pinTemplate);
+				// templates that were never numbered share index 0; keep the first
+				if (pins[pinTemplate.getIndex()] == null)
+					pins[pinTemplate.getIndex()] = pin;
+			}
+			return pin;
+		}
+
+		BelPin getPin(BelPinTemplate pinTemplate) {
+			BelPin pin = pins[pinTemplate.getIndex()];
+			if (pin != null && pin.getTemplate() == pinTemplate)
+				return pin;
+			// only reached for templates that were never numbered
+			for (BelPin p : sources) {
+				if (p.getTemplate() == pinTemplate)
+					return p;
+			}
+			for (BelPin p : sinks) {
+				if (p.getTemplate() == pinTemplate)
+					return p;
+			}
+			throw new IllegalArgumentException("Pin " + pinTemplate.getName() + " is not a pin of this BEL");
+		}
+	}
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device;
+
+/**
+ * Dense numbering of every BEL in a device.  Each (site, BEL id) pair in the device
+ * is assigned a unique index between 0 and {@link #size()} so that per-BEL
+ * information, such as placement occupancy, can be kept in flat arrays instead
+ * of maps.  BELs of each possible type of a site receive separate indices since
+ * BELs of different site types are different objects in RapidSmith.
+ *
+ * The index of a device is obtained through {@link Device#getBelIndex()}.
+ */
+public final class BelIndex {
+	private final Device device;
+	// first site number of each tile, indexed by tile unique address
+	private final int[] tileSiteBase;
+	// first BEL index of each site, indexed by site number
+	private final int[] siteBelBase;
+	// number of BELs in the template of each site type, indexed by ordinal
+	private final int[] belCounts;
+	private final int size;
+
+	BelIndex(Device device) {
+		this.device = device;
+
+		int maxOrdinal = 0;
+		for (SiteType type : device.getSiteTemplates().keySet())
+			maxOrdinal = Math.max(maxOrdinal, type.ordinal());
+		belCounts = new int[maxOrdinal + 1];
+		for (SiteTemplate template : device.getSiteTemplates().values()) {
+			if (template.getBelTemplates() != null)
+				belCounts[template.getType().ordinal()] = template.getBelTemplates().size();
+		}
+
+		int numTiles = device.getRows() * device.getColumns();
+		tileSiteBase = new int[numTiles];
+		int numSites = 0;
+		for (int row = 0; row < device.getRows(); row++) {
+			for (int col = 0; col < device.getColumns(); col++) {
+				Tile tile = device.getTile(row, col);
+				tileSiteBase[tile.getUniqueAddress()] = numSites;
+				if (tile.getSites() != null)
+					numSites += tile.getSites().length;
+			}
+		}
+
+		siteBelBase = new int[numSites];
+		int next = 0;
+		for (int row = 0; row < device.getRows(); row++) {
+			for (int col = 0; col < device.getColumns(); col++) {
+				Tile tile = device.getTile(row, col);
+				if (tile.getSites() == null)
+					continue;
+				for (Site site : tile.getSites()) {
+					siteBelBase[siteNumber(site)] = next;
+					for (SiteType type : site.getPossibleTypes())
+						next += belCounts[type.ordinal()];
+				}
+			}
+		}
+		size = next;
+	}
+
+	/**
+	 * @return the device this index numbers the BELs of
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * @return the number of BELs in the device
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the unique index of the BEL in the device.
+	 *
+	 * @param bel a BEL in the device
+	 * @return the index of the BEL
+	 */
+	public int indexOf(Bel bel) {
+		Site site = bel.getSite();
+		SiteType type = bel.getId().getSiteType();
+		int index = siteBelBase[siteNumber(site)];
+		// the default type is first, so this loop rarely iterates
+		for (SiteType possible : site.getPossibleTypes()) {
+			if (possible == type)
+				return index + bel.getTemplate().getIndex();
+			index += belCounts[possible.ordinal()];
+		}
+		throw new IllegalArgumentException("BEL " + bel + " is not a BEL of a possible type of its site");
+	}
+
+	private int siteNumber(Site site) {
+		return tileSiteBase[site.getTile().getUniqueAddress()] + site.getIndex();
+	}
+}
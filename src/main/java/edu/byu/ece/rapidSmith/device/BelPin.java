@@ -28,7 +28,8 @@ import java.util.Objects;
  *
  *  BelPins are created on demand to preserve memory.  BelPins are created via the
  *  {@link edu.byu.ece.rapidSmith.device.Bel#getBelPin(String)} method of the BEL
- *  the pin exists on.
+ *  the pin exists on.  Each pin is only created once, so repeated requests for
+ *  the same pin return the same object.
  */
 public final class BelPin implements Serializable {
 	private static final long serialVersionUID = -402693921202343025L;
@@ -36,6 +37,8 @@ public final class BelPin implements Serializable {
 	private final Bel bel;
 	// The backing template for this BEL pin
 	private final BelPinTemplate template;
+	// The site wire connecting to this pin, created upon first request
+	private transient SiteWire wire;
 
 	BelPin(Bel bel, BelPinTemplate template) {
 		this.bel = bel;
@@ -75,9 +78,12 @@ public final class BelPin implements Serializable {
 	 * @return the site wire connecting to this pin
 	 */
 	public SiteWire getWire() {
-		Bel bel = getBel();
-		SiteType siteType = bel.getId().getSiteType();
-		return new SiteWire(bel.getSite(), siteType, template.getWire());
+		if (wire == null) {
+			Bel bel = getBel();
+			SiteType siteType = bel.getId().getSiteType();
+			wire = new SiteWire(bel.getSite(), siteType, template.getWire());
+		}
+		return wire;
 	}
 
 	public PinDirection getDirection() {
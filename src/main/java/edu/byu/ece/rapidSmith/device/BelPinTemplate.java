@@ -37,6 +37,8 @@ public final class BelPinTemplate implements Serializable {
 	private PinDirection direction;
 	// Wire the BEL pin connects to
 	private int wire;
+	// Index of this pin on its BEL, assigned when the device is loaded
+	private transient int index;
 
 	public BelPinTemplate(BelId id, String name) {
 		this.name = name;
@@ -55,6 +57,20 @@ public final class BelPinTemplate implements Serializable {
 		return id;
 	}
 
+	/**
+	 * Returns the index of this pin on its BEL.  The source pins of a BEL are numbered
+	 * from 0 in the order of their names, followed by the sink pins.
+	 *
+	 * @return the index of this pin on its BEL
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	public void setId(BelId id) {
 		this.id = id;
 	}
@@ -35,6 +35,8 @@ public final class BelTemplate implements Serializable {
 	// BelPinTemplates for each pin on the BEL
 	private Map<String, BelPinTemplate> sources = new HashMap<>();
 	private Map<String, BelPinTemplate> sinks = new HashMap<>();
+	// Index of this BEL in its site template, assigned when the device is loaded
+	private transient int index;
 
 	public BelTemplate(BelId id, String type) {
 		this.id = id;
@@ -49,6 +51,21 @@ public final class BelTemplate implements Serializable {
 		return type;
 	}
 
+	/**
+	 * Returns the index of this BEL within its site template.  BELs in a site template
+	 * are numbered from 0 in the order of their names, so the index of a BEL is the
+	 * same in every device of the family.
+	 *
+	 * @return the index of this BEL within its site template
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	public Map<String, BelPinTemplate> getSources() {
 		return sources;
 	}
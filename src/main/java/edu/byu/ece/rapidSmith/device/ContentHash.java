@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device;
+
+/**
+ * The 64-bit mixing functions shared by the content hashes of device resources.
+ * {@link WireHashMap#getContentHash()}, the resource store and the device differ
+ * all hash with these functions so equal contents always produce equal hashes.
+ */
+public final class ContentHash {
+	private ContentHash() { }
+
+	/**
+	 * Combines a value into a running hash.  The result depends on the order in
+	 * which values are combined.
+	 *
+	 * @param h the hash so far
+	 * @param value the value to combine into the hash
+	 * @return the combined hash
+	 */
+	public static long combine(long h, long value) {
+		return mix(h * 0x9e3779b97f4a7c15L + value);
+	}
+
+	/**
+	 * Scrambles the bits of a hash with the finalizer of SplitMix64.  Summing mixed
+	 * hashes gives a hash that is independent of the order of the summed values.
+	 *
+	 * @param h the hash to mix
+	 * @return the mixed hash
+	 */
+	public static long mix(long h) {
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		return h ^ (h >>> 31);
+	}
+}
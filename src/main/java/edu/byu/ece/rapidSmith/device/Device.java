@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 /**
@@ -68,6 +69,10 @@ public class Device implements Serializable {
 	private Map<Integer, Map<Integer, PIPRouteThrough>> routeThroughMap;
 	/** Templates for each site type in the device */
 	private Map<SiteType, SiteTemplate> siteTemplates;
+	/** Templates of siteTemplates indexed by the ordinal of their site types */
+	private transient volatile SiteTemplate[] siteTemplatesByOrdinal = new SiteTemplate[0];
+	/** Compatible types of each site type indexed by the ordinal of the site type */
+	private transient volatile SiteType[][] compatibleTypesByOrdinal = new SiteType[0][];
 	/** The wire enumerator for this device */
 	private WireEnumerator we;
 	/** Primitive defs in the device for reference */
@@ -78,6 +83,12 @@ public class Device implements Serializable {
 	//========================================================================//
 	/** Created on demand when user calls getSitesOfTypeMap() */
 	private Map<SiteType, ArrayList<Site>> sitesOfTypeMap;
+	/** Spatial indexes of the compatible sites of each type, created on demand */
+	private final Map<SiteType, SiteIndex> siteIndexes = new ConcurrentHashMap<>();
+	/** Dense numbering of the BELs in the device, created on demand */
+	private volatile BelIndex belIndex;
+	/** Tables of the names in the device, created on demand */
+	private volatile NameResolver nameResolver;
 	/** Maps the pad bel name to the corresponding package pin */
 	private Map<String, PackagePin> packagePinMap;
 	
@@ -394,11 +405,53 @@ public class Device implements Serializable {
 	 * @return the site template for the specified site type
 	 */
 	public SiteTemplate getSiteTemplate(SiteType type) {
+		SiteTemplate[] templates = siteTemplatesByOrdinal;
+		int ordinal = type.ordinal();
+		if (ordinal < templates.length) {
+			SiteTemplate template = templates[ordinal];
+			if (template != null)
+				return template;
+		}
+		// the template may have been added to the map after it was indexed
 		return siteTemplates.get(type);
 	}
 
+	/**
+	 * Returns the site types compatible with the specified site type (see
+	 * {@link SiteTemplate#getCompatibleTypes()}).
+	 * @param type the site type
+	 * @return the compatible types of the site type or null if the site type has no
+	 *   template or no compatible types
+	 */
+	public SiteType[] getCompatibleTypes(SiteType type) {
+		SiteType[][] compatibleTypes = compatibleTypesByOrdinal;
+		int ordinal = type.ordinal();
+		if (ordinal < compatibleTypes.length && compatibleTypes[ordinal] != null)
+			return compatibleTypes[ordinal];
+		SiteTemplate template = getSiteTemplate(type);
+		return template == null ? null : template.getCompatibleTypes();
+	}
+
 	public void setSiteTemplates(Map<SiteType, SiteTemplate> siteTemplates) {
 		this.siteTemplates = siteTemplates;
+		indexSiteTemplates();
+	}
+
+	// Builds the arrays of the site templates and compatible types indexed by the
+	// ordinals of the site types
+	private void indexSiteTemplates() {
+		int maxOrdinal = -1;
+		for (SiteType type : siteTemplates.keySet())
+			maxOrdinal = Math.max(maxOrdinal, type.ordinal());
+
+		SiteTemplate[] templates = new SiteTemplate[maxOrdinal + 1];
+		SiteType[][] compatibleTypes = new SiteType[maxOrdinal + 1][];
+		for (Map.Entry<SiteType, SiteTemplate> e : siteTemplates.entrySet()) {
+			templates[e.getKey().ordinal()] = e.getValue();
+			compatibleTypes[e.getKey().ordinal()] = e.getValue().getCompatibleTypes();
+		}
+		siteTemplatesByOrdinal = templates;
+		compatibleTypesByOrdinal = compatibleTypes;
 	}
 
 	public BelTemplate getBelTemplate(BelId id) {
@@ -451,13 +504,33 @@ public class Device implements Serializable {
 	 * all SLICEM sites.  If the type given were SLICEL, this method would return
 	 * a list of all SLICEL and SLICEM sites.
 	 *
-	 * Note -- The list is rebuilt each method call.
+	 * Note -- The list is built once per site type and cached.  The returned list
+	 * cannot be modified.
 	 *
 	 * @param type the type for which to find compatible sites.
 	 * @return a list of compatible sites suitable for placement of an
 	 * instance of type type.
 	 */
 	public List<Site> getAllCompatibleSites(SiteType type) {
+		return getSiteIndex(type).getSites();
+	}
+
+	/**
+	 * Returns the spatial index over all of the sites compatible with the site type
+	 * (see {@link #getAllCompatibleSites(SiteType)}).  The index supports region and
+	 * nearest-site queries.  Indexes are built on first request and cached.
+	 *
+	 * @param type the type for which to index the compatible sites
+	 * @return the spatial index of the sites compatible with type
+	 */
+	public SiteIndex getSiteIndex(SiteType type) {
+		SiteIndex index = siteIndexes.get(type);
+		if (index == null)
+			index = siteIndexes.computeIfAbsent(type, this::buildSiteIndex);
+		return index;
+	}
+
+	private SiteIndex buildSiteIndex(SiteType type) {
 		// Check if there are sites of the given type
 		List<Site> compatibleList = new ArrayList<>();
 		List<Site> match = getAllSitesOfType(type);
@@ -466,7 +539,7 @@ public class Device implements Serializable {
 		}
 
 		// Check for other compatible site types
-		SiteType[] compatibleTypes = getSiteTemplate(type).getCompatibleTypes();
+		SiteType[] compatibleTypes = getCompatibleTypes(type);
 		if (compatibleTypes != null) {
 			for (SiteType compatibleType : compatibleTypes) {
 				match = getAllSitesOfType(compatibleType);
@@ -475,12 +548,47 @@ public class Device implements Serializable {
 				}
 			}
 		}
+		return new SiteIndex(this, compatibleList);
+	}
 
-		// If there are no compatible sites, return empty list
-		if (compatibleList.size() == 0) {
-			return Collections.emptyList();
+	/**
+	 * Returns the dense numbering of the BELs in this device.  The index is built on
+	 * first request and cached.
+	 *
+	 * @return the BEL index of this device
+	 */
+	public BelIndex getBelIndex() {
+		BelIndex index = belIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = belIndex;
+				if (index == null) {
+					index = new BelIndex(this);
+					belIndex = index;
+				}
+			}
 		}
-		return compatibleList;
+		return index;
+	}
+
+	/**
+	 * Returns the resolver of the site, tile, wire, BEL and pin names in this device.
+	 * The resolver is built on first request and cached.
+	 *
+	 * @return the name resolver of this device
+	 */
+	public NameResolver getNameResolver() {
+		NameResolver resolver = nameResolver;
+		if (resolver == null) {
+			synchronized (this) {
+				resolver = nameResolver;
+				if (resolver == null) {
+					resolver = new NameResolver(this);
+					nameResolver = resolver;
+				}
+			}
+		}
+		return resolver;
 	}
 
 	/**
@@ -627,13 +735,21 @@ public class Device implements Serializable {
 	 * provided during the loading and creation process.
 	 * <p>
 	 * Specifically, this method does three things:
+	 *   indexes the site templates by the ordinals of their site types
 	 *   initializes the site types to their default types
+	 * <p>
+	 * Site templates that already have their dependent resources, such as the
+	 * templates shared with other devices through the {@link DeviceResourceStore},
+	 * are not rebuilt.
 	 *
 	 */
 	public void constructDependentResources() {
+		indexSiteTemplates();
 		setSiteTypes();
-		for (SiteTemplate siteTemplate : siteTemplates.values())
-			siteTemplate.constructDependentResources();
+		for (SiteTemplate siteTemplate : siteTemplates.values()) {
+			if (!siteTemplate.hasDependentResources())
+				siteTemplate.constructDependentResources();
+		}
 		constructSiteExternalConnections();
 	}
 
@@ -733,13 +849,17 @@ public class Device implements Serializable {
 				}
 			}
 			device.routeThroughMap = routeThroughMap;
-			device.siteTemplates = new HashMap<>();
+			Map<SiteType, SiteTemplate> templates = new HashMap<>();
 			for (SiteTemplate template : siteTemplates) {
-				device.siteTemplates.put(template.getType(), template);
+				templates.put(template.getType(), template);
 			}
+			device.setSiteTemplates(templates);
 			device.we = we;
 			device.primitiveDefs = primitiveDefs;
 
+			// share identical wiring and templates with other loaded parts of the family
+			DeviceResourceStore.forFamily(family).internResources(device);
+
 			device.constructTileMap();
 			device.constructDependentResources();
 			device.packagePinMap = packagePinMap;
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+import static edu.byu.ece.rapidSmith.device.ContentHash.combine;
+
+/**
+ * Content addressed store of the large, read-only structures of devices shared by
+ * the parts of a family.  Hessian only shares objects within a single device file,
+ * so without this store every loaded part holds its own copy of the tile wire
+ * tables and site templates even when they are identical to those of a part that
+ * is already loaded.  Loaded devices are passed through
+ * {@link #internResources(Device)}, which replaces their wire enumerator, wire hash
+ * maps and site templates with the stored copies of identical structures.
+ *
+ * Structures are keyed by a 64-bit content hash and verified for equality before
+ * they are shared.  Wire hash maps and site templates store wires by their
+ * enumeration, so they are only shared between devices with identical wire
+ * enumerators.  The store only holds weak references and does not keep unloaded
+ * devices alive.
+ */
+public final class DeviceResourceStore {
+	private static final Map<FamilyType, DeviceResourceStore> stores = new ConcurrentHashMap<>();
+
+	private final FamilyType family;
+	private final Map<Long, List<WeakReference<WireEnumerator>>> wireEnumerators = new HashMap<>();
+	// resources of each interned wire enumerator
+	private final Map<WireEnumerator, EnumeratorResources> resources = new WeakHashMap<>();
+
+	private DeviceResourceStore(FamilyType family) {
+		this.family = family;
+	}
+
+	/**
+	 * Returns the store shared by all devices of the family.
+	 *
+	 * @param family the family of the devices
+	 * @return the store for the family
+	 */
+	public static DeviceResourceStore forFamily(FamilyType family) {
+		Objects.requireNonNull(family);
+		return stores.computeIfAbsent(family, DeviceResourceStore::new);
+	}
+
+	/**
+	 * @return the family of the devices in this store
+	 */
+	public FamilyType getFamily() {
+		return family;
+	}
+
+	/**
+	 * Replaces the wire enumerator, tile wire hash maps and site templates of the
+	 * device with the stored copies of identical structures, adding the structures
+	 * not yet in the store.  This method must be called while the device is being
+	 * loaded, before {@link Device#constructDependentResources()} is called.
+	 *
+	 * @param device the device to intern the resources of
+	 */
+	public synchronized void internResources(Device device) {
+		if (device.getFamily() != family)
+			throw new IllegalArgumentException("device " + device.getPartName() +
+					" is not in family " + family);
+
+		WireEnumerator we = intern(device.getWireEnumerator());
+		device.setWireEnumerator(we);
+
+		// tiles of the same type already share maps within the device, only
+		// look up each distinct map once
+		Map<WireHashMap, WireHashMap> interned = new IdentityHashMap<>();
+		for (int row = 0; row < device.getRows(); row++) {
+			for (int col = 0; col < device.getColumns(); col++) {
+				Tile tile = device.getTile(row, col);
+				WireHashMap forward = tile.getWireHashMap();
+				if (forward != null)
+					tile.setWireHashMap(interned.computeIfAbsent(forward, k -> intern(we, k)));
+				WireHashMap reverse = tile.getReverseWireHashMap();
+				if (reverse != null)
+					tile.setReverseWireConnections(interned.computeIfAbsent(reverse, k -> intern(we, k)));
+			}
+		}
+
+		Map<SiteType, SiteTemplate> templates = new HashMap<>();
+		for (SiteTemplate template : device.getSiteTemplates().values()) {
+			if (template.getRouting() != null)
+				template.setRouting(interned.computeIfAbsent(template.getRouting(), k -> intern(we, k)));
+			if (template.getReversedRouting() != null)
+				template.setReverseRouting(interned.computeIfAbsent(
+						template.getReversedRouting(), k -> intern(we, k)));
+			templates.put(template.getType(), intern(we, template));
+		}
+		device.setSiteTemplates(templates);
+	}
+
+	/**
+	 * Returns the stored wire enumerator identical to {@code we}, adding {@code we} to
+	 * the store if no such enumerator exists.
+	 *
+	 * @param we the wire enumerator to intern
+	 * @return the stored wire enumerator
+	 */
+	public synchronized WireEnumerator intern(WireEnumerator we) {
+		WireEnumerator stored = intern(wireEnumerators, hashWireEnumerator(we), we,
+				DeviceResourceStore::sameContent);
+		resources.computeIfAbsent(stored, k -> new EnumeratorResources());
+		return stored;
+	}
+
+	/**
+	 * Returns the stored wire hash map identical to {@code wireHashMap}, adding it to
+	 * the store if no such map exists.
+	 *
+	 * @param we the interned wire enumerator the wires in the map are enumerated by
+	 * @param wireHashMap the map to intern
+	 * @return the stored wire hash map
+	 */
+	public synchronized WireHashMap intern(WireEnumerator we, WireHashMap wireHashMap) {
+		return intern(getResources(we).wireHashMaps, wireHashMap.getContentHash(),
+				wireHashMap, WireHashMap::equals);
+	}
+
+	/**
+	 * Returns the stored site template identical to {@code template}, adding it to
+	 * the store if no such template exists.  The routing of the template should be
+	 * interned first.  The dependent resources of a template are built under the lock
+	 * of this store when the template is added, so devices sharing the template never
+	 * rebuild them while other devices use it.
+	 *
+	 * @param we the interned wire enumerator the wires in the template are enumerated by
+	 * @param template the template to intern
+	 * @return the stored site template
+	 */
+	public synchronized SiteTemplate intern(WireEnumerator we, SiteTemplate template) {
+		SiteTemplate stored = intern(getResources(we).siteTemplates, hashSiteTemplate(template),
+				template, DeviceResourceStore::sameContent);
+		if (!stored.hasDependentResources())
+			stored.constructDependentResources();
+		return stored;
+	}
+
+	/**
+	 * Removes all structures from this store.  Devices that are already loaded keep
+	 * the structures they share.
+	 */
+	public synchronized void clear() {
+		wireEnumerators.clear();
+		resources.clear();
+	}
+
+	private EnumeratorResources getResources(WireEnumerator we) {
+		EnumeratorResources res = resources.get(we);
+		if (res == null)
+			throw new IllegalArgumentException("wire enumerator has not been interned");
+		return res;
+	}
+
+	private static <T> T intern(
+			Map<Long, List<WeakReference<T>>> table, long hash, T obj, BiPredicate<T, T> same
+	) {
+		List<WeakReference<T>> bucket = table.computeIfAbsent(hash, k -> new ArrayList<>(1));
+		Iterator<WeakReference<T>> it = bucket.iterator();
+		while (it.hasNext()) {
+			T stored = it.next().get();
+			if (stored == null)
+				it.remove();
+			else if (stored == obj || same.test(stored, obj))
+				return stored;
+		}
+		bucket.add(new WeakReference<>(obj));
+		return obj;
+	}
+
+	private static long hashWireEnumerator(WireEnumerator we) {
+		long h = we.getWires().length;
+		for (String wire : we.getWires())
+			h = combine(h, wire.hashCode());
+		return h;
+	}
+
+	private static boolean sameContent(WireEnumerator a, WireEnumerator b) {
+		if (!Arrays.equals(a.getWires(), b.getWires()))
+			return false;
+		if (!Arrays.equals(a.getWireTypes(), b.getWireTypes()))
+			return false;
+		for (int i = 0; i < a.getWires().length; i++) {
+			if (a.getWireDirection(i) != b.getWireDirection(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static long hashSiteTemplate(SiteTemplate template) {
+		long h = template.getType().hashCode();
+		h = combine(h, template.getRouting() == null ? 0 : template.getRouting().getContentHash());
+		long bels = 0;
+		if (template.getBelTemplates() != null) {
+			for (BelTemplate bel : template.getBelTemplates().values())
+				bels += combine(bel.getId().getName().hashCode(), Objects.hashCode(bel.getType()));
+		}
+		h = combine(h, bels);
+		long pins = 0;
+		if (template.getSources() != null) {
+			for (SitePinTemplate pin : template.getSources().values())
+				pins += combine(pin.hashCode(), 1);
+		}
+		if (template.getSinks() != null) {
+			for (SitePinTemplate pin : template.getSinks().values())
+				pins += combine(pin.hashCode(), 2);
+		}
+		return combine(h, pins);
+	}
+
+	private static boolean sameContent(SiteTemplate a, SiteTemplate b) {
+		if (a.getType() != b.getType())
+			return false;
+		if (!Arrays.equals(a.getCompatibleTypes(), b.getCompatibleTypes()))
+			return false;
+		// routing is interned before the templates
+		if (a.getRouting() != b.getRouting() || a.getReversedRouting() != b.getReversedRouting())
+			return false;
+		if (!Objects.equals(a.getSources(), b.getSources()) ||
+				!Objects.equals(a.getSinks(), b.getSinks()))
+			return false;
+		if (!Objects.equals(a.getBelRoutethroughMap(), b.getBelRoutethroughMap()))
+			return false;
+
+		Map<String, BelTemplate> aBels = a.getBelTemplates();
+		Map<String, BelTemplate> bBels = b.getBelTemplates();
+		if (aBels == null || bBels == null)
+			return aBels == bBels;
+		if (!aBels.keySet().equals(bBels.keySet()))
+			return false;
+		for (BelTemplate aBel : aBels.values()) {
+			BelTemplate bBel = bBels.get(aBel.getId().getName());
+			if (!aBel.equals(bBel))
+				return false;
+			if (!sameBelPins(aBel.getSources(), bBel.getSources()) ||
+					!sameBelPins(aBel.getSinks(), bBel.getSinks()))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean sameBelPins(Map<String, BelPinTemplate> a, Map<String, BelPinTemplate> b) {
+		if (!a.keySet().equals(b.keySet()))
+			return false;
+		for (BelPinTemplate aPin : a.values()) {
+			BelPinTemplate bPin = b.get(aPin.getName());
+			if (!aPin.equals(bPin) || aPin.getWire() != bPin.getWire() ||
+					aPin.getDirection() != bPin.getDirection())
+				return false;
+		}
+		return true;
+	}
+
+	private static final class EnumeratorResources {
+		final Map<Long, List<WeakReference<WireHashMap>>> wireHashMaps = new HashMap<>();
+		final Map<Long, List<WeakReference<SiteTemplate>>> siteTemplates = new HashMap<>();
+	}
+}
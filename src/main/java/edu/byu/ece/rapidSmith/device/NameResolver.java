@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resolves the names of sites, tiles, wires, BELs and pins in a device directly
+ * from a range of characters, ie. a token of a line being parsed.  Names are looked
+ * up in open addressing tables built once over the names of the device, so
+ * references such as {@code TILE/WIRE}, {@code SITE/PIN} and {@code SITE/BEL/PIN}
+ * can be resolved without splitting them into new strings.
+ * <p>
+ * Methods taking a range resolve a single name between {@code start} (inclusive)
+ * and {@code end} (exclusive).  Methods taking only a reference parse the whole
+ * {@code /} separated reference.  Every method returns null, or -1 for wire
+ * enumerations, if a name does not exist.  BELs and pins are resolved in the
+ * current type of their site.
+ * <p>
+ * The resolver of a device is obtained through {@link Device#getNameResolver()}.
+ */
+public final class NameResolver {
+	private static final char SEPARATOR = '/';
+
+	private final Device device;
+	private final NameTable siteNames;
+	private final Site[] sites;
+	private final NameTable tileNames;
+	private final Tile[] tiles;
+	private final NameTable wireNames;
+	// tables of the BELs and pins of each site template indexed by site type ordinal
+	private final TemplateNames[] templateNames;
+
+	NameResolver(Device device) {
+		this.device = device;
+
+		Map<String, Site> siteMap = device.getSites();
+		siteNames = new NameTable(siteMap.size());
+		sites = new Site[siteMap.size()];
+		int i = 0;
+		for (Map.Entry<String, Site> e : siteMap.entrySet()) {
+			sites[i] = e.getValue();
+			siteNames.put(e.getKey(), i++);
+		}
+
+		Map<String, Tile> tileMap = device.getTileMap();
+		tileNames = new NameTable(tileMap.size());
+		tiles = new Tile[tileMap.size()];
+		i = 0;
+		for (Map.Entry<String, Tile> e : tileMap.entrySet()) {
+			tiles[i] = e.getValue();
+			tileNames.put(e.getKey(), i++);
+		}
+
+		String[] wires = device.getWireEnumerator().getWires();
+		wireNames = new NameTable(wires.length);
+		for (int wire = 0; wire < wires.length; wire++) {
+			wireNames.put(wires[wire], wire);
+		}
+
+		int maxOrdinal = -1;
+		for (SiteType type : device.getSiteTemplates().keySet())
+			maxOrdinal = Math.max(maxOrdinal, type.ordinal());
+		templateNames = new TemplateNames[maxOrdinal + 1];
+		for (SiteTemplate template : device.getSiteTemplates().values())
+			templateNames[template.getType().ordinal()] = new TemplateNames(template);
+	}
+
+	/**
+	 * @return the device whose names this resolver resolves
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * Returns the site with the name in the range of the characters.
+	 *
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the site with the name or null if no site has the name
+	 */
+	public Site getSite(CharSequence chars, int start, int end) {
+		int handle = siteNames.get(chars, start, end);
+		return handle < 0 ? null : sites[handle];
+	}
+
+	/**
+	 * Returns the tile with the name in the range of the characters.
+	 *
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the tile with the name or null if no tile has the name
+	 */
+	public Tile getTile(CharSequence chars, int start, int end) {
+		int handle = tileNames.get(chars, start, end);
+		return handle < 0 ? null : tiles[handle];
+	}
+
+	/**
+	 * Returns the enumeration of the wire with the name in the range of the characters.
+	 *
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the enumeration of the wire or -1 if no wire has the name
+	 */
+	public int getWireEnum(CharSequence chars, int start, int end) {
+		return wireNames.get(chars, start, end);
+	}
+
+	/**
+	 * Returns the BEL of the site with the name in the range of the characters.
+	 *
+	 * @param site the site of the BEL
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the BEL or null if the site has no BEL with the name
+	 */
+	public Bel getBel(Site site, CharSequence chars, int start, int end) {
+		TemplateNames names = getTemplateNames(site.getTemplate());
+		if (names == null)
+			return site.getBel(chars.subSequence(start, end).toString());
+		int handle = names.belNames.get(chars, start, end);
+		return handle < 0 ? null : site.getBel(names.bels[handle]);
+	}
+
+	/**
+	 * Returns the pin of the BEL with the name in the range of the characters.
+	 *
+	 * @param bel the BEL of the pin
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the pin or null if the BEL has no pin with the name
+	 */
+	public BelPin getBelPin(Bel bel, CharSequence chars, int start, int end) {
+		TemplateNames names = getTemplateNames(bel.getSite().getTemplate(bel.getId().getSiteType()));
+		int belHandle = names == null ? -1 : names.getBelHandle(bel.getTemplate());
+		if (belHandle < 0)
+			return bel.getBelPin(chars.subSequence(start, end).toString());
+		int handle = names.belPinNames[belHandle].get(chars, start, end);
+		return handle < 0 ? null : bel.getBelPin(names.belPins[belHandle][handle]);
+	}
+
+	/**
+	 * Returns the pin of the site with the name in the range of the characters.
+	 *
+	 * @param site the site of the pin
+	 * @param chars characters containing the name
+	 * @param start index of the first character of the name
+	 * @param end index after the last character of the name
+	 * @return the pin or null if the site has no pin with the name
+	 */
+	public SitePin getSitePin(Site site, CharSequence chars, int start, int end) {
+		TemplateNames names = getTemplateNames(site.getTemplate());
+		if (names == null)
+			return site.getPin(chars.subSequence(start, end).toString());
+		int handle = names.sitePinNames.get(chars, start, end);
+		return handle < 0 ? null : site.getPin(names.sitePins[handle]);
+	}
+
+	/**
+	 * Resolves a reference of the form {@code TILE/WIRE}.
+	 *
+	 * @param ref the reference
+	 * @return the tile wire or null if the reference is malformed or does not exist
+	 */
+	public TileWire getTileWire(CharSequence ref) {
+		int sep = indexOfSeparator(ref, 0);
+		if (sep < 0)
+			return null;
+		Tile tile = getTile(ref, 0, sep);
+		int wire = getWireEnum(ref, sep + 1, ref.length());
+		if (tile == null || wire < 0)
+			return null;
+		return new TileWire(tile, wire);
+	}
+
+	/**
+	 * Resolves a reference of the form {@code SITE/PIN}.
+	 *
+	 * @param ref the reference
+	 * @return the site pin or null if the reference is malformed or does not exist
+	 */
+	public SitePin getSitePin(CharSequence ref) {
+		int sep = indexOfSeparator(ref, 0);
+		if (sep < 0)
+			return null;
+		Site site = getSite(ref, 0, sep);
+		if (site == null)
+			return null;
+		return getSitePin(site, ref, sep + 1, ref.length());
+	}
+
+	/**
+	 * Resolves a reference of the form {@code SITE/BEL}.
+	 *
+	 * @param ref the reference
+	 * @return the BEL or null if the reference is malformed or does not exist
+	 */
+	public Bel getBel(CharSequence ref) {
+		int sep = indexOfSeparator(ref, 0);
+		if (sep < 0)
+			return null;
+		Site site = getSite(ref, 0, sep);
+		if (site == null)
+			return null;
+		return getBel(site, ref, sep + 1, ref.length());
+	}
+
+	/**
+	 * Resolves a reference of the form {@code SITE/BEL/PIN}.
+	 *
+	 * @param ref the reference
+	 * @return the BEL pin or null if the reference is malformed or does not exist
+	 */
+	public BelPin getBelPin(CharSequence ref) {
+		int sep1 = indexOfSeparator(ref, 0);
+		int sep2 = sep1 < 0 ? -1 : indexOfSeparator(ref, sep1 + 1);
+		if (sep2 < 0)
+			return null;
+		Site site = getSite(ref, 0, sep1);
+		if (site == null)
+			return null;
+		Bel bel = getBel(site, ref, sep1 + 1, sep2);
+		if (bel == null)
+			return null;
+		return getBelPin(bel, ref, sep2 + 1, ref.length());
+	}
+
+	/**
+	 * Returns the index of the next {@code /} separator in the characters.
+	 *
+	 * @param chars the characters to search
+	 * @param from the index to start searching at
+	 * @return the index of the separator or -1 if there are no more separators
+	 */
+	public static int indexOfSeparator(CharSequence chars, int from) {
+		for (int i = from; i < chars.length(); i++) {
+			if (chars.charAt(i) == SEPARATOR)
+				return i;
+		}
+		return -1;
+	}
+
+	private TemplateNames getTemplateNames(SiteTemplate template) {
+		if (template == null)
+			return null;
+		int ordinal = template.getType().ordinal();
+		if (ordinal >= templateNames.length)
+			return null;
+		TemplateNames names = templateNames[ordinal];
+		return (names != null && names.template == template) ? names : null;
+	}
+
+	/**
+	 * Names of the BELs, BEL pins and site pins of a site template.
+	 */
+	private static final class TemplateNames {
+		final SiteTemplate template;
+		final NameTable belNames;
+		// BEL templates in the order of their names, so the position of a BEL is its index
+		final BelTemplate[] bels;
+		final NameTable[] belPinNames;
+		final BelPinTemplate[][] belPins;
+		final NameTable sitePinNames;
+		final SitePinTemplate[] sitePins;
+
+		TemplateNames(SiteTemplate template) {
+			this.template = template;
+
+			Map<String, BelTemplate> belTemplates = template.getBelTemplates();
+			Set<String> names = (belTemplates == null) ? new TreeSet<>() : new TreeSet<>(belTemplates.keySet());
+			belNames = new NameTable(names.size());
+			bels = new BelTemplate[names.size()];
+			belPinNames = new NameTable[names.size()];
+			belPins = new BelPinTemplate[names.size()][];
+			int i = 0;
+			for (String name : names) {
+				BelTemplate bt = belTemplates.get(name);
+				bels[i] = bt;
+				belNames.put(name, i);
+
+				// sources first to match Bel.getBelPin
+				Set<String> pinNames = new TreeSet<>(bt.getSources().keySet());
+				pinNames.addAll(bt.getSinks().keySet());
+				belPinNames[i] = new NameTable(pinNames.size());
+				belPins[i] = new BelPinTemplate[pinNames.size()];
+				int j = 0;
+				for (String pinName : pinNames) {
+					BelPinTemplate pt = bt.getSources().get(pinName);
+					belPins[i][j] = (pt != null) ? pt : bt.getSinks().get(pinName);
+					belPinNames[i].put(pinName, j++);
+				}
+				i++;
+			}
+
+			// sinks first to match Site.getPin
+			Set<String> pinNames = new TreeSet<>(template.getSinks().keySet());
+			pinNames.addAll(template.getSources().keySet());
+			sitePinNames = new NameTable(pinNames.size());
+			sitePins = new SitePinTemplate[pinNames.size()];
+			i = 0;
+			for (String pinName : pinNames) {
+				SitePinTemplate pt = template.getSinks().get(pinName);
+				sitePins[i] = (pt != null) ? pt : template.getSources().get(pinName);
+				sitePinNames.put(pinName, i++);
+			}
+		}
+
+		int getBelHandle(BelTemplate bt) {
+			int index = bt.getIndex();
+			if (index < bels.length && bels[index] == bt)
+				return index;
+			// the BEL templates were never numbered
+			for (int i = 0; i < bels.length; i++) {
+				if (bels[i] == bt)
+					return i;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Immutable open addressing table from names to integer handles.  The hash of a
+	 * name is the same as {@link String#hashCode()} so the hashes of the names in the
+	 * table are cached by the strings themselves.
+	 */
+	private static final class NameTable {
+		private final String[] names;
+		private final int[] hashes;
+		private final int[] handles;
+		private final int mask;
+
+		NameTable(int size) {
+			int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+			names = new String[capacity];
+			hashes = new int[capacity];
+			handles = new int[capacity];
+			mask = capacity - 1;
+		}
+
+		void put(String name, int handle) {
+			int hash = name.hashCode();
+			int i = spread(hash) & mask;
+			while (names[i] != null) {
+				if (names[i].equals(name))
+					break;
+				i = (i + 1) & mask;
+			}
+			names[i] = name;
+			hashes[i] = hash;
+			handles[i] = handle;
+		}
+
+		int get(CharSequence chars, int start, int end) {
+			int hash = 0;
+			for (int c = start; c < end; c++)
+				hash = 31 * hash + chars.charAt(c);
+
+			int i = spread(hash) & mask;
+			String name;
+			while ((name = names[i]) != null) {
+				if (hashes[i] == hash && matches(name, chars, start, end))
+					return handles[i];
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		private static boolean matches(String name, CharSequence chars, int start, int end) {
+			if (name.length() != end - start)
+				return false;
+			for (int c = 0; c < name.length(); c++) {
+				if (name.charAt(c) != chars.charAt(start + c))
+					return false;
+			}
+			return true;
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
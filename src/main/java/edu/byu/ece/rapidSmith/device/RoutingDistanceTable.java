@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device;
+
+import edu.byu.ece.rapidSmith.util.Exceptions;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precomputed lower bounds on the number of PIPs needed to route from a tile to the
+ * site pins of a nearby tile.  Tile Manhattan distance badly misjudges the routing
+ * distance when long lines, clock regions or columns of non-logic tiles lie between
+ * two tiles; this table instead records, for each {@link TileType} and each relative
+ * row and column offset of at most {@link #getMaxOffset()}, the fewest PIPs found by a
+ * breadth-first search of the device's routing graph from any tile of that type to
+ * the sink site pins of the tile at that offset.  Since every tile of the type is
+ * searched, the entry is never more than the distance from any one of them along
+ * routes that stay within the offset window of the source tile.
+ *
+ * Tables are built offline with {@link #compute(Device, int, int)}, which searches
+ * from every tile in parallel, and are stored next to the device file (see {@link edu.byu.ece.rapidSmith.RSEnvironment#getRoutingDistanceFilePath(String)}).
+ * Lookups are a single array access.
+ */
+public final class RoutingDistanceTable {
+	private static final int MAGIC = 0x52534454; // "RSDT"
+	private static final int VERSION = 2;
+	/** Entry marking an offset that was not reached by the search */
+	private static final int UNKNOWN = 0xFF;
+	/** Default limit on the row and column offsets stored in a table */
+	public static final int DEFAULT_MAX_OFFSET = 32;
+
+	private final Device device;
+	private final int maxHops;
+	private final int maxOffset;
+	// offset window limits, clipped to the size of the device
+	private final int rowRadius;
+	private final int columnRadius;
+	private final int offsetColumns;
+	// hop counts indexed by tile type ordinal, then by the offset of the sink tile
+	private final byte[][] hops;
+
+	private RoutingDistanceTable(Device device, int maxHops, int maxOffset, byte[][] hops) {
+		this.device = device;
+		this.maxHops = maxHops;
+		this.maxOffset = maxOffset;
+		this.rowRadius = Math.min(maxOffset, device.getRows() - 1);
+		this.columnRadius = Math.min(maxOffset, device.getColumns() - 1);
+		this.offsetColumns = 2 * columnRadius + 1;
+		this.hops = hops;
+	}
+
+	/**
+	 * @return the device this table was computed for
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * @return the number of PIPs the search was limited to
+	 */
+	public int getMaxHops() {
+		return maxHops;
+	}
+
+	/**
+	 * @return the largest row or column offset between the source and sink tiles of
+	 *   the distances in this table
+	 */
+	public int getMaxOffset() {
+		return maxOffset;
+	}
+
+	private int gridSize() {
+		return (2 * rowRadius + 1) * offsetColumns;
+	}
+
+	/**
+	 * Returns the fewest PIPs found between a tile of the type of {@code source} and
+	 * a sink site pin in the tile at the offset of {@code sink}.  This is a lower
+	 * bound on the PIPs needed from {@code source} to a sink site pin in {@code sink}
+	 * along routes within {@link #getMaxOffset()} rows and columns of {@code source}.
+	 *
+	 * @param source the tile routing starts in
+	 * @param sink the tile containing the sink pin
+	 * @return the number of PIPs or -1 if the table contains no distance between the
+	 *   tiles, ie. when the sink tile has no site pins, is farther than
+	 *   {@link #getMaxHops()} or lies outside of the offset window
+	 */
+	public int getHops(Tile source, Tile sink) {
+		int ordinal = source.getType().ordinal();
+		if (ordinal >= hops.length || hops[ordinal] == null)
+			return -1;
+		int offset = offsetIndex(source, sink);
+		if (offset < 0)
+			return -1;
+		int value = hops[ordinal][offset] & 0xFF;
+		return value == UNKNOWN ? -1 : value;
+	}
+
+	/**
+	 * Returns an estimate of the routing distance between the tiles suitable for
+	 * the cost functions of routers and placers.  The estimate is the value of
+	 * {@link #getHops(Tile, Tile)} when the table contains a distance.  Otherwise it is
+	 * the row and column Manhattan distance between the tiles, raised to more than
+	 * {@link #getMaxHops()} when the sink lies in the offset window of a source tile
+	 * type the table was computed for, since the search found no sink pin within that
+	 * many PIPs.
+	 *
+	 * @param source the tile routing starts in
+	 * @param sink the tile containing the sink pin
+	 * @return the estimated distance between the tiles
+	 */
+	public int estimate(Tile source, Tile sink) {
+		int value = getHops(source, sink);
+		if (value >= 0)
+			return value;
+		int manhattan = Math.abs(source.getRow() - sink.getRow()) +
+				Math.abs(source.getColumn() - sink.getColumn());
+		int ordinal = source.getType().ordinal();
+		if (ordinal >= hops.length || hops[ordinal] == null || offsetIndex(source, sink) < 0)
+			return manhattan;
+		return Math.max(manhattan, maxHops + 1);
+	}
+
+	// index of the offset of the sink tile in the window, or -1 if it is outside of it
+	private int offsetIndex(Tile source, Tile sink) {
+		int dRow = sink.getRow() - source.getRow();
+		int dCol = sink.getColumn() - source.getColumn();
+		if (Math.abs(dRow) > rowRadius || Math.abs(dCol) > columnRadius)
+			return -1;
+		return (dRow + rowRadius) * offsetColumns + dCol + columnRadius;
+	}
+
+	/**
+	 * Computes the table for the device with offsets of at most
+	 * {@link #DEFAULT_MAX_OFFSET} rows and columns.
+	 *
+	 * @param device the device to compute the table for
+	 * @param maxHops the number of PIPs to limit the search to, at most 254
+	 * @return the computed table
+	 * @see #compute(Device, int, int)
+	 */
+	public static RoutingDistanceTable compute(Device device, int maxHops) {
+		return compute(device, maxHops, DEFAULT_MAX_OFFSET);
+	}
+
+	/**
+	 * Computes the table for the device.  A breadth-first search of the routing graph
+	 * is run from every wire of each tile of the device and the distance to each tile
+	 * is the number of PIPs to the first sink site pin reached in it.  The entry for a
+	 * tile type and offset is the minimum over all tiles of the type.
+	 * <p>
+	 * Each search only follows wires in tiles within {@code maxOffset} rows and columns
+	 * of its start tile, so it costs time proportional to the wires in that window
+	 * rather than in the device, and computing the table takes time proportional to
+	 * the number of tiles times the wires in a window.  The searches run in parallel
+	 * and reuse per-thread state sized to the window.
+	 *
+	 * @param device the device to compute the table for
+	 * @param maxHops the number of PIPs to limit the search to, at most 254
+	 * @param maxOffset the largest row or column offset to store and search
+	 * @return the computed table
+	 */
+	public static RoutingDistanceTable compute(Device device, int maxHops, int maxOffset) {
+		if (maxHops < 0 || maxHops >= UNKNOWN)
+			throw new IllegalArgumentException("maxHops must be between 0 and " + (UNKNOWN - 1));
+		if (maxOffset < 0)
+			throw new IllegalArgumentException("maxOffset must not be negative: " + maxOffset);
+
+		int numTiles = device.getRows() * device.getColumns();
+		int[][] sinkWires = new int[numTiles][];
+		Set<TileType> types = new HashSet<>();
+		int maxOrdinal = -1;
+		for (int addr = 0; addr < numTiles; addr++) {
+			Tile tile = device.getTile(addr);
+			sinkWires[addr] = tile.getSinks().stream()
+				.mapToInt(w -> ((TileWire) w).getWireEnum())
+				.sorted().toArray();
+			types.add(tile.getType());
+			maxOrdinal = Math.max(maxOrdinal, tile.getType().ordinal());
+		}
+
+		byte[][] hops = new byte[maxOrdinal + 1][];
+		RoutingDistanceTable table = new RoutingDistanceTable(device, maxHops, maxOffset, hops);
+		for (TileType type : types) {
+			hops[type.ordinal()] = new byte[table.gridSize()];
+			Arrays.fill(hops[type.ordinal()], (byte) UNKNOWN);
+		}
+
+		ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> table.new Search(sinkWires));
+		IntStream.range(0, numTiles).parallel().forEach(addr -> {
+			Tile start = device.getTile(addr);
+			byte[] found = searches.get().run(start);
+			byte[] merged = hops[start.getType().ordinal()];
+			synchronized (merged) {
+				for (int j = 0; j < merged.length; j++) {
+					if ((found[j] & 0xFF) < (merged[j] & 0xFF))
+						merged[j] = found[j];
+				}
+			}
+		});
+		return table;
+	}
+
+	/**
+	 * Breadth-first search from every wire in the start tile where only PIPs add to
+	 * the distance.  Wires reached without a PIP are processed at the current level.
+	 * Wires reached through a PIP are only marked visited once the next level starts,
+	 * since a later wire of the current level may still reach them without a PIP.
+	 * Wires in tiles outside of the offset window of the start tile are not followed.
+	 * A search is reused for many start tiles by one thread.
+	 */
+	private final class Search {
+		private final int[][] sinkWires;
+		private final byte[] found = new byte[gridSize()];
+		// visited wires indexed by the offset of their tile from the start tile
+		private final BitSet[] visited = new BitSet[gridSize()];
+		private long[] current = new long[64];
+		private long[] next = new long[64];
+		private Tile start;
+
+		Search(int[][] sinkWires) {
+			this.sinkWires = sinkWires;
+		}
+
+		/**
+		 * @return the hops to each offset from the start tile, only valid until the
+		 *   next search is run
+		 */
+		byte[] run(Tile start) {
+			this.start = start;
+			Arrays.fill(found, (byte) UNKNOWN);
+			for (BitSet set : visited) {
+				if (set != null)
+					set.clear();
+			}
+
+			int currentSize = 0;
+			WireHashMap startWires = start.getWireHashMap();
+			if (startWires == null)
+				return found;
+			for (int wire : startWires.keySet()) {
+				if (mark(start, wire)) {
+					if (currentSize == current.length)
+						current = Arrays.copyOf(current, currentSize * 2);
+					current[currentSize++] = encode(start, wire);
+				}
+			}
+
+			for (int level = 0; level <= maxHops && currentSize > 0; level++) {
+				int nextSize = 0;
+				for (int i = 0; i < currentSize; i++) {
+					Tile tile = device.getTile((int) (current[i] >>> 32));
+					int wire = (int) current[i];
+
+					int offset = offsetIndex(start, tile);
+					if ((found[offset] & 0xFF) == UNKNOWN &&
+							Arrays.binarySearch(sinkWires[tile.getUniqueAddress()], wire) >= 0)
+						found[offset] = (byte) level;
+
+					WireConnection[] wcs = tile.getWireConnections(wire);
+					if (wcs == null)
+						continue;
+					for (WireConnection wc : wcs) {
+						Tile sinkTile = wc.getTile(tile);
+						if (sinkTile == null || offsetIndex(start, sinkTile) < 0)
+							continue;
+						long encoded = encode(sinkTile, wc.getWire());
+						if (wc.isPIP()) {
+							if (isVisited(sinkTile, wc.getWire()))
+								continue;
+							if (nextSize == next.length)
+								next = Arrays.copyOf(next, nextSize * 2);
+							next[nextSize++] = encoded;
+						} else if (mark(sinkTile, wc.getWire())) {
+							if (currentSize == current.length)
+								current = Arrays.copyOf(current, currentSize * 2);
+							current[currentSize++] = encoded;
+						}
+					}
+				}
+
+				// wires of the next level not already reached at this level, without duplicates
+				int kept = 0;
+				for (int i = 0; i < nextSize; i++) {
+					if (mark(device.getTile((int) (next[i] >>> 32)), (int) next[i]))
+						next[kept++] = next[i];
+				}
+				long[] swap = current;
+				current = next;
+				currentSize = kept;
+				next = swap;
+			}
+			return found;
+		}
+
+		private boolean isVisited(Tile tile, int wire) {
+			BitSet set = visited[offsetIndex(start, tile)];
+			return set != null && set.get(wire);
+		}
+
+		private boolean mark(Tile tile, int wire) {
+			int offset = offsetIndex(start, tile);
+			BitSet set = visited[offset];
+			if (set == null)
+				set = visited[offset] = new BitSet();
+			if (set.get(wire))
+				return false;
+			set.set(wire);
+			return true;
+		}
+	}
+
+	private static long encode(Tile tile, int wire) {
+		return ((long) tile.getUniqueAddress() << 32) | (wire & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Writes this table to a compressed file.
+	 *
+	 * @param path the file to write
+	 * @throws IOException if an error occurs writing the file
+	 */
+	public void write(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(Files.newOutputStream(path))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(device.getPartName());
+			out.writeInt(device.getRows());
+			out.writeInt(device.getColumns());
+			out.writeInt(maxHops);
+			out.writeInt(maxOffset);
+
+			Set<TileType> types = new LinkedHashSet<>();
+			for (int addr = 0; addr < device.getRows() * device.getColumns(); addr++) {
+				TileType type = device.getTile(addr).getType();
+				if (hops[type.ordinal()] != null)
+					types.add(type);
+			}
+			out.writeInt(types.size());
+			for (TileType type : types) {
+				out.writeUTF(type.getName());
+				out.write(hops[type.ordinal()]);
+			}
+		}
+	}
+
+	/**
+	 * Loads a table written by {@link #write(Path)}.
+	 *
+	 * @param device the device the table was computed for
+	 * @param path the file to read
+	 * @return the loaded table
+	 * @throws IOException if an error occurs reading the file
+	 * @throws Exceptions.FileFormatException if the file is not a distance table of
+	 *   the device
+	 */
+	public static RoutingDistanceTable load(Device device, Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(Files.newInputStream(path))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new Exceptions.FileFormatException("not a routing distance table: " + path);
+			String partName = in.readUTF();
+			if (!partName.equals(device.getPartName()) ||
+					in.readInt() != device.getRows() || in.readInt() != device.getColumns())
+				throw new Exceptions.FileFormatException("routing distance table " + path +
+						" is for part " + partName + ", not " + device.getPartName());
+			int maxHops = in.readInt();
+			int maxOffset = in.readInt();
+
+			int gridSize = (2 * Math.min(maxOffset, device.getRows() - 1) + 1) *
+					(2 * Math.min(maxOffset, device.getColumns() - 1) + 1);
+			int numTypes = in.readInt();
+			Map<TileType, byte[]> read = new HashMap<>();
+			int maxOrdinal = -1;
+			for (int i = 0; i < numTypes; i++) {
+				TileType type = TileType.valueOf(device.getFamily(), in.readUTF());
+				byte[] grid = new byte[gridSize];
+				in.readFully(grid);
+				read.put(type, grid);
+				maxOrdinal = Math.max(maxOrdinal, type.ordinal());
+			}
+
+			byte[][] hops = new byte[maxOrdinal + 1][];
+			read.forEach((type, grid) -> hops[type.ordinal()] = grid);
+			return new RoutingDistanceTable(device, maxHops, maxOffset, hops);
+		}
+	}
+}
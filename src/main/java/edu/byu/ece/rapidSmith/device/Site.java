@@ -58,6 +58,14 @@ public final class Site implements Serializable{
 	 * site type this site can be represented as.
 	 */
 	private Map<SiteType, Map<Integer, SitePinTemplate>> externalWireToPinMap;
+	/**
+	 * Canonical BEL and site pin objects of this site indexed by the position of their
+	 * site type in possibleTypes and then by the index of their template.  The arrays
+	 * for a type are created upon the first request for one of its objects.  Published
+	 * arrays are never modified; adding a type replaces the outer array.
+	 */
+	private transient volatile Bel[][] bels;
+	private transient volatile SitePin[][] sitePins;
 
 	/**
 	 * Constructor unnamed, tileless site.
@@ -218,6 +226,8 @@ public final class Site implements Serializable{
 	 */
 	public void setPossibleTypes(SiteType[] possibleTypes) {
 		this.possibleTypes = possibleTypes;
+		this.bels = null;
+		this.sitePins = null;
 	}
 
 	/**
@@ -229,7 +239,7 @@ public final class Site implements Serializable{
 		return template;
 	}
 
-	private SiteTemplate getTemplate(SiteType type) {
+	SiteTemplate getTemplate(SiteType type) {
 		if (getType() == type)
 			return getTemplate();
 
@@ -275,7 +285,6 @@ public final class Site implements Serializable{
 
 	/**
 	 * Returns the set of all BELs in the site.
-	 * Use cautiously as Bel objects are recreated on each call.
 	 * @return a new set, possibly empty, of all BELs in the site
 	 * @see #getBelNames()
 	 */
@@ -293,13 +302,13 @@ public final class Site implements Serializable{
 			return Collections.emptySet();
 
 		return belTemplates.values().stream()
-				.map(t -> new Bel(this, t))
+				.map(t -> getBel(template, t))
 				.collect(Collectors.toSet());
 	}
 
 	/**
 	 * Returns the BEL of the specified name for the site.
-	 * The Bel object will be created upon this call.
+	 * The same Bel object is returned by every call for the BEL.
 	 * @param belName the name of the BEL to return
 	 * @return the BEL of the given name or null if no BEL with the specified name
 	 *   exist in the (site, type) pair.
@@ -320,9 +329,131 @@ public final class Site implements Serializable{
 		BelTemplate bt = template.getBelTemplates().get(belName);
 		if (bt == null)
 			return null;
+		return getBel(template, bt);
+	}
+
+	/**
+	 * Returns the BEL of this site backed by the template.
+	 * @param bt the template of the BEL
+	 * @return the BEL of this site backed by the template
+	 */
+	Bel getBel(BelTemplate bt) {
+		return getBel(getTemplate(bt.getId().getSiteType()), bt);
+	}
+
+	private Bel getBel(SiteTemplate template, BelTemplate bt) {
+		Bel[] array = getBelArray(template);
+		if (array != null && bt.getIndex() < array.length) {
+			Bel bel = array[bt.getIndex()];
+			if (bel != null && bel.getTemplate() == bt)
+				return bel;
+		}
+		// the type is not a possible type of the site or the templates were never numbered
 		return new Bel(this, bt);
 	}
 
+	// Returns the position of the type in possibleTypes or -1 if it is not a possible type
+	private int getTypeSlot(SiteType type) {
+		if (possibleTypes == null)
+			return -1;
+		for (int i = 0; i < possibleTypes.length; i++) {
+			if (possibleTypes[i] == type)
+				return i;
+		}
+		return -1;
+	}
+
+	private Bel[] getBelArray(SiteTemplate template) {
+		int slot = getTypeSlot(template.getType());
+		if (slot < 0)
+			return null;
+		Bel[][] all = bels;
+		if (all != null && all[slot] != null)
+			return all[slot];
+		return buildBelArray(slot, template);
+	}
+
+	private synchronized Bel[] buildBelArray(int slot, SiteTemplate template) {
+		Bel[][] all = bels;
+		if (all != null && all[slot] != null)
+			return all[slot];
+
+		Map<String, BelTemplate> belTemplates = template.getBelTemplates();
+		Bel[] array = new Bel[belTemplates == null ? 0 : belTemplates.size()];
+		if (belTemplates != null) {
+			for (BelTemplate bt : belTemplates.values()) {
+				if (bt.getIndex() < array.length && array[bt.getIndex()] == null)
+					array[bt.getIndex()] = new Bel(this, bt);
+			}
+		}
+		Bel[][] updated = (all == null) ? new Bel[possibleTypes.length][] : all.clone();
+		updated[slot] = array;
+		bels = updated;
+		return array;
+	}
+
+	/**
+	 * Returns the pin of this site backed by the template.
+	 * @param pinTemplate the template of the pin
+	 * @return the pin of this site backed by the template
+	 */
+	SitePin getPin(SitePinTemplate pinTemplate) {
+		return getSitePin(getTemplate(pinTemplate.getSiteType()), pinTemplate);
+	}
+
+	private SitePin getSitePin(SiteTemplate template, SitePinTemplate pinTemplate) {
+		SitePin[] array = getSitePinArray(template);
+		if (array != null && pinTemplate.getIndex() < array.length) {
+			SitePin pin = array[pinTemplate.getIndex()];
+			if (pin != null && pin.getTemplate() == pinTemplate)
+				return pin;
+		}
+		// the type is not a possible type of the site or the templates were never numbered
+		int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
+		return new SitePin(this, pinTemplate, externalWire);
+	}
+
+	private SitePin[] getSitePinArray(SiteTemplate template) {
+		int slot = getTypeSlot(template.getType());
+		if (slot < 0)
+			return null;
+		SitePin[][] all = sitePins;
+		if (all != null && all[slot] != null)
+			return all[slot];
+		return buildSitePinArray(slot, template);
+	}
+
+	private synchronized SitePin[] buildSitePinArray(int slot, SiteTemplate template) {
+		SitePin[][] all = sitePins;
+		if (all != null && all[slot] != null)
+			return all[slot];
+
+		int numPins = 0;
+		for (SitePinTemplate pinTemplate : template.getSources().values())
+			numPins = Math.max(numPins, pinTemplate.getIndex() + 1);
+		for (SitePinTemplate pinTemplate : template.getSinks().values())
+			numPins = Math.max(numPins, pinTemplate.getIndex() + 1);
+
+		SitePin[] array = new SitePin[numPins];
+		Map<String, Integer> wires = (externalWires == null) ? null : externalWires.get(template.getType());
+		if (wires != null) {
+			addSitePins(array, template.getSinks().values(), wires);
+			addSitePins(array, template.getSources().values(), wires);
+		}
+		SitePin[][] updated = (all == null) ? new SitePin[possibleTypes.length][] : all.clone();
+		updated[slot] = array;
+		sitePins = updated;
+		return array;
+	}
+
+	private void addSitePins(SitePin[] array, Collection<SitePinTemplate> pinTemplates, Map<String, Integer> wires) {
+		for (SitePinTemplate pinTemplate : pinTemplates) {
+			Integer externalWire = wires.get(pinTemplate.getName());
+			if (externalWire != null && array[pinTemplate.getIndex()] == null)
+				array[pinTemplate.getIndex()] = new SitePin(this, pinTemplate, externalWire);
+		}
+	}
+
 	/**
 	 * Returns SiteTypes that are compatible with the default site type.
 	 * Compatible types are different that possible types. These are types
@@ -456,7 +587,7 @@ public final class Site implements Serializable{
 
 	/**
 	 * Creates and returns the source pins for this site.
-	 * The SitePin objects are recreated upon each call.
+	 * The list is recreated upon each call but the SitePin objects are shared.
 	 * @return the source pins for this site
 	 */
 	public List<SitePin> getSourcePins() {
@@ -465,7 +596,7 @@ public final class Site implements Serializable{
 
 	/**
 	 * Creates and returns the source pins for this site when configured as type.
-	 * The SitePin objects are recreated upon each call.
+	 * The list is recreated upon each call but the SitePin objects are shared.
 	 * @return the source pins for this site
 	 */
 	public List<SitePin> getSourcePins(SiteType type) {
@@ -476,8 +607,7 @@ public final class Site implements Serializable{
 		Map<String, SitePinTemplate> sourceTemplates = template.getSources();
 		List<SitePin> pins = new ArrayList<>(sourceTemplates.size());
 		for (SitePinTemplate pinTemplate : sourceTemplates.values()) {
-			int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
-			pins.add(new SitePin(this, pinTemplate, externalWire));
+			pins.add(getSitePin(template, pinTemplate));
 		}
 		return pins;
 	}
@@ -507,7 +637,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = template.getSources().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinName));
+		return getSitePin(template, pinTemplate);
 	}
 
 	/**
@@ -538,7 +668,7 @@ public final class Site implements Serializable{
 
 	/**
 	 * Creates and returns all sink pins on this site.
-	 * The SitePin objects are recreated upon each call.
+	 * The list is recreated upon each call but the SitePin objects are shared.
 	 * @return all sink pins on this site
 	 */
 	public List<SitePin> getSinkPins() {
@@ -547,7 +677,7 @@ public final class Site implements Serializable{
 
 	/**
 	 * Creates and returns all sink pins on this site when configured as type.
-	 * The SitePin objects are recreated upon each call.
+	 * The list is recreated upon each call but the SitePin objects are shared.
 	 * @return all sink pins on this site
 	 */
 	public List<SitePin> getSinkPins(SiteType type) {
@@ -558,8 +688,7 @@ public final class Site implements Serializable{
 		Map<String, SitePinTemplate> sinkTemplates = template.getSinks();
 		List<SitePin> pins = new ArrayList<>(sinkTemplates.size());
 		for (SitePinTemplate pinTemplate : sinkTemplates.values()) {
-			int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
-			pins.add(new SitePin(this, pinTemplate, externalWire));
+			pins.add(getSitePin(template, pinTemplate));
 		}
 		return pins;
 	}
@@ -589,8 +718,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = template.getSinks().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(template.getType(), pinName);
-		return new SitePin(this, pinTemplate, externalWire);
+		return getSitePin(template, pinTemplate);
 	}
 
 	/**
@@ -641,7 +769,7 @@ public final class Site implements Serializable{
 			pinTemplate = template.getSources().get(pinName);
 		if (pinTemplate == null)
 			return null;
-		return new SitePin(this, pinTemplate, getExternalWire(template.getType(), pinName));
+		return getSitePin(template, pinTemplate);
 	}
 
 	/**
@@ -655,8 +783,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = externalWireToPinMap.get(type).get(wire);
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(type, pinTemplate.getName());
-		return new SitePin(this, pinTemplate, externalWire);
+		return getSitePin(getTemplate(type), pinTemplate);
 	}
 
 	/**
@@ -672,8 +799,7 @@ public final class Site implements Serializable{
 		SitePinTemplate pinTemplate = internalWireToSitePinMap.get(wire);
 		if (pinTemplate == null)
 			return null;
-		int externalWire = getExternalWire(template.getType(), pinTemplate.getName());
-		return new SitePin(this, pinTemplate, externalWire);
+		return getSitePin(template, pinTemplate);
 	}
 
 	// Returns the wire which connects externally to the pin.  Needed to get from
@@ -706,6 +832,7 @@ public final class Site implements Serializable{
 	 */
 	public void setExternalWires(Map<SiteType, Map<String, Integer>> externalWires) {
 		this.externalWires = externalWires;
+		this.sitePins = null;
 	}
 
 	/**
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index over a group of sites, such as all of the sites compatible with a
+ * site type.  The sites are placed into square buckets of tiles keyed by the row
+ * and column of their tile so that region and nearest-site queries only examine
+ * the sites near the query location.  Distances are measured as the Manhattan
+ * distance between tile rows and columns.
+ *
+ * Indexes are immutable and are obtained through {@link Device#getSiteIndex(SiteType)},
+ * which caches the index of each site type.  Queries that need to skip occupied
+ * sites accept a filter, ie. {@code site -> !design.isSiteUsed(site)}.
+ */
+public final class SiteIndex {
+	/** Width and height, in tiles, of each bucket */
+	private static final int BUCKET_SIZE = 8;
+
+	private final List<Site> sites;
+	private final int bucketRows;
+	private final int bucketColumns;
+	// sites in each bucket stored in the order they appear in sites
+	private final Site[][] buckets;
+	// index in sites of each site in buckets, used to break ties
+	private final int[][] bucketOrders;
+
+	/**
+	 * Creates a new index over the sites.
+	 *
+	 * @param device the device the sites belong to
+	 * @param sites the sites to index
+	 */
+	public SiteIndex(Device device, Collection<Site> sites) {
+		this.sites = Collections.unmodifiableList(new ArrayList<>(sites));
+		this.bucketRows = Math.max(1, (device.getRows() + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		this.bucketColumns = Math.max(1, (device.getColumns() + BUCKET_SIZE - 1) / BUCKET_SIZE);
+
+		List<List<Integer>> lists = new ArrayList<>(bucketRows * bucketColumns);
+		for (int i = 0; i < bucketRows * bucketColumns; i++)
+			lists.add(new ArrayList<>());
+		for (int i = 0; i < this.sites.size(); i++) {
+			Tile tile = this.sites.get(i).getTile();
+			lists.get(bucketOf(tile.getRow(), tile.getColumn())).add(i);
+		}
+		buckets = new Site[lists.size()][];
+		bucketOrders = new int[lists.size()][];
+		for (int i = 0; i < lists.size(); i++) {
+			List<Integer> list = lists.get(i);
+			buckets[i] = new Site[list.size()];
+			bucketOrders[i] = new int[list.size()];
+			for (int j = 0; j < list.size(); j++) {
+				bucketOrders[i][j] = list.get(j);
+				buckets[i][j] = this.sites.get(list.get(j));
+			}
+		}
+	}
+
+	/**
+	 * @return an unmodifiable list of all of the sites in this index
+	 */
+	public List<Site> getSites() {
+		return sites;
+	}
+
+	/**
+	 * @return the number of sites in this index
+	 */
+	public int size() {
+		return sites.size();
+	}
+
+	/**
+	 * Returns the sites whose tiles lie in the rectangle of tiles.  The bounds are
+	 * inclusive.
+	 *
+	 * @param minRow the first row of the region
+	 * @param minColumn the first column of the region
+	 * @param maxRow the last row of the region
+	 * @param maxColumn the last column of the region
+	 * @return the sites in the region
+	 */
+	public List<Site> getSitesInRegion(int minRow, int minColumn, int maxRow, int maxColumn) {
+		List<Site> found = new ArrayList<>();
+		int minBRow = Math.max(0, minRow / BUCKET_SIZE);
+		int maxBRow = Math.min(bucketRows - 1, maxRow / BUCKET_SIZE);
+		int minBCol = Math.max(0, minColumn / BUCKET_SIZE);
+		int maxBCol = Math.min(bucketColumns - 1, maxColumn / BUCKET_SIZE);
+		for (int br = minBRow; br <= maxBRow; br++) {
+			for (int bc = minBCol; bc <= maxBCol; bc++) {
+				for (Site site : buckets[br * bucketColumns + bc]) {
+					Tile tile = site.getTile();
+					if (tile.getRow() >= minRow && tile.getRow() <= maxRow &&
+							tile.getColumn() >= minColumn && tile.getColumn() <= maxColumn)
+						found.add(site);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the sites within {@code distance} tiles (Manhattan distance) of the tile
+	 * at the specified row and column.
+	 *
+	 * @param row the row of the center tile
+	 * @param column the column of the center tile
+	 * @param distance the maximum distance of the returned sites
+	 * @return the sites within the distance of the tile
+	 */
+	public List<Site> getSitesWithin(int row, int column, int distance) {
+		List<Site> found = getSitesInRegion(
+				row - distance, column - distance, row + distance, column + distance);
+		found.removeIf(s -> distance(s, row, column) > distance);
+		return found;
+	}
+
+	/**
+	 * Returns the site closest to the tile at the specified row and column that passes
+	 * the filter.
+	 *
+	 * @param row the row of the center tile
+	 * @param column the column of the center tile
+	 * @param filter predicate the returned site must pass, ie. whether the site is free
+	 * @return the nearest site passing the filter or null if no site passes the filter
+	 */
+	public Site getNearest(int row, int column, Predicate<Site> filter) {
+		List<Site> nearest = getNearest(row, column, 1, filter);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * Returns the {@code k} sites closest to the tile at the specified row and column
+	 * that pass the filter, ordered by increasing distance.  Sites at equal distances
+	 * are returned in the order they appear in {@link #getSites()}.
+	 *
+	 * @param row the row of the center tile
+	 * @param column the column of the center tile
+	 * @param k the number of sites to return
+	 * @param filter predicate the returned sites must pass, ie. whether the site is free
+	 * @return up to {@code k} of the nearest sites passing the filter
+	 */
+	public List<Site> getNearest(int row, int column, int k, Predicate<Site> filter) {
+		if (k <= 0)
+			return Collections.emptyList();
+
+		// max heap of the best candidates found so far
+		PriorityQueue<Candidate> best = new PriorityQueue<>(k, Comparator.reverseOrder());
+		int centerBRow = clamp(row / BUCKET_SIZE, bucketRows);
+		int centerBCol = clamp(column / BUCKET_SIZE, bucketColumns);
+		int maxRing = Math.max(
+				Math.max(centerBRow, bucketRows - 1 - centerBRow),
+				Math.max(centerBCol, bucketColumns - 1 - centerBCol));
+
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// every tile in this ring of buckets is at least this far from the center
+			int minRingDistance = Math.max(0, ring - 1) * BUCKET_SIZE;
+			if (best.size() == k && best.peek().distance < minRingDistance)
+				break;
+
+			for (int br = centerBRow - ring; br <= centerBRow + ring; br++) {
+				if (br < 0 || br >= bucketRows)
+					continue;
+				boolean edgeRow = br == centerBRow - ring || br == centerBRow + ring;
+				int step = edgeRow ? 1 : 2 * ring;
+				for (int bc = centerBCol - ring; bc <= centerBCol + ring; bc += step) {
+					if (bc < 0 || bc >= bucketColumns)
+						continue;
+					Site[] bucket = buckets[br * bucketColumns + bc];
+					for (int i = 0; i < bucket.length; i++) {
+						Site site = bucket[i];
+						int d = distance(site, row, column);
+						if (best.size() == k && d > best.peek().distance)
+							continue;
+						if (!filter.test(site))
+							continue;
+						Candidate c = new Candidate(site, d, bucketOrders[br * bucketColumns + bc][i]);
+						if (best.size() < k) {
+							best.add(c);
+						} else if (c.compareTo(best.peek()) < 0) {
+							best.poll();
+							best.add(c);
+						}
+					}
+				}
+			}
+		}
+
+		List<Candidate> sorted = new ArrayList<>(best);
+		Collections.sort(sorted);
+		List<Site> nearest = new ArrayList<>(sorted.size());
+		for (Candidate c : sorted)
+			nearest.add(c.site);
+		return nearest;
+	}
+
+	private int bucketOf(int row, int column) {
+		return clamp(row / BUCKET_SIZE, bucketRows) * bucketColumns +
+				clamp(column / BUCKET_SIZE, bucketColumns);
+	}
+
+	private static int clamp(int value, int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	private static int distance(Site site, int row, int column) {
+		Tile tile = site.getTile();
+		return Math.abs(tile.getRow() - row) + Math.abs(tile.getColumn() - column);
+	}
+
+	private static final class Candidate implements Comparable<Candidate> {
+		final Site site;
+		final int distance;
+		final int order;
+
+		Candidate(Site site, int distance, int order) {
+			this.site = site;
+			this.distance = distance;
+			this.order = order;
+		}
+
+		@Override
+		public int compareTo(Candidate o) {
+			if (distance != o.distance)
+				return Integer.compare(distance, o.distance);
+			return Integer.compare(order, o.order);
+		}
+	}
+}
@@ -27,7 +27,8 @@ import java.util.Objects;
  *  This class represents a pin on a site and provides information necessary
  *  to switch between intersite and intrasite routing networks.  Site pins
  *  are created on demand through different getPin methods in the
- *  Site class.
+ *  Site class.  Each pin of a site's possible types is only created once, so
+ *  repeated requests for the same pin return the same object.
  *
  *  @see edu.byu.ece.rapidSmith.device.Site
  */
@@ -39,6 +40,8 @@ public final class SitePin implements Serializable {
 	private final SitePinTemplate template;
 	// the tile wire that connects to this pin
 	private final int externalWire;
+	// the site wire that connects to this pin, created upon first request
+	private transient SiteWire internalWire;
 
 	SitePin(Site site, SitePinTemplate template, int externalWire) {
 		this.site = site;
@@ -94,7 +97,9 @@ public final class SitePin implements Serializable {
 	 * @return the site wire that connects to this pin
 	 */
 	public SiteWire getInternalWire() {
-		return new SiteWire(getSite(), getSiteType(), template.getInternalWire());
+		if (internalWire == null)
+			internalWire = new SiteWire(getSite(), getSiteType(), template.getInternalWire());
+		return internalWire;
 	}
 
 	/**
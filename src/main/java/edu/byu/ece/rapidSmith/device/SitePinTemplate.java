@@ -32,6 +32,8 @@ public final class SitePinTemplate implements Serializable {
 	private final SiteType siteType;
 	private PinDirection direction;
 	private int internalWire;
+	// Index of this pin in its site template, assigned when the device is loaded
+	private transient int index;
 
 	public SitePinTemplate(String name, SiteType siteType) {
 		this.name = name;
@@ -46,6 +48,21 @@ public final class SitePinTemplate implements Serializable {
 		return siteType;
 	}
 
+	/**
+	 * Returns the index of this pin within its site template.  The source pins of a
+	 * site template are numbered from 0 in the order of their names, followed by the
+	 * sink pins.
+	 *
+	 * @return the index of this pin within its site template
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	public int getInternalWire() {
 		return internalWire;
 	}
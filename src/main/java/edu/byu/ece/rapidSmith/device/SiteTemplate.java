@@ -48,6 +48,8 @@ public final class SiteTemplate implements Serializable {
 	private transient Map<Integer, BelPinTemplate> belPins;
 	// Map containing the bel routethrough information of the site
 	private Map<Integer, Set<Integer>> belRoutethroughMap;
+	// true once the dependent resources have been built
+	private transient boolean dependentResourcesBuilt;
 
 
 	public SiteType getType() {
@@ -142,6 +144,10 @@ public final class SiteTemplate implements Serializable {
 		this.belRoutethroughMap = belRoutethroughs;
 	}
 
+	Map<Integer, Set<Integer>> getBelRoutethroughMap() {
+		return belRoutethroughMap;
+	}
+
 	public boolean isRoutethrough(Integer startWire, Integer endWire) {
 
 		if (belRoutethroughMap == null) {
@@ -172,6 +178,28 @@ public final class SiteTemplate implements Serializable {
 			internalWireToSitePinMap.put(sitePin.getInternalWire(), sitePin);
 		}
 
+		// Number the BELs by name so the indices are stable across devices
+		List<String> belNames = new ArrayList<>(belTemplates.keySet());
+		Collections.sort(belNames);
+		for (int i = 0; i < belNames.size(); i++) {
+			belTemplates.get(belNames.get(i)).setIndex(i);
+		}
+
+		// Number the site pins and the pins of each BEL in the same way.  The source
+		// pins come first so a source and a sink with the same name get distinct indices.
+		int pinIndex = 0;
+		for (String pinName : new TreeSet<>(sources.keySet()))
+			sources.get(pinName).setIndex(pinIndex++);
+		for (String pinName : new TreeSet<>(sinks.keySet()))
+			sinks.get(pinName).setIndex(pinIndex++);
+		for (BelTemplate belTemplate : belTemplates.values()) {
+			int i = 0;
+			for (String pinName : new TreeSet<>(belTemplate.getSources().keySet()))
+				belTemplate.getSources().get(pinName).setIndex(i++);
+			for (String pinName : new TreeSet<>(belTemplate.getSinks().keySet()))
+				belTemplate.getSinks().get(pinName).setIndex(i++);
+		}
+
 		// Create the wire to bel pin maps by inferringthe information from the
 		// bel pin templates
 		belPins = new HashMap<>();
@@ -183,6 +211,15 @@ public final class SiteTemplate implements Serializable {
 				belPins.put(belPin.getWire(), belPin);
 			}
 		}
+		dependentResourcesBuilt = true;
+	}
+
+	/**
+	 * @return true if {@link #constructDependentResources()} has built the lookup
+	 *   structures and indices of this template
+	 */
+	boolean hasDependentResources() {
+		return dependentResourcesBuilt;
 	}
 
 	// Convenience method to search both source and sink site pins
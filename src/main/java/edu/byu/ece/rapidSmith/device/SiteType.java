@@ -20,6 +20,8 @@
 package edu.byu.ece.rapidSmith.device;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -32,6 +34,9 @@ public final class SiteType implements Comparable<SiteType>, Serializable {
 	private static final long serialVersionUID = -2823098655445630138L;
 	private static int nextOrdinal = 0;
 	private static final Map<FamilyType, Map<String, SiteType>> types = new HashMap<>();
+	// Immutable snapshot of the types of each family, replaced whenever a type is
+	// created.  Lookups of existing types read the snapshot without locking.
+	private static volatile Map<FamilyType, NameTable> snapshots = Collections.emptyMap();
 	private final FamilyType family;
 	private final String name;
 	private final int ordinal;
@@ -78,10 +83,72 @@ public final class SiteType implements Comparable<SiteType>, Serializable {
 		Objects.requireNonNull(family);
 		Objects.requireNonNull(name);
 
+		NameTable table = snapshots.get(family);
+		if (table != null) {
+			SiteType type = table.get(name);
+			if (type != null)
+				return type;
+		}
+		return create(family, name);
+	}
+
+	private static SiteType create(FamilyType family, String name) {
 		name = name.toUpperCase();
 		synchronized (types) {
 			Map<String, SiteType> familyTypes = types.computeIfAbsent(family, k -> new HashMap<>());
-			return familyTypes.computeIfAbsent(name, k -> new SiteType(family, k, nextOrdinal++));
+			SiteType type = familyTypes.get(name);
+			if (type == null) {
+				type = new SiteType(family, name, nextOrdinal++);
+				familyTypes.put(name, type);
+
+				Map<FamilyType, NameTable> updated = new HashMap<>(snapshots);
+				updated.put(family, new NameTable(familyTypes.values()));
+				snapshots = updated;
+			}
+			return type;
+		}
+	}
+
+	/**
+	 * Immutable open addressing table of the types of a family.  Names are hashed and
+	 * compared ignoring case so lookups do not need to upper-case the requested name.
+	 */
+	private static final class NameTable {
+		private final SiteType[] slots;
+		private final int mask;
+
+		NameTable(Collection<SiteType> types) {
+			int capacity = Integer.highestOneBit(Math.max(4, types.size() * 2 - 1)) << 1;
+			slots = new SiteType[capacity];
+			mask = capacity - 1;
+			for (SiteType type : types) {
+				int i = hash(type.name) & mask;
+				while (slots[i] != null)
+					i = (i + 1) & mask;
+				slots[i] = type;
+			}
+		}
+
+		SiteType get(String name) {
+			int i = hash(name) & mask;
+			SiteType type;
+			while ((type = slots[i]) != null) {
+				if (type.name.equalsIgnoreCase(name))
+					return type;
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		private static int hash(String name) {
+			int h = 0;
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				if (c >= 'a' && c <= 'z')
+					c -= 'a' - 'A';
+				h = 31 * h + c;
+			}
+			return h ^ (h >>> 16);
 		}
 	}
 
@@ -26,6 +26,9 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import static edu.byu.ece.rapidSmith.device.ContentHash.combine;
+import static edu.byu.ece.rapidSmith.device.ContentHash.mix;
+
 /**
  * DO NOT USE THIS CLASS!  This class was specially developed for the Device 
  * wire connections hash map.  It is specifically optimized for that purpose.
@@ -232,6 +235,35 @@ public class WireHashMap implements Serializable {
 		return hash;
 	}
 
+	/**
+	 * Returns a 64-bit hash of the contents of this map.  Unlike {@link #hashCode()},
+	 * the hash is wide enough to be used as the key of content addressed storage.  The
+	 * hash depends only on the wires and connections in the map and not on the
+	 * capacity or layout of the map, so equal maps loaded from different device files
+	 * produce the same hash.
+	 *
+	 * @return the content hash of this map
+	 */
+	public long getContentHash() {
+		long h = size;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == -1)
+				continue;
+			long entry = keys[i];
+			if (values[i] != null) {
+				for (WireConnection wc : values[i]) {
+					entry = combine(entry, wc.getWire());
+					entry = combine(entry, wc.getRowOffset());
+					entry = combine(entry, wc.getColumnOffset());
+					entry = combine(entry, wc.isPIP() ? 1 : 0);
+				}
+			}
+			// summed so the hash is independent of the order of the keys
+			h += mix(entry);
+		}
+		return h;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -1,12 +1,36 @@
 package edu.byu.ece.rapidSmith.device.xdlrc;
 
-import java.io.Serializable;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+/**
+ * Compact representation of an XDLRC file.  Two file layouts are supported.  The
+ * original layout stores this whole object as a single Hessian stream.  The blocked
+ * layout starts with {@link #BLOCKED_MAGIC} followed by independently compressed
+ * blocks of tiles and ends with this object (without its tiles) and a
+ * {@link BlockIndex} locating each block.  The blocked layout can be written while
+ * the XDLRC is parsed and read back one block at a time.
+ */
 class CompressedXDLRC implements Serializable {
 	private static final long serialVersionUID = -4599842580533474172L;
+	/** Marker at the start of files in the blocked layout */
+	static final byte[] BLOCKED_MAGIC = "CXDLRCB1".getBytes(StandardCharsets.US_ASCII);
+	/** Size of the trailer pointing to the header at the end of blocked files */
+	static final int BLOCKED_TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
 	ArrayList<String> tileNames;
 	ArrayList<String> tileTypes;
 	ArrayList<String> siteTypes;
@@ -19,6 +43,25 @@ class CompressedXDLRC implements Serializable {
 	ArrayList<CompressedTile> tiles;
 	ArrayList<CompressedDef> primitive_defs;
 	ArrayList<String> summary;
+	// only set in the blocked layout, tiles is null in this case
+	BlockIndex blockIndex;
+
+	/**
+	 * Locations of the tile blocks in a blocked layout file.  Block {@code i}
+	 * contains {@code tileCounts[i]} tiles starting with tile {@code firstTiles[i]}
+	 * and is stored in {@code lengths[i]} bytes at {@code offsets[i]}.
+	 */
+	static class BlockIndex implements Serializable {
+		private static final long serialVersionUID = 3546254271232614537L;
+		long[] offsets;
+		int[] lengths;
+		int[] firstTiles;
+		int[] tileCounts;
+
+		int size() {
+			return offsets.length;
+		}
+	}
 
 	static class CompressedTile implements Serializable {
 		private static final long serialVersionUID = -6146519990057939282L;
@@ -202,5 +245,81 @@ class CompressedXDLRC implements Serializable {
 		throw new IllegalArgumentException("Invalid arrow " + value);
 	}
 
-}
+	/**
+	 * Tests whether the file uses the blocked layout.
+	 */
+	static boolean isBlockedFile(Path path) throws IOException {
+		try (InputStream is = Files.newInputStream(path)) {
+			byte[] magic = new byte[BLOCKED_MAGIC.length];
+			int read = 0;
+			while (read < magic.length) {
+				int count = is.read(magic, read, magic.length - read);
+				if (count < 0)
+					return false;
+				read += count;
+			}
+			return Arrays.equals(magic, BLOCKED_MAGIC);
+		}
+	}
 
+	/**
+	 * Reads the header of a blocked layout file.  The tiles of the returned object are
+	 * not loaded, use the block index to read them with {@link #readBlock}.
+	 */
+	static CompressedXDLRC readBlockedHeader(FileChannel channel) throws IOException {
+		ByteBuffer trailer = ByteBuffer.allocate(BLOCKED_TRAILER_SIZE);
+		readFully(channel, trailer, channel.size() - BLOCKED_TRAILER_SIZE);
+		trailer.flip();
+		long headerOffset = trailer.getLong();
+		int headerLength = trailer.getInt();
+		return (CompressedXDLRC) decode(read(channel, headerOffset, headerLength));
+	}
+
+	/**
+	 * Reads and decompresses block {@code block} of a blocked layout file.  This
+	 * method may be called from multiple threads on the same channel.
+	 */
+	@SuppressWarnings("unchecked")
+	static ArrayList<CompressedTile> readBlock(
+		FileChannel channel, BlockIndex index, int block
+	) throws IOException {
+		byte[] bytes = read(channel, index.offsets[block], index.lengths[block]);
+		return (ArrayList<CompressedTile>) decode(bytes);
+	}
+
+	/**
+	 * Serializes and compresses the object into a standalone block.
+	 */
+	static byte[] encode(Object o) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Hessian2Output hos = new Hessian2Output(new DeflaterOutputStream(bos));
+		hos.setCloseStreamOnClose(true);
+		hos.writeObject(o);
+		hos.close();
+		return bos.toByteArray();
+	}
+
+	private static Object decode(byte[] bytes) throws IOException {
+		Hessian2Input his = new Hessian2Input(
+			new InflaterInputStream(new ByteArrayInputStream(bytes)));
+		try {
+			return his.readObject();
+		} finally {
+			his.close();
+		}
+	}
+
+	private static byte[] read(FileChannel channel, long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		readFully(channel, buffer, offset);
+		return buffer.array();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, offset + buffer.position());
+			if (count < 0)
+				throw new EOFException("Unexpected end of compressed XDLRC file");
+		}
+	}
+}
@@ -6,15 +6,23 @@ import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener.*;
 import edu.byu.ece.rapidSmith.util.FileTools;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class CompressedXDLRCReader {
 	private final List<XDLRCParserListener> listeners;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
 
 	private pl_Conn pl_conn = new pl_Conn();
 	private pl_Pip pl_pip = new pl_Pip();
@@ -46,20 +54,49 @@ public class CompressedXDLRCReader {
 		listeners.clear();
 	}
 
+	/**
+	 * Sets the number of threads used to decompress the blocks of blocked layout
+	 * files.  Listeners are always called from the thread calling parse.
+	 * @param numThreads number of decompression threads
+	 */
+	public void setNumThreads(int numThreads) {
+		if (numThreads < 1)
+			throw new IllegalArgumentException("numThreads must be positive");
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Parses the compressed XDLRC file calling the registered listeners.  Files in the
+	 * blocked layout written by {@link XDLRCCompressor#compressXdlrc(Path, Path)} are
+	 * decompressed a few blocks at a time in parallel and never fully loaded.
+	 * @param xdlrcFilePath path to the compressed XDLRC file
+	 */
 	public void parse(Path xdlrcFilePath) throws IOException {
-		Hessian2Input compactReader = FileTools.getCompactReader(xdlrcFilePath);
-		CompressedXDLRC cxdlrc = (CompressedXDLRC) compactReader.readObject();
-		traverse(cxdlrc);
+		if (CompressedXDLRC.isBlockedFile(xdlrcFilePath)) {
+			try (FileChannel channel = FileChannel.open(xdlrcFilePath, StandardOpenOption.READ)) {
+				CompressedXDLRC header = CompressedXDLRC.readBlockedHeader(channel);
+				traverse(header, channel);
+			}
+		} else {
+			Hessian2Input compactReader = FileTools.getCompactReader(xdlrcFilePath);
+			CompressedXDLRC cxdlrc = (CompressedXDLRC) compactReader.readObject();
+			traverse(cxdlrc);
+		}
 	}
 
 	public void traverse(CompressedXDLRC cxdlrc) throws IOException {
+		traverse(cxdlrc, null);
+	}
+
+	// blocks is the channel to read the tiles from for blocked layout files
+	private void traverse(CompressedXDLRC cxdlrc, FileChannel blocks) throws IOException {
 		pl_XdlResourceReport xdlrr = new pl_XdlResourceReport();
 		xdlrr.family = cxdlrc.family;
 		xdlrr.part = cxdlrc.part;
 		xdlrr.version = cxdlrc.version;
 		listeners.forEach(it -> it.enterXdlResourceReport(xdlrr));
 
-		parseTiles(cxdlrc);
+		parseTiles(cxdlrc, blocks);
 		parseDefs(cxdlrc);
 
 		pl_Summary summary = new pl_Summary();
@@ -70,18 +107,56 @@ public class CompressedXDLRCReader {
 		listeners.forEach(it -> it.exitXdlResourceReport(xdlrr));
 	}
 
-	private void parseTiles(CompressedXDLRC cxdlrc) {
+	private void parseTiles(CompressedXDLRC cxdlrc, FileChannel blocks) throws IOException {
 		pl_Tiles tiles = new pl_Tiles();
 		tiles.rows = cxdlrc.rows;
 		tiles.columns = cxdlrc.columns;
 		listeners.forEach(it -> it.enterTiles(tiles));
-		int tileIndex = 0;
-		for (CompressedTile tile : cxdlrc.tiles) {
-			visit(cxdlrc, tile, tileIndex++);
+		if (blocks == null) {
+			int tileIndex = 0;
+			for (CompressedTile tile : cxdlrc.tiles) {
+				visit(cxdlrc, tile, tileIndex++);
+			}
+		} else {
+			parseBlocks(cxdlrc, blocks);
 		}
 		listeners.forEach(it -> it.exitTiles(tiles));
 	}
 
+	private void parseBlocks(CompressedXDLRC cxdlrc, FileChannel channel) throws IOException {
+		BlockIndex index = cxdlrc.blockIndex;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			// decompress a bounded number of blocks ahead of the listeners
+			ArrayDeque<Future<ArrayList<CompressedTile>>> pending = new ArrayDeque<>();
+			int nextBlock = 0;
+			for (int block = 0; block < index.size(); block++) {
+				while (nextBlock < index.size() && pending.size() < 2 * numThreads) {
+					int toRead = nextBlock++;
+					pending.add(executor.submit(() ->
+						CompressedXDLRC.readBlock(channel, index, toRead)));
+				}
+
+				ArrayList<CompressedTile> ctiles;
+				try {
+					ctiles = pending.remove().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading compressed XDLRC", e);
+				} catch (ExecutionException e) {
+					throw new IOException("Error reading compressed XDLRC block " + block, e.getCause());
+				}
+
+				int tileIndex = index.firstTiles[block];
+				for (CompressedTile tile : ctiles) {
+					visit(cxdlrc, tile, tileIndex++);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	private void visit(CompressedXDLRC cxdlrc, CompressedTile ctile, int index) {
 		pl_Tile tile = new pl_Tile();
 
@@ -1,16 +1,60 @@
 package edu.byu.ece.rapidSmith.device.xdlrc;
 
-import com.caucho.hessian.io.Hessian2Output;
 import edu.byu.ece.rapidSmith.device.xdlrc.CompressedXDLRC.*;
-import edu.byu.ece.rapidSmith.util.FileTools;
 import edu.byu.ece.rapidSmith.util.HashPool;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class XDLRCCompressor {
+	/** Default number of tiles stored in each block of a blocked compressed XDLRC */
+	public static final int DEFAULT_TILES_PER_BLOCK = 2048;
+
+	private final int tilesPerBlock;
+	private final int numThreads;
+
+	/**
+	 * Creates a compressor using {@link #DEFAULT_TILES_PER_BLOCK} tiles per block and
+	 * one compression thread per available processor.
+	 */
+	public XDLRCCompressor() {
+		this(DEFAULT_TILES_PER_BLOCK, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a compressor for the blocked layout.
+	 *
+	 * @param tilesPerBlock number of tiles to store in each independently compressed block
+	 * @param numThreads number of threads used to compress blocks while parsing
+	 */
+	public XDLRCCompressor(int tilesPerBlock, int numThreads) {
+		if (tilesPerBlock < 1)
+			throw new IllegalArgumentException("tilesPerBlock must be positive");
+		if (numThreads < 1)
+			throw new IllegalArgumentException("numThreads must be positive");
+		this.tilesPerBlock = tilesPerBlock;
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Compresses the XDLRC into a single in-memory object.  This requires two passes
+	 * of the XDLRC and holds the complete compressed structure in memory.  Prefer
+	 * {@link #compressXdlrc(Path, Path)} for large devices.
+	 */
 	public CompressedXDLRC compressXdlrc(Path xdlrcPath) throws IOException {
 		XDLRCParser parser = new XDLRCParser();
 
@@ -22,21 +66,67 @@ public class XDLRCCompressor {
 
 		parser.clearListeners();
 		CompressedXDLRC cxdlrc = new CompressedXDLRC();
-		parser.registerListener(new CompressorListener(cxdlrc, namesListener));
+		parser.registerListener(new CompressorListener(cxdlrc, namesListener.wireNames,
+			namesListener.tileNames, tile -> cxdlrc.tiles.add(tile)));
 		parser.registerListener(new XDLRCParseProgressListener());
 		parser.parse(xdlrcPath);
 		return cxdlrc;
 	}
 
+	/**
+	 * Compresses the XDLRC into the blocked layout in a single parse.  Tiles are
+	 * grouped into blocks that are compressed on worker threads and written to the
+	 * output as the XDLRC is parsed, so only the blocks currently being compressed
+	 * and the name tables are held in memory.  The resulting file can be read with
+	 * {@link CompressedXDLRCReader} which decodes the blocks in parallel.
+	 * <p>
+	 * The tile names are read by a quick scan of the tile lines before the parse so
+	 * that tiles are numbered in row-major order.  Conns store the offset between
+	 * tile numbers, which then match between tiles with the same neighbors and let
+	 * identical conn lists be shared.
+	 *
+	 * @param xdlrcPath the XDLRC file to compress
+	 * @param outputPath the file to write the compressed XDLRC to
+	 */
+	public void compressXdlrc(Path xdlrcPath, Path outputPath) throws IOException {
+		CompressedXDLRC header = new CompressedXDLRC();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(CompressedXDLRC.BLOCKED_MAGIC));
+
+			BlockWriter blockWriter = new BlockWriter(channel, executor);
+			CompressorListener compressor = new CompressorListener(header,
+				new HashPool<>(50000), scanTileNames(xdlrcPath), blockWriter);
+			blockWriter.compressor = compressor;
+
+			XDLRCParser parser = new XDLRCParser();
+			parser.registerListener(compressor);
+			parser.registerListener(new XDLRCParseProgressListener());
+			try {
+				parser.parse(xdlrcPath);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			header.tiles = null;
+			header.blockIndex = blockWriter.finish();
+
+			long headerOffset = channel.position();
+			byte[] headerBytes = CompressedXDLRC.encode(header);
+			writeFully(channel, ByteBuffer.wrap(headerBytes));
+			ByteBuffer trailer = ByteBuffer.allocate(CompressedXDLRC.BLOCKED_TRAILER_SIZE);
+			trailer.putLong(headerOffset);
+			trailer.putInt(headerBytes.length);
+			trailer.flip();
+			writeFully(channel, trailer);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	public static void main(String[] args) {
 		XDLRCCompressor compressor = new XDLRCCompressor();
-		CompressedXDLRC cxdlrc = null;
-		try {
-			cxdlrc = compressor.compressXdlrc(Paths.get(args[0]));
-		} catch (IOException e) {
-			System.err.println("Error parsing xdlrc file: ");
-			e.printStackTrace();
-		}
 		Path output;
 		if (args.length > 1) {
 			output = Paths.get(args[1]);
@@ -44,22 +134,123 @@ public class XDLRCCompressor {
 			output = Paths.get(args[0].substring(0, args[0].lastIndexOf('.')) + ".cxdlrc");
 		}
 
-		Hessian2Output hos = null;
 		try {
-			hos = FileTools.getCompactWriter(output);
-			hos.writeObject(cxdlrc);
+			compressor.compressXdlrc(Paths.get(args[0]), output);
 		} catch (IOException e) {
-			System.err.println("Error writing to file");
+			System.err.println("Error compressing xdlrc file: ");
 			e.printStackTrace();
-		} finally {
-			if (hos != null) {
+		}
+	}
+
+	/**
+	 * Reads the tile names of the XDLRC in the order of their tile lines, skipping
+	 * everything else without tokenizing it.
+	 */
+	private static HashPool<String> scanTileNames(Path xdlrcPath) throws IOException {
+		HashPool<String> tileNames = new HashPool<>(100000);
+		try (BufferedReader in = Files.newBufferedReader(xdlrcPath, Charset.defaultCharset())) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String trimmed = line.trim();
+				// (tile <row> <column> <name> <type> <site_count>
+				if (trimmed.startsWith("(tile ")) {
+					String[] tokens = trimmed.split("\\s+");
+					if (tokens.length > 3)
+						tileNames.add2(tokens[3]);
+				} else if (trimmed.startsWith("(primitive_defs")) {
+					break;
+				}
+			}
+		}
+		return tileNames;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Collects compressed tiles into blocks, compresses full blocks on the executor and
+	 * writes the compressed blocks to the channel in order.
+	 */
+	private final class BlockWriter implements Consumer<CompressedTile> {
+		private final FileChannel channel;
+		private final ExecutorService executor;
+		private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+		private CompressorListener compressor;
+
+		private ArrayList<CompressedTile> block = new ArrayList<>(tilesPerBlock);
+		private int nextTile = 0;
+		private final List<Long> offsets = new ArrayList<>();
+		private final List<Integer> lengths = new ArrayList<>();
+		private final List<Integer> firstTiles = new ArrayList<>();
+		private final List<Integer> tileCounts = new ArrayList<>();
+
+		BlockWriter(FileChannel channel, ExecutorService executor) {
+			this.channel = channel;
+			this.executor = executor;
+		}
+
+		@Override
+		public void accept(CompressedTile tile) {
+			block.add(tile);
+			if (block.size() >= tilesPerBlock) {
 				try {
-					hos.close();
+					flushBlock();
 				} catch (IOException e) {
-					e.printStackTrace();
+					throw new UncheckedIOException(e);
 				}
 			}
 		}
+
+		private void flushBlock() throws IOException {
+			if (block.isEmpty())
+				return;
+
+			ArrayList<CompressedTile> toWrite = block;
+			pending.add(executor.submit(() -> CompressedXDLRC.encode(toWrite)));
+			firstTiles.add(nextTile);
+			tileCounts.add(toWrite.size());
+			nextTile += toWrite.size();
+			block = new ArrayList<>(tilesPerBlock);
+
+			// objects are only shared within a block, empty the pools so the
+			// memory of completed blocks can be reclaimed
+			compressor.resetObjectPools();
+
+			// bound the number of blocks held in memory
+			while (pending.size() > 2 * numThreads)
+				writeNextBlock();
+		}
+
+		private void writeNextBlock() throws IOException {
+			byte[] bytes;
+			try {
+				bytes = pending.remove().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while compressing XDLRC", e);
+			} catch (ExecutionException e) {
+				throw new IOException("Error compressing XDLRC block", e.getCause());
+			}
+			offsets.add(channel.position());
+			lengths.add(bytes.length);
+			writeFully(channel, ByteBuffer.wrap(bytes));
+		}
+
+		BlockIndex finish() throws IOException {
+			flushBlock();
+			while (!pending.isEmpty())
+				writeNextBlock();
+
+			BlockIndex index = new BlockIndex();
+			index.offsets = offsets.stream().mapToLong(Long::longValue).toArray();
+			index.lengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+			index.firstTiles = firstTiles.stream().mapToInt(Integer::intValue).toArray();
+			index.tileCounts = tileCounts.stream().mapToInt(Integer::intValue).toArray();
+			return index;
+		}
 	}
 
 	private class NamesListener extends XDLRCParserListener {
@@ -85,14 +276,15 @@ public class XDLRCCompressor {
 		private HashPool<String> siteTypes = new HashPool<>(128);
 		private HashPool<String> pinNames = new HashPool<>(16000);
 		private HashPool<String> rtPins = new HashPool<>(128);
-		private HashPool<CompressedConn> connsPool = new HashPool<>(2000000);
-		private HashPool<ArrayList<CompressedConn>> connsListPool = new HashPool<>(1000000);
-		private HashPool<CompressedPip> pipsPool = new HashPool<>(100000);
-		private HashPool<ArrayList<CompressedPip>> pipListPool = new HashPool<>(100000);
-		private HashPool<CompressedPinwire> pinWiresPool = new HashPool<>(10000);
-		private HashPool<LinkedHashMap<Integer, ArrayList<CompressedConn>>> wireMapsPool = new HashPool<>(100000);
+		private final HashPool<CompressedConn> connsPool = new HashPool<>(2000000);
+		private final HashPool<ArrayList<CompressedConn>> connsListPool = new HashPool<>(1000000);
+		private final HashPool<CompressedPip> pipsPool = new HashPool<>(100000);
+		private final HashPool<ArrayList<CompressedPip>> pipListPool = new HashPool<>(100000);
+		private final HashPool<CompressedPinwire> pinWiresPool = new HashPool<>(10000);
+		private final HashPool<LinkedHashMap<Integer, ArrayList<CompressedConn>>> wireMapsPool = new HashPool<>(100000);
 
 		CompressedXDLRC xdlrc;
+		private final Consumer<CompressedTile> tileSink;
 		private CompressedTile currTile;
 		private CompressedSite currSite;
 		private ArrayList<CompressedConn> currWire;
@@ -108,10 +300,33 @@ public class XDLRCCompressor {
 		private int wireListCount;
 		private int wireMatchCount;
 
-		CompressorListener(CompressedXDLRC xdlrc, NamesListener names) {
+		/**
+		 * @param wireNames pool of the wire names, names missing from the pool are added
+		 * @param tileNames pool of the tile names, names missing from the pool are added
+		 * @param tileSink receives each tile once it is compressed
+		 */
+		CompressorListener(
+			CompressedXDLRC xdlrc, HashPool<String> wireNames,
+			HashPool<String> tileNames, Consumer<CompressedTile> tileSink
+		) {
 			this.xdlrc = xdlrc;
-			this.wireNames = names.wireNames;
-			this.tileNames = names.tileNames;
+			this.wireNames = wireNames;
+			this.tileNames = tileNames;
+			this.tileSink = tileSink;
+		}
+
+		/**
+		 * Empties the pools used to share identical objects between tiles.  Tiles
+		 * compressed after this call will not share objects with earlier tiles.
+		 * The pools keep their capacity and are reused for every block.
+		 */
+		void resetObjectPools() {
+			connsPool.clear();
+			connsListPool.clear();
+			pipsPool.clear();
+			pipListPool.clear();
+			pinWiresPool.clear();
+			wireMapsPool.clear();
 		}
 
 		@Override
@@ -148,7 +363,7 @@ public class XDLRCCompressor {
 		@Override
 		protected void enterTile(pl_Tile tokens) {
 			currTile = new CompressedTile();
-			currTile.name = tileNames.getEnumeration(tokens.name);
+			currTile.name = tileNames.add2(tokens.name);
 			currTile.type = tileTypes.add2(tokens.type);
 			currTile.sites = new ArrayList<>();
 			currTile.wires = new LinkedHashMap<>();
@@ -176,7 +391,7 @@ public class XDLRCCompressor {
 				wireMatchCount++;
 			}
 
-			xdlrc.tiles.add(currTile);
+			tileSink.accept(currTile);
 			currTile = null;
 		}
 
@@ -198,7 +413,7 @@ public class XDLRCCompressor {
 		@Override
 		protected void enterPinWire(pl_PinWire tokens) {
 			CompressedPinwire p = new CompressedPinwire();
-			p.wireName = wireNames.getEnumeration(tokens.external_wire);
+			p.wireName = wireNames.add2(tokens.external_wire);
 			p.pinName = pinNames.add2(tokens.name);
 			p.direction = CompressedXDLRC.getDirectionValue(tokens.direction);
 			currSite.pinwires.add(pinWiresPool.add(p));
@@ -218,23 +433,23 @@ public class XDLRCCompressor {
 			} else {
 				connMatchCount++;
 			}
-			currTile.wires.put(wireNames.getEnumeration(tokens.name), compressed);
+			currTile.wires.put(wireNames.add2(tokens.name), compressed);
 			currWire = null;
 		}
 
 		@Override
 		protected void enterConn(pl_Conn tokens) {
 			CompressedConn c = new CompressedConn();
-			c.sinkTileOffset = tileNames.getEnumeration(tokens.tile) - currTile.name;
-			c.sinkWire = wireNames.getEnumeration(tokens.wire);
+			c.sinkTileOffset = tileNames.add2(tokens.tile) - currTile.name;
+			c.sinkWire = wireNames.add2(tokens.wire);
 			currWire.add(connsPool.add(c));
 		}
 
 		@Override
 		protected void enterPip(pl_Pip tokens) {
 			currPip = new CompressedPip();
-			currPip.source = wireNames.getEnumeration(tokens.start_wire);
-			currPip.sink = wireNames.getEnumeration(tokens.end_wire);
+			currPip.source = wireNames.add2(tokens.start_wire);
+			currPip.sink = wireNames.add2(tokens.end_wire);
 			currPip.type = CompressedXDLRC.getPipTypeValue(tokens.type);
 		}
 
@@ -66,6 +66,12 @@ public interface XDLRCSource {
 
 		@Override
 		public void parse() throws IOException {
+			// blocked files are streamed from disk on each pass rather than held in memory
+			if (cxdlrc == null && CompressedXDLRC.isBlockedFile(cxdlrcPath)) {
+				reader.parse(cxdlrcPath);
+				return;
+			}
+
 			if (cxdlrc == null) {
 				Hessian2Input compactReader = FileTools.getCompactReader(cxdlrcPath);
 				cxdlrc = (CompressedXDLRC) compactReader.readObject();
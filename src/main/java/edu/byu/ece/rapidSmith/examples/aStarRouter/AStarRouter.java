@@ -9,8 +9,10 @@ import java.util.Set;
 import java.util.stream.Stream;
 
 import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
 import edu.byu.ece.rapidSmith.design.subsite.RouteTree;
 import edu.byu.ece.rapidSmith.device.*;
+import edu.byu.ece.rapidSmith.timing.CriticalityService;
 
 /**
  * Implements a very simple A* routing algorithm capable of routing a single {@link CellNet}
@@ -26,6 +28,8 @@ public class AStarRouter {
 	private Map<RouteTree, Set<Wire>> usedConnectionMap;
 	private Tile targetTile;
 	private Tile startTile;
+	private CriticalityService criticality;
+	private RoutingDistanceTable distanceTable;
 	 
 	/**
 	 * Constructor. Initializes a new A* router object
@@ -35,8 +39,8 @@ public class AStarRouter {
 		// Cost function for comparing RouteTree objects
 		routeTreeComparator = (one, two) -> {
 				// cost = route tree cost (# of wires traversed) + distance to the target + distance from the source
-				Integer costOne = one.getCost() + manhattenDistance(one, targetTile) + manhattenDistance(one, startTile);
-				Integer costTwo = two.getCost() + manhattenDistance(two, targetTile) + manhattenDistance(two, startTile);
+				Integer costOne = one.getCost() + distanceToTarget(one) + manhattenDistance(one, startTile);
+				Integer costTwo = two.getCost() + distanceToTarget(two) + manhattenDistance(two, startTile);
 				
 				return costOne.compareTo(costTwo);
 		};
@@ -44,6 +48,28 @@ public class AStarRouter {
 		usedConnectionMap = new HashMap<>();
 	}
 	
+	/**
+	 * Sets the criticalities used to order the sinks of each net.  When set, the
+	 * sinks of a net are routed from most to least critical so critical sinks get
+	 * the most direct routes.
+	 *
+	 * @param criticality criticalities of the connections in the design, null for none
+	 */
+	public void setCriticalityService(CriticalityService criticality) {
+		this.criticality = criticality;
+	}
+
+	/**
+	 * Sets the table used to estimate the distance to the sink being routed.  When
+	 * set, the estimate accounts for long lines and other routing resources that
+	 * Manhattan distance misjudges.
+	 *
+	 * @param distanceTable distances computed for the device, null to use Manhattan distance
+	 */
+	public void setDistanceTable(RoutingDistanceTable distanceTable) {
+		this.distanceTable = distanceTable;
+	}
+
 	/**
 	 * Routes the specified {@link CellNet} using an A* routing algorithm.
 	 * 
@@ -147,9 +173,31 @@ public class AStarRouter {
 	 * @param net {@link CellNet} to route
 	 */
 	private Stream<SitePin> getSinksToRoute(CellNet net) {
-		return net.getSitePins().stream().filter(SitePin::isInput);
+		Stream<SitePin> sinks = net.getSitePins().stream().filter(SitePin::isInput);
+		if (criticality == null)
+			return sinks;
+
+		// criticality of each sink site is the largest of the cell pins it contains
+		Map<Site, Float> siteCriticality = new HashMap<>();
+		for (CellPin pin : net.getSinkPins()) {
+			Site site = pin.getCell().getSite();
+			if (site != null)
+				siteCriticality.merge(site, criticality.getCriticality(pin), Math::max);
+		}
+		return sinks.sorted(Comparator.comparing(
+				(SitePin p) -> siteCriticality.getOrDefault(p.getSite(), 0.0f)).reversed());
 	}
 	
+	/**
+	 * Estimates the distance from the specified {@link RouteTree} to the target tile
+	 * using the distance table if one is set, and Manhattan distance otherwise.
+	 */
+	private int distanceToTarget(RouteTree tree) {
+		if (distanceTable == null)
+			return manhattenDistance(tree, targetTile);
+		return distanceTable.estimate(tree.getWire().getTile(), targetTile);
+	}
+
 	/**
 	 * Calculates the Manhattan distance between the specified {@link RouteTree} and {@link Tile} objects. 
 	 * The Tile of the wire within {@code tree} is used for the comparison. The Manhattan distance from 
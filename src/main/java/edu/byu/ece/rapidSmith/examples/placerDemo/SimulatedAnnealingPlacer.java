@@ -31,6 +31,7 @@ import edu.byu.ece.rapidSmith.device.Site;
 import edu.byu.ece.rapidSmith.device.SiteType;
 import edu.byu.ece.rapidSmith.device.families.Artix7;
 import edu.byu.ece.rapidSmith.interfaces.vivado.XdcPlacementInterface;
+import edu.byu.ece.rapidSmith.timing.CriticalityService;
 import edu.byu.ece.rapidSmith.util.MessageGenerator;
 
 import java.io.BufferedWriter;
@@ -45,6 +46,13 @@ public class SimulatedAnnealingPlacer {
 	private final ArrayList<SiteCluster> allSiteClusters;
 	private HashMap<Site, SiteCluster> sitenameToClusterMap;
 	private final int[] netToCostMap;
+	// optional timing information used to weight the cost of critical nets
+	private final CriticalityService criticality;
+	private final double timingTradeoff;
+	// temperature steps between recomputations of the criticalities
+	private int criticalityRefreshInterval = 10;
+	// virtual nets included in the cost of the placement
+	private final ArrayList<VirtualNet> virtualNets = new ArrayList<>();
 	
 	// Update these as you like to see the annealing aspects of the placer
 	// The last element in the array should always be 0!
@@ -64,8 +72,28 @@ public class SimulatedAnnealingPlacer {
 	 * @param design
 	 */
 	public SimulatedAnnealingPlacer(Device device, CellDesign design) {
+		this(device, design, null, 0.0);
+	}
+
+	/**
+	 * Creates a timing-driven placer.  The wirelength cost of each net is multiplied
+	 * by {@code 1 + timingTradeoff * criticality}, where the criticality of the net is
+	 * taken from {@code criticality}.  The criticalities are first taken for the
+	 * placement of the design when the placer is created and are recomputed for the
+	 * current placement every {@link #setCriticalityRefreshInterval(int) few}
+	 * temperature steps.
+	 *
+	 * @param device
+	 * @param design
+	 * @param criticality criticalities of the nets in the design, null for none
+	 * @param timingTradeoff how much more expensive fully critical nets are
+	 */
+	public SimulatedAnnealingPlacer(Device device, CellDesign design,
+			CriticalityService criticality, double timingTradeoff) {
 		this.design = design;
 		this.device = device;
+		this.criticality = criticality;
+		this.timingTradeoff = timingTradeoff;
 		this.placeableSiteClusters = new ArrayList<>();
 		this.allSiteClusters = new ArrayList<>();
 		this.sitenameToClusterMap = new HashMap<>();
@@ -77,6 +105,22 @@ public class SimulatedAnnealingPlacer {
 		design.getNets().forEach(CellNet::unrouteFull);
 	}
 	
+	/**
+	 * Sets the number of temperature steps between recomputations of the net
+	 * criticalities.  Each recomputation applies the current placement to the design,
+	 * re-times every cell with the static timing analyzer and recomputes the cost of
+	 * every net, which usually costs more than the moves of a temperature step.
+	 * Defaults to 10.
+	 *
+	 * @param steps temperature steps between recomputations, 1 to recompute after
+	 *   every step
+	 */
+	public void setCriticalityRefreshInterval(int steps) {
+		if (steps < 1)
+			throw new IllegalArgumentException("refresh interval must be positive: " + steps);
+		this.criticalityRefreshInterval = steps;
+	}
+
 	public void setVivadoOutputStream(BufferedWriter out, String checkpoint) {
 		this.vivadoOut = out;
 		this.placementXdc = checkpoint + "placement.xdc";
@@ -122,6 +166,8 @@ public class SimulatedAnnealingPlacer {
 				//populate the source information
 				VirtualNet vnet = new VirtualNet();
 				vnet.setName(net.getName());
+				if (criticality != null)
+					vnet.setTimingWeight((float) (1.0 + timingTradeoff * criticality.getNetCriticality(net)));
 				Site sourceSite = net.getSourcePin().getCell().getSite();
 				SiteCluster scSource = siteToCluster.get(sourceSite);
 			
@@ -155,6 +201,7 @@ public class SimulatedAnnealingPlacer {
 						netSinks[i++] = sc;
 					
 					vnet.setSinks(netSinks);
+					virtualNets.add(vnet);
 					
 					int netCost = vnet.calculateCost();
 					this.netToCostMap[vnet.getUniqueID()] =  netCost;
@@ -527,6 +574,7 @@ public class SimulatedAnnealingPlacer {
 		int movesAtTemp = 10000;
 		
 		double percentAccepted;
+		int temperatureSteps = 0;
 		//int test = 0;
 		do {	
 			moves = 0;
@@ -587,6 +635,10 @@ public class SimulatedAnnealingPlacer {
 			total_moves += moves;
 			temp *= .99;
 			
+			temperatureSteps++;
+			if (criticality != null && temperatureSteps % criticalityRefreshInterval == 0)
+				updateTimingWeights();
+			
 			if (viewCheckpoints && percentAccepted < this.checkpointTimes[currentCheckpointTime]) {
 				currentCheckpointTime++;
 				printStatusToVivado();
@@ -646,6 +698,27 @@ public class SimulatedAnnealingPlacer {
 		}
 	}
 
+	/**
+	 * Recomputes the criticality of each net for the current placement and
+	 * recomputes the cost of the placement with the new timing weights.
+	 */
+	private void updateTimingWeights() {
+		// the delay model estimates unrouted connections from the placed cells
+		applyFinalPlacement();
+		design.getCells().forEach(criticality::invalidate);
+		criticality.update();
+		unplaceAllCells();
+		
+		this.cost = 0;
+		for (VirtualNet vnet : virtualNets) {
+			CellNet net = design.getNet(vnet.getName());
+			vnet.setTimingWeight((float) (1.0 + timingTradeoff * criticality.getNetCriticality(net)));
+			int netCost = vnet.calculateCost();
+			this.netToCostMap[vnet.getUniqueID()] = netCost;
+			this.cost += netCost;
+		}
+	}
+	
 	/**
 	 * Map all cells to bels in the design after the placement is finalized
 	 */
@@ -39,6 +39,8 @@ public class VirtualNet {
 	private SiteCluster[] sinks;
 	private int numSinks = 0;
 	private int scaleFactor = 0;
+	// multiplier applied to the cost of timing critical nets
+	private float timingWeight = 1.0f;
 	//current bounding box of the net
 	private int top;
 	private int bottom;
@@ -85,6 +87,8 @@ public class VirtualNet {
 			}
 		}
 		this.cost = ((top - bottom) + (right - left)) * scaleFactor; //* scaleFactor;
+		if (timingWeight != 1.0f)
+			this.cost = Math.round(this.cost * timingWeight);
 		return cost;
 	}
 	
@@ -145,6 +149,18 @@ public class VirtualNet {
 	public int getCost() {
 		return this.cost;
 	}
+
+	/**
+	 * Sets the multiplier applied to the wirelength cost of this net, ie. to make
+	 * timing critical nets more expensive to stretch.
+	 */
+	public void setTimingWeight(float timingWeight) {
+		this.timingWeight = timingWeight;
+	}
+
+	public float getTimingWeight() {
+		return this.timingWeight;
+	}
 	
 	public void setSource(SiteCluster source) {
 		this.source = source; 
@@ -25,29 +25,148 @@ import edu.byu.ece.rapidSmith.design.*;
 import edu.byu.ece.rapidSmith.design.xdl.*;
 import edu.byu.ece.rapidSmith.device.*;
 import edu.byu.ece.rapidSmith.util.Exceptions.ParseException;
-import org.antlr.v4.runtime.ANTLRFileStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
- *
+ * Reads XDL designs into {@link XdlDesign}s.  Two modes are provided.
+ * {@link #readDesign(Path)} loads the entire file and builds a complete parse tree
+ * before creating the design.  {@link #readDesignStreaming(Path)} creates the
+ * design while the file is being parsed without building a parse tree or
+ * buffering the file, so the memory used beyond the design itself does not grow
+ * with the size of the file.  Prefer the streaming mode for large routed designs.
  */
 public final class XDLReader {
+	/** Size of the character buffer used when streaming a design */
+	private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+	private final Device device;
+
+	/**
+	 * Creates a reader which loads the part of each design from the default
+	 * environment.
+	 */
+	public XDLReader() {
+		this(null);
+	}
+
+	/**
+	 * Creates a reader for designs on the specified device.  The part of the
+	 * design is not loaded from the environment.
+	 *
+	 * @param device the device of the designs to read
+	 */
+	public XDLReader(Device device) {
+		this.device = device;
+	}
+
 	public XdlDesign readDesign(Path xdlFile) throws IOException {
 		XDLLexer lexer = new XDLLexer(new ANTLRFileStream(xdlFile.toString()));
 		XDLParser parser = new XDLParser(new CommonTokenStream(lexer));
 		XDLParser.DesignContext design = parser.design();
 		ParseTreeWalker walker = new ParseTreeWalker();
-		DesignListener listener = new DesignListener();
+		DesignListener listener = new DesignListener(device);
 		walker.walk(listener, design);
 		return listener.design;
 	}
 
+	/**
+	 * Reads the design in the XDL file without building a parse tree.
+	 *
+	 * @param xdlFile the XDL file to read
+	 * @return the design in the file
+	 * @throws IOException if an error occurs reading the file
+	 */
+	public XdlDesign readDesignStreaming(Path xdlFile) throws IOException {
+		try (Reader reader = Files.newBufferedReader(xdlFile, StandardCharsets.UTF_8)) {
+			return readDesignStreaming(reader);
+		}
+	}
+
+	/**
+	 * Reads the XDL design from the reader without building a parse tree.  The
+	 * instances, nets and modules of the design are created through parser
+	 * callbacks as their text is parsed and the characters and tokens of the
+	 * input are discarded as soon as they have been consumed.
+	 *
+	 * @param reader reader of the XDL text
+	 * @return the design read from the reader
+	 */
+	public XdlDesign readDesignStreaming(Reader reader) {
+		XDLLexer lexer = new XDLLexer(new UnbufferedCharStream(reader, STREAM_BUFFER_SIZE));
+		// the unbuffered char stream cannot return the text of old tokens
+		lexer.setTokenFactory(new CommonTokenFactory(true));
+		XDLParser parser = new XDLParser(new UnbufferedTokenStream<>(lexer));
+		parser.setBuildParseTree(false);
+		DesignListener listener = new DesignListener(device);
+		parser.addParseListener(new StreamingListener(listener));
+		parser.design();
+		return listener.design;
+	}
+
+	/**
+	 * Adapts a parse tree listener to parse events.  Parse listeners receive the
+	 * enter event of a rule before any of its tokens are matched while the
+	 * {@link DesignListener} expects the labeled tokens of the rule to be set, as
+	 * they are when walking a finished tree.  This listener holds back the enter
+	 * event of each rule until the rule's first sub-rule starts or, if it has none,
+	 * until the rule ends.  Attributes read the text of their sub-rules so their
+	 * enter events are always held until they end.
+	 */
+	private static final class StreamingListener implements ParseTreeListener {
+		private final ParseTreeListener delegate;
+		private ParserRuleContext pending;
+
+		StreamingListener(ParseTreeListener delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void enterEveryRule(ParserRuleContext ctx) {
+			if (ctx.getParent() instanceof XDLParser.AttributeContext)
+				return;
+			if (pending != null)
+				deliverEnter(pending);
+			pending = ctx;
+		}
+
+		@Override
+		public void exitEveryRule(ParserRuleContext ctx) {
+			if (ctx.getParent() instanceof XDLParser.AttributeContext)
+				return;
+			if (pending == ctx)
+				deliverEnter(ctx);
+			pending = null;
+			ctx.exitRule(delegate);
+			delegate.exitEveryRule(ctx);
+		}
+
+		private void deliverEnter(ParserRuleContext ctx) {
+			delegate.enterEveryRule(ctx);
+			ctx.enterRule(delegate);
+		}
+
+		@Override
+		public void visitTerminal(TerminalNode node) {
+			delegate.visitTerminal(node);
+		}
+
+		@Override
+		public void visitErrorNode(ErrorNode node) {
+			delegate.visitErrorNode(node);
+		}
+	}
+
 	private static class DesignListener extends XDLParserBaseListener {
 		XdlDesign design;
 		private CfgState cfgState;
@@ -63,16 +182,21 @@ public final class XDLReader {
 		private ArrayList<String> portInstanceNames = null;
 		private ArrayList<String> portPinNames = null;
 
+		DesignListener(Device device) {
+			this.device = device;
+		}
+
 		@Override
 		public void enterDesign(XDLParser.DesignContext ctx) {
 			String name = stripQuotes(ctx.name.getText());
 
 			String partName = ctx.part.getText();
-			device = RSEnvironment.defaultEnv().getDevice(partName);
+			if (device == null)
+				device = RSEnvironment.defaultEnv().getDevice(partName);
 			if (device == null)
 				throw new ParseException("unsupported device: " + partName);
 
-			design = new XdlDesign(name, partName);
+			design = new XdlDesign(name, partName, device);
 			cfgState = CfgState.DESIGN;
 		}
 
@@ -280,7 +404,8 @@ public final class XDLReader {
 		private static XdlAttribute makeAttribute(XDLParser.AttributeContext ctx) {
 			String physicalName = ctx.physical.getText().intern();
 			String logicalName = ctx.logical.getText().intern();
-			String value = ctx.attribute_value().getText().intern();
+			// the labeled context is set even when no parse tree is built
+			String value = ctx.value.getText().intern();
 			return new XdlAttribute(physicalName, logicalName, value);
 		}
 
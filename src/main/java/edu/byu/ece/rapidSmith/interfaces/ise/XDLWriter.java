@@ -29,19 +29,53 @@ import edu.byu.ece.rapidSmith.device.families.FamilyInfos;
 import edu.byu.ece.rapidSmith.util.FileTools;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes {@link XdlDesign}s to XDL files.  By default the design is written
+ * sequentially.  When the parallelism is set above one with
+ * {@link #setParallelism(int)}, the instances and nets of the design are formatted
+ * in chunks on worker threads and the chunks are written in order to a
+ * {@link FileChannel}.  Both modes produce byte-identical output.
+ */
 public class XDLWriter {
+	/** Number of instances or nets formatted by each parallel task */
+	private static final int CHUNK_SIZE = 256;
+	/** Number of formatted chunks each thread may have waiting to be written */
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final Comparator<XdlAttribute> ATTRIBUTE_COMPARATOR = new AttributeComparator();
+	private static final Comparator<PIP> PIP_COMPARATOR = new PIPComparator();
+
 	private String nl = System.lineSeparator();
 	private boolean addComments = true;
 	private boolean addPips = true;
+	private int parallelism = 1;
 
 	private XdlDesign design;
 	private Writer out;
+	// reused by the sequential writer to format each instance and net
+	private final StringBuilder buffer = new StringBuilder();
+
+	// set only while writing in parallel
+	private ExecutorService executor;
+	private FileChannel channel;
+	private ThreadLocal<StringBuilder> chunkBuffers;
+	private ThreadLocal<CharsetEncoder> chunkEncoders;
 
 	public XDLWriter setLineSeparator(String lineSeparator) {
 		nl = lineSeparator;
@@ -58,12 +92,66 @@ public class XDLWriter {
 		return this;
 	}
 
+	/**
+	 * Sets the number of threads used to format the design when writing to a file.
+	 * A parallelism of one, the default, writes the design sequentially.
+	 *
+	 * @param parallelism the number of threads to use
+	 * @return this writer
+	 */
+	public XDLWriter setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		return this;
+	}
+
 	public void writeXDL(XdlDesign design, Path file) throws IOException {
+		if (parallelism > 1) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeXDL(design, channel);
+			}
+			return;
+		}
+
 		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
 			writeXDL(design, writer);
 		}
 	}
 
+	/**
+	 * Writes the design to the channel, formatting the instances and nets of the
+	 * design on {@link #setParallelism(int) parallelism} threads.  The channel is
+	 * not closed.
+	 *
+	 * @param design the design to write
+	 * @param channel the channel to write the design to
+	 * @throws IOException if an error occurs writing to the channel
+	 */
+	public void writeXDL(XdlDesign design, FileChannel channel) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r, "XDLWriter");
+			t.setDaemon(true);
+			return t;
+		});
+		this.executor = pool;
+		this.channel = channel;
+		this.chunkBuffers = ThreadLocal.withInitial(StringBuilder::new);
+		this.chunkEncoders = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+		try {
+			Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+			writeXDL(design, writer);
+			writer.flush();
+		} finally {
+			pool.shutdownNow();
+			this.executor = null;
+			this.channel = null;
+			this.chunkBuffers = null;
+			this.chunkEncoders = null;
+		}
+	}
+
 	public void writeXDL(XdlDesign design, Writer out) throws IOException {
 		this.design = design;
 		this.out = out;
@@ -204,7 +292,11 @@ public class XDLWriter {
 			out.append("#  =======================================================" + nl);
 		}
 
-		writeInstances(design.getInstances(), "");
+		if (executor != null) {
+			writeChunked(sortedInstances(design.getInstances()), (sb, inst) -> appendInstance(sb, inst, ""));
+		} else {
+			writeInstances(design.getInstances(), "");
+		}
 		out.append(nl);
 	}
 
@@ -247,26 +339,90 @@ public class XDLWriter {
 			out.append("#  ================================================" + nl);
 		}
 
-		List<XdlNet> nets = new ArrayList<>(design.getNets());
-		nets.sort(Comparator.comparing(XdlNet::getName));
-		for (XdlNet net : nets) {
-			out.append("  net \"" + net.getName() + "\" ");
-			if (!net.getType().equals(NetType.WIRE))
-				out.append(net.getType().name().toLowerCase());
-			out.append(",");
-			if (net.getAttributes() != null) {
-				out.append(" cfg \"");
-				writeAttributes(net.getAttributes(), " ");
-				out.append("\",");
+		List<XdlNet> nets = sortedNets(design.getNets());
+		if (executor != null) {
+			writeChunked(nets, this::appendDesignNet);
+		} else {
+			for (XdlNet net : nets) {
+				buffer.setLength(0);
+				appendDesignNet(buffer, net);
+				out.append(buffer);
 			}
-			out.append(nl);
+		}
+	}
 
-			writePins(net.getPins(), "  ");
-			if (addPips) {
-				writePips(net.getPIPs(), "  ");
-			}
-			out.append("  ;" + nl);
+	private void appendDesignNet(StringBuilder sb, XdlNet net) {
+		sb.append("  net \"").append(net.getName()).append("\" ");
+		if (!net.getType().equals(NetType.WIRE))
+			sb.append(net.getType().name().toLowerCase());
+		sb.append(",");
+		if (net.getAttributes() != null) {
+			sb.append(" cfg \"");
+			appendAttributes(sb, net.getAttributes(), " ");
+			sb.append("\",");
+		}
+		sb.append(nl);
+
+		appendPins(sb, net.getPins(), "  ");
+		if (addPips) {
+			appendPips(sb, net.getPIPs(), "  ");
 		}
+		sb.append("  ;").append(nl);
+	}
+
+	/**
+	 * Formats the items in chunks on the executor and writes the chunks to the
+	 * channel in order.  Only a bounded number of formatted chunks are held at
+	 * once.
+	 */
+	private <T> void writeChunked(List<T> items, BiConsumer<StringBuilder, T> formatter)
+			throws IOException {
+		// everything before the chunks must reach the channel first
+		out.flush();
+
+		int window = parallelism * CHUNKS_PER_THREAD;
+		Deque<Future<ByteBuffer>> pending = new ArrayDeque<>(window);
+		for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+			List<T> chunk = items.subList(start, Math.min(items.size(), start + CHUNK_SIZE));
+			pending.add(executor.submit(() -> formatChunk(chunk, formatter)));
+			if (pending.size() >= window)
+				writeChunk(pending.poll());
+		}
+		while (!pending.isEmpty())
+			writeChunk(pending.poll());
+	}
+
+	private <T> ByteBuffer formatChunk(List<T> chunk, BiConsumer<StringBuilder, T> formatter) {
+		StringBuilder sb = chunkBuffers.get();
+		sb.setLength(0);
+		for (T item : chunk)
+			formatter.accept(sb, item);
+		try {
+			return chunkEncoders.get().encode(CharBuffer.wrap(sb));
+		} catch (CharacterCodingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeChunk(Future<ByteBuffer> future) throws IOException {
+		ByteBuffer bytes;
+		try {
+			bytes = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while writing XDL");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException)
+				throw ((UncheckedIOException) cause).getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		while (bytes.hasRemaining())
+			channel.write(bytes);
 	}
 
 	private void writeDesignSummary() throws IOException {
@@ -329,19 +485,25 @@ public class XDLWriter {
 	}
 
 	private void writeAttributes(Collection<XdlAttribute> attrs, String sep) throws IOException {
+		buffer.setLength(0);
+		appendAttributes(buffer, attrs, sep);
+		out.append(buffer);
+	}
+
+	private static void appendAttributes(StringBuilder sb, Collection<XdlAttribute> attrs, String sep) {
 		List<XdlAttribute> sorted = new ArrayList<>(attrs);
-		sorted.sort(new AttributeComparator());
+		sorted.sort(ATTRIBUTE_COMPARATOR);
 
 		for (XdlAttribute attr : sorted) {
 			String[] logicalNames = attr.getMultiValueLogicalNames();
 			String[] values = attr.getMultiValueValues();
 			for (int i = 0; i < values.length; i++) {
-				out.append(sep);
-				out.append(attr.getPhysicalName());
-				out.append(":");
-				out.append(logicalNames[i]);
-				out.append(":");
-				out.append(values[i]);
+				sb.append(sep);
+				sb.append(attr.getPhysicalName());
+				sb.append(":");
+				sb.append(logicalNames[i]);
+				sb.append(":");
+				sb.append(values[i]);
 			}
 		}
 	}
@@ -355,61 +517,80 @@ public class XDLWriter {
 
 	}
 
-	private void writeInstances(Collection<XdlInstance> instances, String ind) throws IOException {
+	private static List<XdlInstance> sortedInstances(Collection<XdlInstance> instances) {
 		List<XdlInstance> sorted = new ArrayList<>(instances);
 		sorted.sort(Comparator.comparing(XdlInstance::getName));
-		for (XdlInstance inst : sorted) {
-			out.append(ind + "inst \"" + inst.getName() + "\" \"" + inst.getType().name() + "\",");
-			if (inst.isPlaced())
-				out.append("placed " + inst.getTile().getName() +	" " + inst.getSiteName());
-			else
-				out.append("unplaced");
-			out.append("  ,");
-			if (inst.getModuleInstance() != null)
-				out.append("module \"" + inst.getModuleInstanceName() + "\" \"" +
-						inst.getModuleTemplate().getName() + "\" \"" +
-						inst.getModuleTemplateInstance().getName() + "\" ,");
-			out.append(nl);
+		return sorted;
+	}
+
+	private static List<XdlNet> sortedNets(Collection<XdlNet> nets) {
+		List<XdlNet> sorted = new ArrayList<>(nets);
+		sorted.sort(Comparator.comparing(XdlNet::getName));
+		return sorted;
+	}
 
-			out.append(ind + "  cfg \"");
-			writeAttributes(inst.getAttributes(), " ");
-			out.append(" \"" + nl);
-			out.append(ind + "  ;" + nl);
+	private void writeInstances(Collection<XdlInstance> instances, String ind) throws IOException {
+		for (XdlInstance inst : sortedInstances(instances)) {
+			buffer.setLength(0);
+			appendInstance(buffer, inst, ind);
+			out.append(buffer);
 		}
 	}
 
+	private void appendInstance(StringBuilder sb, XdlInstance inst, String ind) {
+		sb.append(ind).append("inst \"").append(inst.getName()).append("\" \"")
+				.append(inst.getType().name()).append("\",");
+		if (inst.isPlaced())
+			sb.append("placed ").append(inst.getTile().getName()).append(" ").append(inst.getSiteName());
+		else
+			sb.append("unplaced");
+		sb.append("  ,");
+		if (inst.getModuleInstance() != null)
+			sb.append("module \"").append(inst.getModuleInstanceName()).append("\" \"")
+					.append(inst.getModuleTemplate().getName()).append("\" \"")
+					.append(inst.getModuleTemplateInstance().getName()).append("\" ,");
+		sb.append(nl);
+
+		sb.append(ind).append("  cfg \"");
+		appendAttributes(sb, inst.getAttributes(), " ");
+		sb.append(" \"").append(nl);
+		sb.append(ind).append("  ;").append(nl);
+	}
+
 	private void writeNets(Collection<XdlNet> nets, String ind) throws IOException {
-		List<XdlNet> sorted = new ArrayList<>(nets);
-		sorted.sort(Comparator.comparing(XdlNet::getName));
-		for (XdlNet net : sorted) {
-			out.append(ind + "net \"" + net.getName() + "\" ,");
+		for (XdlNet net : sortedNets(nets)) {
+			buffer.setLength(0);
+			buffer.append(ind).append("net \"").append(net.getName()).append("\" ,");
 			if (net.getAttributes() != null) {
-				out.append(" cfg \"");
-				writeAttributes(net.getAttributes(), " ");
-				out.append("\",");
+				buffer.append(" cfg \"");
+				appendAttributes(buffer, net.getAttributes(), " ");
+				buffer.append("\",");
 			}
-			out.append(nl);
+			buffer.append(nl);
 
-			writePins(net.getPins(), ind + "  ");
-			writePips(net.getPIPs(), ind + "  ");
-			out.append(ind + "  ;" + nl);
+			appendPins(buffer, net.getPins(), ind + "  ");
+			appendPips(buffer, net.getPIPs(), ind + "  ");
+			buffer.append(ind).append("  ;").append(nl);
+			out.append(buffer);
 		}
 	}
 
-	private void writePins(Collection<XdlPin> pins, String ind) throws IOException {
+	private void appendPins(StringBuilder sb, Collection<XdlPin> pins, String ind) {
 		List<XdlPin> sorted = new ArrayList<>(pins);
 		sorted.sort(Comparator.comparing(XdlPin::getName));
 		for (XdlPin pin : sorted)
-			out.append(ind + pin.getDirection().name().toLowerCase() + " \"" +
-					pin.getInstanceName() + "\" " + pin.getName() + " ," + nl);
+			sb.append(ind).append(pin.getDirection().name().toLowerCase()).append(" \"")
+					.append(pin.getInstanceName()).append("\" ").append(pin.getName())
+					.append(" ,").append(nl);
 	}
 
-	private void writePips(Collection<PIP> pips, String ind) throws IOException {
+	private void appendPips(StringBuilder sb, Collection<PIP> pips, String ind) {
 		List<PIP> netPips = new ArrayList<>(pips);
-		netPips.sort(new PIPComparator());
+		netPips.sort(PIP_COMPARATOR);
 		for (PIP pip : netPips)
-			out.append(ind + "pip " + pip.getTile().getName() + " " +
-					pip.getStartWire().getName() + " -> " + pip.getEndWire().getName() + " ," + nl);
+			sb.append(ind).append("pip ").append(pip.getTile().getName()).append(" ")
+					.append(pip.getStartWire().getName()).append(" -> ")
+					.append(pip.getEndWire().getName()).append(" ,").append(nl);
 	}
 
 	// Comparators for XDL ordering
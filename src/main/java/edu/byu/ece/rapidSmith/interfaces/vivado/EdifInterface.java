@@ -91,6 +91,13 @@ public final class EdifInterface {
 	public static void suppressWarnings(boolean suppress) {
 		suppressWarnings = suppress;
 	}
+
+	/**
+	 * Returns true if non-critical warnings are suppressed while parsing an EDIF file.
+	 */
+	static boolean warningsSuppressed() {
+		return suppressWarnings;
+	}
 	
 	/* ********************
 	 * 	 Import Section
@@ -422,7 +429,7 @@ public final class EdifInterface {
 		return width - 1 - busMember + offset;
 	}
 	
-	private static void collapseStaticNets(CellDesign design, CellLibrary libCells, List<CellNet> vccNets, List<CellNet> gndNets) {
+	static void collapseStaticNets(CellDesign design, CellLibrary libCells, List<CellNet> vccNets, List<CellNet> gndNets) {
 		
 		// Create new global VCC/GND cells and nets
 		Cell globalVCC = new Cell("RapidSmithGlobalVCC", libCells.getVccSource());
@@ -0,0 +1,860 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.interfaces.vivado;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.byu.ece.rapidSmith.design.NetType;
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesignBuilder;
+import edu.byu.ece.rapidSmith.design.subsite.CellLibrary;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.design.subsite.LibraryCell;
+import edu.byu.ece.rapidSmith.design.subsite.LibraryMacro;
+import edu.byu.ece.rapidSmith.design.subsite.Property;
+import edu.byu.ece.rapidSmith.design.subsite.PropertyType;
+import edu.byu.ece.rapidSmith.util.Exceptions;
+
+/**
+ * Reads flattened EDIF netlists generated by Vivado directly into a RapidSmith2
+ * {@link CellDesign}.  Unlike {@link EdifInterface#parseEdif(String, CellLibrary)},
+ * the netlist is not first translated into the BYU EDIF tools data structures.
+ * The file is tokenized with a byte-level lexer, the cells and ports of the top-level
+ * cell are created as they are read, and the nets are connected and added to the
+ * design in file order.  The created design is equivalent to the design
+ * returned by {@link EdifInterface#parseEdif(String, CellLibrary)}, except that
+ * EDIF escape sequences such as {@code %34%} in strings are decoded to the characters
+ * they represent.
+ * <p>
+ * Only the subset of EDIF written by Vivado for flattened designs is supported:
+ * the top-level cell may only contain instances of leaf cells.
+ */
+public final class EdifReader {
+	private static final Pattern busNamePattern = Pattern.compile("(.*)\\[.+:(.+)\\]");
+
+	private final CellLibrary libCells;
+
+	/**
+	 * Creates a new reader for netlists targeting the cell library.
+	 *
+	 * @param libCells the cell library for the part of the netlists
+	 */
+	public EdifReader(CellLibrary libCells) {
+		this.libCells = libCells;
+	}
+
+	/**
+	 * Parses the EDIF netlist into a RapidSmith2 CellDesign.
+	 *
+	 * @param edifFile the EDIF file to parse
+	 * @return the RapidSmith2 representation of the EDIF netlist
+	 * @throws IOException if the file cannot be read
+	 */
+	public CellDesign parse(Path edifFile) throws IOException {
+		return parse(Files.readAllBytes(edifFile));
+	}
+
+	/**
+	 * Parses an EDIF netlist held in memory into a RapidSmith2 CellDesign.
+	 *
+	 * @param edif the bytes of the EDIF netlist
+	 * @return the RapidSmith2 representation of the EDIF netlist
+	 */
+	public CellDesign parse(byte[] edif) {
+		Netlist netlist = new Parser(edif).parseEdif();
+		return new Builder(netlist).build();
+	}
+
+	/* *********************
+	 *    Netlist Model
+	 ***********************/
+	// The parsed netlist only holds what is needed to build the design.  Identifiers
+	// are the EDIF names used for references within the file; names are the
+	// original (renamed) names used in RapidSmith.
+
+	private static final class Netlist {
+		final Map<String, Map<String, CellDef>> libraries = new HashMap<>();
+		String designName;
+		String topLibrary;
+		String topCell;
+		final List<Property> designProperties = new ArrayList<>();
+	}
+
+	private static final class CellDef {
+		final String id;
+		final Map<String, PortDef> ports = new LinkedHashMap<>();
+		final List<InstanceDef> instances = new ArrayList<>();
+		final List<NetDef> nets = new ArrayList<>();
+		final List<Property> properties = new ArrayList<>();
+
+		CellDef(String id) {
+			this.id = id;
+		}
+	}
+
+	private static final class PortDef {
+		final String id;
+		final String name;
+		// -1 for single bit ports
+		final int width;
+		String direction;
+		// port cells of the top-level cell indexed by EDIF bus member
+		Cell[] cells;
+
+		PortDef(Name name) {
+			this.id = name.id;
+			this.name = name.name;
+			this.width = name.width;
+		}
+	}
+
+	private static final class InstanceDef {
+		final String id;
+		final String name;
+		String cellRef;
+		String libraryRef;
+		final List<Property> properties = new ArrayList<>();
+		// set while building the design
+		Cell cell;
+		CellDef type;
+
+		InstanceDef(Name name) {
+			this.id = name.id;
+			this.name = name.name;
+		}
+	}
+
+	private static final class NetDef {
+		final String name;
+		final List<PortRef> portRefs = new ArrayList<>();
+		final List<Property> properties = new ArrayList<>();
+
+		NetDef(Name name) {
+			this.name = name.name;
+		}
+	}
+
+	private static final class PortRef {
+		final String port;
+		// -1 for references to single bit ports
+		final int member;
+		// null for references to top-level ports
+		final String instance;
+
+		PortRef(String port, int member, String instance) {
+			this.port = port;
+			this.member = member;
+			this.instance = instance;
+		}
+	}
+
+	private static final class Name {
+		final String id;
+		final String name;
+		final int width;
+
+		Name(String id, String name, int width) {
+			this.id = id;
+			this.name = name;
+			this.width = width;
+		}
+	}
+
+	/* *********************
+	 *    Parser
+	 ***********************/
+	private static final int EOF = 0;
+	private static final int LPAREN = 1;
+	private static final int RPAREN = 2;
+	private static final int ATOM = 3;
+	private static final int STRING = 4;
+
+	/**
+	 * Recursive descent parser over the tokens of the file.  Each parse method is
+	 * called after the opening parenthesis and keyword of its list have been read
+	 * and returns after reading the closing parenthesis.
+	 */
+	private static final class Parser {
+		private final byte[] buf;
+		private int pos;
+		private int line = 1;
+		// bounds of the text of the current token
+		private int start;
+		private int end;
+
+		Parser(byte[] buf) {
+			this.buf = buf;
+		}
+
+		Netlist parseEdif() {
+			if (next() != LPAREN || next() != ATOM || !keyword("edif"))
+				throw error("expected (edif");
+			next(); // design name
+			Netlist netlist = new Netlist();
+			for (int t = next(); t != RPAREN; t = next()) {
+				if (t == EOF)
+					throw error("unexpected end of file");
+				if (t != LPAREN)
+					continue;
+				next();
+				if (keyword("library") || keyword("external")) {
+					parseLibrary(netlist);
+				} else if (keyword("design")) {
+					parseDesign(netlist);
+				} else {
+					skipList();
+				}
+			}
+			return netlist;
+		}
+
+		private void parseLibrary(Netlist netlist) {
+			expect(ATOM);
+			Map<String, CellDef> cells = new HashMap<>();
+			netlist.libraries.put(ident(), cells);
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("cell")) {
+					CellDef cell = parseCell();
+					cells.put(cell.id, cell);
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private CellDef parseCell() {
+			CellDef cell = new CellDef(parseName().id);
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("view")) {
+					parseView(cell);
+				} else if (keyword("property")) {
+					cell.properties.add(parseProperty());
+				} else {
+					skipList();
+				}
+			}
+			return cell;
+		}
+
+		private void parseView(CellDef cell) {
+			parseName();
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("interface")) {
+					parseInterface(cell);
+				} else if (keyword("contents")) {
+					parseContents(cell);
+				} else if (keyword("property")) {
+					cell.properties.add(parseProperty());
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private void parseInterface(CellDef cell) {
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("port")) {
+					PortDef port = parsePort();
+					cell.ports.put(port.id, port);
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private PortDef parsePort() {
+			PortDef port = new PortDef(parseName());
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("direction")) {
+					expect(ATOM);
+					port.direction = text().toUpperCase();
+					expect(RPAREN);
+				} else {
+					skipList();
+				}
+			}
+			return port;
+		}
+
+		private void parseContents(CellDef cell) {
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("instance")) {
+					cell.instances.add(parseInstance());
+				} else if (keyword("net")) {
+					cell.nets.add(parseNet());
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private InstanceDef parseInstance() {
+			InstanceDef instance = new InstanceDef(parseName());
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("viewref")) {
+					next(); // view name
+					for (int u = nextChild(); u != RPAREN; u = nextChild()) {
+						if (keyword("cellref")) {
+							parseCellRef(instance);
+						} else {
+							skipList();
+						}
+					}
+				} else if (keyword("property")) {
+					instance.properties.add(parseProperty());
+				} else {
+					skipList();
+				}
+			}
+			if (instance.cellRef == null)
+				throw error("missing cell reference for instance " + instance.name);
+			return instance;
+		}
+
+		private void parseCellRef(InstanceDef instance) {
+			expect(ATOM);
+			instance.cellRef = ident();
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("libraryref")) {
+					expect(ATOM);
+					instance.libraryRef = ident();
+					expect(RPAREN);
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private NetDef parseNet() {
+			NetDef net = new NetDef(parseName());
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("joined")) {
+					for (int u = nextChild(); u != RPAREN; u = nextChild()) {
+						if (keyword("portref")) {
+							net.portRefs.add(parsePortRef());
+						} else {
+							skipList();
+						}
+					}
+				} else if (keyword("property")) {
+					net.properties.add(parseProperty());
+				} else {
+					skipList();
+				}
+			}
+			return net;
+		}
+
+		private PortRef parsePortRef() {
+			String port;
+			int member = -1;
+			int t = next();
+			if (t == ATOM) {
+				port = ident();
+			} else if (t == LPAREN && next() == ATOM && keyword("member")) {
+				expect(ATOM);
+				port = ident();
+				expect(ATOM);
+				member = integer();
+				expect(RPAREN);
+			} else {
+				throw error("expected port name in portRef");
+			}
+
+			String instance = null;
+			for (t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("instanceref")) {
+					expect(ATOM);
+					instance = ident();
+					expect(RPAREN);
+				} else {
+					skipList();
+				}
+			}
+			return new PortRef(port, member, instance);
+		}
+
+		private void parseDesign(Netlist netlist) {
+			netlist.designName = parseName().id;
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("cellref")) {
+					expect(ATOM);
+					netlist.topCell = ident();
+					for (int u = nextChild(); u != RPAREN; u = nextChild()) {
+						if (keyword("libraryref")) {
+							expect(ATOM);
+							netlist.topLibrary = ident();
+							expect(RPAREN);
+						} else {
+							skipList();
+						}
+					}
+				} else if (keyword("property")) {
+					netlist.designProperties.add(parseProperty());
+				} else {
+					skipList();
+				}
+			}
+		}
+
+		private Property parseProperty() {
+			String key = parseName().id;
+			Object value = null;
+			for (int t = nextChild(); t != RPAREN; t = nextChild()) {
+				if (keyword("string")) {
+					int u = next();
+					value = u == STRING ? string() : "";
+					skipRest(u);
+				} else if (keyword("integer")) {
+					expect(ATOM);
+					value = integer();
+					expect(RPAREN);
+				} else if (keyword("boolean")) {
+					expect(LPAREN);
+					expect(ATOM);
+					value = keyword("true");
+					expect(RPAREN);
+					expect(RPAREN);
+				} else {
+					skipList();
+				}
+			}
+			if (value == null)
+				throw error("unsupported value for property " + key);
+			return new Property(key, PropertyType.EDIF, value);
+		}
+
+		/*
+		 * Parses a name definition: an identifier, (rename id "name") or
+		 * (array nameDef width).
+		 */
+		private Name parseName() {
+			int t = next();
+			if (t == ATOM) {
+				String id = ident();
+				return new Name(id, id, -1);
+			}
+			if (t != LPAREN || next() != ATOM)
+				throw error("expected a name");
+			if (keyword("rename")) {
+				expect(ATOM);
+				String id = ident();
+				int u = next();
+				String name = u == STRING ? string() : id;
+				skipRest(u);
+				return new Name(id, name, -1);
+			}
+			if (keyword("array")) {
+				Name name = parseName();
+				expect(ATOM);
+				int width = integer();
+				expect(RPAREN);
+				return new Name(name.id, name.name, width);
+			}
+			throw error("expected a name");
+		}
+
+		/*
+		 * Advances to the keyword of the next child list, skipping over atoms.
+		 * Returns RPAREN when the end of the current list is reached.
+		 */
+		private int nextChild() {
+			for (int t = next(); ; t = next()) {
+				if (t == LPAREN) {
+					expect(ATOM);
+					return LPAREN;
+				}
+				if (t == RPAREN)
+					return RPAREN;
+				if (t == EOF)
+					throw error("unexpected end of file");
+			}
+		}
+
+		/* Skips the rest of the current list including its closing parenthesis. */
+		private void skipList() {
+			for (int depth = 1; depth > 0; ) {
+				int t = next();
+				if (t == LPAREN)
+					depth++;
+				else if (t == RPAREN)
+					depth--;
+				else if (t == EOF)
+					throw error("unexpected end of file");
+			}
+		}
+
+		/* Skips the rest of the current list given the last token read in it. */
+		private void skipRest(int last) {
+			if (last == LPAREN)
+				skipList();
+			if (last != RPAREN)
+				skipList();
+		}
+
+		private void expect(int type) {
+			if (next() != type)
+				throw error("unexpected token '" + text() + "'");
+		}
+
+		private int next() {
+			int p = pos;
+			while (p < buf.length && buf[p] <= ' ') {
+				if (buf[p] == '\n')
+					line++;
+				p++;
+			}
+			start = p;
+			if (p == buf.length) {
+				pos = end = p;
+				return EOF;
+			}
+
+			byte b = buf[p];
+			if (b == '(' || b == ')') {
+				pos = end = p + 1;
+				return b == '(' ? LPAREN : RPAREN;
+			}
+			if (b == '"') {
+				start = ++p;
+				while (p < buf.length && buf[p] != '"') {
+					if (buf[p] == '\n')
+						line++;
+					p++;
+				}
+				if (p == buf.length)
+					throw error("unterminated string");
+				end = p;
+				pos = p + 1;
+				return STRING;
+			}
+			while (p < buf.length && buf[p] > ' ' && buf[p] != '(' && buf[p] != ')' && buf[p] != '"')
+				p++;
+			pos = end = p;
+			return ATOM;
+		}
+
+		/* Tests whether the current atom is the keyword, ignoring case. */
+		private boolean keyword(String keyword) {
+			if (end - start != keyword.length())
+				return false;
+			for (int i = 0; i < keyword.length(); i++) {
+				if ((buf[start + i] | 0x20) != keyword.charAt(i))
+					return false;
+			}
+			return true;
+		}
+
+		private String text() {
+			return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+		}
+
+		/*
+		 * Returns the current string token with its escape sequences decoded.  EDIF
+		 * escapes characters in strings as a list of whitespace separated decimal
+		 * ASCII codes between two '%' characters, e.g. %34% for '"'.
+		 */
+		private String string() {
+			String text = text();
+			int percent = text.indexOf('%');
+			if (percent < 0)
+				return text;
+
+			StringBuilder sb = new StringBuilder(text.length());
+			int i = 0;
+			while (percent >= 0) {
+				int close = text.indexOf('%', percent + 1);
+				if (close < 0)
+					break;
+				sb.append(text, i, percent);
+				for (String code : text.substring(percent + 1, close).trim().split("\\s+")) {
+					if (code.isEmpty() || !code.chars().allMatch(Character::isDigit))
+						throw error("invalid escape sequence in string \"" + text + "\"");
+					sb.append((char) Integer.parseInt(code));
+				}
+				i = close + 1;
+				percent = text.indexOf('%', i);
+			}
+			sb.append(text, i, text.length());
+			return sb.toString();
+		}
+
+		/* EDIF identifiers starting with '&' are escaped; the '&' is not part of the name. */
+		private String ident() {
+			int s = buf[start] == '&' ? start + 1 : start;
+			return new String(buf, s, end - s, StandardCharsets.ISO_8859_1);
+		}
+
+		private int integer() {
+			int p = start;
+			boolean negative = buf[p] == '-';
+			if (negative || buf[p] == '+')
+				p++;
+			if (p == end)
+				throw error("expected an integer");
+			int value = 0;
+			for (; p < end; p++) {
+				int digit = buf[p] - '0';
+				if (digit < 0 || digit > 9)
+					throw error("expected an integer: " + text());
+				value = value * 10 + digit;
+			}
+			return negative ? -value : value;
+		}
+
+		private Exceptions.ParseException error(String message) {
+			return new Exceptions.ParseException("Error parsing EDIF on line " + line + ": " + message);
+		}
+	}
+
+	/* *********************
+	 *    Design Builder
+	 ***********************/
+	private final class Builder {
+		private final Netlist netlist;
+		private final CellDef top;
+		private final Map<String, InstanceDef> instances = new HashMap<>();
+		private final List<CellNet> vccNets = new ArrayList<>();
+		private final List<CellNet> gndNets = new ArrayList<>();
+
+		Builder(Netlist netlist) {
+			this.netlist = netlist;
+			Map<String, CellDef> library = netlist.libraries.get(netlist.topLibrary);
+			this.top = library == null ? null : library.get(netlist.topCell);
+			if (top == null)
+				throw new Exceptions.ParseException("Top level cell " + netlist.topCell + " not found in the EDIF netlist");
+		}
+
+		CellDesign build() {
+			String partName = null;
+			for (Property property : netlist.designProperties) {
+				if (property.getKey().equals("part"))
+					partName = property.getStringValue();
+			}
+			if (partName == null)
+				throw new Exceptions.ParseException("Part name not found in the EDIF netlist");
+
+			CellDesign design = new CellDesign(netlist.designName, partName);
+			design.getProperties().updateAll(top.properties);
+
+			CellDesignBuilder builder = new CellDesignBuilder(design);
+			createPortCells(builder);
+			createCells(builder);
+			builder.build();
+			CellNet[] nets = connectNets();
+			addNets(builder, nets);
+			builder.build();
+
+			EdifInterface.collapseStaticNets(design, libCells, vccNets, gndNets);
+			return design;
+		}
+
+		/*
+		 * Creates a port cell for each bit of the top-level ports
+		 */
+		private void createPortCells(CellDesignBuilder builder) {
+			Set<String> instanceNames = new HashSet<>();
+			for (InstanceDef instance : top.instances)
+				instanceNames.add(instance.name);
+
+			for (PortDef port : top.ports.values()) {
+				String libraryPortType;
+				if ("INOUT".equals(port.direction)) {
+					libraryPortType = "IOPORT";
+				} else if ("INPUT".equals(port.direction)) {
+					libraryPortType = "IPORT";
+				} else {
+					libraryPortType = "OPORT";
+				}
+				LibraryCell libCell = libCells.get(libraryPortType);
+
+				String portSuffix = port.name;
+				int offset = 0;
+				if (port.width >= 0) {
+					Matcher matcher = busNamePattern.matcher(port.name);
+					if (!matcher.matches())
+						throw new AssertionError("Vivado Naming pattern for bus does not match expected pattern");
+					portSuffix = matcher.group(1);
+					offset = Integer.parseInt(matcher.group(2));
+				}
+
+				int width = Math.max(port.width, 1);
+				port.cells = new Cell[width];
+				for (int member = 0; member < width; member++) {
+					String portName = port.width >= 0 ?
+							portSuffix + "[" + reverseBusIndex(width, member, offset) + "]" : portSuffix;
+					// Vivado allows a port and a cell to have identical names
+					if (instanceNames.contains(portName)) {
+						if (!EdifInterface.warningsSuppressed()) {
+							System.err.println("[Warning] A top-level port and another cell in the netlist have identical names: " + portName
+									+ ". The port cell will be renamed to " + portName + "_rsport");
+						}
+						portName += "_rsport";
+					}
+					port.cells[member] = new Cell(portName, libCell);
+					builder.addCell(port.cells[member]);
+				}
+			}
+		}
+
+		/*
+		 * Creates a cell for each instance of the top-level cell
+		 */
+		private void createCells(CellDesignBuilder builder) {
+			if (top.instances.isEmpty() && !EdifInterface.warningsSuppressed())
+				System.err.println("[Warning] No cells found in the edif netlist");
+
+			for (InstanceDef instance : top.instances) {
+				LibraryCell lcType = libCells.get(instance.cellRef);
+				if (lcType == null)
+					throw new Exceptions.ParseException("Unable to find library cell of type: " + instance.cellRef);
+
+				Map<String, CellDef> library = netlist.libraries.get(
+						instance.libraryRef == null ? netlist.topLibrary : instance.libraryRef);
+				instance.type = library == null ? null : library.get(instance.cellRef);
+				instance.cell = new Cell(instance.name, lcType);
+				builder.addCell(instance.cell);
+				instance.cell.getProperties().updateAll(instance.properties);
+				instances.put(instance.id, instance);
+
+				// look for internal macro nets
+				if (instance.cell.isMacro()) {
+					for (CellNet net : instance.cell.getInternalNets()) {
+						if (net.isVCCNet()) {
+							vccNets.add(net);
+						} else if (net.isGNDNet()) {
+							gndNets.add(net);
+						}
+					}
+				}
+			}
+		}
+
+		/*
+		 * Creates and connects the nets of the top-level cell in file order, so a pin
+		 * referenced by two nets is always reported on the second net.
+		 */
+		private CellNet[] connectNets() {
+			List<NetDef> netDefs = top.nets;
+			CellNet[] nets = new CellNet[netDefs.size()];
+			for (int i = 0; i < nets.length; i++)
+				nets[i] = createNet(netDefs.get(i), getPins(netDefs.get(i)));
+			return nets;
+		}
+
+		private CellPin[] getPins(NetDef netDef) {
+			CellPin[] pins = new CellPin[netDef.portRefs.size()];
+			for (int i = 0; i < pins.length; i++)
+				pins[i] = getPin(netDef.portRefs.get(i));
+			return pins;
+		}
+
+		private CellNet createNet(NetDef netDef, CellPin[] pins) {
+			CellNet net = new CellNet(netDef.name, NetType.WIRE);
+			for (CellPin pin : pins) {
+				// Mark GND and VCC nets
+				Cell node = pin.getCell();
+				if (node.isVccSource()) {
+					net.setType(NetType.VCC);
+				} else if (node.isGndSource()) {
+					net.setType(NetType.GND);
+				}
+				net.connectToPin(pin);
+			}
+			net.getProperties().updateAll(netDef.properties);
+			return net;
+		}
+
+		private CellPin getPin(PortRef portRef) {
+			// Connects to a top-level port
+			if (portRef.instance == null) {
+				PortDef port = top.ports.get(portRef.port);
+				if (port == null)
+					throw new Exceptions.ParseException("Port Cell " + portRef.port + " does not exist in the design!");
+				return port.cells[Math.max(portRef.member, 0)].getPin("PAD");
+			}
+
+			InstanceDef instance = instances.get(portRef.instance);
+			if (instance == null)
+				throw new Exceptions.ParseException("Cell: " + portRef.instance + " does not exist in the design!");
+			Cell node = instance.cell;
+
+			String pinName = portRef.port;
+			if (portRef.member >= 0) {
+				PortDef port = instance.type == null ? null : instance.type.ports.get(portRef.port);
+				if (port == null)
+					throw new Exceptions.ParseException("Port " + portRef.port + " not found on cell type " + instance.cellRef);
+				int busOffset = node.isMacro() ? ((LibraryMacro) node.getLibCell()).getPinOffset(portRef.port) : 0;
+				pinName = portRef.port + "[" + reverseBusIndex(port.width, portRef.member, busOffset) + "]";
+			}
+
+			CellPin pin = node.getPin(pinName);
+			if (pin == null)
+				throw new Exceptions.ParseException("Pin " + pinName + " does not exist on cell " + node.getName());
+			return pin;
+		}
+
+		/*
+		 * Adds the connected nets to the builder in file order, holding the static
+		 * nets back to be collapsed.
+		 */
+		private void addNets(CellDesignBuilder builder, CellNet[] nets) {
+			if (nets.length == 0 && !EdifInterface.warningsSuppressed())
+				System.err.println("[Warning] No nets found in the edif netlist");
+
+			for (CellNet net : nets) {
+				if (net.getAllSourcePins().size() == 0 && !EdifInterface.warningsSuppressed())
+					System.err.println("[Warning] No source for net " + net.getName());
+
+				if (net.isVCCNet()) {
+					vccNets.add(net);
+				} else if (net.isGNDNet()) {
+					gndNets.add(net);
+				} else {
+					builder.addNet(net);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Because EDIF files reverse the index of bus members, this function
+	 * is used to get the original index of a port into a bus.
+	 */
+	private static int reverseBusIndex(int width, int busMember, int offset) {
+		return width - 1 - busMember + offset;
+	}
+}
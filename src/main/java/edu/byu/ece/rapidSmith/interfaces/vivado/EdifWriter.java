@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.interfaces.vivado;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import edu.byu.ece.edif.core.EdifPort;
+import edu.byu.ece.edif.core.RenamedObject;
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.design.subsite.LibraryCell;
+import edu.byu.ece.rapidSmith.design.subsite.LibraryPin;
+import edu.byu.ece.rapidSmith.design.subsite.Property;
+import edu.byu.ece.rapidSmith.design.subsite.PropertyList;
+import edu.byu.ece.rapidSmith.device.PinDirection;
+import edu.byu.ece.rapidSmith.device.PortDirection;
+
+/**
+ * Writes a RapidSmith2 {@link CellDesign} to a Vivado-compatible EDIF netlist.
+ * Unlike {@link EdifInterface#writeEdif(String, CellDesign)}, the design is not
+ * first converted into the BYU EDIF tools data structures: the library, instance
+ * and net sections are formatted straight from the design and streamed to a
+ * channel.  The instance and net sections are formatted in chunks on
+ * {@link #setParallelism(int) parallelism} threads and the chunks are written in
+ * order, so the output does not depend on the parallelism.
+ * <p>
+ * The netlist has the same layout as the one written by
+ * {@link EdifInterface#writeEdif(String, CellDesign)}.  The library cells, ports and
+ * properties may be listed in a different order, and quotes and percent signs in
+ * strings are escaped as EDIF requires.
+ */
+public final class EdifWriter {
+	/** Number of instances or nets formatted by each parallel task */
+	private static final int CHUNK_SIZE = 256;
+	/** Number of formatted chunks each thread may have waiting to be written */
+	private static final int CHUNKS_PER_THREAD = 4;
+	/** Size at which the buffered header and library sections are written out */
+	private static final int FLUSH_SIZE = 1 << 16;
+	private static final Pattern portNamePattern = Pattern.compile("(.*)\\[(.*)\\]");
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	// state of the current write
+	private WritableByteChannel channel;
+	private ExecutorService executor;
+	private final StringBuilder buffer = new StringBuilder();
+	// widths of the ports of each library cell keyed by port name
+	private final Map<LibraryCell, Map<String, Integer>> portWidths = new HashMap<>();
+	private final Map<Cell, PortInformation> portInfoMap = new HashMap<>();
+
+	/**
+	 * Sets the number of threads used to format the instances and nets of the
+	 * design.  A parallelism of one formats the design sequentially.  Defaults to
+	 * the number of available processors.
+	 *
+	 * @param parallelism the number of threads to use
+	 * @return this writer
+	 */
+	public EdifWriter setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Writes the design to an EDIF file, replacing the file if it exists.
+	 *
+	 * @param design the design to write
+	 * @param edifFile the EDIF file to create
+	 * @throws IOException if an error occurs writing the file
+	 */
+	public void write(CellDesign design, Path edifFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(edifFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(design, channel);
+		}
+	}
+
+	/**
+	 * Writes the design as an EDIF netlist to the channel.  The channel is not
+	 * closed.
+	 *
+	 * @param design the design to write
+	 * @param channel the channel to write the netlist to
+	 * @throws IOException if an error occurs writing to the channel
+	 */
+	public void write(CellDesign design, WritableByteChannel channel) throws IOException {
+		this.channel = channel;
+		if (parallelism > 1) {
+			executor = Executors.newFixedThreadPool(parallelism, r -> {
+				Thread t = new Thread(r, "EdifWriter");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		try {
+			List<Cell> instances = design.getLeafCells()
+					.filter(c -> !c.isPort())
+					.collect(Collectors.toList());
+			List<CellNet> nets = new ArrayList<>(design.getNets());
+
+			writeHeader(design);
+			writeLibrary(instances);
+			writeTopCell(design, instances, nets);
+			flush();
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
+			executor = null;
+			this.channel = null;
+			buffer.setLength(0);
+			portWidths.clear();
+			portInfoMap.clear();
+		}
+	}
+
+	private void writeHeader(CellDesign design) {
+		LocalDateTime now = LocalDateTime.now();
+		buffer.append("(edif ").append(name(design.getName())).append("\n");
+		buffer.append("  (edifVersion 2 0 0)\n");
+		buffer.append("  (edifLevel 0)\n");
+		buffer.append("  (keywordMap (keywordLevel 0))\n");
+		buffer.append("  (status\n");
+		buffer.append("    (written\n");
+		buffer.append(String.format("      (timeStamp %d %02d %02d %02d %02d %02d)\n", now.getYear(),
+				now.getMonthValue(), now.getDayOfMonth(), now.getHour(), now.getMinute(), now.getSecond()));
+		buffer.append("      (author \"BYU CCL\")\n");
+		buffer.append("      (program \"RapidSmith\" (version \"2.0.0\"))\n");
+		buffer.append("    )\n");
+		buffer.append("  )\n");
+	}
+
+	/*
+	 * Writes a library cell for each library cell used by the instances of the design.
+	 */
+	private void writeLibrary(List<Cell> instances) throws IOException {
+		buffer.append("  (library hdi_primitives\n");
+		buffer.append("    (edifLevel 0)\n");
+		buffer.append("    (technology (numberDefinition ))\n");
+
+		for (Cell cell : instances) {
+			LibraryCell libCell = cell.getLibCell();
+			if (portWidths.containsKey(libCell))
+				continue;
+
+			// Assumption: Vivado pin names are a series of alphanumeric characters, followed
+			// by an optional number within brackets (for busses)
+			Map<String, Integer> widths = new LinkedHashMap<>();
+			Map<String, PinDirection> directions = new HashMap<>();
+			for (LibraryPin pin : libCell.getLibraryPins()) {
+				String portName = portName(pin.getName());
+				widths.merge(portName, 1, Integer::sum);
+				directions.putIfAbsent(portName, pin.getDirection());
+			}
+			portWidths.put(libCell, widths);
+
+			buffer.append("    (cell ").append(name(libCell.getName())).append("\n");
+			buffer.append("      (cellType GENERIC)\n");
+			buffer.append("      (view PRIM\n");
+			buffer.append("        (viewType NETLIST)\n");
+			buffer.append("        (interface\n");
+			for (Map.Entry<String, Integer> entry : widths.entrySet()) {
+				String portName = entry.getKey();
+				int width = entry.getValue();
+				buffer.append("          (port ");
+				if (width == 1) {
+					buffer.append(name(portName));
+				} else {
+					appendArray(buffer, portName, portName + "[" + (width - 1) + ":0]", width);
+				}
+				buffer.append(" (direction ").append(direction(directions.get(portName))).append("))\n");
+			}
+			buffer.append("        )\n");
+			buffer.append("      )\n");
+			buffer.append("    )\n");
+			flushIfFull();
+		}
+		buffer.append("  )\n");
+	}
+
+	private void writeTopCell(CellDesign design, List<Cell> instances, List<CellNet> nets) throws IOException {
+		String topName = name(design.getName());
+		buffer.append("  (library work\n");
+		buffer.append("    (edifLevel 0)\n");
+		buffer.append("    (technology (numberDefinition ))\n");
+		buffer.append("    (cell ").append(topName).append("\n");
+		buffer.append("      (cellType GENERIC)\n");
+		buffer.append("      (view netlist\n");
+		buffer.append("        (viewType NETLIST)\n");
+		writeInterface(design);
+		buffer.append("        (contents\n");
+		writeChunked(instances, this::appendInstance);
+		writeChunked(nets, this::appendNet);
+		buffer.append("        )\n");
+		appendProperties(buffer, design.getProperties(), "      ");
+		buffer.append("      )\n");
+		buffer.append("    )\n");
+		buffer.append("  )\n");
+
+		buffer.append("  (design ").append(topName).append("\n");
+		buffer.append("    (cellRef ").append(identifier(design.getName())).append(" (libraryRef work))\n");
+		buffer.append("    (property part (string \"").append(string(String.valueOf(design.getPartName()))).append("\"))\n");
+		buffer.append("  )\n");
+		buffer.append(")\n");
+	}
+
+	/*
+	 * Writes the ports of the top-level cell, grouping the port cells of each bus
+	 * into a single array port.
+	 */
+	private void writeInterface(CellDesign design) {
+		Map<String, PortInformation> portMap = new LinkedHashMap<>();
+		for (Cell cell : design.getCells()) {
+			if (!cell.isPort())
+				continue;
+
+			int direction = PortDirection.isInoutPort(cell) ? EdifPort.INOUT :
+					PortDirection.isInputPort(cell) ? EdifPort.IN : EdifPort.OUT;
+			Matcher m = portNamePattern.matcher(cell.getName());
+			PortInformation portInfo;
+			if (m.matches()) {
+				int busMember = Integer.parseInt(m.group(2));
+				portInfo = portMap.computeIfAbsent(m.group(1), k -> new PortInformation(k, direction, false, busMember));
+				portInfo.addPort(busMember);
+			} else {
+				portInfo = new PortInformation(cell.getName(), direction, true, 0);
+				portMap.put(cell.getName(), portInfo);
+			}
+			portInfoMap.put(cell, portInfo);
+		}
+
+		buffer.append("        (interface\n");
+		for (PortInformation portInfo : portMap.values()) {
+			buffer.append("          (port ");
+			if (portInfo.isSingleBitPort()) {
+				buffer.append(name(singleBitPortName(portInfo)));
+			} else {
+				appendArray(buffer, portInfo.getName(),
+						portInfo.getName() + "[" + portInfo.getMax() + ":" + portInfo.getMin() + "]",
+						portInfo.getWidth());
+			}
+			buffer.append(" (direction ").append(direction(portInfo.getDirection())).append("))\n");
+		}
+		buffer.append("        )\n");
+	}
+
+	private void appendInstance(StringBuilder sb, Cell cell) {
+		sb.append("          (instance ").append(name(cell.getName())).append("\n");
+		sb.append("            (viewRef PRIM (cellRef ").append(identifier(cell.getLibCell().getName()))
+				.append(" (libraryRef hdi_primitives)))\n");
+		appendProperties(sb, cell.getProperties(), "            ");
+		sb.append("          )\n");
+	}
+
+	private void appendNet(StringBuilder sb, CellNet net) {
+		sb.append("          (net ").append(name(net.getName())).append("\n");
+		sb.append("            (joined\n");
+		for (CellPin pin : net.getPins()) {
+			if (pin.isPseudoPin())
+				continue;
+			sb.append("              (portRef ");
+			Cell cell = pin.getCell();
+			if (cell.isPort()) {
+				appendTopPortRef(sb, portInfoMap.get(cell), cell.getName());
+			} else {
+				appendPinPortRef(sb, cell, pin.getName());
+			}
+			sb.append(")\n");
+		}
+		sb.append("            )\n");
+		sb.append("          )\n");
+	}
+
+	private void appendTopPortRef(StringBuilder sb, PortInformation portInfo, String cellName) {
+		if (portInfo.isSingleBitPort()) {
+			sb.append(identifier(singleBitPortName(portInfo)));
+		} else {
+			int busMember = Integer.parseInt(cellName.substring(cellName.lastIndexOf('[') + 1, cellName.length() - 1));
+			appendMember(sb, portInfo.getName(),
+					reverseBusIndex(portInfo.getWidth(), busMember, portInfo.getMin()));
+		}
+	}
+
+	private void appendPinPortRef(StringBuilder sb, Cell cell, String pinName) {
+		String portName = portName(pinName);
+		int width = portWidths.get(cell.getLibCell()).get(portName);
+		if (width > 1) {
+			int busMember = Integer.parseInt(pinName.substring(portName.length() + 1, pinName.length() - 1));
+			appendMember(sb, portName, reverseBusIndex(width, busMember, 0));
+		} else {
+			sb.append(identifier(portName));
+		}
+		sb.append(" (instanceRef ").append(identifier(cell.getName())).append(")");
+	}
+
+	private static void appendMember(StringBuilder sb, String portName, int member) {
+		sb.append("(member ").append(identifier(portName)).append(" ").append(member).append(")");
+	}
+
+	private static void appendArray(StringBuilder sb, String portName, String busName, int width) {
+		sb.append("(array (rename ").append(identifier(portName)).append(" \"").append(string(busName))
+				.append("\") ").append(width).append(")");
+	}
+
+	private static void appendProperties(StringBuilder sb, PropertyList properties, String indent) {
+		for (Property prop : properties) {
+			sb.append(indent).append("(property ").append(name(prop.getKey().toString())).append(" ");
+			Object value = prop.getValue();
+			if (value instanceof Boolean) {
+				sb.append("(boolean (").append(value).append("))");
+			} else if (value instanceof Integer) {
+				sb.append("(integer ").append(value).append(")");
+			} else {
+				sb.append("(string \"").append(string(String.valueOf(value))).append("\")");
+			}
+			sb.append(")\n");
+		}
+	}
+
+	/*
+	 * Some single-bit ports are named like port[0], which matches the bus pattern.
+	 * Returns the port to its original name in this scenario.
+	 */
+	private static String singleBitPortName(PortInformation portInfo) {
+		return portInfo.createdAsBus() ?
+				portInfo.getName() + "[" + portInfo.getFirstIndex() + "]" :
+				portInfo.getName();
+	}
+
+	/* Returns the name of a cell pin without its bus index. */
+	private static String portName(String pinName) {
+		int bracketIndex = pinName.indexOf('[');
+		return bracketIndex == -1 ? pinName : pinName.substring(0, bracketIndex);
+	}
+
+	/* Returns the EDIF identifier used to reference the name. */
+	private static String identifier(String name) {
+		return RenamedObject.createValidEdifString(name);
+	}
+
+	/* Returns the EDIF name definition of the name, renaming it if it is not a valid identifier. */
+	private static String name(String name) {
+		String identifier = identifier(name);
+		return identifier.equals(name) ? name : "(rename " + identifier + " \"" + string(name) + "\")";
+	}
+
+	/*
+	 * Returns the contents of an EDIF string with the value.  Quotes and percent
+	 * signs are written as %nn% escapes of their ASCII codes.
+	 */
+	private static String string(String value) {
+		if (value.indexOf('"') < 0 && value.indexOf('%') < 0)
+			return value;
+
+		StringBuilder sb = new StringBuilder(value.length() + 8);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '%')
+				sb.append('%').append((int) c).append('%');
+			else
+				sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static String direction(int edifDirection) {
+		switch (edifDirection) {
+			case EdifPort.IN:
+				return "INPUT";
+			case EdifPort.OUT:
+				return "OUTPUT";
+			default:
+				return "INOUT";
+		}
+	}
+
+	private static String direction(PinDirection direction) {
+		switch (direction) {
+			case IN:
+				return "INPUT";
+			case OUT:
+				return "OUTPUT";
+			case INOUT:
+				return "INOUT";
+			default:
+				throw new AssertionError("Invalid Pin Direction!");
+		}
+	}
+
+	/*
+	 * Because EDIF files reverse the index of bus members, this function
+	 * is used to get the index of a port into a bus.
+	 */
+	private static int reverseBusIndex(int width, int busMember, int offset) {
+		return width - 1 - busMember + offset;
+	}
+
+	/* *********************
+	 *    Output
+	 ***********************/
+
+	/**
+	 * Formats the items in chunks and writes the chunks to the channel in order.
+	 * When writing in parallel, only a bounded number of formatted chunks are held
+	 * at once.
+	 */
+	private <T> void writeChunked(List<T> items, BiConsumer<StringBuilder, T> formatter) throws IOException {
+		// everything before the chunks must reach the channel first
+		flush();
+
+		if (executor == null) {
+			for (T item : items) {
+				formatter.accept(buffer, item);
+				flushIfFull();
+			}
+			return;
+		}
+
+		int window = parallelism * CHUNKS_PER_THREAD;
+		Deque<Future<ByteBuffer>> pending = new ArrayDeque<>(window);
+		for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+			List<T> chunk = items.subList(start, Math.min(items.size(), start + CHUNK_SIZE));
+			pending.add(executor.submit(() -> formatChunk(chunk, formatter)));
+			if (pending.size() >= window)
+				writeChunk(pending.poll());
+		}
+		while (!pending.isEmpty())
+			writeChunk(pending.poll());
+	}
+
+	private static <T> ByteBuffer formatChunk(List<T> chunk, BiConsumer<StringBuilder, T> formatter) {
+		StringBuilder sb = new StringBuilder(chunk.size() * 128);
+		for (T item : chunk)
+			formatter.accept(sb, item);
+		return StandardCharsets.UTF_8.encode(CharBuffer.wrap(sb));
+	}
+
+	private void writeChunk(Future<ByteBuffer> future) throws IOException {
+		ByteBuffer bytes;
+		try {
+			bytes = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while writing EDIF");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		writeBytes(bytes);
+	}
+
+	private void flushIfFull() throws IOException {
+		if (buffer.length() >= FLUSH_SIZE)
+			flush();
+	}
+
+	private void flush() throws IOException {
+		if (buffer.length() == 0)
+			return;
+		writeBytes(StandardCharsets.UTF_8.encode(CharBuffer.wrap(buffer)));
+		buffer.setLength(0);
+	}
+
+	private void writeBytes(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.interfaces.vivado;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.byu.ece.rapidSmith.design.subsite.RouteTree;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.SitePin;
+import edu.byu.ece.rapidSmith.device.Wire;
+
+/**
+ * Cache of the {@link RouteTree}s rebuilt from the ROUTE lines of routing.rsc files.
+ * In iterative flows most nets are routed identically between imports, so the route
+ * of a net is only rebuilt from its PIPs when its PIP list differs from the list the
+ * cached route was built from.  Routes are stored as private copies and each import
+ * receives its own deep copy, so designs never share route trees.
+ * <p>
+ * A cache can be shared by any number of imports of designs on the same device by
+ * passing it to {@link XdcRoutingInterface#setRouteTreeCache(RouteTreeCache)} or
+ * {@link VivadoInterface#loadRSCP(String, boolean, RouteTreeCache)}, including
+ * imports running concurrently on different threads.
+ */
+public final class RouteTreeCache {
+
+	private final Device device;
+	private final Map<String, NetRoutes> netRoutes = new ConcurrentHashMap<>();
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Creates a new empty cache for routes in the device.
+	 *
+	 * @param device the device of the cached routes
+	 */
+	public RouteTreeCache(Device device) {
+		this.device = device;
+	}
+
+	/**
+	 * @return the device of the routes in this cache
+	 */
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * @return the number of nets with cached routes
+	 */
+	public int size() {
+		return netRoutes.size();
+	}
+
+	/**
+	 * @return the number of routes reused from this cache
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of routes that were rebuilt because they were not in this cache
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Removes the routes of the net from this cache.
+	 *
+	 * @param netName name of the net
+	 */
+	public void invalidate(String netName) {
+		netRoutes.remove(netName);
+	}
+
+	/**
+	 * Removes all routes from this cache.
+	 */
+	public void clear() {
+		netRoutes.clear();
+	}
+
+	/**
+	 * Hashes the PIP tokens of a ROUTE line.
+	 *
+	 * @param toks the tokens of the line
+	 * @param startIndex index of the first PIP in the tokens
+	 * @return a 64-bit FNV-1a hash of the PIPs
+	 */
+	static long hashPips(String[] toks, int startIndex) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = startIndex; i < toks.length; i++) {
+			String tok = toks[i];
+			for (int j = 0; j < tok.length(); j++) {
+				hash ^= tok.charAt(j);
+				hash *= 0x100000001b3L;
+			}
+			// separate the tokens so that moving characters between them changes the hash
+			hash ^= ' ';
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the route of the net starting at the wire if the route was built
+	 * from PIPs with the same hash.
+	 */
+	CachedRoute get(String netName, long pipHash, Wire startWire) {
+		NetRoutes routes = netRoutes.get(netName);
+		CachedRoute route = null;
+		if (routes != null && routes.pipHash == pipHash)
+			route = routes.routes.get(startWire);
+		if (route == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return route;
+	}
+
+	/**
+	 * Stores a route built from PIPs with the hash, replacing the routes of the net
+	 * built from different PIPs.  The routes of a net are replaced atomically, so a
+	 * route is never stored with the hash of the PIPs of another import.
+	 */
+	void put(String netName, long pipHash, Wire startWire, CachedRoute route) {
+		NetRoutes routes = netRoutes.compute(netName, (name, current) ->
+			current == null || current.pipHash != pipHash ? new NetRoutes(pipHash) : current);
+		routes.routes.put(startWire, route);
+	}
+
+	private static final class NetRoutes {
+		final long pipHash;
+		final Map<Wire, CachedRoute> routes = new ConcurrentHashMap<>(2);
+
+		NetRoutes(long pipHash) {
+			this.pipHash = pipHash;
+		}
+	}
+
+	/**
+	 * A route rebuilt from the PIPs of a net along with the information needed
+	 * to replay the side effects of rebuilding it.
+	 */
+	static final class CachedRoute {
+		private final RouteTree route;
+		private final boolean pipUsed;
+		private final List<SitePin> sinkSitePins;
+
+		CachedRoute(RouteTree route, boolean pipUsed, List<SitePin> sinkSitePins) {
+			this.route = route.deepCopy();
+			this.pipUsed = pipUsed;
+			this.sinkSitePins = sinkSitePins.isEmpty() ?
+				Collections.emptyList() : new ArrayList<>(sinkSitePins);
+		}
+
+		/**
+		 * @return a new copy of the cached route
+		 */
+		RouteTree copyRoute() {
+			return route.deepCopy();
+		}
+
+		/**
+		 * @return true if the route uses at least one PIP
+		 */
+		boolean isPipUsed() {
+			return pipUsed;
+		}
+
+		/**
+		 * @return the site pins the route ends at in the order they were reached
+		 */
+		List<SitePin> getSinkSitePins() {
+			return sinkSitePins;
+		}
+	}
+}
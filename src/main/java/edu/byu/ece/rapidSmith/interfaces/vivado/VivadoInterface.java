@@ -26,16 +26,26 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import edu.byu.ece.edif.core.EdifNameConflictException;
 import edu.byu.ece.edif.core.InvalidEdifNameException;
 import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
 import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
 import edu.byu.ece.rapidSmith.design.subsite.CellLibrary;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
 import edu.byu.ece.rapidSmith.design.subsite.ImplementationMode;
+import edu.byu.ece.rapidSmith.device.BelPin;
 import edu.byu.ece.rapidSmith.device.Device;
 import edu.byu.ece.rapidSmith.util.Exceptions;
 
@@ -60,6 +70,23 @@ public final class VivadoInterface {
 	 * @throws EdifNameConflictException 
 	 */
 	public static VivadoCheckpoint loadRSCP (String rscp, boolean storeAdditionalInfo) throws IOException {
+		return loadRSCP(rscp, storeAdditionalInfo, null);
+	}
+
+	/**
+	 * Parses a RSCP generated from Tincr, and creates an equivalent RapidSmith2 design.
+	 * Routes of nets whose PIPs match a route in {@code routeTreeCache} are copied from
+	 * the cache instead of being rebuilt, and new routes are added to the cache.  Reusing
+	 * one cache across the checkpoints of an iterative flow avoids rebuilding the routes
+	 * of unchanged nets.
+	 * 
+	 * @param rscp Path to the RSCP to import
+	 * @param storeAdditionalInfo if true, store the routethrough, static source and pin
+	 *   map information in the returned checkpoint
+	 * @param routeTreeCache cache of routes on the device of the checkpoint, or null
+	 */
+	public static VivadoCheckpoint loadRSCP (String rscp, boolean storeAdditionalInfo,
+			RouteTreeCache routeTreeCache) throws IOException {
 	
 		Path rscpPath = Paths.get(rscp);
 		
@@ -91,8 +118,7 @@ public final class VivadoInterface {
 		libCells.loadMacroXML(rscpPath.resolve("macros.xml"));
 		
 		// create the RS2 netlist
-		String edifFile = rscpPath.resolve("netlist.edf").toString();
-		CellDesign design = EdifInterface.parseEdif(edifFile, libCells);
+		CellDesign design = new EdifReader(libCells).parse(rscpPath.resolve("netlist.edf"));
 		design.setImplementationMode(mode);
 		
 		// parse the constraints into RapidSmith
@@ -107,8 +133,12 @@ public final class VivadoInterface {
  
 		String routingFile = rscpPath.resolve("routing.rsc").toString();
 		XdcRoutingInterface routingInterface = new XdcRoutingInterface(design, device, placementInterface.getPinMap(), mode);
+		routingInterface.setRouteTreeCache(routeTreeCache);
 		routingInterface.parseRoutingXDC(routingFile);
 		
+		// the design now matches the checkpoint
+		design.clearModifications();
+		
 		VivadoCheckpoint vivadoCheckpoint = new VivadoCheckpoint(partName, design, device, libCells); 
 		
 		if (storeAdditionalInfo) {
@@ -148,8 +178,7 @@ public final class VivadoInterface {
 		routingInterface.writeRoutingXDC(routingOut, design);
 		
 		// Write EDIF netlist
-		String edifOut = Paths.get(tcpDirectory, "netlist.edf").toString();
-		EdifInterface.writeEdif(edifOut, design);
+		new EdifWriter().write(design, Paths.get(tcpDirectory, "netlist.edf"));
 
 		// write constraints.xdc
 		String constraintsOut = Paths.get(tcpDirectory, "constraints.xdc").toString();
@@ -159,5 +188,165 @@ public final class VivadoInterface {
 		// write design.info
 		String partInfoOut = Paths.get(tcpDirectory, "design.info").toString();
 		DesignInfoInterface.writeInfoFile(partInfoOut, design.getPartName());
+		
+		design.clearModifications();
+	}
+
+	/**
+	 * Writes a Tcl script that applies the placement and routing changes made to the
+	 * design since it was last imported or exported onto the same design open in Vivado.
+	 * Only the cells and nets returned by {@link CellDesign#getModifiedCells()} and
+	 * {@link CellDesign#getModifiedNets()} are written, so the size of the script scales
+	 * with the size of the change rather than the size of the design.  The modified nets
+	 * are unrouted, the modified cells are unplaced and placed at their new locations,
+	 * and the new routes of the modified nets are applied.  The connections of the VCC
+	 * and GND nets to the modified cells are unrouted and routed again by Vivado pin by
+	 * pin, so moving a cell does not rewrite the routes of the whole static nets.
+	 * Netlist changes are not included; use {@link #writeTCP} when cells or nets have
+	 * been added or removed.
+	 * 
+	 * @param tclFile the Tcl script to write
+	 * @param design the design to export the changes of
+	 * @param device the device of the design
+	 * @throws IOException if an error occurs writing the script
+	 */
+	public static void writeDeltaTcl(String tclFile, CellDesign design, Device device) throws IOException {
+		XdcPlacementInterface placementInterface = new XdcPlacementInterface(design, device);
+		XdcRoutingInterface routingInterface = new XdcRoutingInterface(design, device, null, design.getImplementationMode());
+		
+		try (BufferedWriter fileout = new BufferedWriter(new FileWriter(tclFile))) {
+			routingInterface.writeUnrouteDelta(fileout, design.getModifiedNets());
+			routingInterface.writeStaticUnrouteDelta(fileout, design.getModifiedCells(), design.getModifiedNets());
+			placementInterface.writePlacementDelta(fileout, design.getModifiedCells());
+			routingInterface.writeRouteDelta(fileout, design.getModifiedNets());
+			routingInterface.writeStaticRouteDelta(fileout, design.getModifiedCells(), design.getModifiedNets());
+		}
+		
+		design.clearModifications();
+	}
+
+	/**
+	 * Applies a delta RSCP onto a previously imported checkpoint.  A delta RSCP holds
+	 * placement.rsc and routing.rsc files restricted to the cells and nets that changed
+	 * in Vivado.  Each cell in the delta placement is unplaced and each net in the delta
+	 * routing is unrouted before the files are parsed, so only the changed parts of the
+	 * design are rebuilt.  An optional removed.rsc file lists cells and nets that were
+	 * unplaced or unrouted in Vivado with lines of the form {@code UNPLACE cellName}
+	 * and {@code UNROUTE netName}.
+	 * 
+	 * @param rscp path to the delta RSCP
+	 * @param checkpoint the checkpoint to update
+	 * @param routeTreeCache cache of routes on the device of the checkpoint, or null
+	 * @throws IOException if an error occurs reading the delta
+	 */
+	public static void applyDeltaRSCP(String rscp, VivadoCheckpoint checkpoint, RouteTreeCache routeTreeCache) throws IOException {
+		Path rscpPath = Paths.get(rscp);
+		CellDesign design = checkpoint.getDesign();
+		Device device = checkpoint.getDevice();
+		
+		Path removedFile = rscpPath.resolve("removed.rsc");
+		Path placementFile = rscpPath.resolve("placement.rsc");
+		Path routingFile = rscpPath.resolve("routing.rsc");
+		
+		// clear the old placement and routing of everything in the delta
+		if (Files.exists(removedFile)) {
+			for (String[] toks : readTokens(removedFile)) {
+				switch (toks[0]) {
+					case "UNPLACE" : unplaceDeltaCell(design, toks[1]);
+						break;
+					case "UNROUTE" : unrouteDeltaNet(design, toks[1]);
+						break;
+					default :
+						throw new Exceptions.ParseException("Unrecognized Token: " + toks[0] + " in " + removedFile);
+				}
+			}
+		}
+		for (String[] toks : readTokens(placementFile)) {
+			if (toks[0].equals("LOC") || toks[0].equals("PACKAGE_PIN")) {
+				unplaceDeltaCell(design, toks[1]);
+			}
+		}
+		for (String[] toks : readTokens(routingFile)) {
+			switch (toks[0]) {
+				case "INTERSITE" :
+				case "INTRASITE" :
+				case "ROUTE" : unrouteDeltaNet(design, toks[1]);
+					break;
+				case "VCC" :
+				case "GND" : unrouteDeltaNet(design, toks[0]);
+					break;
+			}
+		}
+		
+		XdcPlacementInterface placementInterface = new XdcPlacementInterface(design, device);
+		placementInterface.parsePlacementXDC(placementFile.toString());
+		
+		// the routing import needs the pin mappings of the whole design, not just the delta
+		Map<BelPin, CellPin> pinMap = new HashMap<>();
+		design.getLeafCells().filter(Cell::isPlaced).forEach(cell -> {
+			for (CellPin pin : cell.getPins()) {
+				for (BelPin belPin : pin.getMappedBelPins()) {
+					pinMap.put(belPin, pin);
+				}
+			}
+		});
+		
+		XdcRoutingInterface routingInterface = new XdcRoutingInterface(design, device, pinMap, design.getImplementationMode());
+		routingInterface.setRouteTreeCache(routeTreeCache);
+		routingInterface.parseRoutingXDC(routingFile.toString());
+		
+		design.clearModifications();
+	}
+
+	/**
+	 * Applies a delta RSCP onto a previously imported checkpoint without a route tree cache.
+	 * 
+	 * @param rscp path to the delta RSCP
+	 * @param checkpoint the checkpoint to update
+	 * @throws IOException if an error occurs reading the delta
+	 * @see #applyDeltaRSCP(String, VivadoCheckpoint, RouteTreeCache)
+	 */
+	public static void applyDeltaRSCP(String rscp, VivadoCheckpoint checkpoint) throws IOException {
+		applyDeltaRSCP(rscp, checkpoint, null);
+	}
+
+	private static List<String[]> readTokens(Path file) throws IOException {
+		Pattern whitespacePattern = Pattern.compile("\\s+");
+		List<String[]> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(file)) {
+			if (!line.isEmpty()) {
+				lines.add(whitespacePattern.split(line));
+			}
+		}
+		return lines;
+	}
+
+	private static void unplaceDeltaCell(CellDesign design, String cellName) {
+		Cell cell = design.getCell(cellName);
+		if (cell == null || !cell.isPort()) {
+			Cell port = design.getCell(cellName + "_rsport");
+			if (port != null)
+				cell = port;
+		}
+		if (cell == null) {
+			throw new Exceptions.ParseException("Cell \"" + cellName + "\" in delta RSCP not found in the design");
+		}
+		design.unplaceCell(cell);
+	}
+
+	private static void unrouteDeltaNet(CellDesign design, String netName) {
+		CellNet net = netName.equals("VCC") ? design.getVccNet() :
+			netName.equals("GND") ? design.getGndNet() : design.getNet(netName);
+		if (net == null) {
+			throw new Exceptions.ParseException("Net \"" + netName + "\" in delta RSCP not found in the design");
+		}
+		
+		// static nets keep the routes created from the site PIPs of unchanged sites
+		if (net.isStaticNet()) {
+			net.unrouteIntersite();
+		}
+		else {
+			net.unrouteFull();
+		}
 	}
 } // END CLASS 
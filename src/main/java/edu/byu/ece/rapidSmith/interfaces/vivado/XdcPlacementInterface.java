@@ -27,6 +27,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -316,68 +317,91 @@ public class XdcPlacementInterface {
 		
 		try (BufferedWriter fileout = new BufferedWriter (new FileWriter(xdcOut)) ) {
 
-			Iterator<Cell> cellIt = sortCellsForXdcExport(design).iterator();
+			Iterator<Cell> cellIt = sortCellsForXdcExport(design.getLeafCells()).iterator();
 			
 			// All cells are assumed placed in this while loop
 			while (cellIt.hasNext()) {
-				Cell cell = cellIt.next();
-				Site site = cell.getSite();
-				Bel bel = cell.getBel();
+				writeCellPlacement(fileout, cellIt.next());
+			}
+		}
+	}
 
-				String cellname = cell.getName();
-				
-				// ports need a package pin reference, and aren't placed in Vivado
-				if (cell.isPort()) {
-					PackagePin packagePin = device.getPackagePin(bel);
-					// if the port is not mapped to a valid package pin, thrown an exception
-					if (packagePin == null) {
-						if (device.getPackagePins().isEmpty()) {
-							throw new ImplementationException("Device " + device.getPartName() + " is missing package pin information: cannot generate TCP without it.\n"
-									+ "To generate the package pin information and add it to your device follow these three steps: \n"
-									+ "1.) Run the Tincr command \"tincr::create_xml_device_info\" for your part.\n"
-									+ "2.) Store the generated XML file to the devices/family directory which corresponds to your part.\n"
-									+ "3.) Run the DeviceInfoInstaller in the util package to add the package pins to the device");
-						}
-						
-						throw new ImplementationException("Cannot export placement information for port cell " + cellname + ".\n"
-								+ "Package Pin for BEL " + bel.getFullName() + " cannot be found.");
-					}
-					fileout.write(String.format("set_property PACKAGE_PIN %s [get_ports {%s}]\n", packagePin.getName(), cellname));
+	/**
+	 * Writes Tcl commands that update the placement of the specified cells in Vivado
+	 * to match their placement in the design.  Cells that are not ports are first
+	 * unplaced, and cells that are placed in the design are then placed again
+	 * in the same order used by {@link #writePlacementXDC(String)}.
+	 * 
+	 * @param fileout writer of the Tcl script
+	 * @param cells the leaf cells whose placement changed, ie. {@link CellDesign#getModifiedCells()}
+	 * @throws IOException if an error occurs writing the commands
+	 */
+	public void writePlacementDelta(BufferedWriter fileout, Collection<Cell> cells) throws IOException {
+		for (Cell cell : cells) {
+			if (!cell.isPort() && !cell.isMacro()) {
+				fileout.write(String.format("unplace_cell [get_cells {%s}]\n", cell.getName()));
+			}
+		}
+
+		Iterator<Cell> cellIt = sortCellsForXdcExport(cells.stream().filter(c -> !c.isMacro())).iterator();
+		while (cellIt.hasNext()) {
+			writeCellPlacement(fileout, cellIt.next());
+		}
+	}
+
+	private void writeCellPlacement(BufferedWriter fileout, Cell cell) throws IOException {
+		Site site = cell.getSite();
+		Bel bel = cell.getBel();
+
+		String cellname = cell.getName();
+		
+		// ports need a package pin reference, and aren't placed in Vivado
+		if (cell.isPort()) {
+			PackagePin packagePin = device.getPackagePin(bel);
+			// if the port is not mapped to a valid package pin, thrown an exception
+			if (packagePin == null) {
+				if (device.getPackagePins().isEmpty()) {
+					throw new ImplementationException("Device " + device.getPartName() + " is missing package pin information: cannot generate TCP without it.\n"
+							+ "To generate the package pin information and add it to your device follow these three steps: \n"
+							+ "1.) Run the Tincr command \"tincr::create_xml_device_info\" for your part.\n"
+							+ "2.) Store the generated XML file to the devices/family directory which corresponds to your part.\n"
+							+ "3.) Run the DeviceInfoInstaller in the util package to add the package pins to the device");
 				}
-				else {
-					fileout.write(String.format("set_property BEL %s.%s [get_cells {%s}]\n", site.getType().name(), bel.getName(), cellname));
-					fileout.write(String.format("set_property LOC %s [get_cells {%s}]\n", site.getName(), cellname));
-										
-					//TODO: Update this function when more cells with LOCK_PINS are discovered
-					if (cell.isLut()) { 
-						fileout.write("set_property LOCK_PINS { ");
-						for(CellPin cp: cell.getInputPins()) {
-							if (!cp.isPseudoPin() && cp.getMappedBelPin() != null) {
-								fileout.write(String.format("%s:%s ", cp.getName(), cp.getMappedBelPin().getName()));
-							}
-						}
-						
-						fileout.write("} [get_cells {" + cellname + "}]\n");
+				
+				throw new ImplementationException("Cannot export placement information for port cell " + cellname + ".\n"
+						+ "Package Pin for BEL " + bel.getFullName() + " cannot be found.");
+			}
+			fileout.write(String.format("set_property PACKAGE_PIN %s [get_ports {%s}]\n", packagePin.getName(), cellname));
+		}
+		else {
+			fileout.write(String.format("set_property BEL %s.%s [get_cells {%s}]\n", site.getType().name(), bel.getName(), cellname));
+			fileout.write(String.format("set_property LOC %s [get_cells {%s}]\n", site.getName(), cellname));
+								
+			//TODO: Update this function when more cells with LOCK_PINS are discovered
+			if (cell.isLut()) { 
+				fileout.write("set_property LOCK_PINS { ");
+				for(CellPin cp: cell.getInputPins()) {
+					if (!cp.isPseudoPin() && cp.getMappedBelPin() != null) {
+						fileout.write(String.format("%s:%s ", cp.getName(), cp.getMappedBelPin().getName()));
 					}
 				}
+				
+				fileout.write("} [get_cells {" + cellname + "}]\n");
 			}
 		}
 	}
 
 	/*
-	 * Sorts the cells of the design in the order required for TINCR export.
+	 * Sorts the leaf cells in the order required for TINCR export.
 	 * Cells that are unplaced are not included in the sorted list. 
 	 * Uses a bin sorting algorithm to have a complexity of O(n). 
 	 * 
 	 * TODO: Add <is_lut>, <is_carry>, and <is_ff> tags to cell library
 	 */
-	private Stream<Cell> sortCellsForXdcExport(CellDesign design) {
-		
-		design.getDevice().getAllSitesOfType(SiteType.valueOf(design.getFamily(), "SLICEL"));
-		
+	private Stream<Cell> sortCellsForXdcExport(Stream<Cell> leafCells) {
 		
 		// cell bins
-		ArrayList<Cell> sorted = new ArrayList<>(design.getCells().size());		
+		ArrayList<Cell> sorted = new ArrayList<>();		
 		ArrayList<Cell> lutCellsH5 = new ArrayList<>();
 		ArrayList<Cell> lutCellsD5 = new ArrayList<>();
 		ArrayList<Cell> lutCellsABC5 = new ArrayList<>();
@@ -390,7 +414,7 @@ public class XdcPlacementInterface {
 		ArrayList<Cell> muxCells = new ArrayList<>();
 
 		// traverse the cells and drop them in the correct bin
-		Iterator<Cell> cellIt = design.getLeafCells().iterator();
+		Iterator<Cell> cellIt = leafCells.iterator();
 		
 		while (cellIt.hasNext()) {
 			Cell cell = cellIt.next();
@@ -44,6 +44,7 @@ import edu.byu.ece.rapidSmith.device.SitePin;
 import edu.byu.ece.rapidSmith.device.SiteType;
 import edu.byu.ece.rapidSmith.device.SiteWire;
 import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.NameResolver;
 import edu.byu.ece.rapidSmith.device.Site;
 import edu.byu.ece.rapidSmith.device.Tile;
 import edu.byu.ece.rapidSmith.device.TileWire;
@@ -61,6 +62,7 @@ public class XdcRoutingInterface {
 	private final Device device;
 	private final CellDesign design;
 	private final WireEnumerator wireEnumerator;
+	private NameResolver resolver;
 	private final HashMap<SitePin, IntrasiteRoute> sitePinToRouteMap;
 	private final Map<BelPin, CellPin> belPinToCellPinMap;
 	private final Map<SiteType, Set<String>> staticSourceMap;
@@ -72,6 +74,7 @@ public class XdcRoutingInterface {
 	private Map<String, String> oocPortMap;
 	private ImplementationMode implementationMode;
 	private boolean pipUsedInRoute = false;
+	private RouteTreeCache routeTreeCache;
 	
 	/**
 	 * Creates a new XdcRoutingInterface object.
@@ -93,6 +96,19 @@ public class XdcRoutingInterface {
 		this.implementationMode = mode;
 	}
 	
+	/**
+	 * Sets the cache used to reuse the route trees of nets whose PIPs are unchanged
+	 * since a previous import.  The cache must be set before calling
+	 * {@link #parseRoutingXDC(String)}.
+	 *
+	 * @param routeTreeCache cache of the routes of the device, or null to rebuild every route
+	 */
+	public void setRouteTreeCache(RouteTreeCache routeTreeCache) {
+		if (routeTreeCache != null && routeTreeCache.getDevice() != device)
+			throw new IllegalArgumentException("Route tree cache is for a different device");
+		this.routeTreeCache = routeTreeCache;
+	}
+
 	/**
 	 * Returns a set of BELs that are being used as a routethrough.
 	 * This is only valid after {@link XdcRoutingInterface::parseRoutingXDC} has been called.
@@ -214,12 +230,11 @@ public class XdcRoutingInterface {
 		
 		for (int index = 2 ; index < toks.length; index++) {
 			
-			String[] sitePinToks = toks[index].split("/");
-			
-			assert (sitePinToks.length == 2);
+			String sitePinTok = toks[index];
+			int sep = findSeparators(sitePinTok, 2)[0];
 			
-			Site site = tryGetSite(sitePinToks[0]);
-			SitePin pin = tryGetSitePin(site, sitePinToks[1]);
+			Site site = tryGetSite(sitePinTok, 0, sep);
+			SitePin pin = tryGetSitePin(site, sitePinTok, sep + 1, sitePinTok.length());
 			
 			if (pin.isInput()) { // of a site
 				createIntrasiteRoute(pin, net, design.getUsedSitePipsAtSite(site));
@@ -290,7 +305,7 @@ public class XdcRoutingInterface {
 		// The first token is either VCC or START_WIRES, not a wire name
 		for (int i = 1; i < startWires.length; i++ ) {
 			Wire startWire = createTileWire(startWires[i]);
-			RouteTree netRouteTree = recreateRoutingNetwork2(net, startWire, pipMap);
+			RouteTree netRouteTree = recreateRoutingNetwork2(net, startWire, pipMap, null);
 			net.addIntersiteRouteTree(netRouteTree);
 		}
 	}
@@ -332,7 +347,7 @@ public class XdcRoutingInterface {
 	 */
 	private void processIntersiteRoutePips(String[] toks) {
 		CellNet net = tryGetCellNet(toks[1]);
-		Map<String, Set<String>> pipMap = buildPipMap(toks, 2);
+		PipSource pips = new PipSource(toks, 2);
 
 		// There is a bug in Vivado where site pins for some nets starting at PAD's are
 		// not returned through the Tcl interface.
@@ -348,7 +363,7 @@ public class XdcRoutingInterface {
 		List<SitePin> pinsToRemove = new ArrayList<SitePin>(); 
 		//System.out.println(net.getSourceSitePins().size() + " " + net.getSourceSitePin().getName() + " " + net.getSourceSitePin().getExternalWire().getFullName());
 		for (SitePin sitePin : net.getSourceSitePins()) {
-			RouteTree netRouteTree = recreateRoutingNetwork2(net, sitePin.getExternalWire(), pipMap);
+			RouteTree netRouteTree = recreateIntersiteRoute(net, sitePin.getExternalWire(), pips);
 			
 			// Routes are only valid if they actually use a PIP connections. Otherwise they are unused
 			if (pipUsedInRoute) {
@@ -377,12 +392,8 @@ public class XdcRoutingInterface {
 			Cell port = net.getSourcePin().getCell();
 			String startWireName = oocPortMap.get(port.getName());
 			if (startWireName != null) {
-				String[] wireToks = startWireName.split("/");
-				assert (wireToks.length == 2);
-				Tile tile = tryGetTile(wireToks[0]);
-				int wireEnum = tryGetWireEnum(wireToks[1]);
-				Wire startTileWire = new TileWire(tile, wireEnum);
-				RouteTree netRouteTree = recreateRoutingNetwork2(net, startTileWire, pipMap);
+				Wire startTileWire = createTileWire(startWireName);
+				RouteTree netRouteTree = recreateIntersiteRoute(net, startTileWire, pips);
 				net.addIntersiteRouteTree(netRouteTree);
 				//assert this.pipUsedInRoute;
 			}
@@ -393,6 +404,59 @@ public class XdcRoutingInterface {
 		net.computeRouteStatus();
 	}
 	
+	/**
+	 * The PIPs of a ROUTE line.  The PIP map is only built when a route has to be
+	 * rebuilt, so nets whose routes come from the route tree cache skip parsing
+	 * their PIPs.
+	 */
+	private final class PipSource {
+		private final String[] toks;
+		private final int startIndex;
+		private final long hash;
+		private Map<String, Set<String>> pipMap;
+
+		PipSource(String[] toks, int startIndex) {
+			this.toks = toks;
+			this.startIndex = startIndex;
+			this.hash = routeTreeCache == null ? 0 : RouteTreeCache.hashPips(toks, startIndex);
+		}
+
+		Map<String, Set<String>> getPipMap() {
+			if (pipMap == null)
+				pipMap = buildPipMap(toks, startIndex);
+			return pipMap;
+		}
+	}
+
+	/**
+	 * Returns the intersite route of the net starting at the wire, reusing the route
+	 * in the route tree cache if the PIPs of the net are unchanged.  For cached routes,
+	 * the sink site pins the route reaches are processed as if the route was rebuilt.
+	 * 
+	 * @param net {@link CellNet} to create a routing data structure for
+	 * @param startWire The source wire for the route
+	 * @param pips the PIPs used in the net
+	 * @return {@link RouteTree} representing the physical intersite route of the net
+	 */
+	private RouteTree recreateIntersiteRoute(CellNet net, Wire startWire, PipSource pips) {
+		if (routeTreeCache == null)
+			return recreateRoutingNetwork2(net, startWire, pips.getPipMap(), null);
+
+		RouteTreeCache.CachedRoute cached = routeTreeCache.get(net.getName(), pips.hash, startWire);
+		if (cached != null) {
+			this.pipUsedInRoute = cached.isPipUsed();
+			for (SitePin sinkSitePin : cached.getSinkSitePins())
+				processSitePinSink(net, sinkSitePin);
+			return cached.copyRoute();
+		}
+
+		List<SitePin> sinkSitePins = new ArrayList<>();
+		RouteTree route = recreateRoutingNetwork2(net, startWire, pips.getPipMap(), sinkSitePins);
+		routeTreeCache.put(net.getName(), pips.hash, startWire,
+			new RouteTreeCache.CachedRoute(route, pipUsedInRoute, sinkSitePins));
+		return route;
+	}
+
 	/**
 	 * Creates a {@link RouteTree} data structure from a set of PIPs
 	 * that are in a net. Only wire connections that are enabled are traversed. 
@@ -401,9 +465,11 @@ public class XdcRoutingInterface {
 	 * @param net {@link CellNet} to create a routing data structure for
 	 * @param startWire The source wire for the net (connected to a site pin). Used to initialize the route 
 	 * @param pipMap A map of PIPs used in the net from source wire name -> enabled sink wire names 
+	 * @param sinkSitePins if not null, the site pins the route ends at are added to this list
 	 * @return {@link RouteTree} representing the physical intersite route of the net
 	 */
-	private RouteTree recreateRoutingNetwork2(CellNet net, Wire startWire, Map<String, Set<String>> pipMap) {
+	private RouteTree recreateRoutingNetwork2(CellNet net, Wire startWire, Map<String, Set<String>> pipMap,
+			List<SitePin> sinkSitePins) {
 				
 		// initialize the routing data structure with the start wire
 		this.pipUsedInRoute = false;
@@ -455,8 +521,11 @@ public class XdcRoutingInterface {
 			// the connection count is used to filter out routethrough site pins
 			SitePin sinkSitePin = routeTree.getConnectedSitePin();
 			
-			if (sinkSitePin != null && connectionCount == 0 && processSitePinSink(net, sinkSitePin)) {
-				terminals.add(routeTree);
+			if (sinkSitePin != null && connectionCount == 0) {
+				if (sinkSitePins != null)
+					sinkSitePins.add(sinkSitePin);
+				if (processSitePinSink(net, sinkSitePin))
+					terminals.add(routeTree);
 			}
 		}
 			
@@ -466,9 +535,9 @@ public class XdcRoutingInterface {
 	}
 	
 	private Wire createTileWire(String startWireName) {
-		String[] startWireToks = startWireName.split("/");
-		Tile tile = tryGetTile(startWireToks[0]);
-		int wireEnum = tryGetWireEnum(startWireToks[1]);
+		int sep = findSeparators(startWireName, 2)[0];
+		Tile tile = tryGetTile(startWireName, 0, sep);
+		int wireEnum = tryGetWireEnum(startWireName, sep + 1, startWireName.length());
 		return new TileWire(tile, wireEnum);
 	}
 	
@@ -516,14 +585,14 @@ public class XdcRoutingInterface {
 		this.belRoutethroughMap = new HashMap<>();
 		
 		for (int i = 1; i < toks.length; i++) {
-			String[] routethroughToks = toks[i].split("/");			
-			checkTokenLength(routethroughToks.length, 4);
+			String routethroughTok = toks[i];
+			int[] seps = findSeparators(routethroughTok, 4);
 			
 			// TODO: Check that the input pin is an input pin and the output pin is an output pin?
-			Site site = tryGetSite(routethroughToks[0]);
-			Bel bel = tryGetBel(site, routethroughToks[1]);
-			BelPin inputPin = tryGetBelPin(bel, routethroughToks[2]);
-			BelPin outputPin = tryGetBelPin(bel, routethroughToks[3]);
+			Site site = tryGetSite(routethroughTok, 0, seps[0]);
+			Bel bel = tryGetBel(site, routethroughTok, seps[0] + 1, seps[1]);
+			BelPin inputPin = tryGetBelPin(bel, routethroughTok, seps[1] + 1, seps[2]);
+			BelPin outputPin = tryGetBelPin(bel, routethroughTok, seps[2] + 1, routethroughTok.length());
 		
 			belRoutethroughMap.put(bel, new BelRoutethrough(inputPin, outputPin));
 		}
@@ -545,12 +614,12 @@ public class XdcRoutingInterface {
 		CellNet net = isVcc ? design.getVccNet() : design.getGndNet(); 
 		
 		for (int i = 1; i < toks.length; i++) {
-			String[] staticToks = toks[i].split("/");
-			checkTokenLength(staticToks.length, 3);
+			String staticTok = toks[i];
+			int[] seps = findSeparators(staticTok, 3);
 			
-			Site site = tryGetSite(staticToks[0]);
-			Bel bel = tryGetBel(site, staticToks[1]);
-			BelPin sourcePin = tryGetBelPin(bel, staticToks[2]);
+			Site site = tryGetSite(staticTok, 0, seps[0]);
+			Bel bel = tryGetBel(site, staticTok, seps[0] + 1, seps[1]);
+			BelPin sourcePin = tryGetBelPin(bel, staticTok, seps[1] + 1, staticTok.length());
 			boolean routeFound = tryCreateStaticIntrasiteRoute(net, sourcePin, design.getUsedSitePipsAtSite(site));
 			assert routeFound : site.getName() + "/" + bel.getName() + "/" + sourcePin.getName();
 			staticSourceBels.add(bel);
@@ -906,6 +975,89 @@ public class XdcRoutingInterface {
 		}
 	}
 	
+	/**
+	 * Returns the positions of the "/" separators in a token of the form
+	 * {@code part0/part1/.../partN}. If the token does not have the expected number of parts,
+	 * a {@link ParseException} is thrown.
+	 * 
+	 * @param token Token to search
+	 * @param expectedParts Number of parts the token should have
+	 * @return the indices of the separators in the token
+	 */
+	private int[] findSeparators(String token, int expectedParts) {
+		int[] seps = new int[expectedParts - 1];
+		int count = 0;
+		int sep = NameResolver.indexOfSeparator(token, 0);
+		while (sep >= 0) {
+			if (count < seps.length)
+				seps[count] = sep;
+			count++;
+			sep = NameResolver.indexOfSeparator(token, sep + 1);
+		}
+		checkTokenLength(count + 1, expectedParts);
+		return seps;
+	}
+	
+	private NameResolver resolver() {
+		if (resolver == null)
+			resolver = device.getNameResolver();
+		return resolver;
+	}
+	
+	/**
+	 * Same as {@link #tryGetSite(String)} except the name of the site is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private Site tryGetSite(String token, int start, int end) {
+		Site site = resolver().getSite(token, start, end);
+		return (site != null) ? site : tryGetSite(token.substring(start, end));
+	}
+	
+	/**
+	 * Same as {@link #tryGetTile(String)} except the name of the tile is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private Tile tryGetTile(String token, int start, int end) {
+		Tile tile = resolver().getTile(token, start, end);
+		return (tile != null) ? tile : tryGetTile(token.substring(start, end));
+	}
+	
+	/**
+	 * Same as {@link #tryGetWireEnum(String)} except the name of the wire is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private int tryGetWireEnum(String token, int start, int end) {
+		int wireEnum = resolver().getWireEnum(token, start, end);
+		return (wireEnum >= 0) ? wireEnum : tryGetWireEnum(token.substring(start, end));
+	}
+	
+	/**
+	 * Same as {@link #tryGetSitePin(Site, String)} except the name of the pin is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private SitePin tryGetSitePin(Site site, String token, int start, int end) {
+		SitePin pin = resolver().getSitePin(site, token, start, end);
+		return (pin != null) ? pin : tryGetSitePin(site, token.substring(start, end));
+	}
+	
+	/**
+	 * Same as {@link #tryGetBel(Site, String)} except the name of the BEL is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private Bel tryGetBel(Site site, String token, int start, int end) {
+		Bel bel = resolver().getBel(site, token, start, end);
+		return (bel != null) ? bel : tryGetBel(site, token.substring(start, end));
+	}
+	
+	/**
+	 * Same as {@link #tryGetBelPin(Bel, String)} except the name of the pin is the range
+	 * {@code [start, end)} of the token.  The name is resolved without creating a new string.
+	 */
+	private BelPin tryGetBelPin(Bel bel, String token, int start, int end) {
+		BelPin pin = resolver().getBelPin(bel, token, start, end);
+		return (pin != null) ? pin : tryGetBelPin(bel, token.substring(start, end));
+	}
+	
 	/**
 	 * Tries to retrieve the Site object with the given site name <br>
 	 * from the currently loaded device. If the site does not exist <br>
@@ -1113,6 +1265,91 @@ public class XdcRoutingInterface {
 		fileout.close();
 	}
 	
+	/**
+	 * Writes Tcl commands that unroute the specified nets in Vivado.  These commands
+	 * should precede the placement changes of a delta export so that Vivado does not
+	 * keep routes to pins that move.
+	 * 
+	 * @param fileout writer of the Tcl script
+	 * @param nets the nets whose routing changed, ie. {@link CellDesign#getModifiedNets()}
+	 * @throws IOException if an error occurs writing the commands
+	 */
+	public void writeUnrouteDelta(BufferedWriter fileout, Collection<CellNet> nets) throws IOException {
+		for (CellNet net : nets) {
+			fileout.write(String.format("route_design -unroute -nets [get_nets {%s}]\n", net.getName()));
+		}
+	}
+
+	/**
+	 * Writes Tcl commands that set the ROUTE property of each of the specified nets
+	 * that has intersite routing.  Nets without routing are left unrouted by the
+	 * commands of {@link #writeUnrouteDelta(BufferedWriter, Collection)}.
+	 * 
+	 * @param fileout writer of the Tcl script
+	 * @param nets the nets whose routing changed, ie. {@link CellDesign#getModifiedNets()}
+	 * @throws IOException if an error occurs writing the commands
+	 */
+	public void writeRouteDelta(BufferedWriter fileout, Collection<CellNet> nets) throws IOException {
+		for (CellNet net : nets) {
+			if ( net.getIntersiteRouteTree() != null ) {
+				fileout.write(String.format("set_property ROUTE %s [get_nets {%s}]\n", getVivadoRouteString(net), net.getName()));
+			}
+		}
+	}
+	
+	/**
+	 * Writes a Tcl command that unroutes the connections of the VCC and GND nets to the
+	 * pins of the specified cells.  Moving a cell does not mark the static nets as
+	 * modified, since their routes reach most of the design, so only the connections
+	 * to the moved cells are unrouted.  Static nets in {@code nets} are skipped as they
+	 * are unrouted in full by {@link #writeUnrouteDelta(BufferedWriter, Collection)}.
+	 * 
+	 * @param fileout writer of the Tcl script
+	 * @param cells the cells whose placement changed, ie. {@link CellDesign#getModifiedCells()}
+	 * @param nets the nets whose routing changed, ie. {@link CellDesign#getModifiedNets()}
+	 * @throws IOException if an error occurs writing the command
+	 */
+	public void writeStaticUnrouteDelta(BufferedWriter fileout, Collection<Cell> cells, Collection<CellNet> nets) throws IOException {
+		List<String> pins = getStaticPinNames(cells, nets, false);
+		if (!pins.isEmpty()) {
+			fileout.write(String.format("route_design -unroute -pins [get_pins {%s}]\n", String.join(" ", pins)));
+		}
+	}
+
+	/**
+	 * Writes a Tcl command that routes the connections of the VCC and GND nets to the
+	 * pins of the specified cells at their new locations.  The ROUTE property of a net
+	 * holds the routes to all of its sinks, so these connections are routed by Vivado
+	 * rather than by replacing the whole route of the static net.
+	 * 
+	 * @param fileout writer of the Tcl script
+	 * @param cells the cells whose placement changed, ie. {@link CellDesign#getModifiedCells()}
+	 * @param nets the nets whose routing changed, ie. {@link CellDesign#getModifiedNets()}
+	 * @throws IOException if an error occurs writing the command
+	 */
+	public void writeStaticRouteDelta(BufferedWriter fileout, Collection<Cell> cells, Collection<CellNet> nets) throws IOException {
+		List<String> pins = getStaticPinNames(cells, nets, true);
+		if (!pins.isEmpty()) {
+			fileout.write(String.format("route_design -pins [get_pins {%s}]\n", String.join(" ", pins)));
+		}
+	}
+
+	// names of the pins of non-port cells connected to static nets not in nets
+	private static List<String> getStaticPinNames(Collection<Cell> cells, Collection<CellNet> nets, boolean placedOnly) {
+		List<String> pins = new ArrayList<>();
+		for (Cell cell : cells) {
+			if (cell.isPort() || cell.isMacro() || (placedOnly && !cell.isPlaced()))
+				continue;
+			for (CellPin pin : cell.getPins()) {
+				if (!pin.isPseudoPin() && pin.isConnectedToNet() &&
+						pin.getNet().isStaticNet() && !nets.contains(pin.getNet())) {
+					pins.add(pin.getFullName());
+				}
+			}
+		}
+		return pins;
+	}
+
 	/**
 	 * Creates the Vivado equivalent route string of the specified net. 
 	 * If the net is a generic net (i.e. not VCC or GND), the first RouteTree 
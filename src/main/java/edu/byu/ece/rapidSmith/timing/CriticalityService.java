@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+
+import java.util.*;
+
+/**
+ * Per-connection slack and criticality for timing-driven placement and routing.
+ * Each timed net of the design is assigned a dense net index and each of its
+ * sinks a sink index within the net.  The slack and criticality of every
+ * connection are kept in primitive arrays indexed by these indices so that cost
+ * functions can weight each net or connection in constant time.
+ *
+ * The criticality of a connection is {@code (1 - slack / clockPeriod)^exponent},
+ * clamped to [0, 1], so connections on paths that just meet the clock period have
+ * a criticality near one.  Normalizing by the clock period rather than the
+ * current critical path keeps the criticality of connections unaffected by an
+ * edit stable, which lets {@link #update()} refresh only the connections whose
+ * timing changed.
+ *
+ * Placement and routing edits are reported through {@link #invalidate(Cell)} and
+ * {@link #invalidate(CellNet)}.  {@link #update()} then updates the
+ * {@link StaticTimingAnalyzer} incrementally and refreshes the connections around
+ * the nodes whose times changed.
+ */
+public class CriticalityService {
+	private final StaticTimingAnalyzer analyzer;
+	private double exponent = 1.0;
+
+	private TimingGraph graph;
+	private int seenRevision;
+	private final Map<CellNet, Integer> netIndices = new HashMap<>();
+	private final Map<CellPin, Integer> sinkIndices = new HashMap<>();
+	private CellNet[] nets;
+	// first graph edge of each net, the sinks of a net are its consecutive edges
+	private int[] firstEdge;
+	// net index of each graph edge, -1 for arcs through cells
+	private int[] edgeNets;
+
+	private double[][] slacks;
+	private float[][] criticalities;
+	private float[] netCriticalities;
+
+	/**
+	 * Creates a new service over the analyzer, analyzing the design if needed.
+	 *
+	 * @param analyzer the analyzer providing the timing of the design
+	 */
+	public CriticalityService(StaticTimingAnalyzer analyzer) {
+		this.analyzer = Objects.requireNonNull(analyzer);
+		update();
+	}
+
+	public StaticTimingAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	/**
+	 * Sets the exponent applied to criticalities.  Larger exponents reduce the
+	 * criticality of connections that are not near critical.
+	 *
+	 * @param exponent the criticality exponent
+	 */
+	public void setCriticalityExponent(double exponent) {
+		this.exponent = exponent;
+		for (int net = 0; net < nets.length; net++)
+			refreshNet(net);
+	}
+
+	public double getCriticalityExponent() {
+		return exponent;
+	}
+
+	/**
+	 * Marks the timing around the cell as changed.
+	 *
+	 * @see StaticTimingAnalyzer#invalidate(Cell)
+	 */
+	public void invalidate(Cell cell) {
+		analyzer.invalidate(cell);
+	}
+
+	/**
+	 * Marks the timing of the net as changed.
+	 *
+	 * @see StaticTimingAnalyzer#invalidate(CellNet)
+	 */
+	public void invalidate(CellNet net) {
+		analyzer.invalidate(net);
+	}
+
+	/**
+	 * Updates the analyzer and refreshes the slacks and criticalities of the
+	 * connections whose timing changed.  Net and sink indices are only reassigned
+	 * when the analyzer rebuilds its timing graph.
+	 */
+	public void update() {
+		analyzer.update();
+		int revision = analyzer.getRevision();
+		if (graph != null && revision == seenRevision)
+			return;
+
+		TimingGraph current = analyzer.getGraph();
+		BitSet changed = analyzer.getChangedNodes();
+		if (current != graph) {
+			graph = current;
+			buildIndices();
+			for (int net = 0; net < nets.length; net++)
+				refreshNet(net);
+		} else if (changed == null || revision != seenRevision + 1) {
+			// missed updates made directly on the analyzer, refresh everything
+			for (int net = 0; net < nets.length; net++)
+				refreshNet(net);
+		} else {
+			BitSet netsToRefresh = new BitSet(nets.length);
+			for (int v = changed.nextSetBit(0); v >= 0; v = changed.nextSetBit(v + 1)) {
+				for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; i++)
+					markNet(graph.inEdges[i], netsToRefresh);
+				for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; i++)
+					markNet(graph.outEdges[i], netsToRefresh);
+			}
+			for (int net = netsToRefresh.nextSetBit(0); net >= 0; net = netsToRefresh.nextSetBit(net + 1))
+				refreshNet(net);
+		}
+		seenRevision = revision;
+	}
+
+	private void markNet(int edge, BitSet netsToRefresh) {
+		if (edgeNets[edge] >= 0)
+			netsToRefresh.set(edgeNets[edge]);
+	}
+
+	private void buildIndices() {
+		netIndices.clear();
+		sinkIndices.clear();
+		List<CellNet> netList = new ArrayList<>(graph.netEdges.keySet());
+		netList.sort(Comparator.comparing(CellNet::getName));
+		nets = netList.toArray(new CellNet[netList.size()]);
+		firstEdge = new int[nets.length];
+		edgeNets = new int[graph.edgeFrom.length];
+		Arrays.fill(edgeNets, -1);
+		slacks = new double[nets.length][];
+		criticalities = new float[nets.length][];
+		netCriticalities = new float[nets.length];
+
+		for (int net = 0; net < nets.length; net++) {
+			int[] range = graph.netEdges.get(nets[net]);
+			netIndices.put(nets[net], net);
+			firstEdge[net] = range[0];
+			slacks[net] = new double[range[1] - range[0]];
+			criticalities[net] = new float[range[1] - range[0]];
+			for (int e = range[0]; e < range[1]; e++) {
+				edgeNets[e] = net;
+				sinkIndices.put(graph.pins[graph.edgeTo[e]], e - range[0]);
+			}
+		}
+	}
+
+	private void refreshNet(int net) {
+		double period = analyzer.getClockPeriod();
+		double[] netSlacks = slacks[net];
+		float[] netCrits = criticalities[net];
+		float max = 0.0f;
+		for (int sink = 0; sink < netSlacks.length; sink++) {
+			double slack = analyzer.getEdgeSlack(firstEdge[net] + sink);
+			netSlacks[sink] = slack;
+			double crit = Math.max(0.0, Math.min(1.0, 1.0 - slack / period));
+			netCrits[sink] = (float) (exponent == 1.0 ? crit : Math.pow(crit, exponent));
+			max = Math.max(max, netCrits[sink]);
+		}
+		netCriticalities[net] = max;
+	}
+
+	/**
+	 * @return the number of timed nets
+	 */
+	public int getNetCount() {
+		return nets.length;
+	}
+
+	/**
+	 * @param net a net in the design
+	 * @return the index of the net or -1 if the net is not timed
+	 */
+	public int getNetIndex(CellNet net) {
+		Integer index = netIndices.get(net);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param sink a sink pin of a net
+	 * @return the index of the sink within its net or -1 if the sink is not timed
+	 */
+	public int getSinkIndex(CellPin sink) {
+		Integer index = sinkIndices.get(sink);
+		return index == null ? -1 : index;
+	}
+
+	public CellNet getNet(int net) {
+		return nets[net];
+	}
+
+	public int getSinkCount(int net) {
+		return slacks[net].length;
+	}
+
+	public CellPin getSink(int net, int sink) {
+		return graph.pins[graph.edgeTo[firstEdge[net] + sink]];
+	}
+
+	/**
+	 * @return the slack of the connection from the source of the net to the sink
+	 */
+	public double getSlack(int net, int sink) {
+		return slacks[net][sink];
+	}
+
+	/**
+	 * @return the criticality, between 0 and 1, of the connection from the source
+	 *   of the net to the sink
+	 */
+	public float getCriticality(int net, int sink) {
+		return criticalities[net][sink];
+	}
+
+	/**
+	 * @return the largest criticality of the connections of the net
+	 */
+	public float getNetCriticality(int net) {
+		return netCriticalities[net];
+	}
+
+	/**
+	 * @param net a net in the design
+	 * @return the largest criticality of the connections of the net, 0 if the net
+	 *   is not timed
+	 */
+	public float getNetCriticality(CellNet net) {
+		int index = getNetIndex(net);
+		return index < 0 ? 0.0f : netCriticalities[index];
+	}
+
+	/**
+	 * @param sink a sink pin of a net
+	 * @return the criticality of the connection to the sink, 0 if it is not timed
+	 */
+	public float getCriticality(CellPin sink) {
+		Integer index = sinkIndices.get(sink);
+		if (index == null)
+			return 0.0f;
+		// the sink may have been moved to another net since the last update
+		int net = getNetIndex(sink.getNet());
+		if (net < 0 || index >= criticalities[net].length ||
+				graph.pins[graph.edgeTo[firstEdge[net] + index]] != sink)
+			return 0.0f;
+		return criticalities[net][index];
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.timing;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+
+import java.util.List;
+
+/**
+ * Source of the delays used by the {@link StaticTimingAnalyzer}.  All delays are
+ * in nanoseconds.  Implementations may base the delays on the current placement
+ * and routing of the design and are queried again for the affected arcs whenever
+ * the analyzer is told that a cell or net has changed.
+ *
+ * @see SimpleDelayModel
+ */
+public interface DelayModel {
+	/**
+	 * Returns the delay from the source pin of the net to each of the sinks.
+	 *
+	 * @param net the net
+	 * @param source the source pin of the net
+	 * @param sinks the sink pins to compute the delays of
+	 * @return the delay to each sink, in the same order as {@code sinks}
+	 */
+	double[] getNetDelays(CellNet net, CellPin source, List<CellPin> sinks);
+
+	/**
+	 * Returns the delay of the combinational arc through the cell from the input
+	 * pin to the output pin.
+	 *
+	 * @param cell the cell
+	 * @param input an input pin of the cell
+	 * @param output an output pin of the cell
+	 * @return the delay of the arc
+	 */
+	double getCellDelay(Cell cell, CellPin input, CellPin output);
+
+	/**
+	 * Returns the delay from the clock edge to the output pin of a sequential cell.
+	 *
+	 * @param cell the sequential cell
+	 * @param output an output pin of the cell
+	 * @return the clock-to-out delay
+	 */
+	double getClockToOutDelay(Cell cell, CellPin output);
+
+	/**
+	 * Returns the setup time of the data input pin of a sequential cell.
+	 *
+	 * @param cell the sequential cell
+	 * @param input a data input pin of the cell
+	 * @return the setup time
+	 */
+	double getSetupTime(Cell cell, CellPin input);
+}
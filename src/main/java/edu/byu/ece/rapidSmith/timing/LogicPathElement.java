@@ -22,7 +22,10 @@ package edu.byu.ece.rapidSmith.timing;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
 import edu.byu.ece.rapidSmith.design.xdl.XdlInstance;
+import edu.byu.ece.rapidSmith.design.xdl.XdlPin;
+import edu.byu.ece.rapidSmith.util.Exceptions;
 
 public class LogicPathElement extends PathElement implements Serializable{
 
@@ -30,6 +33,8 @@ public class LogicPathElement extends PathElement implements Serializable{
 
 	/** The instance or physical resource */
 	private XdlInstance instance;
+	/** Name of the instance, kept until the instance is resolved */
+	private String instanceName;
 	/** The logical resources (FFs,...) part of this path element */
 	private ArrayList<String> logicalResources = new ArrayList<>();
 	
@@ -65,4 +70,31 @@ public class LogicPathElement extends PathElement implements Serializable{
 	public void addLogicalResource(String resource){
 		logicalResources.add(resource);
 	}
+	/**
+	 * @return the name of the instance as it appears in the report
+	 */
+	public String getInstanceName() {
+		return instanceName;
+	}
+	/**
+	 * @param instanceName the name of the instance as it appears in the report
+	 */
+	public void setInstanceName(String instanceName) {
+		this.instanceName = instanceName;
+	}
+
+	@Override
+	void resolve(XdlDesign design) {
+		if (instanceName == null)
+			return;
+		instance = design.getInstance(instanceName);
+		if(instance == null){
+			throw new Exceptions.FileFormatException("no instance \"" + instanceName + " in design");
+		}
+		XdlPin p = instance.getPin(getPinName());
+		if(p == null){
+			throw new Exceptions.FileFormatException("no pin \"" + getPinName() + " in instance " + instanceName);
+		}
+		setPin(p);
+	}
 }
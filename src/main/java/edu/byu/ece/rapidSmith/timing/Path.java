@@ -21,6 +21,7 @@ package edu.byu.ece.rapidSmith.timing;
 
 import java.util.ArrayList;
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
 import edu.byu.ece.rapidSmith.design.xdl.XdlNet;
 
 public abstract class Path {
@@ -34,6 +35,8 @@ public abstract class Path {
 	private int levelsOfLogic;
 	/** The net driving the clock on the destination register */
 	private XdlNet destinationClock;
+	/** Name of the destination clock net, kept until the net is resolved */
+	private String destinationClockName;
 	/** The uncertainty in the clock as determined by Xilinx trce */
 	private float clockUncertainty;
 	/** List of physical / logical resources */
@@ -123,5 +126,33 @@ public abstract class Path {
 	public ArrayList<PathElement> getMaxDataPath() {
 		return maxDataPath;
 	}
+	/**
+	 * @return the name of the destination clock net as it appears in the report
+	 */
+	public String getDestinationClockName() {
+		return destinationClockName;
+	}
+	/**
+	 * @param destinationClockName the name of the destination clock net
+	 */
+	public void setDestinationClockName(String destinationClockName) {
+		this.destinationClockName = destinationClockName;
+	}
 
+	/**
+	 * Looks up the nets, instances and pins named in this path in the design.
+	 * Paths parsed without a design, ie. by
+	 * {@link TraceReportParser#parseTWR(String, java.util.function.Consumer)},
+	 * only hold the names of these objects until this method is called.
+	 *
+	 * @param design the design the report was generated for
+	 * @throws edu.byu.ece.rapidSmith.util.Exceptions.FileFormatException if an
+	 *   instance, net or pin in the path does not exist in the design
+	 */
+	public void resolve(XdlDesign design) {
+		if (destinationClockName != null)
+			destinationClock = design.getNet(destinationClockName);
+		for (PathElement element : maxDataPath)
+			element.resolve(design);
+	}
 }
@@ -20,6 +20,7 @@
 package edu.byu.ece.rapidSmith.timing;
 
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
 import edu.byu.ece.rapidSmith.design.xdl.XdlNet;
 
 public class PathDelay extends Path {
@@ -29,6 +30,8 @@ public class PathDelay extends Path {
 	private float clockPathSkew;
 	/** The net driving the clock on the source register */
 	private XdlNet sourceClock;
+	/** Name of the source clock net, kept until the net is resolved */
+	private String sourceClockName;
 	
 	
 	/**
@@ -68,4 +71,23 @@ public class PathDelay extends Path {
 	public void setSourceClock(XdlNet sourceClock) {
 		this.sourceClock = sourceClock;
 	}
+	/**
+	 * @return the name of the source clock net as it appears in the report
+	 */
+	public String getSourceClockName() {
+		return sourceClockName;
+	}
+	/**
+	 * @param sourceClockName the name of the source clock net
+	 */
+	public void setSourceClockName(String sourceClockName) {
+		this.sourceClockName = sourceClockName;
+	}
+
+	@Override
+	public void resolve(XdlDesign design) {
+		super.resolve(design);
+		if (sourceClockName != null)
+			sourceClock = design.getNet(sourceClockName);
+	}
 }
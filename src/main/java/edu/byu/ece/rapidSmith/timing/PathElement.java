@@ -19,6 +19,7 @@
  */
 package edu.byu.ece.rapidSmith.timing;
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
 import edu.byu.ece.rapidSmith.design.xdl.XdlPin;
 
 public abstract class PathElement {
@@ -28,6 +29,8 @@ public abstract class PathElement {
 	private String type;
 	/** Primitive Site and Pin where the path elements resides */
 	private XdlPin pin;
+	/** Name of the pin, kept until the pin is resolved */
+	private String pinName;
 	
 	/**
 	 * @return the delay
@@ -65,6 +68,23 @@ public abstract class PathElement {
 	public void setPin(XdlPin pin) {
 		this.pin = pin;
 	}
-	
-	
+	/**
+	 * @return the name of the pin as it appears in the report
+	 */
+	public String getPinName() {
+		return pinName;
+	}
+	/**
+	 * @param pinName the name of the pin as it appears in the report
+	 */
+	public void setPinName(String pinName) {
+		this.pinName = pinName;
+	}
+
+	/**
+	 * Looks up the design objects named by this element in the design.
+	 * @param design the design the report was generated for
+	 */
+	void resolve(XdlDesign design) {
+	}
 }
@@ -21,6 +21,8 @@ package edu.byu.ece.rapidSmith.timing;
 
 import java.util.ArrayList;
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
+
 
 public class PathOffset extends Path{
 	/** Offset in nanoseconds (data path - clock path skew + uncertainty) */
@@ -80,4 +82,11 @@ public class PathOffset extends Path{
 	public ArrayList<PathElement> getMinDataPath() {
 		return minDataPath;
 	}
+
+	@Override
+	public void resolve(XdlDesign design) {
+		super.resolve(design);
+		for (PathElement element : minDataPath)
+			element.resolve(design);
+	}
 }
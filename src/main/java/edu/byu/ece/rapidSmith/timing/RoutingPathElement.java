@@ -21,7 +21,10 @@ package edu.byu.ece.rapidSmith.timing;
 
 import java.io.Serializable;
 
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
 import edu.byu.ece.rapidSmith.design.xdl.XdlNet;
+import edu.byu.ece.rapidSmith.design.xdl.XdlPin;
+import edu.byu.ece.rapidSmith.util.Exceptions;
 
 public class RoutingPathElement extends PathElement implements Serializable{
 	
@@ -29,6 +32,9 @@ public class RoutingPathElement extends PathElement implements Serializable{
 	
 	/** The net or physical resource */
 	private XdlNet net;
+	/** Names of the net and of the site of the pin, kept until they are resolved */
+	private String netName;
+	private String siteName;
 
 	/**
 	 * @param net the net to set
@@ -43,6 +49,48 @@ public class RoutingPathElement extends PathElement implements Serializable{
 	public XdlNet getNet(){
 		return net;
 	}
-	
-	
+
+	/**
+	 * @return the name of the net as it appears in the report
+	 */
+	public String getNetName() {
+		return netName;
+	}
+
+	/**
+	 * @param netName the name of the net as it appears in the report
+	 */
+	public void setNetName(String netName) {
+		this.netName = netName;
+	}
+
+	/**
+	 * @return the name of the site of the pin as it appears in the report
+	 */
+	public String getSiteName() {
+		return siteName;
+	}
+
+	/**
+	 * @param siteName the name of the site of the pin as it appears in the report
+	 */
+	public void setSiteName(String siteName) {
+		this.siteName = siteName;
+	}
+
+	@Override
+	void resolve(XdlDesign design) {
+		if (netName == null)
+			return;
+		net = design.getNet(netName);
+		if(net == null){
+			throw new Exceptions.FileFormatException("no net \"" + netName + "\" in design");
+		}
+		for(XdlPin p : net.getPins()){
+			if(p.getName().equals(getPinName()) && p.getInstance().getSiteName().equals(siteName)){
+				setPin(p);
+				break;
+			}
+		}
+	}
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.design.subsite.RouteTree;
+import edu.byu.ece.rapidSmith.device.*;
+
+import java.util.*;
+
+/**
+ * Table based {@link DelayModel}.  Routed connections are timed by walking the
+ * intersite {@link RouteTree} of the net from the sink back to the source, adding
+ * a delay for each wire based on its {@link WireType} and a delay for each PIP, so
+ * the delay grows with both the PIP count and the length of the route.  Unrouted
+ * connections between placed cells are estimated from the Manhattan distance
+ * between their tiles.  Cell delays are looked up by the type of the BEL the cell
+ * is placed on.
+ *
+ * The default values are rough estimates and should be replaced with values
+ * characterized for the target family.
+ */
+public class SimpleDelayModel implements DelayModel {
+	private final double[] wireDelays = new double[WireType.values().length];
+	private double pipDelay = 0.05;
+	private double intrasiteDelay = 0.05;
+	private double unroutedDelayPerTile = 0.1;
+	private double unplacedNetDelay = 0.5;
+	private final Map<String, Double> belDelays = new HashMap<>();
+	private double defaultCellDelay = 0.1;
+	private double clockToOutDelay = 0.3;
+	private double setupTime = 0.1;
+
+	public SimpleDelayModel() {
+		Arrays.fill(wireDelays, 0.05);
+	}
+
+	public SimpleDelayModel setWireDelay(WireType type, double delay) {
+		wireDelays[type.ordinal()] = delay;
+		return this;
+	}
+
+	public SimpleDelayModel setPipDelay(double delay) {
+		this.pipDelay = delay;
+		return this;
+	}
+
+	/**
+	 * Sets the delay of connections between cells placed in the same site.
+	 */
+	public SimpleDelayModel setIntrasiteDelay(double delay) {
+		this.intrasiteDelay = delay;
+		return this;
+	}
+
+	/**
+	 * Sets the delay per tile of distance used to estimate unrouted connections
+	 * between placed cells.
+	 */
+	public SimpleDelayModel setUnroutedDelayPerTile(double delay) {
+		this.unroutedDelayPerTile = delay;
+		return this;
+	}
+
+	/**
+	 * Sets the delay of connections with an unplaced source or sink.
+	 */
+	public SimpleDelayModel setUnplacedNetDelay(double delay) {
+		this.unplacedNetDelay = delay;
+		return this;
+	}
+
+	/**
+	 * Sets the delay of arcs through cells placed on BELs of the type.
+	 */
+	public SimpleDelayModel setBelDelay(String belType, double delay) {
+		belDelays.put(belType, delay);
+		return this;
+	}
+
+	/**
+	 * Sets the delay of arcs through unplaced cells and cells on BELs without a
+	 * delay set by {@link #setBelDelay(String, double)}.
+	 */
+	public SimpleDelayModel setDefaultCellDelay(double delay) {
+		this.defaultCellDelay = delay;
+		return this;
+	}
+
+	public SimpleDelayModel setClockToOutDelay(double delay) {
+		this.clockToOutDelay = delay;
+		return this;
+	}
+
+	public SimpleDelayModel setSetupTime(double time) {
+		this.setupTime = time;
+		return this;
+	}
+
+	@Override
+	public double[] getNetDelays(CellNet net, CellPin source, List<CellPin> sinks) {
+		double[] delays = new double[sinks.size()];
+		Site sourceSite = source.getCell().getSite();
+		Map<Site, RouteTree> sinkTrees = null;
+
+		for (int i = 0; i < sinks.size(); i++) {
+			Site sinkSite = sinks.get(i).getCell().getSite();
+			if (sourceSite == null || sinkSite == null) {
+				delays[i] = unplacedNetDelay;
+			} else if (sourceSite == sinkSite) {
+				delays[i] = intrasiteDelay;
+			} else {
+				if (sinkTrees == null)
+					sinkTrees = getSinkTrees(net);
+				RouteTree sinkTree = sinkTrees.get(sinkSite);
+				if (sinkTree != null) {
+					delays[i] = getRouteDelay(sinkTree);
+				} else {
+					Tile src = sourceSite.getTile();
+					Tile snk = sinkSite.getTile();
+					int distance = Math.abs(src.getRow() - snk.getRow()) +
+							Math.abs(src.getColumn() - snk.getColumn());
+					delays[i] = pipDelay + distance * unroutedDelayPerTile;
+				}
+			}
+		}
+		return delays;
+	}
+
+	/**
+	 * Finds the nodes of the intersite routing of the net that enter the input site
+	 * pins of each site.
+	 */
+	private static Map<Site, RouteTree> getSinkTrees(CellNet net) {
+		Map<Site, RouteTree> sinkTrees = new HashMap<>();
+		List<RouteTree> routes = net.getIntersiteRouteTreeList();
+		if (routes == null)
+			return sinkTrees;
+		for (RouteTree route : routes) {
+			for (RouteTree node : route) {
+				SitePin pin = node.getConnectedSitePin();
+				if (pin != null && pin.isInput())
+					sinkTrees.putIfAbsent(pin.getSite(), node);
+			}
+		}
+		return sinkTrees;
+	}
+
+	private double getRouteDelay(RouteTree sinkTree) {
+		double delay = 0.0;
+		WireEnumerator we = sinkTree.getWire().getTile().getDevice().getWireEnumerator();
+		for (RouteTree node = sinkTree; node != null; node = node.getParent()) {
+			WireType type = we.getWireType(node.getWire().getWireEnum());
+			delay += type == null ? wireDelays[WireType.OTHER.ordinal()] : wireDelays[type.ordinal()];
+			Connection c = node.getConnection();
+			if (c != null && c.isPip())
+				delay += pipDelay;
+		}
+		return delay;
+	}
+
+	@Override
+	public double getCellDelay(Cell cell, CellPin input, CellPin output) {
+		Bel bel = cell.getBel();
+		if (bel == null)
+			return defaultCellDelay;
+		return belDelays.getOrDefault(bel.getType(), defaultCellDelay);
+	}
+
+	@Override
+	public double getClockToOutDelay(Cell cell, CellPin output) {
+		return clockToOutDelay;
+	}
+
+	@Override
+	public double getSetupTime(Cell cell, CellPin input) {
+		return setupTime;
+	}
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Static timing analysis of a {@link CellDesign} under a single clock.  The
+ * analyzer builds a {@link TimingGraph} of the design, queries the
+ * {@link DelayModel} for the delay of every edge and computes the arrival and
+ * required time of every cell pin with a levelized forward and backward pass.
+ * Large levels are processed on multiple threads.
+ *
+ * After placement or routing edits, call {@link #invalidate(Cell)} for each moved
+ * cell and {@link #invalidate(CellNet)} for each rerouted net, then
+ * {@link #update()}.  Only the delays of the invalidated cells and nets are
+ * recomputed and arrival and required times are only propagated from the
+ * changed edges until they stop changing.  Changes to the netlist itself require
+ * a new graph; {@link #update()} rebuilds the graph when it is told about a cell
+ * or net it has not seen and {@link #analyze()} can be called to force a rebuild.
+ *
+ * Times are in nanoseconds.  Instances of this class are not thread safe.
+ */
+public class StaticTimingAnalyzer {
+	/** Levels with at least this many nodes are processed in parallel */
+	private static final int PARALLEL_THRESHOLD = 1024;
+
+	private final CellDesign design;
+	private final DelayModel delayModel;
+	private double clockPeriod;
+
+	private TimingGraph graph;
+	private double[] edgeDelay;
+	private double[] startTime;
+	private double[] setupTime;
+	private double[] arrival;
+	private double[] required;
+
+	private final Set<Cell> dirtyCells = new HashSet<>();
+	private final Set<CellNet> dirtyNets = new HashSet<>();
+	private boolean rebuild = true;
+
+	// number of times the times have changed, lets views of the times detect changes
+	private int revision;
+	// nodes whose times or incident delays changed in the latest incremental update,
+	// null if the latest change recomputed everything
+	private BitSet changedNodes;
+
+	/**
+	 * Creates a new analyzer.  The design is not analyzed until {@link #analyze()}
+	 * or {@link #update()} is called.
+	 *
+	 * @param design the design to analyze
+	 * @param delayModel model of the delays in the design
+	 * @param clockPeriod the period of the clock of the design
+	 */
+	public StaticTimingAnalyzer(CellDesign design, DelayModel delayModel, double clockPeriod) {
+		this.design = Objects.requireNonNull(design);
+		this.delayModel = Objects.requireNonNull(delayModel);
+		this.clockPeriod = clockPeriod;
+	}
+
+	public CellDesign getDesign() {
+		return design;
+	}
+
+	public DelayModel getDelayModel() {
+		return delayModel;
+	}
+
+	public double getClockPeriod() {
+		return clockPeriod;
+	}
+
+	/**
+	 * Sets the clock period and recomputes the required times if the design has
+	 * been analyzed.
+	 *
+	 * @param clockPeriod the new clock period
+	 */
+	public void setClockPeriod(double clockPeriod) {
+		this.clockPeriod = clockPeriod;
+		if (!rebuild) {
+			backwardPass();
+			revision++;
+			changedNodes = null;
+		}
+	}
+
+	/**
+	 * Builds the timing graph of the design and computes all delays and times.
+	 */
+	public void analyze() {
+		graph = new TimingGraph(design);
+		int numPins = graph.size();
+		edgeDelay = new double[graph.edgeFrom.length];
+		startTime = new double[numPins];
+		setupTime = new double[numPins];
+		arrival = new double[numPins];
+		required = new double[numPins];
+
+		for (Map.Entry<CellNet, int[]> e : graph.netEdges.entrySet())
+			computeNetDelays(e.getKey(), e.getValue());
+		for (Map.Entry<Cell, int[]> e : graph.cellEdges.entrySet())
+			computeCellDelays(e.getKey(), e.getValue());
+		for (int v = 0; v < numPins; v++)
+			computeEndpointTimes(v);
+
+		forwardPass();
+		backwardPass();
+
+		dirtyCells.clear();
+		dirtyNets.clear();
+		rebuild = false;
+		revision++;
+		changedNodes = null;
+	}
+
+	/**
+	 * Marks the delays around the cell as changed, ie. after the cell is placed,
+	 * moved or unplaced.  This invalidates the arcs through the cell and all nets
+	 * connected to it.
+	 *
+	 * @param cell the changed cell
+	 */
+	public void invalidate(Cell cell) {
+		dirtyCells.add(cell);
+		for (CellPin pin : cell.getPins()) {
+			if (pin.getNet() != null)
+				dirtyNets.add(pin.getNet());
+		}
+	}
+
+	/**
+	 * Marks the delays of the net as changed, ie. after it is routed or unrouted.
+	 *
+	 * @param net the changed net
+	 */
+	public void invalidate(CellNet net) {
+		dirtyNets.add(net);
+	}
+
+	/**
+	 * Brings the times up to date with the invalidated cells and nets, analyzing
+	 * the design if it has not been analyzed yet.
+	 */
+	public void update() {
+		if (!rebuild) {
+			for (Cell cell : dirtyCells) {
+				if (cell.isMacro() ? !containsAll(cell.getInternalCells()) : !containsCell(cell)) {
+					rebuild = true;
+					break;
+				}
+			}
+			for (CellNet net : dirtyNets) {
+				if (!graph.netEdges.containsKey(net) && net.getSourcePin() != null &&
+						graph.pinIds.containsKey(net.getSourcePin())) {
+					rebuild = true;
+					break;
+				}
+			}
+		}
+		if (rebuild) {
+			analyze();
+			return;
+		}
+		if (dirtyCells.isEmpty() && dirtyNets.isEmpty())
+			return;
+
+		// nodes whose arrival or required time may change
+		Set<Integer> forwardSeeds = new HashSet<>();
+		Set<Integer> backwardSeeds = new HashSet<>();
+		List<Cell> leafCells = new ArrayList<>();
+		for (Cell cell : dirtyCells) {
+			if (cell.isMacro())
+				leafCells.addAll(cell.getInternalCells());
+			else
+				leafCells.add(cell);
+		}
+		for (Cell cell : leafCells) {
+			int[] range = graph.cellEdges.get(cell);
+			if (range != null)
+				updateDelays(range, () -> computeCellDelays(cell, range), forwardSeeds, backwardSeeds);
+			for (CellPin pin : cell.getPins()) {
+				int v = graph.pinIds.get(pin);
+				double start = startTime[v];
+				double setup = setupTime[v];
+				computeEndpointTimes(v);
+				if (start != startTime[v])
+					forwardSeeds.add(v);
+				if (setup != setupTime[v])
+					backwardSeeds.add(v);
+			}
+		}
+		for (CellNet net : dirtyNets) {
+			int[] range = graph.netEdges.get(net);
+			if (range != null)
+				updateDelays(range, () -> computeNetDelays(net, range), forwardSeeds, backwardSeeds);
+		}
+		dirtyCells.clear();
+		dirtyNets.clear();
+
+		changedNodes = new BitSet(graph.size());
+		forwardSeeds.forEach(changedNodes::set);
+		backwardSeeds.forEach(changedNodes::set);
+		propagateForward(forwardSeeds);
+		propagateBackward(backwardSeeds);
+		revision++;
+	}
+
+	/**
+	 * @return a number that changes each time the times of the design change
+	 */
+	int getRevision() {
+		return revision;
+	}
+
+	/**
+	 * @return the nodes whose times or incident delays changed in the latest
+	 *   update or null if all of them may have changed
+	 */
+	BitSet getChangedNodes() {
+		return changedNodes;
+	}
+
+	TimingGraph getGraph() {
+		checkAnalyzed();
+		return graph;
+	}
+
+	/**
+	 * @return the slack of the edge, the slack of the worst path through it
+	 */
+	double getEdgeSlack(int e) {
+		return required[graph.edgeTo[e]] - edgeDelay[e] - arrival[graph.edgeFrom[e]];
+	}
+
+	private boolean containsCell(Cell cell) {
+		for (CellPin pin : cell.getPins()) {
+			if (!graph.pinIds.containsKey(pin))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean containsAll(Collection<Cell> cells) {
+		for (Cell cell : cells) {
+			if (!containsCell(cell))
+				return false;
+		}
+		return true;
+	}
+
+	private void updateDelays(int[] range, Runnable compute, Set<Integer> forwardSeeds, Set<Integer> backwardSeeds) {
+		double[] old = Arrays.copyOfRange(edgeDelay, range[0], range[1]);
+		compute.run();
+		for (int e = range[0]; e < range[1]; e++) {
+			if (edgeDelay[e] != old[e - range[0]]) {
+				forwardSeeds.add(graph.edgeTo[e]);
+				backwardSeeds.add(graph.edgeFrom[e]);
+			}
+		}
+	}
+
+	private void computeNetDelays(CellNet net, int[] range) {
+		if (range[0] == range[1])
+			return;
+		CellPin source = graph.pins[graph.edgeFrom[range[0]]];
+		List<CellPin> sinks = new ArrayList<>(range[1] - range[0]);
+		for (int e = range[0]; e < range[1]; e++)
+			sinks.add(graph.pins[graph.edgeTo[e]]);
+		double[] delays = delayModel.getNetDelays(net, source, sinks);
+		System.arraycopy(delays, 0, edgeDelay, range[0], sinks.size());
+	}
+
+	private void computeCellDelays(Cell cell, int[] range) {
+		for (int e = range[0]; e < range[1]; e++) {
+			edgeDelay[e] = delayModel.getCellDelay(
+					cell, graph.pins[graph.edgeFrom[e]], graph.pins[graph.edgeTo[e]]);
+		}
+	}
+
+	private void computeEndpointTimes(int v) {
+		CellPin pin = graph.pins[v];
+		startTime[v] = graph.sequentialOutput[v] ? delayModel.getClockToOutDelay(pin.getCell(), pin) : 0.0;
+		setupTime[v] = graph.sequentialInput[v] ? delayModel.getSetupTime(pin.getCell(), pin) : 0.0;
+	}
+
+	private void forwardPass() {
+		for (int[] level : graph.levels) {
+			if (level.length >= PARALLEL_THRESHOLD) {
+				IntStream.of(level).parallel().forEach(v -> arrival[v] = computeArrival(v));
+			} else {
+				for (int v : level)
+					arrival[v] = computeArrival(v);
+			}
+		}
+	}
+
+	private void backwardPass() {
+		for (int l = graph.levels.length - 1; l >= 0; l--) {
+			int[] level = graph.levels[l];
+			if (level.length >= PARALLEL_THRESHOLD) {
+				IntStream.of(level).parallel().forEach(v -> required[v] = computeRequired(v));
+			} else {
+				for (int v : level)
+					required[v] = computeRequired(v);
+			}
+		}
+	}
+
+	private double computeArrival(int v) {
+		double time = Double.NEGATIVE_INFINITY;
+		for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; i++) {
+			int e = graph.inEdges[i];
+			if (!graph.edgeIgnored[e])
+				time = Math.max(time, arrival[graph.edgeFrom[e]] + edgeDelay[e]);
+		}
+		return time == Double.NEGATIVE_INFINITY ? startTime[v] : time;
+	}
+
+	private double computeRequired(int v) {
+		double time = Double.POSITIVE_INFINITY;
+		for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; i++) {
+			int e = graph.outEdges[i];
+			if (!graph.edgeIgnored[e])
+				time = Math.min(time, required[graph.edgeTo[e]] - edgeDelay[e]);
+		}
+		return time == Double.POSITIVE_INFINITY ? clockPeriod - setupTime[v] : time;
+	}
+
+	private void propagateForward(Set<Integer> seeds) {
+		int[] level = graph.level;
+		PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.comparingInt(v -> level[v]));
+		boolean[] queued = new boolean[graph.size()];
+		for (int v : seeds) {
+			queue.add(v);
+			queued[v] = true;
+		}
+		while (!queue.isEmpty()) {
+			int v = queue.poll();
+			queued[v] = false;
+			double time = computeArrival(v);
+			if (time == arrival[v])
+				continue;
+			arrival[v] = time;
+			changedNodes.set(v);
+			for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; i++) {
+				int e = graph.outEdges[i];
+				int to = graph.edgeTo[e];
+				if (!graph.edgeIgnored[e] && !queued[to]) {
+					queue.add(to);
+					queued[to] = true;
+				}
+			}
+		}
+	}
+
+	private void propagateBackward(Set<Integer> seeds) {
+		int[] level = graph.level;
+		PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.comparingInt(v -> -level[v]));
+		boolean[] queued = new boolean[graph.size()];
+		for (int v : seeds) {
+			queue.add(v);
+			queued[v] = true;
+		}
+		while (!queue.isEmpty()) {
+			int v = queue.poll();
+			queued[v] = false;
+			double time = computeRequired(v);
+			if (time == required[v])
+				continue;
+			required[v] = time;
+			changedNodes.set(v);
+			for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; i++) {
+				int e = graph.inEdges[i];
+				int from = graph.edgeFrom[e];
+				if (!graph.edgeIgnored[e] && !queued[from]) {
+					queue.add(from);
+					queued[from] = true;
+				}
+			}
+		}
+	}
+
+	private int nodeOf(CellPin pin) {
+		if (rebuild)
+			throw new IllegalStateException("design has not been analyzed");
+		Integer v = graph.pinIds.get(pin);
+		if (v == null)
+			throw new IllegalArgumentException("pin " + pin.getFullName() + " is not in the timing graph");
+		return v;
+	}
+
+	/**
+	 * @param pin a pin of a leaf cell in the design
+	 * @return true if the pin is in the analyzed timing graph
+	 */
+	public boolean isTimed(CellPin pin) {
+		return !rebuild && graph.pinIds.containsKey(pin);
+	}
+
+	/**
+	 * @param pin a pin of a leaf cell in the design
+	 * @return the latest time a signal arrives at the pin
+	 */
+	public double getArrivalTime(CellPin pin) {
+		return arrival[nodeOf(pin)];
+	}
+
+	/**
+	 * @param pin a pin of a leaf cell in the design
+	 * @return the latest time a signal may arrive at the pin and meet timing
+	 */
+	public double getRequiredTime(CellPin pin) {
+		return required[nodeOf(pin)];
+	}
+
+	/**
+	 * @param pin a pin of a leaf cell in the design
+	 * @return the slack of the pin, negative if the pin is on a failing path
+	 */
+	public double getSlack(CellPin pin) {
+		int v = nodeOf(pin);
+		return required[v] - arrival[v];
+	}
+
+	/**
+	 * Returns the slack of the connection of a net from its source to the sink.
+	 *
+	 * @param source the source pin of a net
+	 * @param sink a sink pin of the net
+	 * @return the slack of the connection or NaN if the pins are not connected
+	 *   by a timed edge
+	 */
+	public double getConnectionSlack(CellPin source, CellPin sink) {
+		int from = nodeOf(source);
+		int to = nodeOf(sink);
+		for (int i = graph.outStart[from]; i < graph.outStart[from + 1]; i++) {
+			int e = graph.outEdges[i];
+			if (graph.edgeTo[e] == to)
+				return getEdgeSlack(e);
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @return the smallest slack of any pin in the design
+	 */
+	public double getWorstSlack() {
+		checkAnalyzed();
+		double worst = Double.POSITIVE_INFINITY;
+		for (int v = 0; v < graph.size(); v++)
+			worst = Math.min(worst, required[v] - arrival[v]);
+		return worst;
+	}
+
+	/**
+	 * @return the delay of the longest path in the design including setup time,
+	 *   the smallest clock period the design can meet
+	 */
+	public double getCriticalPathDelay() {
+		checkAnalyzed();
+		double delay = 0.0;
+		for (int v = 0; v < graph.size(); v++) {
+			if (isEndpoint(v))
+				delay = Math.max(delay, arrival[v] + setupTime[v]);
+		}
+		return delay;
+	}
+
+	/**
+	 * Returns the pins on the path with the worst slack, ordered from the start of
+	 * the path to its end.
+	 *
+	 * @return the pins on the critical path, empty if the design has no pins
+	 */
+	public List<CellPin> getCriticalPath() {
+		checkAnalyzed();
+		int end = -1;
+		for (int v = 0; v < graph.size(); v++) {
+			if (isEndpoint(v) && (end == -1 || required[v] - arrival[v] < required[end] - arrival[end]))
+				end = v;
+		}
+
+		LinkedList<CellPin> path = new LinkedList<>();
+		for (int v = end; v != -1; ) {
+			path.addFirst(graph.pins[v]);
+			int prev = -1;
+			for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; i++) {
+				int e = graph.inEdges[i];
+				if (!graph.edgeIgnored[e] && arrival[graph.edgeFrom[e]] + edgeDelay[e] == arrival[v]) {
+					prev = graph.edgeFrom[e];
+					break;
+				}
+			}
+			v = prev;
+		}
+		return new ArrayList<>(path);
+	}
+
+	private boolean isEndpoint(int v) {
+		for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; i++) {
+			if (!graph.edgeIgnored[graph.outEdges[i]])
+				return false;
+		}
+		return true;
+	}
+
+	private void checkAnalyzed() {
+		if (rebuild)
+			throw new IllegalStateException("design has not been analyzed");
+	}
+}
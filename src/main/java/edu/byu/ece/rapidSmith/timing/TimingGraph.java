@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing;
+
+import edu.byu.ece.rapidSmith.design.subsite.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Timing graph of a {@link CellDesign} used by the {@link StaticTimingAnalyzer}.
+ * The nodes of the graph are the pins of the leaf cells of the design and the
+ * edges are the connections of the nets, from the source of each net to its sinks,
+ * and the arcs through combinational cells, from each input to each output.
+ * Clock pins are not timed.  The outputs of sequential cells, cells with a clock
+ * pin, start timing paths and their data inputs end them.
+ *
+ * The edges of each net and of each cell are stored contiguously so the delays of
+ * a net or cell can be updated together.  Nodes are grouped into levels such that
+ * every edge leads from a lower level to a higher level.  Edges of combinational
+ * loops that would break this ordering are marked ignored.
+ */
+final class TimingGraph {
+	final CellPin[] pins;
+	final Map<CellPin, Integer> pinIds;
+	final boolean[] sequentialOutput;
+	final boolean[] sequentialInput;
+
+	final int[] edgeFrom;
+	final int[] edgeTo;
+	final boolean[] edgeIgnored;
+	// range of edges of each net and cell, {first, last + 1}
+	final Map<CellNet, int[]> netEdges;
+	final Map<Cell, int[]> cellEdges;
+
+	// edges leaving and entering each node, indexed by outStart/inStart
+	final int[] outStart;
+	final int[] outEdges;
+	final int[] inStart;
+	final int[] inEdges;
+
+	final int[] level;
+	final int[][] levels;
+
+	TimingGraph(CellDesign design) {
+		List<Cell> cells = design.getLeafCells().collect(Collectors.toList());
+
+		List<CellPin> pinList = new ArrayList<>();
+		pinIds = new HashMap<>();
+		Set<Cell> sequential = new HashSet<>();
+		for (Cell cell : cells) {
+			for (CellPin pin : cell.getPins()) {
+				pinIds.put(pin, pinList.size());
+				pinList.add(pin);
+				if (pin.getType() == CellPinType.CLOCK)
+					sequential.add(cell);
+			}
+		}
+		pins = pinList.toArray(new CellPin[pinList.size()]);
+		sequentialOutput = new boolean[pins.length];
+		sequentialInput = new boolean[pins.length];
+		for (int i = 0; i < pins.length; i++) {
+			if (sequential.contains(pins[i].getCell()) && !isClockPin(pins[i])) {
+				sequentialOutput[i] = pins[i].isOutpin();
+				sequentialInput[i] = pins[i].isInpin();
+			}
+		}
+
+		List<int[]> edges = new ArrayList<>();
+		netEdges = new HashMap<>();
+		for (CellNet net : getAllNets(design)) {
+			CellPin source = net.getSourcePin();
+			Integer sourceId = source == null ? null : pinIds.get(source);
+			if (sourceId == null)
+				continue;
+			int first = edges.size();
+			for (CellPin sink : net.getPins()) {
+				Integer sinkId = pinIds.get(sink);
+				if (sink != source && sinkId != null && !isClockPin(sink))
+					edges.add(new int[]{sourceId, sinkId});
+			}
+			netEdges.put(net, new int[]{first, edges.size()});
+		}
+
+		cellEdges = new HashMap<>();
+		for (Cell cell : cells) {
+			if (sequential.contains(cell))
+				continue;
+			int first = edges.size();
+			for (CellPin input : cell.getPins()) {
+				if (!input.isInpin() || isClockPin(input))
+					continue;
+				for (CellPin output : cell.getPins()) {
+					if (output != input && output.isOutpin())
+						edges.add(new int[]{pinIds.get(input), pinIds.get(output)});
+				}
+			}
+			if (edges.size() > first)
+				cellEdges.put(cell, new int[]{first, edges.size()});
+		}
+
+		edgeFrom = new int[edges.size()];
+		edgeTo = new int[edges.size()];
+		edgeIgnored = new boolean[edges.size()];
+		for (int e = 0; e < edges.size(); e++) {
+			edgeFrom[e] = edges.get(e)[0];
+			edgeTo[e] = edges.get(e)[1];
+		}
+
+		outStart = new int[pins.length + 1];
+		inStart = new int[pins.length + 1];
+		outEdges = new int[edgeFrom.length];
+		inEdges = new int[edgeFrom.length];
+		buildAdjacency(edgeFrom, outStart, outEdges);
+		buildAdjacency(edgeTo, inStart, inEdges);
+
+		level = new int[pins.length];
+		levels = levelize();
+	}
+
+	private static boolean isClockPin(CellPin pin) {
+		return pin.getType() == CellPinType.CLOCK;
+	}
+
+	private static Collection<CellNet> getAllNets(CellDesign design) {
+		Set<CellNet> nets = new LinkedHashSet<>(design.getNets());
+		design.getMacros().forEach(m -> nets.addAll(m.getInternalNets()));
+		return nets;
+	}
+
+	private void buildAdjacency(int[] endpoint, int[] start, int[] adjacent) {
+		for (int node : endpoint)
+			start[node + 1]++;
+		for (int i = 0; i < pins.length; i++)
+			start[i + 1] += start[i];
+		int[] next = Arrays.copyOf(start, pins.length);
+		for (int e = 0; e < endpoint.length; e++)
+			adjacent[next[endpoint[e]]++] = e;
+	}
+
+	/**
+	 * Assigns each node a level one greater than the highest level of its drivers.
+	 * Nodes left on combinational loops are released one at a time and their
+	 * incoming edges that close the loop are ignored.
+	 */
+	private int[][] levelize() {
+		int[] remaining = new int[pins.length];
+		for (int e = 0; e < edgeTo.length; e++)
+			remaining[edgeTo[e]]++;
+
+		Deque<Integer> ready = new ArrayDeque<>();
+		for (int v = 0; v < pins.length; v++) {
+			if (remaining[v] == 0)
+				ready.add(v);
+		}
+
+		boolean[] done = new boolean[pins.length];
+		int numDone = 0;
+		int nextLoopNode = 0;
+		while (numDone < pins.length) {
+			if (ready.isEmpty()) {
+				// everything left lies on or after a loop, release a node to break it
+				while (done[nextLoopNode] || remaining[nextLoopNode] == 0)
+					nextLoopNode++;
+				remaining[nextLoopNode] = 0;
+				ready.add(nextLoopNode);
+			}
+			int v = ready.poll();
+			done[v] = true;
+			numDone++;
+			int lvl = 0;
+			for (int i = inStart[v]; i < inStart[v + 1]; i++) {
+				int e = inEdges[i];
+				if (done[edgeFrom[e]] && edgeFrom[e] != v)
+					lvl = Math.max(lvl, level[edgeFrom[e]] + 1);
+				else
+					edgeIgnored[e] = true;
+			}
+			level[v] = lvl;
+			for (int i = outStart[v]; i < outStart[v + 1]; i++) {
+				int to = edgeTo[outEdges[i]];
+				if (!done[to] && --remaining[to] == 0)
+					ready.add(to);
+			}
+		}
+
+		int maxLevel = -1;
+		for (int v = 0; v < pins.length; v++)
+			maxLevel = Math.max(maxLevel, level[v]);
+		int[] sizes = new int[maxLevel + 1];
+		for (int v = 0; v < pins.length; v++)
+			sizes[level[v]]++;
+		int[][] result = new int[maxLevel + 1][];
+		for (int l = 0; l <= maxLevel; l++)
+			result[l] = new int[sizes[l]];
+		Arrays.fill(sizes, 0);
+		for (int v = 0; v < pins.length; v++)
+			result[level[v]][sizes[level[v]]++] = v;
+		return result;
+	}
+
+	int size() {
+		return pins.length;
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.timing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.byu.ece.rapidSmith.util.Exceptions;
+
+/**
+ * On-disk index of the paths in a TWR timing report.  The index records the byte
+ * offset of each path in the report along with the delay (or offset) from the
+ * first line of the path, allowing the worst paths of a report to be parsed
+ * without parsing the rest of the report.  Building the index only reads the
+ * first line of each path.
+ *
+ * The index stores the length and modification time of the report it was built
+ * from and refuses to load if the report has since changed.
+ */
+public final class TraceReportIndex {
+	private static final int MAGIC = 0x54575249; // "TWRI"
+	private static final int VERSION = 1;
+
+	private static final byte DELAY_KIND = 0;
+	private static final byte OFFSET_KIND = 1;
+
+	/** Size in bytes of the magic number, version, report length, modification time and path count */
+	private static final long HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+	/** Size in bytes of the offset, kind and value of each path */
+	private static final long ENTRY_SIZE = 8 + 1 + 4;
+
+	private final String twrFileName;
+	private final long[] offsets;
+	private final byte[] kinds;
+	private final float[] values;
+
+	private TraceReportIndex(String twrFileName, long[] offsets, byte[] kinds, float[] values) {
+		this.twrFileName = twrFileName;
+		this.offsets = offsets;
+		this.kinds = kinds;
+		this.values = values;
+	}
+
+	/**
+	 * Scans the report and writes an index of its paths to the index file.
+	 *
+	 * @param twrFileName the report to index
+	 * @param indexFileName the file to write the index to
+	 * @return the index of the report
+	 * @throws IOException if an error occurs reading the report or writing the index
+	 */
+	public static TraceReportIndex build(String twrFileName, String indexFileName) throws IOException {
+		long[] offsets = new long[1024];
+		byte[] kinds = new byte[1024];
+		float[] values = new float[1024];
+		int size = 0;
+
+		try (TraceReportParser.LineReader br = new TraceReportParser.LineReader(twrFileName, 0)) {
+			long position = br.getPosition();
+			String line;
+			while ((line = br.readLine()) != null) {
+				byte kind;
+				if (line.startsWith(TraceReportParser.DELAY))
+					kind = DELAY_KIND;
+				else if (line.startsWith(TraceReportParser.OFFSET))
+					kind = OFFSET_KIND;
+				else {
+					position = br.getPosition();
+					continue;
+				}
+
+				if (size == offsets.length) {
+					offsets = Arrays.copyOf(offsets, size * 2);
+					kinds = Arrays.copyOf(kinds, size * 2);
+					values = Arrays.copyOf(values, size * 2);
+				}
+				// Delay:                  4.867ns (data path - clock path skew + uncertainty)
+				String[] parts = line.split("\\s+");
+				offsets[size] = position;
+				kinds[size] = kind;
+				values[size] = Float.parseFloat(parts[1].substring(0, parts[1].length()-2));
+				size++;
+				position = br.getPosition();
+			}
+		}
+
+		TraceReportIndex index = new TraceReportIndex(twrFileName,
+				Arrays.copyOf(offsets, size), Arrays.copyOf(kinds, size), Arrays.copyOf(values, size));
+		index.write(indexFileName);
+		return index;
+	}
+
+	/**
+	 * Loads a previously built index of the report.
+	 *
+	 * @param twrFileName the report the index was built from
+	 * @param indexFileName the index file
+	 * @return the index of the report
+	 * @throws IOException if an error occurs reading the index
+	 * @throws Exceptions.FileFormatException if the file is not an index, is
+	 *   truncated or corrupt, or the report has changed since the index was built
+	 */
+	public static TraceReportIndex load(String twrFileName, String indexFileName) throws IOException {
+		File twr = new File(twrFileName);
+		long indexLength = new File(indexFileName).length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(indexFileName)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new Exceptions.FileFormatException("not a trace report index: " + indexFileName);
+			if (in.readLong() != twr.length() || in.readLong() != twr.lastModified())
+				throw new Exceptions.FileFormatException("trace report index " + indexFileName +
+						" is out of date with " + twrFileName);
+
+			int size = in.readInt();
+			if (size < 0 || indexLength != HEADER_SIZE + size * ENTRY_SIZE)
+				throw new Exceptions.FileFormatException("trace report index " + indexFileName +
+						" is corrupt");
+			long[] offsets = new long[size];
+			byte[] kinds = new byte[size];
+			float[] values = new float[size];
+			for (int i = 0; i < size; i++) {
+				offsets[i] = in.readLong();
+				kinds[i] = in.readByte();
+				values[i] = in.readFloat();
+				if (offsets[i] < 0 || offsets[i] >= twr.length() ||
+						(kinds[i] != DELAY_KIND && kinds[i] != OFFSET_KIND))
+					throw new Exceptions.FileFormatException("trace report index " + indexFileName +
+							" is corrupt");
+			}
+			return new TraceReportIndex(twrFileName, offsets, kinds, values);
+		} catch (EOFException e) {
+			throw new Exceptions.FileFormatException("trace report index " + indexFileName +
+					" is truncated", e);
+		}
+	}
+
+	/**
+	 * Loads the index of the report if an up to date index exists, otherwise builds
+	 * and writes a new index.
+	 *
+	 * @param twrFileName the report to index
+	 * @param indexFileName the index file
+	 * @return the index of the report
+	 * @throws IOException if an error occurs reading the report or the index
+	 */
+	public static TraceReportIndex open(String twrFileName, String indexFileName) throws IOException {
+		if (new File(indexFileName).exists()) {
+			try {
+				return load(twrFileName, indexFileName);
+			} catch (Exceptions.FileFormatException e) {
+				// stale, truncated or corrupt index, rebuild it below
+			}
+		}
+		return build(twrFileName, indexFileName);
+	}
+
+	private void write(String indexFileName) throws IOException {
+		File twr = new File(twrFileName);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(indexFileName)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(twr.length());
+			out.writeLong(twr.lastModified());
+			out.writeInt(offsets.length);
+			for (int i = 0; i < offsets.length; i++) {
+				out.writeLong(offsets[i]);
+				out.writeByte(kinds[i]);
+				out.writeFloat(values[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of paths in the report
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * @param i index of a path in the order the paths appear in the report
+	 * @return true if the path is a {@link PathDelay}, false if it is a {@link PathOffset}
+	 */
+	public boolean isPathDelay(int i) {
+		return kinds[i] == DELAY_KIND;
+	}
+
+	/**
+	 * Returns the delay of a {@link PathDelay} or the offset of a
+	 * {@link PathOffset} without parsing the path.
+	 *
+	 * @param i index of a path in the order the paths appear in the report
+	 * @return the delay or offset of the path in ns
+	 */
+	public float getDelay(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Parses the path from the report.  The names in the path are not resolved.
+	 *
+	 * @param i index of a path in the order the paths appear in the report
+	 * @return the parsed path
+	 * @throws IOException if an error occurs reading the report
+	 */
+	public Path getPath(int i) throws IOException {
+		return TraceReportParser.parsePathAt(twrFileName, offsets[i]);
+	}
+
+	/**
+	 * Parses the {@code n} paths with the largest delays or offsets in the report,
+	 * ordered from the worst path.  The names in the paths are not resolved.
+	 *
+	 * @param n the number of paths to return
+	 * @return up to {@code n} of the worst paths in the report
+	 * @throws IOException if an error occurs reading the report
+	 */
+	public List<Path> getWorstPaths(int n) throws IOException {
+		Integer[] order = new Integer[offsets.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Float.compare(values[b], values[a]));
+
+		long[] worst = new long[Math.min(n, order.length)];
+		for (int i = 0; i < worst.length; i++)
+			worst[i] = offsets[order[i]];
+		return TraceReportParser.parsePathsAt(twrFileName, worst);
+	}
+}
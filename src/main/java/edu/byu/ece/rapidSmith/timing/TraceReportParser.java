@@ -17,22 +17,39 @@
  * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
  * also get a copy of the license at <http://www.gnu.org/licenses/>.
  */
-package edu.byu.ece.rapidSmith.timing;
 
-import java.io.BufferedReader;
+package edu.byu.ece.rapidSmith.timing;
 
-import java.io.FileReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.byu.ece.rapidSmith.design.xdl.XdlDesign;
-import edu.byu.ece.rapidSmith.design.xdl.XdlInstance;
-import edu.byu.ece.rapidSmith.design.xdl.XdlNet;
-import edu.byu.ece.rapidSmith.design.xdl.XdlPin;
 import edu.byu.ece.rapidSmith.interfaces.ise.XDLReader;
-import edu.byu.ece.rapidSmith.util.Exceptions;
 
+/**
+ * Parses the paths in timing reports (TWR) produced by Xilinx Trace (trce).
+ * The {@code parseTWR} methods that do not take a consumer read the entire report
+ * into {@link #getPathDelays()} and {@link #getPathOffsets()}, resolving the
+ * names in each path against the design if one is given.  For large reports,
+ * {@link #parseTWR(String, Consumer)} and {@link #streamTWR(String)} hand each path
+ * over as soon as it is parsed and leave the names unresolved until
+ * {@link Path#resolve(XdlDesign)} is called.  {@link TraceReportIndex} provides
+ * random access to the worst paths of a report without parsing the whole report.
+ */
 public class TraceReportParser{
 	
 	public static final String DELAY = "Delay:";
@@ -40,9 +57,6 @@ public class TraceReportParser{
 	
 	private XdlDesign design = null;
 
-	private BufferedReader br;
-	private String line;
-
 	private ArrayList<PathDelay> pathDelays;
 	private ArrayList<PathOffset> pathOffsets;
 	
@@ -73,190 +87,366 @@ public class TraceReportParser{
 	public void parseTWR(String twrFileName) throws IOException {
 		pathDelays = new ArrayList<>();
 		pathOffsets = new ArrayList<>();
-		
-		try (BufferedReader br = new BufferedReader(new FileReader(twrFileName))) {
-			this.br = br;
-			while((line = br.readLine()) != null){
-				if(line.startsWith(DELAY)){
-					pathDelays.add(parsePathStatement());
-				}
-				else if(line.startsWith(OFFSET)){
-					pathOffsets.add(parseOffsetStatement(line));
+
+		parseTWR(twrFileName, path -> {
+			if (design != null)
+				path.resolve(design);
+			if (path instanceof PathDelay)
+				pathDelays.add((PathDelay) path);
+			else
+				pathOffsets.add((PathOffset) path);
+		});
+	}
+
+	/**
+	 * Parses the report, passing each path to the consumer as soon as it has been
+	 * parsed.  The paths are not retained by the parser and the names in the paths
+	 * are not resolved.
+	 *
+	 * @param twrFileName the report to parse
+	 * @param consumer consumer of the {@link PathDelay}s and {@link PathOffset}s
+	 *   in the report
+	 * @throws IOException if an error occurs reading the report
+	 */
+	public void parseTWR(String twrFileName, Consumer<? super Path> consumer) throws IOException {
+		try (PathReader reader = new PathReader(twrFileName, 0)) {
+			Path path;
+			while ((path = reader.next()) != null)
+				consumer.accept(path);
+		}
+	}
+
+	/**
+	 * Returns a lazily populated stream of the paths in the report.  The report is
+	 * read as the stream is consumed and must be closed by closing the stream.
+	 * The names in the paths are not resolved.
+	 *
+	 * @param twrFileName the report to parse
+	 * @return stream of the {@link PathDelay}s and {@link PathOffset}s in the report
+	 * @throws IOException if the report cannot be opened
+	 */
+	public Stream<Path> streamTWR(String twrFileName) throws IOException {
+		PathReader reader = new PathReader(twrFileName, 0);
+		Spliterator<Path> spliterator = new Spliterators.AbstractSpliterator<Path>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super Path> action) {
+				Path path;
+				try {
+					path = reader.next();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
 				}
+				if (path == null)
+					return false;
+				action.accept(path);
+				return true;
 			}
-		}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
 	}
-	
-	
-	private String[] getNextLineTokens() {
-		line = null;
-		try {
-			line = br.readLine();
-		} catch (IOException e) {
-			e.printStackTrace();
+
+	/**
+	 * Parses the single path whose header line starts at the offset in the report.
+	 *
+	 * @param twrFileName the report
+	 * @param offset byte offset of the {@link #DELAY} or {@link #OFFSET} line
+	 * @return the path at the offset with its names unresolved
+	 * @throws IOException if an error occurs reading the report
+	 */
+	static Path parsePathAt(String twrFileName, long offset) throws IOException {
+		try (PathReader reader = new PathReader(twrFileName, offset)) {
+			return reader.next();
 		}
-		return line.split("\\s+");
 	}
-	
-	private PathOffset parseOffsetStatement(String line){
-		PathOffset curr = new PathOffset();
-		String[] parts;
 
-		// Offset:                 -2.114ns (data path - clock path + uncertainty)
-		parts = line.split("\\s+");
-		curr.setOffset(Float.parseFloat(parts[1].substring(0, parts[1].length()-2)));
-		
-		// Source:               Gateway_In(4) (PAD)
-		parts = getNextLineTokens();
-		curr.setSource(parts[2]);
-		
-		// Destination:          sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk00000423 (FF)
-		parts = getNextLineTokens();
-		curr.setDestination(parts[2]);
-
-		// Destination Clock:    clk_net rising
-		parts = getNextLineTokens();
-		if(design != null) curr.setDestinationClock(design.getNet(parts[3]));
-
-		// Data Path Delay:      3.437ns (Levels of Logic = 2)
-		parts = getNextLineTokens();
-		curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
-		curr.setLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
-
-		// Clock Path Delay:     5.551ns (Levels of Logic = 2)
-		parts = getNextLineTokens();
-		curr.setClockPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
-		curr.setClockLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
-
-		// Clock Uncertainty:    0.000ns
-		parts = getNextLineTokens();
-		curr.setClockUncertainty(Float.parseFloat(parts[3].substring(0, parts[3].length()-2)));			
-		
-		curr.setMaxDataPath(parsePathElements());
-		curr.setMinDataPath(parsePathElements());
-		
-		return curr;
+	/**
+	 * Parses the paths whose header lines start at the offsets in the report.  The
+	 * report is opened once for all of the paths.
+	 *
+	 * @param twrFileName the report
+	 * @param offsets byte offsets of the {@link #DELAY} or {@link #OFFSET} lines
+	 * @return the paths at the offsets, in the order of the offsets
+	 * @throws IOException if an error occurs reading the report
+	 */
+	static List<Path> parsePathsAt(String twrFileName, long[] offsets) throws IOException {
+		List<Path> paths = new ArrayList<>(offsets.length);
+		try (PathReader reader = new PathReader(twrFileName, 0)) {
+			for (long offset : offsets) {
+				reader.seek(offset);
+				paths.add(reader.next());
+			}
+		}
+		return paths;
 	}
-	
-	private PathDelay parsePathStatement(){
-		PathDelay curr = new PathDelay();
-		String[] parts;
-		
-		// Delay:                  4.867ns (data path - clock path skew + uncertainty)
-		parts = line.split("\\s+");
-		curr.setDelay(Float.parseFloat(parts[1].substring(0, parts[1].length()-2)));
 
-		// Source:               sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk00000366 (FF)
-		parts = getNextLineTokens();
-		curr.setSource(parts[2]);
-		
-		// Destination:          sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk0000033a (FF)
-		parts = getNextLineTokens();
-		curr.setDestination(parts[2]);
-		
-		// Data Path Delay:      4.867ns (Levels of Logic = 14)
-		parts = getNextLineTokens();
-		curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
-		curr.setLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
-		
-		// Clock Path Skew:      0.000ns
-		parts = getNextLineTokens();
-		curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
-		
-		// Source Clock:         clk_net rising
-		parts = getNextLineTokens();
-		if(design != null) curr.setSourceClock(design.getNet(parts[3]));
-		
-		// Destination Clock:    clk_net rising
-		parts = getNextLineTokens();
-		if(design != null) curr.setDestinationClock(design.getNet(parts[3]));
-		
-		// Clock Uncertainty:    0.000ns
-		parts = getNextLineTokens();
-		curr.setClockUncertainty(Float.parseFloat(parts[3].substring(0, parts[3].length()-2)));
-		curr.setMaxDataPath(parsePathElements());
+	/**
+	 * Reads lines of a report while tracking the byte offset of each line.
+	 * Reports are ASCII so each byte is decoded as a single character.
+	 */
+	static final class LineReader implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer in = ByteBuffer.allocate(1 << 16);
+		private long position;
+		private byte[] buffer = new byte[256];
+
+		LineReader(String fileName, long offset) throws IOException {
+			this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			seek(offset);
+		}
+
+		/**
+		 * Moves the reader to the offset, discarding any buffered bytes.
+		 *
+		 * @param offset byte offset of the next line to read
+		 */
+		void seek(long offset) throws IOException {
+			channel.position(offset);
+			in.clear().limit(0);
+			position = offset;
+		}
+
+		/**
+		 * @return the byte offset of the next line
+		 */
+		long getPosition() {
+			return position;
+		}
 
-		return curr;
+		/**
+		 * @return the next line without its terminator or null at the end of the file
+		 */
+		String readLine() throws IOException {
+			int length = 0;
+			int b;
+			while ((b = read()) != -1) {
+				position++;
+				if (b == '\n')
+					break;
+				if (length == buffer.length)
+					buffer = Arrays.copyOf(buffer, length * 2);
+				buffer[length++] = (byte) b;
+			}
+			if (b == -1 && length == 0)
+				return null;
+			if (length > 0 && buffer[length - 1] == '\r')
+				length--;
+			return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+		}
+
+		private int read() throws IOException {
+			if (!in.hasRemaining()) {
+				in.clear();
+				int n = channel.read(in);
+				in.flip();
+				if (n <= 0)
+					return -1;
+			}
+			return in.get() & 0xFF;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
 	}
-	
-	private ArrayList<PathElement> parsePathElements(){
-		ArrayList<PathElement> currPath = new ArrayList<>();
-		String[] parts;
-		String dashedLine = "-------------------------------------------------";
-		// Move forward to the ------ line
-		while(!line.contains(dashedLine)){
-			getNextLineTokens();
-		}		
-		parts = getNextLineTokens();
-		
-		// Parse the path elements
-		PathElement currElement = null;
-		while(!line.contains(dashedLine)){
-			String pinName = parts[1].substring(parts[1].indexOf('.')+1);
-			if(parts.length > 2){
-				if(parts[2].equals("net")){
-					String siteName = parts[1].substring(0, parts[1].indexOf('.'));
-
-					currElement = new RoutingPathElement();
-					currElement.setType("net");
-					int offset = 0;
-					if(parts[4].equals("e")){
-						offset = 1;
+
+	/**
+	 * Parses the paths of a report one at a time.
+	 */
+	private static final class PathReader implements Closeable {
+		private final LineReader br;
+		private String line;
+
+		PathReader(String twrFileName, long offset) throws IOException {
+			this.br = new LineReader(twrFileName, offset);
+		}
+
+		/**
+		 * Moves the reader to the offset of the next path to parse.
+		 */
+		void seek(long offset) throws IOException {
+			br.seek(offset);
+		}
+
+		/**
+		 * @return the next path in the report or null if there are no more paths
+		 */
+		Path next() throws IOException {
+			try {
+				while((line = br.readLine()) != null){
+					if(line.startsWith(DELAY)){
+						return parsePathStatement();
 					}
-					
-					currElement.setDelay(Float.parseFloat(parts[4+offset]));
-					if(design != null){
-						XdlNet net = design.getNet(parts[5+offset]);
-						if(net == null){
-							throw new Exceptions.FileFormatException("no net \"" + parts[4+offset] + "in design");
-						}
-						((RoutingPathElement)currElement).setNet(net);
-						for(XdlPin p : net.getPins()){
-							if(p.getName().equals(pinName) && p.getInstance().getSiteName().equals(siteName)){
-								currElement.setPin(p);
-								break;
-							}
-						}
+					else if(line.startsWith(OFFSET)){
+						return parseOffsetStatement(line);
 					}
-					
 				}
-				else{
-					currElement = new LogicPathElement();
-					if(parts.length < 5){
-						String[] newParts = new String[5];
-						newParts[1] = parts[1].substring(0, 21);
-						newParts[2] = parts[1].substring(21);
-						newParts[3] = parts[2];
-						newParts[4] = parts[3];
-						parts = newParts;
-					}
-					currElement.setType(parts[2]);
-					//System.out.println("line="+line+", parts=" + parts.length);
-					if(design != null){
-						XdlInstance instance = design.getInstance(parts[4]);
-						((LogicPathElement)currElement).setInstance(instance);
-						if(instance == null){
-							throw new Exceptions.FileFormatException("no instance \"" + parts[4] + " in design");
+			} catch (UncheckedIOException e) {
+				// thrown by the line reads within a path
+				throw e.getCause();
+			}
+			return null;
+		}
+
+		@Override
+		public void close() throws IOException {
+			br.close();
+		}
+
+		private String[] getNextLineTokens() {
+			try {
+				line = br.readLine();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return line.split("\\s+");
+		}
+
+		private PathOffset parseOffsetStatement(String line){
+			PathOffset curr = new PathOffset();
+			String[] parts;
+
+			// Offset:                 -2.114ns (data path - clock path + uncertainty)
+			parts = line.split("\\s+");
+			curr.setOffset(Float.parseFloat(parts[1].substring(0, parts[1].length()-2)));
+
+			// Source:               Gateway_In(4) (PAD)
+			parts = getNextLineTokens();
+			curr.setSource(parts[2]);
+
+			// Destination:          sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk00000423 (FF)
+			parts = getNextLineTokens();
+			curr.setDestination(parts[2]);
+
+			// Destination Clock:    clk_net rising
+			parts = getNextLineTokens();
+			curr.setDestinationClockName(parts[3]);
+
+			// Data Path Delay:      3.437ns (Levels of Logic = 2)
+			parts = getNextLineTokens();
+			curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
+			curr.setLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
+
+			// Clock Path Delay:     5.551ns (Levels of Logic = 2)
+			parts = getNextLineTokens();
+			curr.setClockPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
+			curr.setClockLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
+
+			// Clock Uncertainty:    0.000ns
+			parts = getNextLineTokens();
+			curr.setClockUncertainty(Float.parseFloat(parts[3].substring(0, parts[3].length()-2)));
+
+			curr.setMaxDataPath(parsePathElements());
+			curr.setMinDataPath(parsePathElements());
+
+			return curr;
+		}
+
+		private PathDelay parsePathStatement(){
+			PathDelay curr = new PathDelay();
+			String[] parts;
+
+			// Delay:                  4.867ns (data path - clock path skew + uncertainty)
+			parts = line.split("\\s+");
+			curr.setDelay(Float.parseFloat(parts[1].substring(0, parts[1].length()-2)));
+
+			// Source:               sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk00000366 (FF)
+			parts = getNextLineTokens();
+			curr.setSource(parts[2]);
+
+			// Destination:          sysgen_mult_x0/mult/comp0.core_instance0/blk00000003/blk0000033a (FF)
+			parts = getNextLineTokens();
+			curr.setDestination(parts[2]);
+
+			// Data Path Delay:      4.867ns (Levels of Logic = 14)
+			parts = getNextLineTokens();
+			curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
+			curr.setLevelsOfLogic(Integer.parseInt(parts[9].substring(0, parts[9].length()-1)));
+
+			// Clock Path Skew:      0.000ns
+			parts = getNextLineTokens();
+			curr.setDataPathDelay(Float.parseFloat(parts[4].substring(0, parts[4].length()-2)));
+
+			// Source Clock:         clk_net rising
+			parts = getNextLineTokens();
+			curr.setSourceClockName(parts[3]);
+
+			// Destination Clock:    clk_net rising
+			parts = getNextLineTokens();
+			curr.setDestinationClockName(parts[3]);
+
+			// Clock Uncertainty:    0.000ns
+			parts = getNextLineTokens();
+			curr.setClockUncertainty(Float.parseFloat(parts[3].substring(0, parts[3].length()-2)));
+			curr.setMaxDataPath(parsePathElements());
+
+			return curr;
+		}
+
+		private ArrayList<PathElement> parsePathElements(){
+			ArrayList<PathElement> currPath = new ArrayList<>();
+			String[] parts;
+			String dashedLine = "-------------------------------------------------";
+			// Move forward to the ------ line
+			while(!line.contains(dashedLine)){
+				getNextLineTokens();
+			}
+			parts = getNextLineTokens();
+
+			// Parse the path elements
+			PathElement currElement = null;
+			while(!line.contains(dashedLine)){
+				String pinName = parts[1].substring(parts[1].indexOf('.')+1);
+				if(parts.length > 2){
+					if(parts[2].equals("net")){
+						RoutingPathElement routing = new RoutingPathElement();
+						routing.setType("net");
+						int offset = 0;
+						if(parts[4].equals("e")){
+							offset = 1;
 						}
-						XdlPin p = instance.getPin(pinName);
-						if(p == null){
-							throw new Exceptions.FileFormatException("no pin \"" + pinName + " in instance " + parts[4]);
+
+						routing.setDelay(Float.parseFloat(parts[4+offset]));
+						routing.setPinName(pinName);
+						routing.setSiteName(parts[1].substring(0, parts[1].indexOf('.')));
+						routing.setNetName(parts[5+offset]);
+						currElement = routing;
+					}
+					else{
+						LogicPathElement logic = new LogicPathElement();
+						if(parts.length < 5){
+							String[] newParts = new String[5];
+							newParts[1] = parts[1].substring(0, 21);
+							newParts[2] = parts[1].substring(21);
+							newParts[3] = parts[2];
+							newParts[4] = parts[3];
+							parts = newParts;
 						}
-						currElement.setPin(p);						
+						logic.setType(parts[2]);
+						logic.setPinName(pinName);
+						logic.setInstanceName(parts[4]);
+						logic.setDelay(Float.parseFloat(parts[3]));
+						currElement = logic;
 					}
-					currElement.setDelay(Float.parseFloat(parts[3]));
+
+					currPath.add(currElement);
 				}
-				
-				currPath.add(currElement);
-			}
-			else{
-				((LogicPathElement)currElement).addLogicalResource(parts[parts.length-1]);
+				else{
+					((LogicPathElement)currElement).addLogicalResource(parts[parts.length-1]);
+				}
+				parts = getNextLineTokens();
 			}
-			parts = getNextLineTokens();
+			getNextLineTokens();
+
+			return currPath;
 		}
-		getNextLineTokens();
-		
-		return currPath;
 	}
 	
 	
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.device.Bel;
+import edu.byu.ece.rapidSmith.device.BelPin;
+import edu.byu.ece.rapidSmith.device.PIP;
+import edu.byu.ece.rapidSmith.util.DesignDiffer.Difference;
+import edu.byu.ece.rapidSmith.util.DesignDiffer.DifferenceTree;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares two {@link CellDesign}s, such as the design before and after a
+ * transformation or two checkpoints of the same design.  Cells are matched by
+ * name and compared by type, placement and pin mappings; nets are matched by name
+ * and compared by their connected pins and the PIPs of their intersite
+ * {@code RouteTree}s.  Differences are reported the same way as
+ * {@link DesignDiffer}: a subtraction is an element of design1 missing from
+ * design2 and an addition is an element of design2 missing from design1.
+ * <p>
+ * The cells and nets are compared in shards on {@link #setParallelism(int)
+ * parallelism} threads and the differences of the shards are merged in the
+ * iteration order of the first design, so the report does not depend on the
+ * parallelism.  PIPs are compared by their wires, so both designs should be
+ * implemented on the same {@code Device} instance, ie. one loaded through
+ * {@code RSEnvironment}.
+ */
+public class CellDesignDiffer {
+	/** Number of cells or nets compared by each parallel task */
+	private static final int SHARD_SIZE = 512;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Sets the number of threads used to compare designs.  A parallelism of one
+	 * compares designs sequentially.  Defaults to the number of available processors.
+	 *
+	 * @param parallelism the number of threads to use
+	 * @return this differ
+	 */
+	public CellDesignDiffer setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Compares two designs and returns the differences.
+	 *
+	 * @param design1 First design to compare.
+	 * @param design2 Second design to compare.
+	 */
+	public DifferenceTree diffDesigns(CellDesign design1, CellDesign design2) {
+		DifferenceTree diffs = new DifferenceTree(design1.getName(), "design");
+
+		if (!Objects.equals(design1.getName(), design2.getName()))
+			diffs.add(Difference.change("name", design1.getName(), design2.getName()));
+		if (!Objects.equals(design1.getPartName(), design2.getPartName()))
+			diffs.add(Difference.change("part", design1.getPartName(), design2.getPartName()));
+
+		// macros and leaf cells, including the internal cells of macros
+		List<Cell> cells1 = allCells(design1);
+		List<Cell> cells2 = allCells(design2);
+		merge(diffs, cells1, cell1 -> {
+			Cell cell2 = design2.getCell(cell1.getName());
+			if (cell2 == null)
+				return Difference.subtraction("cell", cell1.getName());
+			return diffCells(cell1, cell2);
+		});
+		merge(diffs, cells2, cell2 -> design1.hasCell(cell2.getName()) ?
+			null : Difference.addition("cell", cell2.getName()));
+
+		List<CellNet> nets1 = new ArrayList<>(design1.getNets());
+		List<CellNet> nets2 = new ArrayList<>(design2.getNets());
+		merge(diffs, nets1, net1 -> {
+			CellNet net2 = design2.getNet(net1.getName());
+			if (net2 == null)
+				return Difference.subtraction("net", net1.getName());
+			return diffNets(net1, net2);
+		});
+		merge(diffs, nets2, net2 -> design1.hasNet(net2.getName()) ?
+			null : Difference.addition("net", net2.getName()));
+
+		return diffs;
+	}
+
+	private static List<Cell> allCells(CellDesign design) {
+		return Stream.concat(design.getMacros(), design.getLeafCells())
+			.collect(Collectors.toList());
+	}
+
+	/*
+	 * Runs compare on each element in shards and adds the differences to diffs.
+	 * compare returns a Difference, a DifferenceTree or null if there is no difference.
+	 */
+	private <T> void merge(DifferenceTree diffs, List<T> elements, Function<T, Object> compare) {
+		List<DifferenceTree> shards = Shards.map(elements, SHARD_SIZE, parallelism,
+			"CellDesignDiffer", shard -> {
+				DifferenceTree shardDiffs = new DifferenceTree("", "");
+				for (T element : shard) {
+					Object diff = compare.apply(element);
+					if (diff instanceof Difference) {
+						shardDiffs.add((Difference) diff);
+					} else if (diff instanceof DifferenceTree) {
+						if (!((DifferenceTree) diff).isEmpty())
+							shardDiffs.addChild((DifferenceTree) diff);
+					}
+				}
+				return shardDiffs;
+			});
+		for (DifferenceTree shard : shards)
+			diffs.addAll(shard);
+	}
+
+	/**
+	 * Compares the type, placement and pin mappings of two cells.
+	 *
+	 * @param cell1 First cell to compare.
+	 * @param cell2 Second cell to compare.
+	 */
+	public DifferenceTree diffCells(Cell cell1, Cell cell2) {
+		DifferenceTree diffs = new DifferenceTree(cell1.getName(), "cell");
+		if (!cell1.getType().equals(cell2.getType()))
+			diffs.add(Difference.change("type", cell1.getType(), cell2.getType()));
+		if (!Objects.equals(cell1.getBel(), cell2.getBel()))
+			diffs.add(Difference.change("bel", belName(cell1.getBel()), belName(cell2.getBel())));
+
+		for (CellPin pin1 : cell1.getPins()) {
+			CellPin pin2 = cell2.getPin(pin1.getName());
+			if (pin2 == null) {
+				diffs.add(Difference.subtraction("pin", pin1.getName()));
+				continue;
+			}
+			Set<BelPin> belPins1 = pin1.getMappedBelPins();
+			Set<BelPin> belPins2 = pin2.getMappedBelPins();
+			if (!belPins1.equals(belPins2)) {
+				DifferenceTree pinDiffs = new DifferenceTree(pin1.getName(), "pin");
+				pinDiffs.add(Difference.change("bel pins", belPinNames(belPins1), belPinNames(belPins2)));
+				diffs.addChild(pinDiffs);
+			}
+		}
+		for (CellPin pin2 : cell2.getPins()) {
+			if (cell1.getPin(pin2.getName()) == null)
+				diffs.add(Difference.addition("pin", pin2.getName()));
+		}
+		return diffs;
+	}
+
+	private static String belName(Bel bel) {
+		return bel == null ? "unplaced" : bel.getFullName();
+	}
+
+	private static String belPinNames(Set<BelPin> belPins) {
+		return belPins.stream()
+			.map(bp -> bp.getBel().getFullName() + "/" + bp.getName())
+			.sorted()
+			.collect(Collectors.joining(" ", "[", "]"));
+	}
+
+	/**
+	 * Compares the connected pins and the PIPs of the intersite routing of two nets.
+	 *
+	 * @param net1 First net to compare.
+	 * @param net2 Second net to compare.
+	 */
+	public DifferenceTree diffNets(CellNet net1, CellNet net2) {
+		DifferenceTree diffs = new DifferenceTree(net1.getName(), "net");
+		if (net1.getType() != net2.getType())
+			diffs.add(Difference.change("type", net1.getType().toString(), net2.getType().toString()));
+
+		// pins and PIPs are kept in hash sets, so the differences are reported in name order
+		Set<String> pins2 = pinNames(net2);
+		for (String pin1 : pinNames(net1)) {
+			if (!pins2.remove(pin1))
+				diffs.add(Difference.subtraction("pin", pin1));
+		}
+		for (String pin2 : pins2)
+			diffs.add(Difference.addition("pin", pin2));
+
+		Set<PIP> pips2 = new HashSet<>(net2.getPips());
+		List<String> removedPips = new ArrayList<>();
+		for (PIP pip1 : net1.getPips()) {
+			if (!pips2.remove(pip1))
+				removedPips.add(pip1.toString());
+		}
+		Collections.sort(removedPips);
+		for (String pip1 : removedPips)
+			diffs.add(Difference.subtraction("pip", pip1));
+		pips2.stream().map(PIP::toString).sorted()
+			.forEach(pip2 -> diffs.add(Difference.addition("pip", pip2)));
+		return diffs;
+	}
+
+	private static Set<String> pinNames(CellNet net) {
+		Set<String> names = new TreeSet<>();
+		for (CellPin pin : net.getPins())
+			names.add(pin.getFullName());
+		return names;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util;
+
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.design.subsite.RouteTree;
+import edu.byu.ece.rapidSmith.device.BelPin;
+import edu.byu.ece.rapidSmith.device.Site;
+import edu.byu.ece.rapidSmith.device.SitePin;
+import edu.byu.ece.rapidSmith.device.Wire;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks the internal consistency of a {@link CellDesign}.  The verifier is meant
+ * to be run after each transformation of a design and reports:
+ * <ul>
+ *   <li>pins in a net that do not point back to the net,</li>
+ *   <li>BEL pin route trees that do not reach their BEL pin,</li>
+ *   <li>routed sinks without a route tree to one of their BEL pins,</li>
+ *   <li>sink site pins not reached by the intersite routing of the net,</li>
+ *   <li>wires used by the intersite routing of more than one net, and</li>
+ *   <li>cells at a site whose placement or pin mappings disagree with the site.</li>
+ * </ul>
+ * Nets and used sites are checked in shards on {@link #setParallelism(int)
+ * parallelism} threads and the errors are merged into one {@link Report} in the
+ * iteration order of the design, so the report does not depend on the parallelism.
+ * The shards only read the design, which must not be modified during verification.
+ */
+public class CellDesignVerifier {
+	/** Number of nets or sites checked by each parallel task */
+	private static final int SHARD_SIZE = 256;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Sets the number of threads used to verify designs.  A parallelism of one
+	 * verifies designs sequentially.  Defaults to the number of available processors.
+	 *
+	 * @param parallelism the number of threads to use
+	 * @return this verifier
+	 */
+	public CellDesignVerifier setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Verifies the design.
+	 *
+	 * @param design the design to verify
+	 * @return a report of the errors found in the design
+	 */
+	public Report verify(CellDesign design) {
+		List<String> errors = new ArrayList<>();
+
+		// the first net to use each intersite wire and the nets of the wires used by more than one
+		Map<Wire, CellNet> wireUsers = new ConcurrentHashMap<>();
+		Map<Wire, Set<CellNet>> conflicts = new ConcurrentHashMap<>();
+		List<CellNet> nets = new ArrayList<>(design.getNets());
+		for (List<String> shard : Shards.map(nets, SHARD_SIZE, parallelism, "CellDesignVerifier",
+				s -> verifyNets(s, wireUsers, conflicts)))
+			errors.addAll(shard);
+
+		List<String> conflictErrors = new ArrayList<>(conflicts.size());
+		conflicts.forEach((wire, users) -> {
+			List<String> names = new ArrayList<>();
+			for (CellNet net : users)
+				names.add(net.getName());
+			Collections.sort(names);
+			conflictErrors.add("Wire " + wire.getFullName() + " is used by nets " + names);
+		});
+		Collections.sort(conflictErrors);
+		errors.addAll(conflictErrors);
+
+		List<Site> sites = new ArrayList<>(design.getUsedSites());
+		int placedCells = 0;
+		for (List<String> shard : Shards.map(sites, SHARD_SIZE, parallelism, "CellDesignVerifier",
+				s -> verifySites(design, s)))
+			errors.addAll(shard);
+		for (Site site : sites)
+			placedCells += design.getCellsAtSite(site).size();
+		long placedLeafCells = design.getLeafCells().filter(Cell::isPlaced).count();
+		if (placedLeafCells != placedCells) {
+			errors.add("Design has " + placedLeafCells + " placed cells but " +
+				placedCells + " cells at its used sites");
+		}
+
+		return new Report(errors);
+	}
+
+	private static List<String> verifyNets(
+		List<CellNet> nets, Map<Wire, CellNet> wireUsers, Map<Wire, Set<CellNet>> conflicts
+	) {
+		List<String> errors = new ArrayList<>();
+		for (CellNet net : nets) {
+			for (CellPin pin : net.getPins()) {
+				if (pin.getNet() != net)
+					errors.add("Pin " + pin.getFullName() + " of net " + net.getName() + " is not connected to the net");
+			}
+
+			Set<Wire> intersiteWires = new HashSet<>();
+			for (RouteTree tree : net.getIntersiteRouteTreeList()) {
+				for (RouteTree rt : tree)
+					intersiteWires.add(rt.getWire());
+			}
+			for (Wire wire : intersiteWires) {
+				CellNet user = wireUsers.putIfAbsent(wire, net);
+				if (user != null) {
+					Set<CellNet> users = conflicts.computeIfAbsent(wire, k -> ConcurrentHashMap.newKeySet());
+					users.add(user);
+					users.add(net);
+				}
+			}
+
+			verifySinkSitePins(net, intersiteWires, errors);
+			verifyBelPinRoutes(net, errors);
+		}
+		return errors;
+	}
+
+	private static void verifySinkSitePins(CellNet net, Set<Wire> intersiteWires, List<String> errors) {
+		Map<SitePin, RouteTree> sitePinRoutes = net.getSitePinRouteTrees();
+		if (sitePinRoutes == null || !net.hasIntersiteRouting())
+			return;
+		for (SitePin sitePin : sitePinRoutes.keySet()) {
+			if (sitePin.isInput() && !intersiteWires.contains(sitePin.getExternalWire())) {
+				errors.add("Sink site pin " + sitePin + " of net " + net.getName() +
+					" is not reached by the intersite routing");
+			}
+		}
+	}
+
+	private static void verifyBelPinRoutes(CellNet net, List<String> errors) {
+		Map<BelPin, RouteTree> belPinRoutes = net.getBelPinRouteTrees();
+		if (belPinRoutes != null) {
+			// several BEL pins usually share the route tree of their site pin
+			Map<RouteTree, Set<BelPin>> reached = new IdentityHashMap<>();
+			for (Map.Entry<BelPin, RouteTree> e : belPinRoutes.entrySet()) {
+				Set<BelPin> belPins = reached.computeIfAbsent(e.getValue(), CellDesignVerifier::reachedBelPins);
+				if (!belPins.contains(e.getKey())) {
+					errors.add("Route tree of " + e.getKey() + " in net " + net.getName() +
+						" does not reach the BEL pin");
+				}
+			}
+		}
+
+		for (CellPin sink : net.getRoutedSinks()) {
+			if (sink.getNet() != net) {
+				errors.add("Routed sink " + sink.getFullName() + " is not connected to net " + net.getName());
+				continue;
+			}
+			boolean routed = false;
+			if (belPinRoutes != null) {
+				for (BelPin belPin : sink.getMappedBelPins())
+					routed |= belPinRoutes.containsKey(belPin);
+			}
+			if (!routed) {
+				errors.add("Routed sink " + sink.getFullName() + " of net " + net.getName() +
+					" has no route tree to its BEL pins");
+			}
+		}
+	}
+
+	private static Set<BelPin> reachedBelPins(RouteTree tree) {
+		Set<BelPin> belPins = new HashSet<>();
+		for (RouteTree rt : tree) {
+			BelPin belPin = rt.getConnectedBelPin();
+			if (belPin != null)
+				belPins.add(belPin);
+		}
+		return belPins;
+	}
+
+	private static List<String> verifySites(CellDesign design, List<Site> sites) {
+		List<String> errors = new ArrayList<>();
+		for (Site site : sites) {
+			for (Cell cell : design.getCellsAtSite(site)) {
+				if (cell.getDesign() != design)
+					errors.add("Cell " + cell.getName() + " at site " + site.getName() + " is not in the design");
+				if (cell.getSite() != site) {
+					errors.add("Cell " + cell.getName() + " at site " + site.getName() +
+						" is placed at " + cell.getSite());
+					continue;
+				}
+				// getCellAtBel only reads the occupancy tables, so it is safe in the shards
+				if (design.getCellAtBel(cell.getBel()) != cell)
+					errors.add("Cell " + cell.getName() + " is not at its BEL " + cell.getBel().getFullName());
+				for (CellPin pin : cell.getPins()) {
+					for (BelPin belPin : pin.getMappedBelPins()) {
+						if (belPin.getBel().getSite() != site) {
+							errors.add("Pin " + pin.getFullName() + " is mapped to " + belPin +
+								" outside of its site " + site.getName());
+						}
+					}
+				}
+			}
+		}
+		return errors;
+	}
+
+	/**
+	 * The errors found by a {@link CellDesignVerifier}.
+	 */
+	public static final class Report {
+		private final List<String> errors;
+
+		private Report(List<String> errors) {
+			this.errors = Collections.unmodifiableList(errors);
+		}
+
+		/**
+		 * @return true if no errors were found
+		 */
+		public boolean isValid() {
+			return errors.isEmpty();
+		}
+
+		/**
+		 * @return the errors found in the design
+		 */
+		public List<String> getErrors() {
+			return errors;
+		}
+
+		@Override
+		public String toString() {
+			return String.join(System.lineSeparator(), errors);
+		}
+	}
+}
@@ -698,6 +698,12 @@ public class DesignDiffer {
 			return diffs.isEmpty() && children.isEmpty();
 		}
 
+		// appends the differences and children of other, used to merge sharded diffs
+		void addAll(DifferenceTree other) {
+			diffs.addAll(other.diffs);
+			children.addAll(other.children);
+		}
+
 		public void removeDifference(String... property) {
 			Objects.requireNonNull(property);
 			if (property.length == 0)
@@ -29,10 +29,20 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
+import static edu.byu.ece.rapidSmith.device.ContentHash.combine;
+import static edu.byu.ece.rapidSmith.device.ContentHash.mix;
+
 /**
- *
+ * Compares two devices and reports the differences between them.  Two modes are
+ * available.  {@link #diff()} walks every tile of the devices on a single thread.
+ * {@link #diffParallel()} first computes content hashes of every tile, tile row and
+ * site template of both devices in parallel and then only runs the detailed
+ * comparison on the tiles and site templates whose hashes differ, fanning these
+ * comparisons out across a fork-join pool.
  */
 public class DeviceDiffer {
 	private Device deviceGold;
@@ -40,6 +50,7 @@ public class DeviceDiffer {
 	private WireEnumerator weGold;
 	private WireEnumerator weTest;
 	private boolean verbose;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
 
 	private HashSet<Pair> diffedWireHashMaps;
 
@@ -58,6 +69,10 @@ public class DeviceDiffer {
 			Pair obj = (Pair) o;
 			return obj.gold == gold && obj.test == test;
 		}
+
+		public int hashCode() {
+			return 31 * System.identityHashCode(gold) + System.identityHashCode(test);
+		}
 	}
 
 	private DifferenceList differences;
@@ -70,6 +85,16 @@ public class DeviceDiffer {
 		this.verbose = verbose;
 	}
 
+	// creates a differ used by a single parallel task, sharing the devices of the parent
+	private DeviceDiffer(DeviceDiffer parent, DifferenceList differences) {
+		this.deviceGold = parent.deviceGold;
+		this.deviceTest = parent.deviceTest;
+		this.weGold = parent.weGold;
+		this.weTest = parent.weTest;
+		this.differences = differences;
+		this.diffedWireHashMaps = new HashSet<>();
+	}
+
 	public void setGold(Device device) {
 		this.deviceGold = device;
 		this.weGold = device.getWireEnumerator();
@@ -80,6 +105,18 @@ public class DeviceDiffer {
 		this.weTest = device.getWireEnumerator();
 	}
 
+	/**
+	 * Sets the number of threads used by {@link #diffParallel()}.  Defaults to the
+	 * number of available processors.
+	 *
+	 * @param parallelism the number of threads to use
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
 	public DifferenceList diff() {
 		diffedWireHashMaps = new HashSet<>();
 		differences = new DifferenceList("device", deviceGold.getPartName(), verbose);
@@ -130,6 +167,120 @@ public class DeviceDiffer {
 		return differences;
 	}
 
+	/**
+	 * Compares the devices using content hashes to skip identical parts of the
+	 * devices.  The tiles of each device are hashed row by row in parallel and the
+	 * tile hashes of each row are combined into a row hash.  Only rows whose hashes
+	 * differ are searched for differing tiles and only tiles and site templates whose
+	 * hashes differ are compared in detail.  The detailed comparisons are run in
+	 * parallel and their results are merged in the order of the tiles in the gold
+	 * device, so the result does not depend on the scheduling of the threads.
+	 *
+	 * Hashes are computed from wire and site names rather than from wire enumerations
+	 * so that devices built with different wire enumerators can still be compared.
+	 * Unlike {@link #diff()}, this method also compares the site templates of the
+	 * devices.
+	 *
+	 * @return the differences between the devices
+	 */
+	public DifferenceList diffParallel() {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.invoke(ForkJoinTask.adapt(this::diffHashFirst));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// must be run from within a fork-join pool
+	private DifferenceList diffHashFirst() {
+		diffedWireHashMaps = new HashSet<>();
+		differences = new DifferenceList("device", deviceGold.getPartName(), verbose);
+
+		if (!deviceGold.getPartName().equals(deviceTest.getPartName())) {
+			differences.add("name", deviceGold.getPartName(), deviceTest.getPartName());
+		}
+
+		if (deviceGold.getRows() != deviceTest.getRows()) {
+			differences.add("rows", "" + deviceGold.getRows(), "" + deviceTest.getRows());
+		}
+
+		if (deviceGold.getColumns() != deviceTest.getColumns()) {
+			differences.add("columns", "" + deviceGold.getColumns(), "" + deviceTest.getColumns());
+		}
+
+		ContentHasher goldHasher = new ContentHasher(deviceGold);
+		ContentHasher testHasher = new ContentHasher(deviceTest);
+		ForkJoinTask.invokeAll(
+				ForkJoinTask.adapt(goldHasher::hashDevice),
+				ForkJoinTask.adapt(testHasher::hashDevice));
+
+		// find the tiles to compare by descending from the rows with differing hashes
+		Set<String> suspectTiles = new LinkedHashSet<>();
+		if (deviceGold.getRows() == deviceTest.getRows() &&
+				deviceGold.getColumns() == deviceTest.getColumns()) {
+			for (int row = 0; row < deviceGold.getRows(); row++) {
+				if (goldHasher.rowHashes[row] == testHasher.rowHashes[row])
+					continue;
+				for (int col = 0; col < deviceGold.getColumns(); col++) {
+					Tile goldTile = deviceGold.getTile(row, col);
+					Tile testTile = deviceTest.getTile(row, col);
+					if (goldHasher.hashOf(goldTile) == testHasher.hashOf(testTile))
+						continue;
+					if (goldTile != null)
+						suspectTiles.add(goldTile.getName());
+					if (testTile != null)
+						suspectTiles.add(testTile.getName());
+				}
+			}
+		} else {
+			suspectTiles.addAll(deviceGold.getTileMap().keySet());
+			suspectTiles.addAll(deviceTest.getTileMap().keySet());
+		}
+
+		List<ForkJoinTask<DifferenceList>> tasks = new ArrayList<>();
+		for (String tileName : suspectTiles) {
+			Tile goldTile = deviceGold.getTile(tileName);
+			Tile testTile = deviceTest.getTile(tileName);
+			if (testTile == null) {
+				differences.add("tile", tileName, "none");
+			} else if (goldTile == null) {
+				differences.add("tile", "none", tileName);
+			} else if (goldHasher.hashOf(goldTile) != testHasher.hashOf(testTile)) {
+				tasks.add(ForkJoinTask.adapt(() -> {
+					DeviceDiffer worker = new DeviceDiffer(this, new DifferenceList("tile", tileName));
+					worker.diffTiles(goldTile, testTile);
+					return worker.differences;
+				}));
+			}
+		}
+
+		Set<SiteType> siteTypes = new LinkedHashSet<>(deviceGold.getSiteTemplates().keySet());
+		siteTypes.addAll(deviceTest.getSiteTemplates().keySet());
+		for (SiteType type : siteTypes) {
+			SiteTemplate goldTemplate = deviceGold.getSiteTemplate(type);
+			SiteTemplate testTemplate = deviceTest.getSiteTemplate(type);
+			if (testTemplate == null) {
+				differences.add("site_template", type.name(), "none");
+			} else if (goldTemplate == null) {
+				differences.add("site_template", "none", type.name());
+			} else if (goldHasher.hashOf(goldTemplate) != testHasher.hashOf(testTemplate)) {
+				tasks.add(ForkJoinTask.adapt(() -> {
+					DeviceDiffer worker = new DeviceDiffer(this,
+							new DifferenceList("site_template", type.name()));
+					worker.diffSiteTemplates(goldTemplate, testTemplate);
+					return worker.differences;
+				}));
+			}
+		}
+
+		ForkJoinTask.invokeAll(tasks);
+		for (ForkJoinTask<DifferenceList> task : tasks) {
+			differences.add(task.join());
+		}
+		return differences;
+	}
+
 	private void diffTileMap() {
 		Set<String> unseenTiles = new HashSet<>(deviceTest.getTileMap().keySet());
 		for (String tileName : deviceGold.getTileMap().keySet()) {
@@ -332,6 +483,72 @@ public class DeviceDiffer {
 		diffedWireHashMaps.add(new Pair(gold, test));
 	}
 
+	private void diffSiteTemplates(SiteTemplate gold, SiteTemplate test) {
+		Map<String, BelTemplate> testBels = nullToEmpty(test.getBelTemplates());
+		Set<String> unseenBels = new HashSet<>(testBels.keySet());
+		for (Map.Entry<String, BelTemplate> e : nullToEmpty(gold.getBelTemplates()).entrySet()) {
+			String belName = e.getKey();
+			if (!unseenBels.remove(belName)) {
+				differences.add("bel", belName, "none");
+				continue;
+			}
+			BelTemplate goldBel = e.getValue();
+			BelTemplate testBel = testBels.get(belName);
+			differences.down("bel", belName);
+			if (!Objects.equals(goldBel.getType(), testBel.getType())) {
+				differences.add("type", goldBel.getType(), testBel.getType());
+			}
+			diffBelPins("source", goldBel.getSources(), testBel.getSources());
+			diffBelPins("sink", goldBel.getSinks(), testBel.getSinks());
+			differences.up();
+		}
+		for (String belName : unseenBels) {
+			differences.add("bel", "none", belName);
+		}
+
+		diffSitePins("source", gold.getSources(), test.getSources());
+		diffSitePins("sink", gold.getSinks(), test.getSinks());
+		diffWireHashMaps(gold.getRouting(), test.getRouting());
+	}
+
+	private void diffBelPins(
+			String property, Map<String, BelPinTemplate> gold, Map<String, BelPinTemplate> test
+	) {
+		test = nullToEmpty(test);
+		Set<String> unseenPins = new HashSet<>(test.keySet());
+		for (BelPinTemplate goldPin : nullToEmpty(gold).values()) {
+			if (!unseenPins.remove(goldPin.getName())) {
+				differences.add(property, goldPin.getName(), "none");
+			} else if (goldPin.getDirection() != test.get(goldPin.getName()).getDirection()) {
+				differences.down(property, goldPin.getName());
+				differences.add("direction", "" + goldPin.getDirection(),
+						"" + test.get(goldPin.getName()).getDirection());
+				differences.up();
+			}
+		}
+		for (String pinName : unseenPins) {
+			differences.add(property, "none", pinName);
+		}
+	}
+
+	private void diffSitePins(
+			String property, Map<String, SitePinTemplate> gold, Map<String, SitePinTemplate> test
+	) {
+		Set<String> unseenPins = new HashSet<>(nullToEmpty(test).keySet());
+		for (String pinName : nullToEmpty(gold).keySet()) {
+			if (!unseenPins.remove(pinName)) {
+				differences.add(property + "_pin", pinName, "none");
+			}
+		}
+		for (String pinName : unseenPins) {
+			differences.add(property + "_pin", "none", pinName);
+		}
+	}
+
+	private static <K, V> Map<K, V> nullToEmpty(Map<K, V> map) {
+		return map == null ? Collections.emptyMap() : map;
+	}
+
 	private boolean filterWireConnectionFixes1(WireConnection wc) {
 		// Masks a bug in v0.4 where some wires were being improperly declared as
 		// site sources and sinks causing upstream counnections to be maintained
@@ -416,6 +633,162 @@ public class DeviceDiffer {
 		}
 	}
 
+	/**
+	 * Computes name based content hashes of the tiles, tile rows and site templates
+	 * of a device.  Wire hash maps are shared between many tiles so each distinct
+	 * map is only hashed once.
+	 */
+	private static final class ContentHasher {
+		private final Device device;
+		private final WireEnumerator we;
+		private final Map<WireHashMap, Long> wireHashMapHashes = new IdentityHashMap<>();
+		private final Map<SiteType, Long> templateHashes = new HashMap<>();
+		private long[][] tileHashes;
+		private long[] rowHashes;
+
+		ContentHasher(Device device) {
+			this.device = device;
+			this.we = device.getWireEnumerator();
+		}
+
+		// must be run from within a fork-join pool
+		void hashDevice() {
+			// hash the distinct wire hash maps first since the tile and template
+			// hashes depend on them
+			Set<WireHashMap> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (Tile tile : device.getTiles()) {
+				if (tile.getWireHashMap() != null)
+					distinct.add(tile.getWireHashMap());
+			}
+			for (SiteTemplate template : device.getSiteTemplates().values()) {
+				if (template.getRouting() != null)
+					distinct.add(template.getRouting());
+			}
+			List<WireHashMap> wireHashMaps = new ArrayList<>(distinct);
+			long[] mapHashes = new long[wireHashMaps.size()];
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < wireHashMaps.size(); i++) {
+				int index = i;
+				tasks.add(ForkJoinTask.adapt(() -> {
+					mapHashes[index] = hashWireHashMap(wireHashMaps.get(index));
+				}));
+			}
+			ForkJoinTask.invokeAll(tasks);
+			for (int i = 0; i < wireHashMaps.size(); i++)
+				wireHashMapHashes.put(wireHashMaps.get(i), mapHashes[i]);
+
+			int rows = device.getRows();
+			int columns = device.getColumns();
+			tileHashes = new long[rows][columns];
+			rowHashes = new long[rows];
+			tasks.clear();
+			for (int r = 0; r < rows; r++) {
+				int row = r;
+				tasks.add(ForkJoinTask.adapt(() -> {
+					long rowHash = row;
+					for (int col = 0; col < columns; col++) {
+						Tile tile = device.getTile(row, col);
+						long tileHash = tile == null ? 0 : hashTile(tile);
+						tileHashes[row][col] = tileHash;
+						rowHash = combine(rowHash, tileHash);
+					}
+					rowHashes[row] = rowHash;
+				}));
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			for (SiteTemplate template : device.getSiteTemplates().values())
+				templateHashes.put(template.getType(), hashSiteTemplate(template));
+		}
+
+		long hashOf(Tile tile) {
+			if (tile == null)
+				return 0;
+			return tileHashes[tile.getRow()][tile.getColumn()];
+		}
+
+		long hashOf(SiteTemplate template) {
+			return templateHashes.get(template.getType());
+		}
+
+		private long hashTile(Tile tile) {
+			long h = hash(tile.getName());
+			h = combine(h, hash(tile.getType().name()));
+			h = combine(h, tile.getRow());
+			h = combine(h, tile.getColumn());
+			if (tile.getSites() != null) {
+				for (Site site : tile.getSites()) {
+					h = combine(h, hash(site.getName()));
+					h = combine(h, hash(site.getType().name()));
+				}
+			}
+			long sources = 0;
+			for (Wire source : tile.getSources())
+				sources += mix(hash(source.getName()));
+			long sinks = 0;
+			for (Wire sink : tile.getSinks())
+				sinks += mix(hash(sink.getName()));
+			h = combine(h, sources);
+			h = combine(h, sinks);
+			return combine(h, hashRouting(tile.getWireHashMap()));
+		}
+
+		private long hashSiteTemplate(SiteTemplate template) {
+			long h = hash(template.getType().name());
+			long bels = 0;
+			for (BelTemplate bel : nullToEmpty(template.getBelTemplates()).values()) {
+				long pins = 0;
+				for (BelPinTemplate pin : nullToEmpty(bel.getSources()).values())
+					pins += mix(combine(hash(pin.getName()), hash("" + pin.getDirection())));
+				for (BelPinTemplate pin : nullToEmpty(bel.getSinks()).values())
+					pins += mix(combine(hash(pin.getName()), hash("" + pin.getDirection())));
+				long belHash = combine(hash(bel.getId().getName()), hash("" + bel.getType()));
+				bels += mix(combine(belHash, pins));
+			}
+			long sitePins = 0;
+			for (String pinName : nullToEmpty(template.getSources()).keySet())
+				sitePins += mix(combine(hash(pinName), 1));
+			for (String pinName : nullToEmpty(template.getSinks()).keySet())
+				sitePins += mix(combine(hash(pinName), 2));
+			h = combine(h, bels);
+			h = combine(h, sitePins);
+			return combine(h, hashRouting(template.getRouting()));
+		}
+
+		private long hashRouting(WireHashMap wireHashMap) {
+			if (wireHashMap == null)
+				return 0;
+			return wireHashMapHashes.get(wireHashMap);
+		}
+
+		// order independent hash of the wire names and connections in the map
+		private long hashWireHashMap(WireHashMap wireHashMap) {
+			long h = 0;
+			for (int source : wireHashMap.keySet()) {
+				long connections = 0;
+				for (WireConnection wc : wireHashMap.get(source)) {
+					long c = hash(we.getWireName(wc.getWire()));
+					c = combine(c, wc.getRowOffset());
+					c = combine(c, wc.getColumnOffset());
+					c = combine(c, wc.isPIP() ? 1 : 0);
+					connections += mix(c);
+				}
+				h += mix(combine(hash(we.getWireName(source)), connections));
+			}
+			return h;
+		}
+
+		// 64-bit FNV-1a, String.hashCode collides too easily for wire names
+		private static long hash(String s) {
+			long h = 0xcbf29ce484222325L;
+			for (int i = 0; i < s.length(); i++) {
+				h ^= s.charAt(i);
+				h *= 0x100000001b3L;
+			}
+			return h;
+		}
+	}
+
 	public static class DifferenceList {
 		private boolean verbose;
 		private DifferenceList curLevel;
@@ -482,6 +855,22 @@ public class DeviceDiffer {
 			}
 		}
 
+		/**
+		 * Adds a completed list of differences, such as one built by another thread,
+		 * to the current level.  Empty lists are ignored.
+		 */
+		public void add(DifferenceList list) {
+			if (list.diffs.isEmpty())
+				return;
+			if (curLevel != null)
+				curLevel.add(list);
+			else {
+				if (verbose)
+					System.out.print(list);
+				diffs.add(list);
+			}
+		}
+
 		public String toString() {
 			if (diffs.size() == 0)
 				return "equivalent";
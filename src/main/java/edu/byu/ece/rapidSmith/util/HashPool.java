@@ -90,6 +90,15 @@ public class HashPool<E> implements Iterable<E> {
 		return map.size();
 	}
 
+	/**
+	 * Removes all objects from the pool.  The enumeration starts over at 0 and the
+	 * capacity of the pool is kept.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		enumeration.clear();
+	}
+
 	public ArrayList<E> values() {
 		return enumeration;
 	}
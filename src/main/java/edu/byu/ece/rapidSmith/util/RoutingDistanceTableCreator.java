@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util;
+
+import java.io.IOException;
+
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.device.Device;
+import edu.byu.ece.rapidSmith.device.RoutingDistanceTable;
+
+/**
+ * Computes the {@link RoutingDistanceTable} of a device and stores it next to
+ * the device file, where it is found by
+ * {@link RSEnvironment#loadRoutingDistanceTable(Device)}.
+ */
+public class RoutingDistanceTableCreator {
+	/** Default number of PIPs each search is limited to */
+	public static final int DEFAULT_MAX_HOPS = 64;
+
+	/**
+	 * Runs the RoutingDistanceTableCreator
+	 */
+	public static void main(String[] args) throws IOException {
+		
+		if (args.length < 1 || args.length > 3) {
+			System.err.println("USAGE: edu.byu.ece.rapidSmith.util.RoutingDistanceTableCreator <Full Xilinx Partname> [max hops] [max offset]");
+			return;
+		}
+		
+		String partname = args[0];
+		int maxHops = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_HOPS;
+		int maxOffset = args.length > 2 ? Integer.parseInt(args[2]) : RoutingDistanceTable.DEFAULT_MAX_OFFSET;
+		
+		System.out.println("Loading Device...");
+		Device device = RSEnvironment.defaultEnv().getDevice(partname);
+		
+		System.out.println("Computing Routing Distances...");
+		long start = System.currentTimeMillis();
+		RoutingDistanceTable table = RoutingDistanceTable.compute(device, maxHops, maxOffset);
+		System.out.println("Computed in " + (System.currentTimeMillis() - start) / 1000.0 + "s");
+		
+		System.out.println("Writing Routing Distance Table...");
+		RSEnvironment.defaultEnv().writeRoutingDistanceTable(table);
+		
+		System.out.println("Done!");
+	}
+}
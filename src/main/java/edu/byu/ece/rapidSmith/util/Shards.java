@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs a task over consecutive shards of a list on a fixed number of threads and
+ * returns the results of the shards in list order, so the merged result does not
+ * depend on the number of threads.
+ */
+final class Shards {
+	private Shards() { }
+
+	/**
+	 * Applies {@code task} to each shard of {@code shardSize} consecutive items.
+	 * Exceptions thrown by a task are rethrown in the calling thread.
+	 *
+	 * @param items the items to shard
+	 * @param shardSize the number of items in each shard
+	 * @param parallelism the number of threads to use
+	 * @param threadName name of the worker threads
+	 * @param task the task to run on each shard
+	 * @return the results of the shards in order
+	 */
+	static <T, R> List<R> map(
+		List<T> items, int shardSize, int parallelism, String threadName,
+		Function<List<T>, R> task
+	) {
+		List<List<T>> shards = new ArrayList<>();
+		for (int start = 0; start < items.size(); start += shardSize)
+			shards.add(items.subList(start, Math.min(items.size(), start + shardSize)));
+
+		List<R> results = new ArrayList<>(shards.size());
+		if (parallelism == 1 || shards.size() <= 1) {
+			for (List<T> shard : shards)
+				results.add(task.apply(shard));
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.min(parallelism, shards.size()), r -> {
+				Thread t = new Thread(r, threadName);
+				t.setDaemon(true);
+				return t;
+			});
+		try {
+			List<Future<R>> futures = new ArrayList<>(shards.size());
+			for (List<T> shard : shards)
+				futures.add(executor.submit(() -> task.apply(shard)));
+			for (Future<R> future : futures)
+				results.add(future.get());
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
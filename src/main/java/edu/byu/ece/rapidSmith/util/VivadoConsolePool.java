@@ -0,0 +1,524 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps several long-lived Vivado (or other Tcl shell) processes and runs Tcl commands
+ * on them asynchronously.  Unlike {@link VivadoConsole}, which sends one command and
+ * waits for its result before sending the next, commands submitted to a pool are
+ * written to a process immediately and their results are matched to the commands by
+ * sentinel lines printed around each result.  Many commands can therefore be in
+ * flight on each process, and independent queries can run on different processes
+ * at the same time.
+ * <p>
+ * Each command is run inside a Tcl {@code catch}, so nested commands such as
+ * {@code "get_bels -of [get_cells my_cell]"} are supported and TINCR is not required.
+ * Commands must be complete Tcl scripts (ie. have balanced braces).  Output printed
+ * by a command itself, such as Vivado INFO messages, is not part of its result.
+ * <p>
+ * Commands may be given a timeout.  When a command times out, its process is
+ * destroyed and replaced by a new one, and the other commands pending on the process
+ * fail since their state is lost with it.
+ * <p>
+ * The processes are started with {@code vivado -mode tcl} by default.  Any program
+ * reading Tcl commands on its standard input, such as {@code tclsh}, can be used
+ * instead with {@link #VivadoConsolePool(int, String, List)}.
+ */
+public class VivadoConsolePool implements AutoCloseable {
+
+	private static final String BEGIN = "@@rs_begin ";
+	private static final String RESULT = "@@rs_result ";
+	private static final String END = "@@rs_end ";
+	/**
+	 * Sentinel lines must make up the whole line so that an echo of the wrapped
+	 * command is not mistaken for its output.  The begin line may follow the
+	 * prompt of the shell, and the result line is preceded by an empty line so
+	 * that output of the command without a trailing newline ends before it.  Ids
+	 * are limited in length so they always parse.
+	 */
+	private static final Pattern BEGIN_LINE = Pattern.compile(
+		"(?:\\S*% )?" + Pattern.quote(BEGIN) + "(\\d{1,18})");
+	private static final Pattern RESULT_LINE = Pattern.compile(
+		Pattern.quote(RESULT) + "(\\d{1,18}) (\\d{1,9})");
+	/** Time to wait for a process to exit after the pool is closed */
+	private static final long EXIT_TIMEOUT = 10000;
+
+	private final String runDirectory;
+	private final List<String> command;
+	/** Replaced by index when a process is restarted */
+	private final List<Worker> workers;
+	private final AtomicLong nextId = new AtomicLong();
+	/** Fails the commands that time out */
+	private final ScheduledExecutorService timer;
+	/** Guarded by this when set */
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a pool of Vivado processes in Tcl mode running in the specified
+	 * directory.
+	 * 
+	 * @param size number of Vivado processes to start
+	 * @param runDirectory directory to run Vivado in
+	 */
+	public VivadoConsolePool(int size, String runDirectory) {
+		this(size, runDirectory, vivadoCommand());
+	}
+
+	/**
+	 * Creates a pool of processes running the specified command.  The command must
+	 * start a Tcl shell that reads commands from its standard input.
+	 * 
+	 * @param size number of processes to start
+	 * @param runDirectory directory to run the processes in
+	 * @param command the program and arguments to start each process with,
+	 *   ie. {@code ["tclsh"]}
+	 */
+	public VivadoConsolePool(int size, String runDirectory, List<String> command) {
+		if (size < 1)
+			throw new IllegalArgumentException("Pool size must be positive: " + size);
+
+		this.runDirectory = runDirectory;
+		this.command = new ArrayList<>(command);
+		List<Worker> started = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			started.add(new Worker(startProcess(runDirectory, command), i));
+		}
+		workers = new CopyOnWriteArrayList<>(started);
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "VivadoConsolePool-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static List<String> vivadoCommand() {
+		String osType = System.getProperty("os.name").toLowerCase();
+		String vivadoCommand = "vivado";
+		if (osType.contains("win")) {
+			vivadoCommand += ".bat";
+		}
+		return Arrays.asList(vivadoCommand, "-mode", "tcl");
+	}
+
+	private static Process startProcess(String runDirectory, List<String> command) {
+		final ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		processBuilder.directory(new File(runDirectory));
+
+		try {
+			return processBuilder.start();
+		} catch (IOException e) {
+			throw new Exceptions.EnvironmentException("Cannot start " + command.get(0) + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the number of processes in this pool
+	 */
+	public int size() {
+		return workers.size();
+	}
+
+	/**
+	 * Submits a Tcl command to the least busy process of this pool.
+	 * 
+	 * @param cmd the command to run
+	 * @return future completed with the lines of the command's result, or completed
+	 *   exceptionally with a {@link TclCommandException} if the command causes a Tcl error
+	 */
+	public CompletableFuture<List<String>> submit(String cmd) {
+		return submitAll(Collections.singletonList(cmd)).get(0);
+	}
+
+	/**
+	 * Submits a Tcl command to the least busy process of this pool with a timeout.
+	 * 
+	 * @param cmd the command to run
+	 * @param timeoutMilliseconds how long after submission the result must be read,
+	 *   including the time spent waiting on commands submitted earlier to the process
+	 * @return future completed with the lines of the command's result, or completed
+	 *   exceptionally with a {@link TclCommandException} if the command causes a Tcl
+	 *   error or with a {@link TimeoutException} if the command times out
+	 */
+	public CompletableFuture<List<String>> submit(String cmd, long timeoutMilliseconds) {
+		return submitAll(Collections.singletonList(cmd), timeoutMilliseconds).get(0);
+	}
+
+	/**
+	 * Submits a batch of Tcl commands to the least busy process of this pool.  All of
+	 * the commands are written to the process at once and run in order, so later
+	 * commands of the batch see the effects of earlier ones.  This is useful for
+	 * sequences such as opening a checkpoint and querying it.
+	 * 
+	 * @param cmds the commands to run
+	 * @return a future for the result of each command, in the order of the commands
+	 */
+	public List<CompletableFuture<List<String>>> submitAll(List<String> cmds) {
+		return submitAll(cmds, 0);
+	}
+
+	/**
+	 * Submits a batch of Tcl commands with a timeout.  If any command of the batch
+	 * times out, the process is restarted and the commands still pending on it fail.
+	 * 
+	 * @param cmds the commands to run
+	 * @param timeoutMilliseconds how long after submission the result of each command
+	 *   must be read, or 0 for no timeout
+	 * @return a future for the result of each command, in the order of the commands
+	 * @see #submit(String, long)
+	 */
+	public List<CompletableFuture<List<String>>> submitAll(List<String> cmds, long timeoutMilliseconds) {
+		if (timeoutMilliseconds < 0)
+			throw new IllegalArgumentException("Timeout must not be negative: " + timeoutMilliseconds);
+		if (closed)
+			throw new IllegalStateException("Console pool is closed");
+
+		Worker worker = workers.get(0);
+		int leastPending = Integer.MAX_VALUE;
+		for (Worker w : workers) {
+			int pending = w.pendingCount();
+			if (pending < leastPending) {
+				worker = w;
+				leastPending = pending;
+			}
+		}
+		List<CompletableFuture<List<String>>> futures = worker.send(cmds);
+		if (timeoutMilliseconds > 0) {
+			for (CompletableFuture<List<String>> future : futures)
+				scheduleTimeout(worker, future, timeoutMilliseconds);
+		}
+		return futures;
+	}
+
+	private void scheduleTimeout(Worker worker, CompletableFuture<List<String>> future, long timeoutMilliseconds) {
+		ScheduledFuture<?> task = timer.schedule(() -> {
+			if (!future.isDone()) {
+				restart(worker, future, new TimeoutException(
+					"Tcl command timed out after " + timeoutMilliseconds + " ms"));
+			}
+		}, timeoutMilliseconds, TimeUnit.MILLISECONDS);
+		future.whenComplete((r, e) -> task.cancel(false));
+	}
+
+	/**
+	 * Starts a new process in place of the worker, fails the timed out command and
+	 * destroys the process of the worker, failing its other pending commands.
+	 */
+	private void restart(Worker worker, CompletableFuture<List<String>> timedOut, TimeoutException cause) {
+		// replace the worker first so commands submitted once the timeout is seen
+		// are not sent to the destroyed process
+		try {
+			synchronized (this) {
+				if (!closed && workers.get(worker.index) == worker)
+					workers.set(worker.index, new Worker(startProcess(runDirectory, command), worker.index));
+			}
+		} finally {
+			timedOut.completeExceptionally(cause);
+			worker.destroy(new IllegalStateException("Tcl process was restarted after a command timed out"));
+		}
+	}
+
+	/**
+	 * Runs a Tcl command and waits for its result.
+	 * 
+	 * @param cmd the command to run
+	 * @param timeoutMilliseconds how long to wait for the result
+	 * @return the lines of the result
+	 * @throws TimeoutException if the result is not returned in time
+	 * @throws TclCommandException if the command causes a Tcl error
+	 */
+	public List<String> runCommand(String cmd, long timeoutMilliseconds) throws TimeoutException {
+		try {
+			return submit(cmd, timeoutMilliseconds).get(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for command: " + cmd, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof TimeoutException)
+				throw (TimeoutException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Exits the processes of this pool.  Commands already submitted are run before
+	 * the processes exit.  Blocks until the processes exit or a timeout elapses, after
+	 * which the remaining processes are destroyed.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		timer.shutdownNow();
+		for (Worker worker : workers) {
+			worker.exit();
+		}
+		for (Worker worker : workers) {
+			worker.awaitExit();
+		}
+	}
+
+	/**
+	 * Wraps the command so its result is printed between sentinel lines
+	 * containing the id of the command.
+	 */
+	static String wrapCommand(long id, String cmd) {
+		return "puts \"" + BEGIN + id + "\"; " +
+			"set rs_status [catch {" + cmd + "} rs_result]; " +
+			"puts \"\"; " +
+			"puts \"" + RESULT + id + " $rs_status\"; " +
+			"puts $rs_result; " +
+			"puts \"" + END + id + "\"; " +
+			"flush stdout\n";
+	}
+
+	private static final class Request {
+		final long id;
+		final String cmd;
+		final CompletableFuture<List<String>> future = new CompletableFuture<>();
+
+		Request(long id, String cmd) {
+			this.id = id;
+			this.cmd = cmd;
+		}
+	}
+
+	/**
+	 * A process of the pool.  Requests are written to the process by the submitting
+	 * thread and completed in order by the thread reading the process's output.
+	 * <p>
+	 * Writing to the process blocks while its input pipe is full, which only clears
+	 * once the reader has consumed the process's output.  The writes are therefore
+	 * guarded by {@code writeLock} rather than by the worker itself, which the reader
+	 * needs to complete requests.
+	 */
+	private final class Worker {
+		private final Process process;
+		/** Position of the worker in the pool */
+		private final int index;
+		/** Guarded by writeLock */
+		private final BufferedWriter out;
+		/** Serializes writes so requests are pending in the order they are written, taken before this */
+		private final Object writeLock = new Object();
+		/** Requests written to the process whose results have not been read, guarded by this */
+		private final Deque<Request> pending = new ArrayDeque<>();
+		/** Guarded by this */
+		private boolean exited = false;
+
+		Worker(Process process, int index) {
+			this.process = process;
+			this.index = index;
+			this.out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+			Thread reader = new Thread(this::readOutput, "VivadoConsolePool-" + index);
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		synchronized int pendingCount() {
+			return pending.size();
+		}
+
+		List<CompletableFuture<List<String>>> send(List<String> cmds) {
+			List<CompletableFuture<List<String>>> futures = new ArrayList<>(cmds.size());
+			List<Request> requests = new ArrayList<>(cmds.size());
+			for (String cmd : cmds) {
+				Request request = new Request(nextId.getAndIncrement(), cmd);
+				requests.add(request);
+				futures.add(request.future);
+			}
+
+			synchronized (writeLock) {
+				if (!enqueue(requests)) {
+					requests.forEach(r -> r.future.completeExceptionally(
+						new IllegalStateException("Tcl process has exited")));
+					return futures;
+				}
+
+				try {
+					for (Request request : requests) {
+						out.write(wrapCommand(request.id, request.cmd));
+					}
+					out.flush();
+				} catch (IOException e) {
+					failPending(e);
+				}
+			}
+			return futures;
+		}
+
+		/**
+		 * Adds the requests to the pending requests unless the process has exited.
+		 */
+		private synchronized boolean enqueue(List<Request> requests) {
+			if (exited)
+				return false;
+			pending.addAll(requests);
+			return true;
+		}
+
+		void exit() {
+			synchronized (writeLock) {
+				synchronized (this) {
+					if (exited)
+						return;
+				}
+				try {
+					out.write("exit\n");
+					out.close();
+				} catch (IOException e) {
+					// the process has already exited
+				}
+			}
+		}
+
+		void awaitExit() {
+			try {
+				if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.MILLISECONDS))
+					process.destroyForcibly();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				process.destroyForcibly();
+			}
+		}
+
+		/**
+		 * Fails the pending requests and destroys the process.
+		 */
+		void destroy(Exception cause) {
+			failPending(cause);
+			process.destroyForcibly();
+		}
+
+		private synchronized Request head() {
+			return pending.peekFirst();
+		}
+
+		private synchronized void complete(Request request) {
+			pending.remove(request);
+		}
+
+		private synchronized void failPending(Exception cause) {
+			exited = true;
+			for (Request request : pending) {
+				request.future.completeExceptionally(cause);
+			}
+			pending.clear();
+		}
+
+		/**
+		 * Reads the output of the process and completes the pending requests.  Lines
+		 * outside of a result, such as prompts, log messages and sentinel lines of
+		 * commands other than the next pending one, are skipped.
+		 */
+		private void readOutput() {
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				Request current = null;
+				List<String> result = null;
+				int status = 0;
+
+				String line;
+				while ((line = in.readLine()) != null) {
+					Matcher m;
+					if (current == null) {
+						m = BEGIN_LINE.matcher(line);
+						if (m.matches()) {
+							Request next = head();
+							if (next != null && next.id == Long.parseLong(m.group(1)))
+								current = next;
+						}
+					}
+					else if (result == null) {
+						m = RESULT_LINE.matcher(line);
+						if (m.matches() && Long.parseLong(m.group(1)) == current.id) {
+							status = Integer.parseInt(m.group(2));
+							result = new ArrayList<>();
+						}
+					}
+					else if (line.equals(END + current.id)) {
+						complete(current);
+						if (status == 1)
+							current.future.completeExceptionally(
+								new TclCommandException(current.cmd, String.join("\n", result)));
+						else
+							current.future.complete(result);
+						current = null;
+						result = null;
+					}
+					else {
+						result.add(line);
+					}
+				}
+				failPending(new IllegalStateException("Tcl process exited"));
+			} catch (IOException | RuntimeException e) {
+				failPending(e);
+			}
+		}
+	}
+
+	/**
+	 * Exception completing the future of a Tcl command that caused a Tcl error.
+	 */
+	public static class TclCommandException extends RuntimeException {
+		private static final long serialVersionUID = -4969283071208226735L;
+
+		private final String command;
+
+		public TclCommandException(String command, String message) {
+			super(message);
+			this.command = command;
+		}
+
+		/**
+		 * @return the command that caused the error
+		 */
+		public String getCommand() {
+			return command;
+		}
+	}
+}
@@ -22,6 +22,7 @@ package edu.byu.ece.rapidSmith.util.luts;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * String of 0s and 1s representing a lut configuration.  Each bit represents the result
@@ -65,7 +66,7 @@ public final class InitString {
 		if (numInputs < 1)
 			throw new IllegalArgumentException("init string must have at least 1 input");
 
-		long mask = getMask(numInputs);
+		long mask = TruthTables.getMask(numInputs);
 		this.cfgValue = mask & configuration;
 		this.numInputs = numInputs;
 	}
@@ -110,17 +111,58 @@ public final class InitString {
 			throw new IllegalArgumentException("init string must have at least 1 input");
 
 		if (numInputs > this.numInputs) {
-			for (int i = this.numInputs; i < numInputs; i++) {
-				int shift = twoToThe(i);
-				cfgValue |= cfgValue << shift;
-			}
+			cfgValue = TruthTables.extend(cfgValue, this.numInputs, numInputs);
 		} else if (numInputs < this.numInputs) {
-			cfgValue &= getMask(numInputs);
+			cfgValue &= TruthTables.getMask(numInputs);
 		}
 		this.numInputs = numInputs;
 		return this;
 	}
 
+	/**
+	 * Remaps the inputs with the index in the keys of mapping to their values.  Inputs
+	 * without an entry in the mapping keep their index.  Unlike
+	 * {@link LutEquation#remapPins(Map)}, the remapping is performed directly on the
+	 * configuration value with bitwise operations.  Inputs that do not affect the
+	 * function may be moved to any unused index.
+	 *
+	 * @param mapping map of the index of the pins to the indexes to change them to
+	 * @return itself
+	 * @throws IllegalArgumentException if an input the function depends on is mapped
+	 *   outside of this init string's inputs or onto the same index as another such input
+	 */
+	public InitString remapPins(Map<Integer, Integer> mapping) {
+		int support = TruthTables.getSupport(cfgValue, numInputs);
+		int[] permutation = new int[numInputs];
+		int taken = 0;
+		for (int i = 0; i < numInputs; i++) {
+			permutation[i] = -1;
+			if ((support & (1 << i)) == 0)
+				continue;
+			int newIndex = mapping.getOrDefault(i + 1, i + 1) - 1;
+			if (newIndex < 0 || newIndex >= numInputs)
+				throw new IllegalArgumentException("input mapped outside of init string");
+			if ((taken & (1 << newIndex)) != 0)
+				throw new IllegalArgumentException("multiple inputs mapped to A" + (newIndex + 1));
+			taken |= 1 << newIndex;
+			permutation[i] = newIndex;
+		}
+
+		// the function is independent of the remaining inputs, fill in the free slots
+		int nextFree = 0;
+		for (int i = 0; i < numInputs; i++) {
+			if (permutation[i] != -1)
+				continue;
+			while ((taken & (1 << nextFree)) != 0)
+				nextFree++;
+			taken |= 1 << nextFree;
+			permutation[i] = nextFree;
+		}
+
+		cfgValue = TruthTables.permuteInputs(cfgValue, permutation);
+		return this;
+	}
+
 	/**
 	 * Returns the init string in hex form prepended with 0x.
 	 */
@@ -128,7 +170,7 @@ public final class InitString {
 	public String toString() {
 		// get the number of digits need to display the value
 		// add three to enforce rounding up
-		int numDigits = (twoToThe(this.numInputs) + 3) / 4;
+		int numDigits = ((1 << this.numInputs) + 3) / 4;
 		assert numDigits > 0;
 		return String.format("0x%0" + numDigits + "X", cfgValue);
 	}
@@ -236,28 +278,4 @@ public final class InitString {
 			throw new AssertionError("Unrecognized node");
 		}
 	}
-
-	private static int twoToThe(int power) {
-		switch (power) {
-			case 1: return 2;
-			case 2: return 4;
-			case 3: return 8;
-			case 4: return 16;
-			case 5: return 32;
-			case 6: return 64;
-			default: throw new AssertionError("unsupported power");
-		}
-	}
-
-	private static long getMask(int numInputs) {
-		switch (numInputs) {
-			case 1: return 0x3L;
-			case 2: return 0xFL;
-			case 3: return 0xFFL;
-			case 4: return 0xFFFFL;
-			case 5: return 0xFFFFFFFFL;
-			case 6: return 0xFFFFFFFFFFFFFFFFL;
-			default: throw new AssertionError("unsupported power");
-		}
-	}
 }
@@ -161,6 +161,22 @@ public final class LutContents {
 		this.equation = null;
 	}
 
+	/**
+	 * Remaps the inputs with the index in the keys of mapping to their values.  The
+	 * remapping is performed on the init string form of the LUT, so any previously
+	 * supplied equation form is replaced by the minimized equation when next requested.
+	 *
+	 * @param mapping map of the index of the pins to the indexes to change them to
+	 * @throws IllegalArgumentException if the mapping moves a required input outside of
+	 *   the LUT's inputs or onto the same index as another required input
+	 * @see InitString#remapPins(Map)
+	 */
+	public void remapPins(Map<Integer, Integer> mapping) {
+		computeInitString();
+		initString.remapPins(mapping);
+		this.equation = null;
+	}
+
 	/**
 	 * Returns the inputs that are used in the equation form of this LUT.  This will not
 	 * filter out inputs that are configured but ultimately do affect the operation of the
@@ -180,15 +196,9 @@ public final class LutContents {
 	 * @return the set of inputs that affect the functionality of this LUT
 	 */
 	public Set<Integer> getRequiredInputs() {
-		// We'll convert to initString, minimize it, and convert it back to a
-		// minimized equation
-		LutEquation reduced = getReducedForm();
-		return reduced.getUsedInputs();
-	}
-
-	private LutEquation getReducedForm() {
+		// The required inputs of each function are computed once and cached
 		computeInitString();
-		return LutEquation.convertToLutEquation(initString);
+		return new HashSet<>(LutFunctionCache.defaultCache().getRequiredInputs(initString));
 	}
 
 	/**
@@ -198,21 +208,12 @@ public final class LutContents {
 	 * updated to the equation (A3*(A1+A2)).
 	 */
 	public void reduceToMinSize() {
-		LutEquation reducedForm = getReducedForm();
-		SortedSet<Integer> requiredInputs = new TreeSet<>(reducedForm.getUsedInputs());
-		if (requiredInputs.size() == numInputs)
+		computeInitString();
+		LutFunctionCache cache = LutFunctionCache.defaultCache();
+		if (cache.getRequiredInputs(initString).size() == numInputs)
 			return; // no need to minimize
 
-		// create pin mapping, shifting all pins down
-		int nextAvailablePin = 1;
-		Map<Integer, Integer> mapping = new HashMap<>();
-		for (Integer pinIndex : requiredInputs) {
-			mapping.put(pinIndex, nextAvailablePin++);
-		}
-
-		// remap pins
-		reducedForm.remapPins(mapping);
-		updateConfiguration(reducedForm);
+		updateConfiguration(cache.getReducedEquation(initString));
 	}
 
 	/**
@@ -254,7 +255,7 @@ public final class LutContents {
 
 	private void computeEquation() {
 		if (equation == null) {
-			equation = LutEquation.convertToLutEquation(initString);
+			equation = LutFunctionCache.defaultCache().getEquation(initString);
 		}
 	}
 
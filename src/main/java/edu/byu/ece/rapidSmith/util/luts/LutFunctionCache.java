@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoizes the expensive conversions of LUT functions.  Converting an init string
+ * into a minimized {@link LutEquation} requires a full boolean minimization while a
+ * typical netlist only contains a few hundred distinct LUT functions.  This cache
+ * stores, for each distinct (configuration, number of inputs) pair, the minimized
+ * equation, the inputs the function depends on, the reduced form used by
+ * {@link LutContents#reduceToMinSize()} and the function's {@link NpnClass}.
+ *
+ * The cache is thread safe.  Equations returned from the cache are copies and may
+ * be freely modified by the caller.  A default cache shared by {@link LutContents}
+ * is accessible with the {@link #defaultCache()} method.
+ */
+public final class LutFunctionCache {
+	/** The default cache */
+	private static final LutFunctionCache defaultCache = new LutFunctionCache();
+
+	// one map for each supported number of inputs, keyed by the configuration value
+	private final List<Map<Long, Entry>> entries;
+
+	/**
+	 * Creates a new empty cache.
+	 */
+	public LutFunctionCache() {
+		entries = new ArrayList<>(InitString.MAX_SUPPORTED_INPUTS + 1);
+		for (int i = 0; i <= InitString.MAX_SUPPORTED_INPUTS; i++)
+			entries.add(new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * @return the cache shared by all {@link LutContents} objects
+	 */
+	public static LutFunctionCache defaultCache() {
+		return defaultCache;
+	}
+
+	/**
+	 * Returns the minimized sum of products equation for the init string.  The
+	 * returned equation is identical to the equation returned by
+	 * {@link LutEquation#convertToLutEquation(InitString)}.
+	 *
+	 * @param initString the function to convert
+	 * @return a copy of the minimized equation of the function
+	 */
+	public LutEquation getEquation(InitString initString) {
+		return getEntry(initString).equation.deepCopy();
+	}
+
+	/**
+	 * Returns the inputs the function in the init string depends on.  Inputs that
+	 * are "don't cares" are not included.
+	 *
+	 * @param initString the function to test
+	 * @return the 1-based indices of the inputs that affect the function
+	 */
+	public Set<Integer> getRequiredInputs(InitString initString) {
+		return getEntry(initString).requiredInputs;
+	}
+
+	/**
+	 * Returns the minimized equation of the function with all unused inputs removed
+	 * and the remaining inputs shifted down as far as possible while maintaining
+	 * their order.  For example, the function (A5*(A2+A3)) is reduced to the
+	 * equation (A3*(A1+A2)).
+	 *
+	 * @param initString the function to reduce
+	 * @return a copy of the reduced equation of the function
+	 */
+	public LutEquation getReducedEquation(InitString initString) {
+		return getEntry(initString).reducedEquation.deepCopy();
+	}
+
+	/**
+	 * Returns the NPN class of the function.  The class is computed the first time
+	 * it is requested for each function.
+	 *
+	 * @param initString the function to classify
+	 * @return the NPN class of the function
+	 */
+	public NpnClass getNpnClass(InitString initString) {
+		Entry entry = getEntry(initString);
+		NpnClass npnClass = entry.npnClass;
+		if (npnClass == null) {
+			// benign race, all threads compute the same value
+			npnClass = NpnClass.compute(initString.getCfgValue(), initString.getNumInputs());
+			entry.npnClass = npnClass;
+		}
+		return npnClass;
+	}
+
+	/**
+	 * @return the number of distinct functions in the cache
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<Long, Entry> map : entries)
+			size += map.size();
+		return size;
+	}
+
+	/**
+	 * Removes all functions from the cache.
+	 */
+	public void clear() {
+		for (Map<Long, Entry> map : entries)
+			map.clear();
+	}
+
+	private Entry getEntry(InitString initString) {
+		Map<Long, Entry> map = entries.get(initString.getNumInputs());
+		Entry entry = map.get(initString.getCfgValue());
+		if (entry == null)
+			entry = map.computeIfAbsent(initString.getCfgValue(),
+				k -> new Entry(new InitString(initString)));
+		return entry;
+	}
+
+	private static final class Entry {
+		final LutEquation equation;
+		final LutEquation reducedEquation;
+		final Set<Integer> requiredInputs;
+		volatile NpnClass npnClass;
+
+		Entry(InitString initString) {
+			equation = LutEquation.convertToLutEquation(initString);
+
+			int support = TruthTables.getSupport(
+				initString.getCfgValue(), initString.getNumInputs());
+			Set<Integer> required = new TreeSet<>();
+			Map<Integer, Integer> mapping = new HashMap<>();
+			int nextAvailablePin = 1;
+			for (int i = 0; i < initString.getNumInputs(); i++) {
+				if ((support & (1 << i)) != 0) {
+					required.add(i + 1);
+					mapping.put(i + 1, nextAvailablePin++);
+				}
+			}
+			requiredInputs = Collections.unmodifiableSet(required);
+
+			reducedEquation = equation.deepCopy();
+			reducedEquation.remapPins(mapping);
+		}
+	}
+}
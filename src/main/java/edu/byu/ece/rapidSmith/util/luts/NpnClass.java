@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The NPN (input Negation, input Permutation, output Negation) equivalence class
+ * of a LUT function.  Two LUT functions belong to the same NPN class if one can be
+ * obtained from the other by inverting some of its inputs, reordering its inputs
+ * and possibly inverting its output.  Each class is represented by its canonical
+ * form, the numerically smallest (unsigned) truth table in the class.
+ *
+ * In addition to the canonical form, an NpnClass records the transform that maps
+ * the function it was computed from onto the canonical form.  The canonical form
+ * is obtained by first inverting the inputs in {@link #getInputNegations()}, then
+ * moving original input {@code getPermutation()[i]} to position {@code i} and
+ * finally inverting the output if {@link #isOutputNegated()} is true.  Input
+ * positions are 0-based (position 0 corresponds to A1).
+ *
+ * Two NpnClass objects are equal if they describe the same equivalence class,
+ * regardless of the transforms they carry.
+ */
+public final class NpnClass {
+	// Sequences of adjacent transpositions enumerating all permutations of
+	// n elements (Steinhaus-Johnson-Trotter), indexed by n
+	private static final int[][] SWAP_SEQUENCES = new int[InitString.MAX_SUPPORTED_INPUTS + 1][];
+	static {
+		for (int n = 0; n <= InitString.MAX_SUPPORTED_INPUTS; n++)
+			SWAP_SEQUENCES[n] = plainChanges(n);
+	}
+
+	private final long canonicalValue;
+	private final int numInputs;
+	private final int[] permutation;
+	private final int inputNegations;
+	private final boolean outputNegated;
+
+	private NpnClass(
+		long canonicalValue, int numInputs, int[] permutation,
+		int inputNegations, boolean outputNegated
+	) {
+		this.canonicalValue = canonicalValue;
+		this.numInputs = numInputs;
+		this.permutation = permutation;
+		this.inputNegations = inputNegations;
+		this.outputNegated = outputNegated;
+	}
+
+	/**
+	 * Computes the NPN class of the function in the init string.  This method
+	 * exhaustively enumerates all input negations and permutations using only
+	 * single-variable flips and adjacent swaps on the 64-bit truth table.  Since this
+	 * is still several thousand operations for a 6-input function, callers that
+	 * classify many LUTs should go through {@link LutFunctionCache#getNpnClass(InitString)}.
+	 *
+	 * @param initString the function to classify
+	 * @return the NPN class of the function
+	 */
+	public static NpnClass compute(InitString initString) {
+		return compute(initString.getCfgValue(), initString.getNumInputs());
+	}
+
+	static NpnClass compute(long cfgValue, int numInputs) {
+		long mask = TruthTables.getMask(numInputs);
+		int[] swaps = SWAP_SEQUENCES[numInputs];
+
+		long best = cfgValue & mask;
+		int[] bestPerm = identity(numInputs);
+		int bestNeg = 0;
+		boolean bestOutNeg = false;
+		if (Long.compareUnsigned(best ^ mask, best) < 0) {
+			best ^= mask;
+			bestOutNeg = true;
+		}
+
+		int[] perm = new int[numInputs];
+		long negated = cfgValue & mask;
+		int negMask = 0;
+		for (int g = 0; g < (1 << numInputs); g++) {
+			// step through the input negations in gray code order so that each
+			// step only needs to flip a single input
+			if (g != 0) {
+				int flipped = Integer.numberOfTrailingZeros(g);
+				negated = TruthTables.flipInput(negated, flipped);
+				negMask ^= 1 << flipped;
+			}
+
+			for (int i = 0; i < numInputs; i++)
+				perm[i] = i;
+			long value = negated;
+			for (int s = -1; s < swaps.length; s++) {
+				if (s >= 0) {
+					int pos = swaps[s];
+					value = TruthTables.swapAdjacentInputs(value, pos);
+					int tmp = perm[pos];
+					perm[pos] = perm[pos + 1];
+					perm[pos + 1] = tmp;
+				}
+
+				if (Long.compareUnsigned(value, best) < 0) {
+					best = value;
+					bestPerm = perm.clone();
+					bestNeg = negMask;
+					bestOutNeg = false;
+				}
+				long inverted = value ^ mask;
+				if (Long.compareUnsigned(inverted, best) < 0) {
+					best = inverted;
+					bestPerm = perm.clone();
+					bestNeg = negMask;
+					bestOutNeg = true;
+				}
+			}
+		}
+		return new NpnClass(best, numInputs, bestPerm, bestNeg, bestOutNeg);
+	}
+
+	/**
+	 * @return the canonical truth table of this class
+	 */
+	public long getCanonicalValue() {
+		return canonicalValue;
+	}
+
+	/**
+	 * @return the canonical form of this class as an init string
+	 */
+	public InitString getCanonicalForm() {
+		return new InitString(canonicalValue, numInputs);
+	}
+
+	/**
+	 * @return the number of inputs of the functions in this class
+	 */
+	public int getNumInputs() {
+		return numInputs;
+	}
+
+	/**
+	 * Returns the input permutation of the transform.  Index {@code i} of the returned
+	 * array holds the 0-based original input that is moved to position {@code i} of
+	 * the canonical form.
+	 *
+	 * @return a copy of the input permutation of the transform
+	 */
+	public int[] getPermutation() {
+		return permutation.clone();
+	}
+
+	/**
+	 * Returns the inputs of the original function that are inverted by the transform
+	 * as a bit mask (bit 0 corresponds to A1).
+	 *
+	 * @return the input negations of the transform
+	 */
+	public int getInputNegations() {
+		return inputNegations;
+	}
+
+	/**
+	 * @return true if the transform inverts the output of the function
+	 */
+	public boolean isOutputNegated() {
+		return outputNegated;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		NpnClass other = (NpnClass) o;
+		return canonicalValue == other.canonicalValue &&
+				numInputs == other.numInputs;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(canonicalValue) + numInputs;
+	}
+
+	@Override
+	public String toString() {
+		return "NpnClass{" +
+				"canonical=" + getCanonicalForm() +
+				", permutation=" + Arrays.toString(permutation) +
+				", inputNegations=0b" + Integer.toBinaryString(inputNegations) +
+				", outputNegated=" + outputNegated +
+				'}';
+	}
+
+	private static int[] identity(int n) {
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++)
+			perm[i] = i;
+		return perm;
+	}
+
+	// Returns the positions p such that swapping elements p and p+1 in order
+	// visits every permutation of n elements exactly once
+	private static int[] plainChanges(int n) {
+		int[] perm = identity(n);
+		int[] dir = new int[n];
+		Arrays.fill(dir, -1);
+		List<Integer> swaps = new ArrayList<>();
+		while (true) {
+			// find the largest mobile element
+			int mobilePos = -1;
+			for (int i = 0; i < n; i++) {
+				int next = i + dir[perm[i]];
+				if (next < 0 || next >= n || perm[next] > perm[i])
+					continue;
+				if (mobilePos == -1 || perm[i] > perm[mobilePos])
+					mobilePos = i;
+			}
+			if (mobilePos == -1)
+				break;
+
+			int element = perm[mobilePos];
+			int next = mobilePos + dir[element];
+			perm[mobilePos] = perm[next];
+			perm[next] = element;
+			swaps.add(Math.min(mobilePos, next));
+			for (int e = element + 1; e < n; e++)
+				dir[e] = -dir[e];
+		}
+
+		int[] ret = new int[swaps.size()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = swaps.get(i);
+		return ret;
+	}
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts;
+
+/**
+ * Bitwise algebra on LUT truth tables stored in a long.  Truth tables use the same
+ * bit ordering as {@link InitString}: bit {@code i} holds the output of the LUT when
+ * the inputs, read as an unsigned number with A1 as the lowest bit, equal {@code i}.
+ *
+ * All operations in this class are performed with a handful of shifts and masks on
+ * the 64-bit word so that packing and pin-remapping algorithms can evaluate large
+ * numbers of candidates without building {@link LutEquation} trees.  Unlike the rest
+ * of the LUT classes, inputs in this class are 0-based (input 0 is A1).  Truth tables
+ * of functions with fewer than 6 inputs are expected to have their unused high bits
+ * cleared as they are in {@link InitString#getCfgValue()}.
+ */
+public final class TruthTables {
+	/** Number of inputs of a fractured LUT5 in a dual-output LUT6. */
+	public static final int LUT5_INPUTS = 5;
+	/** Truth table bits driven to O5 in a dual-output LUT6 (A6 low). */
+	public static final long LUT5_MASK = 0x00000000FFFFFFFFL;
+
+	// Truth tables of the inputs A1-A6
+	private static final long[] INPUT_VALUES = {
+			0xAAAAAAAAAAAAAAAAL,
+			0xCCCCCCCCCCCCCCCCL,
+			0xF0F0F0F0F0F0F0F0L,
+			0xFF00FF00FF00FF00L,
+			0xFFFF0000FFFF0000L,
+			0xFFFFFFFF00000000L
+	};
+
+	private TruthTables() { }
+
+	/**
+	 * Returns the truth table of the function that simply passes the specified input
+	 * (ie. A1 = 0xAAAAAAAAAAAAAAAA).
+	 *
+	 * @param input the 0-based input
+	 * @return the truth table of the input
+	 */
+	public static long getInputValue(int input) {
+		return INPUT_VALUES[input];
+	}
+
+	/**
+	 * @param numInputs number of inputs of the function
+	 * @return the mask of the valid bits of a truth table with {@code numInputs} inputs
+	 */
+	public static long getMask(int numInputs) {
+		return numInputs == 6 ? -1L : (1L << (1 << numInputs)) - 1;
+	}
+
+	/**
+	 * Returns the truth table of the function with the input inverted.
+	 *
+	 * @param value the truth table
+	 * @param input the 0-based input to invert
+	 * @return the truth table of f with input inverted
+	 */
+	public static long flipInput(long value, int input) {
+		int shift = 1 << input;
+		long m = INPUT_VALUES[input];
+		return ((value & m) >>> shift) | ((value << shift) & m);
+	}
+
+	/**
+	 * Returns the truth table of the function with inputs {@code input} and
+	 * {@code input+1} exchanged.
+	 *
+	 * @param value the truth table
+	 * @param input the lower of the two 0-based inputs to exchange
+	 * @return the truth table with the two inputs exchanged
+	 */
+	public static long swapAdjacentInputs(long value, int input) {
+		return swapInputs(value, input, input + 1);
+	}
+
+	/**
+	 * Returns the truth table of the function with inputs {@code i} and {@code j}
+	 * exchanged.
+	 *
+	 * @param value the truth table
+	 * @param i a 0-based input to exchange
+	 * @param j the other 0-based input to exchange
+	 * @return the truth table with the two inputs exchanged
+	 */
+	public static long swapInputs(long value, int i, int j) {
+		if (i == j)
+			return value;
+		if (i > j) {
+			int tmp = i;
+			i = j;
+			j = tmp;
+		}
+		int shift = (1 << j) - (1 << i);
+		long lo = INPUT_VALUES[i];
+		long hi = INPUT_VALUES[j];
+		long up = lo & ~hi;
+		long down = hi & ~lo;
+		return (value & ~(up | down)) | ((value & up) << shift) | ((value & down) >>> shift);
+	}
+
+	/**
+	 * Returns the truth table of the function with its inputs permuted.  Input
+	 * {@code i} of the original function becomes input {@code permutation[i]} of the
+	 * returned function.  {@code permutation} must be a permutation of the inputs
+	 * 0 through {@code permutation.length-1}.
+	 *
+	 * @param value the truth table
+	 * @param permutation the new position of each input
+	 * @return the truth table with its inputs permuted
+	 * @throws IllegalArgumentException if {@code permutation} is not a permutation
+	 */
+	public static long permuteInputs(long value, int[] permutation) {
+		int n = permutation.length;
+		if (n > InitString.MAX_SUPPORTED_INPUTS)
+			throw new IllegalArgumentException("cannot support more than 6 inputs");
+
+		// inverse[pos] = original input that must end up at pos
+		int[] inverse = new int[n];
+		int seen = 0;
+		for (int i = 0; i < n; i++) {
+			int pos = permutation[i];
+			if (pos < 0 || pos >= n || (seen & (1 << pos)) != 0)
+				throw new IllegalArgumentException("not a permutation");
+			seen |= 1 << pos;
+			inverse[pos] = i;
+		}
+
+		// current[pos] = original input currently at pos, selection sort by swaps
+		int[] current = new int[n];
+		int[] location = new int[n];
+		for (int i = 0; i < n; i++) {
+			current[i] = i;
+			location[i] = i;
+		}
+		for (int pos = 0; pos < n; pos++) {
+			int wanted = inverse[pos];
+			int from = location[wanted];
+			if (from == pos)
+				continue;
+			value = swapInputs(value, pos, from);
+			int displaced = current[pos];
+			current[pos] = wanted;
+			current[from] = displaced;
+			location[wanted] = pos;
+			location[displaced] = from;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the negative cofactor of the function with respect to the input, the
+	 * function obtained by fixing the input at 0.  The returned truth table does not
+	 * depend on the input.
+	 *
+	 * @param value the truth table
+	 * @param input the 0-based input to fix
+	 * @return the truth table of f with input = 0
+	 */
+	public static long cofactor0(long value, int input) {
+		long low = value & ~INPUT_VALUES[input];
+		return low | (low << (1 << input));
+	}
+
+	/**
+	 * Returns the positive cofactor of the function with respect to the input, the
+	 * function obtained by fixing the input at 1.  The returned truth table does not
+	 * depend on the input.
+	 *
+	 * @param value the truth table
+	 * @param input the 0-based input to fix
+	 * @return the truth table of f with input = 1
+	 */
+	public static long cofactor1(long value, int input) {
+		long high = value & INPUT_VALUES[input];
+		return high | (high >>> (1 << input));
+	}
+
+	/**
+	 * Tests whether the function depends on the input, ie. whether its cofactors
+	 * with respect to the input differ.
+	 *
+	 * @param value the truth table
+	 * @param numInputs number of inputs of the function
+	 * @param input the 0-based input to test
+	 * @return true if the function depends on the input
+	 */
+	public static boolean dependsOn(long value, int numInputs, int input) {
+		if (input >= numInputs)
+			return false;
+		value &= getMask(numInputs);
+		long m = INPUT_VALUES[input];
+		return ((value & m) >>> (1 << input)) != (value & ~m);
+	}
+
+	/**
+	 * Returns the inputs the function depends on as a bit mask (bit 0 is A1).
+	 *
+	 * @param value the truth table
+	 * @param numInputs number of inputs of the function
+	 * @return mask of the inputs in the support of the function
+	 */
+	public static int getSupport(long value, int numInputs) {
+		int support = 0;
+		for (int i = 0; i < numInputs; i++) {
+			if (dependsOn(value, numInputs, i))
+				support |= 1 << i;
+		}
+		return support;
+	}
+
+	/**
+	 * Extends the truth table to more inputs by replicating it, treating the new high
+	 * inputs as "don't cares".
+	 *
+	 * @param value the truth table
+	 * @param numInputs current number of inputs of the function
+	 * @param newNumInputs the number of inputs to extend the function to
+	 * @return the extended truth table
+	 */
+	public static long extend(long value, int numInputs, int newNumInputs) {
+		value &= getMask(numInputs);
+		for (int i = numInputs; i < newNumInputs; i++)
+			value |= value << (1 << i);
+		return value;
+	}
+
+	/**
+	 * Removes the inputs the function does not depend on, shifting the remaining inputs
+	 * down as far as possible while maintaining their order.  The returned function has
+	 * {@code Integer.bitCount(getSupport(value, numInputs))} inputs.
+	 *
+	 * @param value the truth table
+	 * @param numInputs number of inputs of the function
+	 * @return the compacted truth table
+	 */
+	public static long compact(long value, int numInputs) {
+		int support = getSupport(value, numInputs);
+		int next = 0;
+		for (int i = 0; i < numInputs; i++) {
+			if ((support & (1 << i)) == 0)
+				continue;
+			// unused inputs are don't cares, so moving i down over them is a
+			// sequence of swaps
+			for (int pos = i; pos > next; pos--)
+				value = swapAdjacentInputs(value, pos - 1);
+			next++;
+		}
+		return value & getMask(next);
+	}
+
+	/**
+	 * Returns the O5 half of a LUT6 truth table, the LUT5 function driven when A6 is
+	 * low.  In dual-output mode A6 is tied high and O6 outputs the other half.
+	 *
+	 * @param lut6 the LUT6 truth table
+	 * @return the LUT5 truth table output on O5
+	 */
+	public static long getO5Half(long lut6) {
+		return lut6 & LUT5_MASK;
+	}
+
+	/**
+	 * Returns the O6 half of a LUT6 truth table when the LUT is fractured, the LUT5
+	 * function driven when A6 is high.
+	 *
+	 * @param lut6 the LUT6 truth table
+	 * @return the LUT5 truth table output on O6 in dual-output mode
+	 */
+	public static long getO6Half(long lut6) {
+		return lut6 >>> 32;
+	}
+
+	/**
+	 * Tests whether a LUT6 function can be fractured into a LUT5 without changing its
+	 * behavior, ie. whether it does not depend on A6.
+	 *
+	 * @param lut6 the LUT6 truth table
+	 * @return true if the function fits in a LUT5
+	 */
+	public static boolean fitsInLut5(long lut6) {
+		return !dependsOn(lut6, 6, 5);
+	}
+
+	/**
+	 * Tests whether two functions, both expressed over the same six physical LUT pins,
+	 * can share a single LUT6 in dual-output mode.  This requires that neither
+	 * function uses A6 (which is tied high in this mode) and that together they use
+	 * at most five inputs.
+	 *
+	 * @param o6 truth table of the function to place on O6
+	 * @param o5 truth table of the function to place on O5
+	 * @return true if the functions can be packed into one dual-output LUT6
+	 */
+	public static boolean canPackDualLut5(long o6, long o5) {
+		int support = getSupport(o6, 6) | getSupport(o5, 6);
+		return (support & (1 << 5)) == 0;
+	}
+
+	/**
+	 * Combines two functions into the configuration of a dual-output LUT6.  The
+	 * functions must satisfy {@link #canPackDualLut5(long, long)}.
+	 *
+	 * @param o6 truth table of the function to place on O6
+	 * @param o5 truth table of the function to place on O5
+	 * @return the LUT6 truth table implementing both functions
+	 * @throws IllegalArgumentException if the functions cannot be packed together
+	 */
+	public static long packDualLut5(long o6, long o5) {
+		if (!canPackDualLut5(o6, o5))
+			throw new IllegalArgumentException("functions cannot share a LUT6");
+		return (o6 & ~LUT5_MASK) | (o5 & LUT5_MASK);
+	}
+}
@@ -55,6 +55,7 @@ import edu.byu.ece.rapidSmith.device.SiteType;
 import edu.byu.ece.rapidSmith.device.Wire;
 import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoCheckpoint;
 import edu.byu.ece.rapidSmith.interfaces.vivado.VivadoInterface;
+import edu.byu.ece.rapidSmith.util.CellDesignVerifier;
 import edu.byu.ece.rapidSmith.util.VivadoConsole;
 
 /**
@@ -306,6 +307,18 @@ public abstract class DesignVerificationTest {
 		}
 	}
 	
+	/**
+	 * Verifies that the imported design is internally consistent: each routed
+	 * sink is reached by its route tree, no wire is used by two nets and the
+	 * placement agrees with the cells at each site.
+	 */
+	@Test
+	@DisplayName("Design consistency test")
+	public void consistencyTest() {
+		CellDesignVerifier.Report report = new CellDesignVerifier().verify(vcp.getDesign());
+		assertTrue(report.isValid(), report.toString());
+	}
+	
 	/**
 	 * Verifies that the specified RapidSmith {@link CellNet} uses the same wires as 
 	 * the corresponding net in Vivado.
@@ -22,12 +22,31 @@ package design.rscpImport;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import edu.byu.ece.rapidSmith.RSEnvironment;
+import edu.byu.ece.rapidSmith.design.subsite.Cell;
+import edu.byu.ece.rapidSmith.design.subsite.CellDesign;
+import edu.byu.ece.rapidSmith.design.subsite.CellLibrary;
+import edu.byu.ece.rapidSmith.design.subsite.CellNet;
+import edu.byu.ece.rapidSmith.design.subsite.CellPin;
+import edu.byu.ece.rapidSmith.design.subsite.Property;
+import edu.byu.ece.rapidSmith.design.subsite.PropertyList;
+import edu.byu.ece.rapidSmith.design.subsite.PropertyType;
 import edu.byu.ece.rapidSmith.interfaces.vivado.EdifInterface;
+import edu.byu.ece.rapidSmith.interfaces.vivado.EdifReader;
+import edu.byu.ece.rapidSmith.interfaces.vivado.EdifWriter;
 import edu.byu.ece.rapidSmith.util.Exceptions;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /**
  * This class is used to test the {@link EdifInterface}. Add tests as necessary.
@@ -39,4 +58,172 @@ public class EdifTests {
 	public void exceptionTest() throws IOException {
 		assertThrows(Exceptions.ParseException.class, () -> EdifInterface.parseEdif("bogusEdifFile.edf", null));
 	}
+
+	@Test
+	@DisplayName("Native reader matches EDIF tools")
+	public void nativeReaderTest() throws IOException {
+		EdifInterface.suppressWarnings(true);
+		for (String designName : Arrays.asList("bramdsp", "cordic", "count16", "simon")) {
+			Path rscp = RSEnvironment.defaultEnv().getEnvironmentPath()
+					.resolve("src").resolve("test").resolve("resources")
+					.resolve("ImportTests").resolve("RSCP").resolve("artix7").resolve(designName + ".rscp");
+			CellLibrary libCells = new CellLibrary(RSEnvironment.defaultEnv()
+					.getPartFolderPath("xc7a100tcsg324-3")
+					.resolve("cellLibrary.xml"));
+			libCells.loadMacroXML(rscp.resolve("macros.xml"));
+
+			CellDesign expected = EdifInterface.parseEdif(rscp.resolve("netlist.edf").toString(), libCells);
+			CellDesign actual = new EdifReader(libCells).parse(rscp.resolve("netlist.edf"));
+			assertEquals(describe(expected), describe(actual), designName);
+		}
+	}
+
+	@Test
+	@DisplayName("Native reader decodes escaped strings")
+	public void nativeReaderEscapeTest() throws IOException {
+		String edif = "(edif top (edifVersion 2 0 0) (edifLevel 0) (keywordMap (keywordLevel 0))\n"
+				+ "  (Library work (edifLevel 0) (technology (numberDefinition))\n"
+				+ "    (cell top (cellType GENERIC)\n"
+				+ "      (view netlist (viewType NETLIST)\n"
+				+ "        (interface)\n"
+				+ "        (contents\n"
+				+ "          (net (rename n_0 \"a%34%b%37%c\")))\n"
+				+ "        (property COMMENT (string \"a %34%quoted%34% 50%37% value\"))\n"
+				+ "        (property CODES (string \"%65 66\n67%\")))))\n"
+				+ "  (design top (cellRef top (libraryRef work))\n"
+				+ "    (property part (string \"xc7a100tcsg324-3\"))))\n";
+
+		EdifInterface.suppressWarnings(true);
+		CellLibrary libCells = new CellLibrary(RSEnvironment.defaultEnv()
+				.getPartFolderPath("xc7a100tcsg324-3")
+				.resolve("cellLibrary.xml"));
+		CellDesign design = new EdifReader(libCells).parse(edif.getBytes(StandardCharsets.US_ASCII));
+		assertNotNull(design.getNet("a\"b%c"));
+		assertEquals("a \"quoted\" 50% value", design.getProperties().getStringValue("COMMENT"));
+		assertEquals("ABC", design.getProperties().getStringValue("CODES"));
+	}
+
+	@Test
+	@DisplayName("Native reader reads the streaming writer's escapes")
+	public void nativeReaderRoundTripTest() throws IOException {
+		CellDesign design = new CellDesign("top", "xc7a100tcsg324-3");
+		design.getProperties().update("COMMENT", PropertyType.EDIF, "a \"quoted\" 50% value");
+
+		Path edif = Files.createTempFile("escaped", ".edf");
+		try {
+			new EdifWriter().write(design, edif);
+			EdifInterface.suppressWarnings(true);
+			CellLibrary libCells = new CellLibrary(RSEnvironment.defaultEnv()
+					.getPartFolderPath("xc7a100tcsg324-3")
+					.resolve("cellLibrary.xml"));
+			CellDesign read = new EdifReader(libCells).parse(edif);
+			assertEquals("a \"quoted\" 50% value", read.getProperties().getStringValue("COMMENT"));
+		} finally {
+			Files.delete(edif);
+		}
+	}
+
+	@Test
+	@DisplayName("Native reader parse exception")
+	public void nativeReaderExceptionTest() {
+		byte[] edif = "(edif top (library work (cell top".getBytes(StandardCharsets.US_ASCII);
+		assertThrows(Exceptions.ParseException.class, () -> new EdifReader(new CellLibrary()).parse(edif));
+	}
+
+	@Test
+	@DisplayName("Streaming writer round trip")
+	public void streamingWriterTest() throws IOException {
+		EdifInterface.suppressWarnings(true);
+		Path rscp = RSEnvironment.defaultEnv().getEnvironmentPath()
+				.resolve("src").resolve("test").resolve("resources")
+				.resolve("ImportTests").resolve("RSCP").resolve("artix7").resolve("count16.rscp");
+		CellLibrary libCells = new CellLibrary(RSEnvironment.defaultEnv()
+				.getPartFolderPath("xc7a100tcsg324-3")
+				.resolve("cellLibrary.xml"));
+		CellDesign design = new EdifReader(libCells).parse(rscp.resolve("netlist.edf"));
+
+		Path sequential = Files.createTempFile("sequential", ".edf");
+		Path parallel = Files.createTempFile("parallel", ".edf");
+		try {
+			new EdifWriter().setParallelism(1).write(design, sequential);
+			new EdifWriter().setParallelism(4).write(design, parallel);
+			assertEquals(withoutTimeStamp(sequential), withoutTimeStamp(parallel));
+			assertEquals(describe(design), describe(EdifInterface.parseEdif(sequential.toString(), libCells)));
+		} finally {
+			Files.delete(sequential);
+			Files.delete(parallel);
+		}
+	}
+
+	@Test
+	@DisplayName("Streaming writer matches EDIF tools writer")
+	public void streamingWriterEquivalenceTest() throws IOException {
+		EdifInterface.suppressWarnings(true);
+		Path rscp = RSEnvironment.defaultEnv().getEnvironmentPath()
+				.resolve("src").resolve("test").resolve("resources")
+				.resolve("ImportTests").resolve("RSCP").resolve("artix7").resolve("simon.rscp");
+		CellLibrary libCells = new CellLibrary(RSEnvironment.defaultEnv()
+				.getPartFolderPath("xc7a100tcsg324-3")
+				.resolve("cellLibrary.xml"));
+		libCells.loadMacroXML(rscp.resolve("macros.xml"));
+		CellDesign design = EdifInterface.parseEdif(rscp.resolve("netlist.edf").toString(), libCells);
+
+		Path tools = Files.createTempFile("tools", ".edf");
+		Path streamed = Files.createTempFile("streamed", ".edf");
+		try {
+			EdifInterface.writeEdif(tools.toString(), design);
+			new EdifWriter().write(design, streamed);
+			// the EDIF tools list library cells, ports and properties in hash order
+			assertEquals(sortedLines(tools), sortedLines(streamed));
+		} finally {
+			Files.delete(tools);
+			Files.delete(streamed);
+		}
+	}
+
+	@Test
+	@DisplayName("Streaming writer escapes strings")
+	public void streamingWriterEscapeTest() throws IOException {
+		CellDesign design = new CellDesign();
+		design.setName("top");
+		design.getProperties().update("COMMENT", PropertyType.EDIF, "a \"quoted\" 50% value");
+
+		Path edif = Files.createTempFile("escaped", ".edf");
+		try {
+			new EdifWriter().write(design, edif);
+			String netlist = new String(Files.readAllBytes(edif), StandardCharsets.UTF_8);
+			assertTrue(netlist.contains("(property COMMENT (string \"a %34%quoted%34% 50%37% value\"))"), netlist);
+		} finally {
+			Files.delete(edif);
+		}
+	}
+
+	private static List<String> sortedLines(Path edif) throws IOException {
+		return Arrays.stream(withoutTimeStamp(edif).split("\n")).sorted().collect(Collectors.toList());
+	}
+
+	private static String withoutTimeStamp(Path edif) throws IOException {
+		return new String(Files.readAllBytes(edif), StandardCharsets.UTF_8).replaceAll("\\(timeStamp[^)]*\\)", "");
+	}
+
+	private static Set<String> describe(CellDesign design) {
+		Set<String> description = new TreeSet<>();
+		description.add(design.getName() + " " + design.getPartName() + " " + describe(design.getProperties()));
+		for (Cell cell : design.getCells())
+			description.add(cell.getName() + " " + cell.getLibCell().getName() + " " + describe(cell.getProperties()));
+		for (CellNet net : design.getNets()) {
+			Set<String> pins = new TreeSet<>();
+			for (CellPin pin : net.getPins())
+				pins.add(pin.getFullName());
+			description.add(net.getName() + " " + net.getType() + " " + pins);
+		}
+		return description;
+	}
+
+	private static Set<String> describe(PropertyList properties) {
+		Set<String> description = new TreeSet<>();
+		for (Property property : properties)
+			description.add(property.toString());
+		return description;
+	}
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite
+
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class BelOccupancyTests {
+	private val builder = TestDeviceBuilder("occupancyTestFamily", "xoccupancytest")
+	private val device = builder.device
+	private val slicel = builder.siteType("SLICEL")
+	private val slicem = builder.siteType("SLICEM")
+	private val design = CellDesign()
+	private val ff = SimpleLibraryCell("FDRE")
+
+	init {
+		ff.libraryPins = listOf(
+			LibraryPin("D", ff, PinDirection.IN),
+			LibraryPin("Q", ff, PinDirection.OUT))
+	}
+
+	@BeforeEach
+	fun buildDevice() {
+		builder.tiles(1, 2)
+		builder.siteTemplate(slicel, belTemplates(slicel, "A6LUT", "AFF", "B6LUT"))
+		builder.siteTemplate(slicem, belTemplates(slicem, "SRL", "A6LUT", "AFF", "B6LUT"))
+
+		// the second site of each tile can also be a SLICEL
+		for (col in 0 until 2) {
+			val tile = builder.tile(0, col, "CLB_X${col}Y0", "CLB")
+			builder.site(tile, "SLICE_X${2 * col}Y0", slicel)
+			builder.site(tile, "SLICE_X${2 * col + 1}Y0", slicem, slicel)
+		}
+		builder.build()
+
+		ff.setPossibleBels(listOf(BelId(slicel, "AFF"), BelId(slicem, "AFF")))
+	}
+
+	private fun allBels(): List<Bel> =
+		device.sites.values.flatMap { site ->
+			site.possibleTypes.flatMap { type ->
+				device.getSiteTemplate(type).belTemplates.keys.map { site.getBel(type, it) }
+			}
+		}
+
+	@Test
+	@DisplayName("every BEL of every possible site type has its own index")
+	fun belIndex() {
+		val index = device.belIndex
+		val bels = allBels()
+		// two SLICEL sites with 3 BELs, two SLICEM/SLICEL sites with 4 + 3 BELs
+		assertEquals(20, bels.size)
+		assertEquals(bels.size, index.size())
+		assertEquals((0 until index.size()).toSet(), bels.map { index.indexOf(it) }.toSet())
+
+		// BELs are numbered by name within a site type
+		val site = device.getSite("SLICE_X1Y0")
+		val a6lut = index.indexOf(site.getBel(slicem, "A6LUT"))
+		assertEquals(a6lut + 1, index.indexOf(site.getBel(slicem, "AFF")))
+		assertEquals(a6lut + 3, index.indexOf(site.getBel(slicem, "SRL")))
+		assertNotEquals(index.indexOf(site.getBel(slicem, "AFF")), index.indexOf(site.getBel(slicel, "AFF")))
+		assertEquals(index.indexOf(site.getBel("AFF")), index.indexOf(site.getBel(BelId(slicem, "AFF"))))
+	}
+
+	@Test
+	@DisplayName("placing and unplacing cells updates the occupied BELs")
+	fun occupancy() {
+		val bel = device.getSite("SLICE_X2Y0").getBel("AFF")
+		val cell = design.addCell(Cell("ff", ff))
+		assertFalse(design.isBelUsed(bel))
+		assertNull(design.getCellAtBel(bel))
+
+		design.placeCell(cell, bel)
+		assertTrue(design.isBelUsed(bel))
+		assertSame(cell, design.getCellAtBel(bel))
+		assertEquals(listOf(bel), allBels().filter { design.isBelUsed(it) })
+		assertFalse(design.canPlaceCellAt(design.addCell(Cell("ff2", ff)), bel))
+
+		design.unplaceCell(cell)
+		assertFalse(design.isBelUsed(bel))
+		assertNull(design.getCellAtBel(bel))
+		assertTrue(allBels().none { design.isBelUsed(it) })
+	}
+
+	@Test
+	@DisplayName("the occupancy of the alternate site type is tracked separately")
+	fun alternateType() {
+		val site = device.getSite("SLICE_X1Y0")
+		val cell = design.addCell(Cell("ff", ff))
+		design.placeCell(cell, site.getBel(slicel, "AFF"))
+		assertTrue(design.isBelUsed(site.getBel(slicel, "AFF")))
+		assertFalse(design.isBelUsed(site.getBel(slicem, "AFF")))
+		assertSame(cell, design.getCellAtBel(site.getBel(slicel, "AFF")))
+	}
+
+	@Test
+	@DisplayName("possible anchors follow the possible BELs of the library cell")
+	fun possibleAnchor() {
+		val site = device.getSite("SLICE_X1Y0")
+		assertTrue(ff.isPossibleAnchor(site.getBel(slicem, "AFF")))
+		assertTrue(ff.isPossibleAnchor(site.getBel(slicel, "AFF")))
+		assertFalse(ff.isPossibleAnchor(site.getBel(slicem, "A6LUT")))
+		assertFalse(ff.isPossibleAnchor(site.getBel(slicem, "SRL")))
+		assertTrue(design.canPlaceCellAt(design.addCell(Cell("ff", ff)), site.getBel(slicem, "AFF")))
+
+		// changing the possible BELs discards the cached masks
+		ff.setPossibleBels(listOf(BelId(slicem, "SRL")))
+		assertFalse(ff.isPossibleAnchor(site.getBel(slicem, "AFF")))
+		assertFalse(ff.isPossibleAnchor(site.getBel(slicel, "AFF")))
+		assertTrue(ff.isPossibleAnchor(site.getBel(slicem, "SRL")))
+	}
+}
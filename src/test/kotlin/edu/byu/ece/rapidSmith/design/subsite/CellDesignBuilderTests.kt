@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.device.PinDirection
+import edu.byu.ece.rapidSmith.util.Exceptions
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class CellDesignBuilderTests {
+	private val design = CellDesign()
+	private val lut = SimpleLibraryCell("LUT1")
+	private val macro = LibraryMacro("MACRO")
+
+	init {
+		lut.libraryPins = listOf(
+			LibraryPin("I0", lut, PinDirection.IN),
+			LibraryPin("O", lut, PinDirection.OUT))
+		macro.libraryPins = emptyList()
+		macro.addInternalCell("L", lut)
+	}
+
+	@Test
+	@DisplayName("built cells, nets and connections are in the design")
+	fun bulkBuild() {
+		val cells = (0 until 4).map { Cell("c$it", lut) }
+		val nets = (0 until 3).map { CellNet("n$it", NetType.WIRE) }
+		val builder = CellDesignBuilder(design).addCells(cells).addNets(nets)
+		for (i in 0 until 3) {
+			builder.connect(nets[i], cells[i].getPin("O"))
+			builder.connect(nets[i], cells[i + 1].getPin("I0"))
+		}
+		builder.build()
+
+		assertEquals(cells.toSet(), design.cells.toSet())
+		assertEquals(nets.toSet(), design.nets.toSet())
+		for (i in 0 until 3) {
+			assertSame(design, nets[i].design)
+			assertEquals(setOf(cells[i].getPin("O"), cells[i + 1].getPin("I0")), nets[i].pins.toSet())
+			assertSame(cells[i].getPin("O"), nets[i].sourcePin)
+			assertSame(nets[i], cells[i + 1].getPin("I0").net)
+		}
+	}
+
+	@Test
+	@DisplayName("small builds keep the cell and net maps of the design")
+	fun smallBuilds() {
+		val cells = design.cells
+		val nets = design.nets
+		for (i in 0 until 3) {
+			CellDesignBuilder(design)
+				.addCell(Cell("c$i", lut))
+				.addNet(CellNet("n$i", NetType.WIRE))
+				.build()
+		}
+		assertEquals(setOf("c0", "c1", "c2"), cells.map { it.name }.toSet())
+		assertEquals(setOf("n0", "n1", "n2"), nets.map { it.name }.toSet())
+	}
+
+	@Test
+	@DisplayName("a duplicate name leaves the design unmodified")
+	fun duplicateName() {
+		design.addCell(Cell("x", lut))
+		val builder = CellDesignBuilder(design)
+			.addCell(Cell("a", lut))
+			.addCell(Cell("x", lut))
+			.addNet(CellNet("n", NetType.WIRE))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { builder.build() }
+		assertEquals(listOf("x"), design.cells.map { it.name })
+		assertTrue(design.nets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("a duplicate net with connected pins leaves the design unmodified")
+	fun duplicateConnectedNet() {
+		design.addNet(CellNet("n", NetType.WIRE))
+		val cell = Cell("a", lut)
+		val first = CellNet("m", NetType.WIRE)
+		val duplicate = CellNet("n", NetType.WIRE)
+		first.connectToPin(cell.getPin("O"))
+		duplicate.connectToPin(cell.getPin("I0"))
+		val builder = CellDesignBuilder(design)
+			.addCell(cell)
+			.addNets(first, duplicate)
+		val e = assertThrows(Exceptions.DesignAssemblyException::class.java) { builder.build() }
+		assertTrue(e.message!!.startsWith("Net with name already exists"))
+		assertFalse(design.hasCell("a"))
+		assertFalse(cell.isInDesign)
+		assertFalse(first.isInDesign)
+		assertEquals(listOf("n"), design.nets.map { it.name })
+	}
+
+	@Test
+	@DisplayName("names repeated within the builder are rejected")
+	fun duplicateWithinBuilder() {
+		val cells = CellDesignBuilder(design)
+			.addCells(Cell("a", lut), Cell("a", lut))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { cells.build() }
+		val nets = CellDesignBuilder(design)
+			.addNets(CellNet("n", NetType.WIRE), CellNet("n", NetType.WIRE))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { nets.build() }
+		assertTrue(design.cells.isEmpty())
+		assertTrue(design.nets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("internal cell names are checked against the design and the builder")
+	fun duplicateInternalName() {
+		design.addCell(Cell("m/L", lut))
+		val existing = CellDesignBuilder(design).addCell(Cell("m", macro))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { existing.build() }
+		assertFalse(design.hasCell("m"))
+
+		val earlier = CellDesignBuilder(design)
+			.addCell(Cell("n/L", lut))
+			.addCell(Cell("n", macro))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { earlier.build() }
+		assertEquals(listOf("m/L"), design.cells.map { it.name })
+	}
+
+	@Test
+	@DisplayName("connecting a pin twice is rejected")
+	fun duplicateConnection() {
+		val cell = Cell("c", lut)
+		val net = CellNet("n", NetType.WIRE)
+		val builder = CellDesignBuilder(design)
+			.addCell(cell)
+			.addNet(net)
+			.connect(net, cell.getPin("O"))
+			.connect(net, cell.getPin("O"))
+		assertThrows(Exceptions.DesignAssemblyException::class.java) { builder.build() }
+	}
+}
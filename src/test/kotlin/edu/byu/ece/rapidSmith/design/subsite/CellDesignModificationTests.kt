@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.design.subsite
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class CellDesignModificationTests {
+	private val design = CellDesign()
+	private val a = CellNet("a", NetType.WIRE)
+	private val b = CellNet("b", NetType.WIRE)
+	private val ff = SimpleLibraryCell("FDRE")
+	private lateinit var site: Site
+
+	init {
+		ff.libraryPins = listOf(
+			LibraryPin("D", ff, PinDirection.IN),
+			LibraryPin("Q", ff, PinDirection.OUT))
+	}
+
+	@BeforeEach
+	fun addNets() {
+		design.addNet(a)
+		design.addNet(b)
+	}
+
+	@BeforeEach
+	fun buildSite() {
+		val builder = TestDeviceBuilder("modificationTestFamily")
+		val type = builder.siteType("SLICEL")
+		builder.tiles(1, 1)
+		builder.siteTemplate(type, belTemplates(type, "AFF", "BFF"))
+		site = builder.site(builder.tile(0, 0, "CLB_X0Y0", "CLB"), "SLICE_X0Y0", type)
+		builder.build()
+	}
+
+	@Test
+	@DisplayName("routing changes mark nets as modified")
+	fun routingMarksNets() {
+		assertTrue(design.modifiedNets.isEmpty())
+		b.unrouteIntersite()
+		a.setIntersiteRouteTrees(ArrayList())
+		assertEquals(listOf(b, a), design.modifiedNets.toList())
+	}
+
+	@Test
+	@DisplayName("clearing modifications forgets modified nets")
+	fun clearModifications() {
+		a.unrouteFull()
+		design.clearModifications()
+		assertTrue(design.modifiedNets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("removed nets are no longer modified")
+	fun removedNets() {
+		a.unrouteFull()
+		design.removeNet(a)
+		assertTrue(design.modifiedNets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("nets outside of the design are not recorded")
+	fun netOutsideDesign() {
+		val other = CellNet("other", NetType.WIRE)
+		other.unrouteFull()
+		design.markNetModified(other)
+		assertTrue(design.modifiedNets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("placing and unplacing cells marks them as modified")
+	fun placementMarksCells() {
+		val c0 = design.addCell(Cell("c0", ff))
+		val c1 = design.addCell(Cell("c1", ff))
+		assertTrue(design.modifiedCells.isEmpty())
+
+		design.placeCell(c1, site.getBel("AFF"))
+		design.placeCell(c0, site.getBel("BFF"))
+		design.unplaceCell(c1)
+		assertEquals(listOf(c1, c0), design.modifiedCells.toList())
+
+		design.clearModifications()
+		assertTrue(design.modifiedCells.isEmpty())
+		design.unplaceCell(c0)
+		assertEquals(listOf(c0), design.modifiedCells.toList())
+	}
+
+	@Test
+	@DisplayName("placing and unplacing cells marks their nets as modified")
+	fun placementMarksNets() {
+		val c0 = design.addCell(Cell("c0", ff))
+		val c1 = design.addCell(Cell("c1", ff))
+		a.connectToPin(c0.getPin("D"))
+		b.connectToPin(c0.getPin("Q"))
+
+		design.placeCell(c1, site.getBel("AFF"))
+		assertTrue(design.modifiedNets.isEmpty())
+		design.placeCell(c0, site.getBel("BFF"))
+		assertEquals(setOf(a, b), design.modifiedNets)
+
+		design.clearModifications()
+		design.unplaceCell(c0)
+		assertEquals(setOf(a, b), design.modifiedNets)
+	}
+
+	@Test
+	@DisplayName("removed cells are no longer modified")
+	fun removedCells() {
+		val c0 = design.addCell(Cell("c0", ff))
+		val c1 = design.addCell(Cell("c1", ff))
+		design.placeCell(c0, site.getBel("AFF"))
+		design.placeCell(c1, site.getBel("BFF"))
+		design.removeCell(c0)
+		assertEquals(listOf(c1), design.modifiedCells.toList())
+	}
+
+	@Test
+	@DisplayName("the modified cells and nets cannot be changed through the returned sets")
+	fun unmodifiableSets() {
+		val c0 = design.addCell(Cell("c0", ff))
+		design.placeCell(c0, site.getBel("AFF"))
+		a.unrouteFull()
+		assertThrows(UnsupportedOperationException::class.java) { design.modifiedCells.clear() }
+		assertThrows(UnsupportedOperationException::class.java) { design.modifiedNets.clear() }
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite
+
+import edu.byu.ece.rapidSmith.RSEnvironment
+import edu.byu.ece.rapidSmith.device.FamilyType
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Comparator
+
+class PinMappingTests {
+	private lateinit var dir: Path
+	private lateinit var xml: Path
+	private lateinit var cache: Path
+
+	@BeforeEach
+	fun writeMappings() {
+		dir = Files.createTempDirectory("pinMappings")
+		xml = dir.resolve(PinMapping.PIN_MAPPINGS_FILENAME)
+		cache = dir.resolve(PinMapping.PIN_MAPPINGS_CACHE_FILENAME)
+		Files.write(xml, ("""<?xml version="1.0" encoding="UTF-8"?>
+			<cells>
+			  <cell type="RAMB18E1" bel="RAMB18E1" hash="RAMB18E1 RAMB18E1 TDP 9">
+			    <properties><property key="RAM_MODE" val="TDP" /><property key="READ_WIDTH_A" val="9" /></properties>
+			    <pins>
+			      <pin cellPin="ADDRARDADDR[0]" belPin="ADDRARDADDR0" />
+			      <pin cellPin="DIADI[0]" belPin="DIADI1" />
+			      <pin cellPin="DIADI[0]" belPin="DIADI0" />
+			    </pins>
+			  </cell>
+			  <cell type="RAMB18E1" bel="RAMB18E1" hash="RAMB18E1 RAMB18E1 SDP 9">
+			    <properties><property key="RAM_MODE" val="SDP" /><property key="READ_WIDTH_A" val="9" /></properties>
+			    <duplic hash="RAMB18E1 RAMB18E1 TDP 9" />
+			  </cell>
+			</cells>
+			""").toByteArray())
+	}
+
+	@AfterEach
+	fun deleteMappings() {
+		Files.deleteIfExists(cache)
+		Files.deleteIfExists(xml)
+		Files.deleteIfExists(dir)
+	}
+
+	@Test
+	@DisplayName("binary cache round trips the pin mappings")
+	fun cacheRoundTrip() {
+		val parsed = PinMapping.parsePinMappings(xml)
+		PinMapping.writePinMappingsCache(cache, xml, parsed)
+		val loaded = PinMapping.readPinMappingsCache(cache, xml)!!
+
+		val tdp = loaded["RAMB18E1 RAMB18E1 TDP 9"]!!
+		val sdp = loaded["RAMB18E1 RAMB18E1 SDP 9"]!!
+		assertAll(
+			Executable { assertEquals(parsed.keys, loaded.keys) },
+			Executable { assertEquals(parsed.values.map { it.toString() }.toSet(), loaded.values.map { it.toString() }.toSet()) },
+			Executable { assertEquals(listOf("DIADI0", "DIADI1"), tdp.pins["DIADI[0]"]) },
+			Executable { assertEquals("SDP", sdp.props["RAM_MODE"]) },
+			Executable { assertEquals("RAMB18E1 RAMB18E1 TDP 9", sdp.duplic) }
+		)
+	}
+
+	@Test
+	@DisplayName("binary cache is ignored when the XML file changes")
+	fun staleCache() {
+		PinMapping.writePinMappingsCache(cache, xml, PinMapping.parsePinMappings(xml))
+		Files.write(xml, "<cells></cells>".toByteArray())
+		assertNull(PinMapping.readPinMappingsCache(cache, xml))
+	}
+
+	@Test
+	@DisplayName("missing binary cache is reported as absent")
+	fun missingCache() {
+		assertNull(PinMapping.readPinMappingsCache(cache, xml))
+	}
+
+	@Test
+	@DisplayName("truncated or corrupt binary cache is reported as stale")
+	fun corruptCache() {
+		PinMapping.writePinMappingsCache(cache, xml, PinMapping.parsePinMappings(xml))
+		val bytes = Files.readAllBytes(cache)
+		// only the cache is left in the folder, no temporary file
+		assertEquals(setOf(xml.fileName.toString(), cache.fileName.toString()), dir.toFile().list()!!.toSet())
+
+		Files.write(cache, bytes.copyOf(bytes.size - 5))
+		assertNull(PinMapping.readPinMappingsCache(cache, xml))
+
+		// a single mapping with a negative count of BEL pins after the valid header
+		val corrupt = ByteArrayOutputStream()
+		DataOutputStream(corrupt).use { out ->
+			out.write(bytes, 0, 24)
+			out.writeInt(1)
+			listOf("RAMB18E1", "RAMB18E1", "RAMB18E1 RAMB18E1 TDP 9").forEach { out.writeUTF(it) }
+			out.writeInt(0)
+			out.writeBoolean(false)
+			out.writeInt(1)
+			out.writeUTF("DIADI[0]")
+			out.writeInt(-1)
+		}
+		Files.write(cache, corrupt.toByteArray())
+		assertNull(PinMapping.readPinMappingsCache(cache, xml))
+	}
+
+	@Test
+	@DisplayName("pin mappings load from the XML file when the binary cache is truncated")
+	fun loadTruncatedCache() {
+		val env = Files.createTempDirectory("rsenv")
+		val home = Files.createTempDirectory("home")
+		val family = FamilyType.valueOf("ARTIX7")
+		val userHome = System.getProperty("user.home")
+		try {
+			val envXml = Files.createDirectories(env.resolve("devices").resolve("artix7"))
+				.resolve(PinMapping.PIN_MAPPINGS_FILENAME)
+			Files.copy(xml, envXml)
+			val userCache = Files.createDirectories(home.resolve(RSEnvironment.USER_FOLDER_NAME)
+				.resolve("devices").resolve("artix7")).resolve(PinMapping.PIN_MAPPINGS_CACHE_FILENAME)
+			RSEnvironment.setDefaultEnv(RSEnvironment(env))
+			System.setProperty("user.home", home.toString())
+
+			PinMapping.writePinMappingsCache(userCache, envXml, PinMapping.parsePinMappings(envXml))
+			val bytes = Files.readAllBytes(userCache)
+			Files.write(userCache, bytes.copyOf(bytes.size / 2))
+
+			val loaded = PinMapping.loadPinMappings(family)
+			assertAll(
+				Executable { assertEquals(PinMapping.parsePinMappings(xml).keys, loaded.keys) },
+				Executable { assertEquals(loaded.keys, PinMapping.readPinMappingsCache(userCache, envXml)?.keys) }
+			)
+		} finally {
+			System.setProperty("user.home", userHome)
+			RSEnvironment.setDefaultEnv(null)
+			Files.walk(env).sorted(Comparator.reverseOrder()).forEach { Files.delete(it) }
+			Files.walk(home).sorted(Comparator.reverseOrder()).forEach { Files.delete(it) }
+		}
+	}
+
+	@Test
+	@DisplayName("saved binary cache is written to the user's folder")
+	fun cacheInUserFolder() {
+		val env = Files.createTempDirectory("rsenv")
+		val home = Files.createTempDirectory("home")
+		val family = FamilyType.valueOf("ARTIX7")
+		val userHome = System.getProperty("user.home")
+		try {
+			Files.createDirectories(env.resolve("devices").resolve("artix7"))
+			RSEnvironment.setDefaultEnv(RSEnvironment(env))
+			System.setProperty("user.home", home.toString())
+
+			PinMapping.savePinMappings(family, PinMapping.parsePinMappings(xml))
+			val envXml = env.resolve("devices").resolve("artix7").resolve(PinMapping.PIN_MAPPINGS_FILENAME)
+			val userCache = home.resolve(RSEnvironment.USER_FOLDER_NAME).resolve("devices")
+				.resolve("artix7").resolve(PinMapping.PIN_MAPPINGS_CACHE_FILENAME)
+			assertAll(
+				Executable { assertTrue(Files.exists(envXml)) },
+				Executable { assertFalse(Files.exists(envXml.resolveSibling(PinMapping.PIN_MAPPINGS_CACHE_FILENAME))) },
+				Executable { assertNotNull(PinMapping.readPinMappingsCache(userCache, envXml)) }
+			)
+		} finally {
+			System.setProperty("user.home", userHome)
+			RSEnvironment.setDefaultEnv(null)
+			Files.walk(env).sorted(Comparator.reverseOrder()).forEach { Files.delete(it) }
+			Files.walk(home).sorted(Comparator.reverseOrder()).forEach { Files.delete(it) }
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.design.subsite
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.device.TestDeviceBuilder
+import edu.byu.ece.rapidSmith.device.TileWire
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class WireOccupancyTests {
+	private val builder = TestDeviceBuilder("wireOccupancyTestFamily")
+	private val design = CellDesign()
+	private val a = CellNet("a", NetType.WIRE)
+	private val b = CellNet("b", NetType.WIRE)
+
+	@BeforeEach
+	fun addNets() {
+		builder.tiles(4, 4)
+		design.addNet(a)
+		design.addNet(b)
+	}
+
+	private fun wire(row: Int, col: Int, wire: Int) = TileWire(builder.device.getTile(row, col), wire)
+
+	@Test
+	@DisplayName("occupancy is built from the existing routing")
+	fun rebuildFromRouting() {
+		a.addIntersiteRouteTree(RouteTree(wire(0, 0, 1)))
+		b.addIntersiteRouteTree(RouteTree(wire(3, 2, 1)))
+		val occupancy = design.wireOccupancy
+		assertEquals(2, occupancy.size())
+		assertSame(a, occupancy.getOwner(wire(0, 0, 1)))
+		assertSame(b, occupancy.getOwner(wire(3, 2, 1)))
+		assertNull(occupancy.getOwner(wire(0, 0, 2)))
+	}
+
+	@Test
+	@DisplayName("routing changes update the occupancy")
+	fun routingUpdates() {
+		val occupancy = design.wireOccupancy
+		a.addIntersiteRouteTree(RouteTree(wire(1, 1, 5)))
+		assertTrue(occupancy.isUsed(wire(1, 1, 5)))
+		assertTrue(occupancy.isUsedByOtherNet(wire(1, 1, 5), b))
+		assertFalse(occupancy.isUsedByOtherNet(wire(1, 1, 5), a))
+
+		a.unrouteIntersite()
+		assertFalse(occupancy.isUsed(wire(1, 1, 5)))
+		assertEquals(0, occupancy.size())
+
+		b.setIntersiteRouteTrees(arrayListOf(RouteTree(wire(2, 2, 0))))
+		assertSame(b, occupancy.getOwner(wire(2, 2, 0)))
+		design.removeNet(b)
+		assertFalse(occupancy.isUsed(wire(2, 2, 0)))
+	}
+
+	@Test
+	@DisplayName("wires used by two nets are conflicts until one is unrouted")
+	fun conflicts() {
+		val occupancy = design.wireOccupancy
+		a.addIntersiteRouteTree(RouteTree(wire(0, 1, 3)))
+		b.addIntersiteRouteTree(RouteTree(wire(0, 1, 3)))
+		assertTrue(occupancy.hasConflicts())
+		assertEquals(setOf(a, b), occupancy.conflicts[wire(0, 1, 3)])
+		assertEquals(listOf(wire(0, 1, 3)), occupancy.getOverlaps(RouteTree(wire(0, 1, 3)), a))
+
+		a.unrouteFull()
+		assertFalse(occupancy.hasConflicts())
+		assertSame(b, occupancy.getOwner(wire(0, 1, 3)))
+		assertTrue(occupancy.getOverlaps(RouteTree(wire(0, 1, 3)), b).isEmpty())
+	}
+}
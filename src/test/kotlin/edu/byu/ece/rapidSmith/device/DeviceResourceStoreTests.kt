@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class DeviceResourceStoreTests {
+	private val family = FamilyType.valueOf("storeTestFamily")
+
+	@AfterEach
+	fun clearStore() {
+		DeviceResourceStore.forFamily(family).clear()
+	}
+
+	@Test
+	@DisplayName("content hash does not depend on insertion order")
+	fun contentHashOrder() {
+		val a = WireHashMap()
+		a.put(1, arrayOf(WireConnection(2, 0, 1, true)))
+		a.put(5, arrayOf(WireConnection(3, -1, 0, false)))
+		val b = WireHashMap()
+		b.put(5, arrayOf(WireConnection(3, -1, 0, false)))
+		b.put(1, arrayOf(WireConnection(2, 0, 1, true)))
+		assertEquals(a.contentHash, b.contentHash)
+	}
+
+	@Test
+	@DisplayName("content hash differs when a connection changes")
+	fun contentHashDiffers() {
+		val a = WireHashMap()
+		a.put(1, arrayOf(WireConnection(2, 0, 1, true)))
+		val b = WireHashMap()
+		b.put(1, arrayOf(WireConnection(2, 0, 1, false)))
+		assertNotEquals(a.contentHash, b.contentHash)
+	}
+
+	@Test
+	@DisplayName("identical wire hash maps are shared")
+	fun sharesIdenticalMaps() {
+		val store = DeviceResourceStore.forFamily(family)
+		val we1 = store.intern(enumerator())
+		val we2 = store.intern(enumerator())
+		assertSame(we1, we2)
+
+		val a = WireHashMap()
+		a.put(0, arrayOf(WireConnection(1, 0, 0, true)))
+		val b = WireHashMap()
+		b.put(0, arrayOf(WireConnection(1, 0, 0, true)))
+		val c = WireHashMap()
+		c.put(0, arrayOf(WireConnection(1, 1, 0, true)))
+		assertSame(store.intern(we1, a), store.intern(we2, b))
+		assertSame(c, store.intern(we1, c))
+	}
+
+	@Test
+	@DisplayName("maps of different wire enumerators are not shared")
+	fun enumeratorsSeparate() {
+		val store = DeviceResourceStore.forFamily(family)
+		val we1 = store.intern(enumerator())
+		val other = enumerator()
+		other.wires = arrayOf("B", "A")
+		val we2 = store.intern(other)
+		assertNotSame(we1, we2)
+
+		val a = WireHashMap()
+		a.put(0, arrayOf(WireConnection(1, 0, 0, true)))
+		val b = WireHashMap()
+		b.put(0, arrayOf(WireConnection(1, 0, 0, true)))
+		store.intern(we1, a)
+		assertSame(b, store.intern(we2, b))
+	}
+
+	@Test
+	@DisplayName("shared site templates are built once when they are interned")
+	fun templatesBuiltOnce() {
+		val store = DeviceResourceStore.forFamily(family)
+		val we = store.intern(enumerator())
+		val type = SiteType.valueOf(family, "SLICE")
+		fun template(): SiteTemplate {
+			val template = SiteTemplate()
+			template.type = type
+			template.belTemplates = belTemplates(type, "AFF", "BFF")
+			template.sources = emptyMap()
+			template.sinks = mapOf("I" to sitePin(type, "I", 1, PinDirection.IN))
+			return template
+		}
+
+		val first = store.intern(we, template())
+		assertTrue(first.hasDependentResources())
+		val belPins = first.belPins
+		val second = template()
+		assertSame(first, store.intern(we, second))
+		assertFalse(second.hasDependentResources())
+
+		val builder = TestDeviceBuilder("storeTestFamily")
+		builder.tiles(1, 1)
+		builder.device.siteTemplates = mapOf(type to first)
+		builder.build()
+		assertSame(belPins, first.belPins)
+	}
+
+	private fun enumerator(): WireEnumerator {
+		val we = WireEnumerator()
+		we.wires = arrayOf("A", "B")
+		we.wireMap = mapOf("A" to 0, "B" to 1)
+		we.wireTypes = arrayOf(WireType.LONG, WireType.LONG)
+		we.setWireDirections(arrayOf(WireDirection.NORTH, WireDirection.NORTH))
+		return we
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+class NameResolverTests {
+	private lateinit var device: Device
+	private lateinit var resolver: NameResolver
+
+	@BeforeEach
+	fun buildDevice() {
+		val builder = TestDeviceBuilder("resolverTestFamily")
+		val siteType = builder.siteType("SLICEL")
+		builder.siteTemplate(siteType,
+			bels = listOf("BFF", "AFF", "A6LUT").associate { name ->
+				val bt = BelTemplate(BelId(siteType, name), "FF")
+				bt.sources = mapOf("Q" to belPin(bt.id, "Q", 1, PinDirection.OUT))
+				bt.sinks = mapOf("D" to belPin(bt.id, "D", 2, PinDirection.IN))
+				name to bt
+			},
+			sources = mapOf("AQ" to sitePin(siteType, "AQ", 3, PinDirection.OUT)),
+			sinks = mapOf("A1" to sitePin(siteType, "A1", 4, PinDirection.IN)))
+		builder.wires("W0", "W1", "EE2BEG0")
+		builder.tiles(2, 2)
+		for (row in 0 until 2) {
+			for (col in 0 until 2) {
+				val tile = builder.tile(row, col, "CLB_X${col}Y$row")
+				builder.site(tile, "SLICE_X${col}Y$row", siteType, externalWires = mapOf("AQ" to 10, "A1" to 11))
+			}
+		}
+		device = builder.build()
+		resolver = device.nameResolver
+	}
+
+	@Test
+	@DisplayName("names are resolved from ranges of a line")
+	fun ranges() {
+		val line = "LUT_RTS SLICE_X1Y0/AFF/D/Q"
+		val site = resolver.getSite(line, 8, 18)
+		val bel = resolver.getBel(site, line, 19, 22)
+		assertAll(
+			Executable { assertSame(device.getSite("SLICE_X1Y0"), site) },
+			Executable { assertSame(site.getBel("AFF"), bel) },
+			Executable { assertSame(bel.getBelPin("D"), resolver.getBelPin(bel, line, 23, 24)) },
+			Executable { assertSame(bel.getBelPin("Q"), resolver.getBelPin(bel, line, 25, 26)) },
+			Executable { assertEquals(1, resolver.getWireEnum("xW1x", 1, 3)) }
+		)
+	}
+
+	@Test
+	@DisplayName("references are resolved to the objects of the device")
+	fun references() {
+		val tileWire = resolver.getTileWire(StringBuilder("CLB_X1Y1/EE2BEG0"))
+		assertAll(
+			Executable { assertSame(device.getTile("CLB_X1Y1"), tileWire.tile) },
+			Executable { assertEquals(2, tileWire.wireEnum) },
+			Executable { assertSame(device.getSite("SLICE_X0Y1").getPin("A1"), resolver.getSitePin("SLICE_X0Y1/A1")) },
+			Executable { assertSame(device.getSite("SLICE_X0Y1").getPin("AQ"), resolver.getSitePin("SLICE_X0Y1/AQ")) },
+			Executable { assertSame(device.getSite("SLICE_X1Y0").getBel("A6LUT"), resolver.getBel("SLICE_X1Y0/A6LUT")) },
+			Executable { assertSame(device.getSite("SLICE_X1Y0").getBel("BFF").getBelPin("Q"), resolver.getBelPin("SLICE_X1Y0/BFF/Q")) }
+		)
+	}
+
+	@Test
+	@DisplayName("missing names and malformed references resolve to null")
+	fun missing() {
+		assertAll(
+			Executable { assertNull(resolver.getTileWire("CLB_X1Y1/NOPE")) },
+			Executable { assertNull(resolver.getTileWire("CLB_X1Y1")) },
+			Executable { assertNull(resolver.getSitePin("SLICE_X0Y1/ZZ")) },
+			Executable { assertNull(resolver.getBel("SLICE_X9Y9/AFF")) },
+			Executable { assertNull(resolver.getBelPin("SLICE_X1Y0/AFF")) },
+			Executable { assertNull(resolver.getBelPin("SLICE_X1Y0/AFF/X")) },
+			Executable { assertEquals(-1, resolver.getWireEnum("W", 0, 1)) }
+		)
+	}
+}
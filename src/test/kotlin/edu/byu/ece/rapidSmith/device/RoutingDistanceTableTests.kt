@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+import java.nio.file.Files
+
+class RoutingDistanceTableTests {
+	private val builder = slices("xdistancetest", 6)
+	private val device = builder.device
+
+	/** Creates a single row of tiles in a device with a SLICE site type of sink pin I. */
+	private fun slices(partName: String, columns: Int): TestDeviceBuilder {
+		val builder = TestDeviceBuilder("distanceTestFamily", partName)
+		val siteType = builder.siteType("SLICE")
+		builder.siteTemplate(siteType, sinks = mapOf("I" to sitePin(siteType, "I")))
+		builder.tiles(1, columns)
+		return builder
+	}
+
+	@BeforeEach
+	fun buildDevice() {
+		val siteType = builder.siteType("SLICE")
+
+		// a chain of tiles where each PIP moves one tile to the right, column 2 has
+		// no sites and column 0 has a long line reaching column 5
+		for (col in 0 until 6) {
+			val wires = WireHashMap()
+			if (col == 2) {
+				val tile = builder.tile(0, col, type = "BRAM")
+				wires.put(1, arrayOf(WireConnection(1, 0, -1, true)))
+				tile.wireHashMap = wires
+				continue
+			}
+			val tile = builder.tile(0, col, type = "CLB")
+			builder.site(tile, "S$col", siteType, externalWires = mapOf("I" to 0))
+
+			val connections = arrayListOf(WireConnection(0, 0, 0, true))
+			if (col < 5)
+				connections.add(WireConnection(1, 0, -1, true))
+			if (col == 0) {
+				connections.add(WireConnection(2, 0, 0, true))
+				wires.put(2, arrayOf(WireConnection(1, 0, -5, false)))
+			}
+			wires.put(1, connections.toTypedArray())
+			tile.wireHashMap = wires
+		}
+	}
+
+	@Test
+	@DisplayName("distances follow the routing graph")
+	fun hops() {
+		val table = RoutingDistanceTable.compute(device, 16)
+		val tiles = (0 until 6).map { device.getTile(0, it) }
+		assertAll(
+			Executable { assertEquals(1, table.getHops(tiles[0], tiles[5])) },
+			Executable { assertEquals(4, table.getHops(tiles[0], tiles[3])) },
+			Executable { assertEquals(3, table.getHops(tiles[3], tiles[5])) },
+			Executable { assertEquals(-1, table.getHops(tiles[5], tiles[0])) },
+			Executable { assertEquals(17, table.estimate(tiles[5], tiles[0])) }
+		)
+	}
+
+	@Test
+	@DisplayName("a longer path without PIPs beats an earlier PIP to the same wire")
+	fun pipDiscoveredFirst() {
+		val builder = slices("xdistanceshortcut", 3)
+		val shortcut = builder.device
+
+		// column 0 reaches the sink wire of column 2 through a PIP and, listed after
+		// it, through a wire of column 1 without any PIPs
+		val source = builder.tile(0, 0, type = "SHORTCUT_SOURCE")
+		source.wireHashMap = WireHashMap()
+		source.wireHashMap.put(3, arrayOf(WireConnection(0, 0, -2, true), WireConnection(7, 0, -1, false)))
+
+		val middle = builder.tile(0, 1, type = "SHORTCUT_MIDDLE")
+		middle.wireHashMap = WireHashMap()
+		middle.wireHashMap.put(7, arrayOf(WireConnection(0, 0, -1, false)))
+
+		val sink = builder.tile(0, 2, type = "CLB")
+		sink.wireHashMap = WireHashMap()
+		builder.site(sink, "S0", builder.siteType("SLICE"), externalWires = mapOf("I" to 0))
+
+		val table = RoutingDistanceTable.compute(shortcut, 16)
+		assertEquals(0, table.getHops(source, sink))
+	}
+
+	@Test
+	@DisplayName("search stops at the hop limit")
+	fun maxHops() {
+		val table = RoutingDistanceTable.compute(device, 2)
+		assertEquals(-1, table.getHops(device.getTile(0, 0), device.getTile(0, 3)))
+		assertEquals(3, table.estimate(device.getTile(0, 0), device.getTile(0, 3)))
+	}
+
+	@Test
+	@DisplayName("search and entries are limited to the offset window")
+	fun maxOffset() {
+		val table = RoutingDistanceTable.compute(device, 16, 2)
+		assertEquals(2, table.maxOffset)
+		// the long line from column 0 leaves the window
+		assertEquals(-1, table.getHops(device.getTile(0, 0), device.getTile(0, 5)))
+		assertEquals(5, table.estimate(device.getTile(0, 0), device.getTile(0, 5)))
+		assertEquals(2, table.getHops(device.getTile(0, 0), device.getTile(0, 1)))
+		assertEquals(3, table.getHops(device.getTile(0, 3), device.getTile(0, 5)))
+	}
+
+	@Test
+	@DisplayName("every tile of a type bounds the distance")
+	fun admissible() {
+		val builder = slices("xdistancechain", 7)
+		val chain = builder.device
+		val siteType = builder.siteType("SLICE")
+
+		// a chain where each PIP moves one tile to the right and only column 1, away
+		// from the center and corners of the device, has a long line reaching column 5
+		for (col in 0 until 7) {
+			val tile = builder.tile(0, col, type = "CLB")
+			builder.site(tile, "S$col", siteType, externalWires = mapOf("I" to 0))
+
+			val wires = WireHashMap()
+			val connections = arrayListOf(WireConnection(0, 0, 0, true))
+			if (col < 6)
+				connections.add(WireConnection(1, 0, -1, true))
+			wires.put(1, connections.toTypedArray())
+			if (col == 1)
+				wires.put(2, arrayOf(WireConnection(1, 0, -4, false)))
+			tile.wireHashMap = wires
+		}
+
+		val table = RoutingDistanceTable.compute(chain, 16)
+		assertEquals(1, table.getHops(chain.getTile(0, 1), chain.getTile(0, 5)))
+		assertEquals(1, table.getHops(chain.getTile(0, 0), chain.getTile(0, 4)))
+	}
+
+	@Test
+	@DisplayName("written tables load with the same distances")
+	fun roundTrip() {
+		val table = RoutingDistanceTable.compute(device, 16)
+		val path = Files.createTempFile("distance", ".dat")
+		try {
+			table.write(path)
+			val loaded = RoutingDistanceTable.load(device, path)
+			assertEquals(table.maxOffset, loaded.maxOffset)
+			for (src in 0 until 6) {
+				for (dst in 0 until 6) {
+					val source = device.getTile(0, src)
+					val sink = device.getTile(0, dst)
+					assertEquals(table.getHops(source, sink), loaded.getHops(source, sink))
+				}
+			}
+		} finally {
+			Files.delete(path)
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class SiteIndexTests {
+	private val builder = TestDeviceBuilder("siteIndexTestFamily")
+	private val sites = ArrayList<Site>()
+	private lateinit var index: SiteIndex
+
+	@BeforeEach
+	fun buildIndex() {
+		builder.tiles(40, 40)
+		sites.clear()
+		// one site in every third tile of every other row
+		for (row in 0 until 40 step 2) {
+			for (col in 0 until 40 step 3) {
+				sites.add(builder.site(builder.tile(row, col), "S_R${row}C$col"))
+			}
+		}
+		index = SiteIndex(builder.device, sites)
+	}
+
+	private fun dist(site: Site, row: Int, col: Int) =
+		Math.abs(site.tile.row - row) + Math.abs(site.tile.column - col)
+
+	@Test
+	@DisplayName("region query returns exactly the sites in the region")
+	fun regionQuery() {
+		val expected = sites.filter { it.tile.row in 5..17 && it.tile.column in 9..30 }
+		assertEquals(expected.toSet(), index.getSitesInRegion(5, 9, 17, 30).toSet())
+	}
+
+	@Test
+	@DisplayName("distance query matches a linear scan")
+	fun withinQuery() {
+		val expected = sites.filter { dist(it, 20, 20) <= 7 }
+		assertEquals(expected.toSet(), index.getSitesWithin(20, 20, 7).toSet())
+	}
+
+	@Test
+	@DisplayName("nearest sites match a linear scan")
+	fun nearestQuery() {
+		for ((row, col) in listOf(0 to 0, 20 to 21, 39 to 39, 7 to 33, -5 to 50)) {
+			val expected = sites.sortedBy { dist(it, row, col) }.take(10)
+			val actual = index.getNearest(row, col, 10) { true }
+			assertEquals(expected.map { dist(it, row, col) }, actual.map { dist(it, row, col) })
+			assertEquals(expected, actual)
+		}
+	}
+
+	@Test
+	@DisplayName("nearest query skips sites rejected by the filter")
+	fun nearestFiltered() {
+		val used = sites.filter { dist(it, 20, 21) < 12 }.toSet()
+		val nearest = index.getNearest(20, 21) { it !in used }
+		val expected = sites.filter { it !in used }.sortedBy { dist(it, 20, 21) }.first()
+		assertEquals(expected, nearest)
+	}
+
+	@Test
+	@DisplayName("nearest query returns null when no site passes the filter")
+	fun nearestNone() {
+		assertNull(index.getNearest(3, 3) { false })
+	}
+}
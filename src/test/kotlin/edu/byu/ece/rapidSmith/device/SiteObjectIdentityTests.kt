@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+class SiteObjectIdentityTests {
+	private val builder = TestDeviceBuilder("identityTestFamily")
+	private val siteType = builder.siteType("SLICEL")
+	private lateinit var site: Site
+
+	@BeforeEach
+	fun buildSite() {
+		val template = builder.siteTemplate(siteType,
+			bels = listOf("BFF", "AFF", "A6LUT").associate { name ->
+				val bt = BelTemplate(BelId(siteType, name), "FF")
+				bt.sources = mapOf("Q" to belPin(bt.id, "Q", 1, PinDirection.OUT),
+					"X" to belPin(bt.id, "X", 5, PinDirection.OUT))
+				bt.sinks = mapOf("D" to belPin(bt.id, "D", 2, PinDirection.IN),
+					"X" to belPin(bt.id, "X", 6, PinDirection.IN))
+				name to bt
+			},
+			sources = mapOf("AQ" to sitePin(siteType, "AQ", 3, PinDirection.OUT),
+				"AX" to sitePin(siteType, "AX", 7, PinDirection.OUT)),
+			sinks = mapOf("A1" to sitePin(siteType, "A1", 4, PinDirection.IN),
+				"AX" to sitePin(siteType, "AX", 8, PinDirection.IN)))
+		template.constructDependentResources()
+
+		builder.tiles(1, 1)
+		site = builder.site(builder.tile(0, 0), "SLICE_X0Y0", siteType,
+			externalWires = mapOf("AQ" to 10, "A1" to 11, "AX" to 12))
+	}
+
+	@Test
+	@DisplayName("templates are numbered in name order, sources before sinks")
+	fun templateIndices() {
+		val bels = site.getBels().associateBy { it.name }
+		val bel = site.getBel("AFF")
+		assertAll(
+			Executable { assertEquals(0, bels["A6LUT"]!!.template.index) },
+			Executable { assertEquals(1, bels["AFF"]!!.template.index) },
+			Executable { assertEquals(2, bels["BFF"]!!.template.index) },
+			Executable { assertEquals(0, site.getSourcePin("AQ").template.index) },
+			Executable { assertEquals(1, site.getSourcePin("AX").template.index) },
+			Executable { assertEquals(2, site.getSinkPin("A1").template.index) },
+			Executable { assertEquals(3, site.getSinkPin("AX").template.index) },
+			Executable { assertEquals(listOf(0, 1), bel.sources.map { it.template.index }.sorted()) },
+			Executable { assertEquals(listOf(2, 3), bel.sinks.map { it.template.index }.sorted()) }
+		)
+	}
+
+	@Test
+	@DisplayName("BELs are returned as the same object")
+	fun belIdentity() {
+		val bel = site.getBel("AFF")
+		assertAll(
+			Executable { assertSame(bel, site.getBel("AFF")) },
+			Executable { assertSame(bel, site.getBel(BelId(siteType, "AFF"))) },
+			Executable { assertTrue(site.getBels().any { it === bel }) },
+			Executable { assertNull(site.getBel("CFF")) }
+		)
+	}
+
+	@Test
+	@DisplayName("BEL pins are returned as the same object")
+	fun belPinIdentity() {
+		val bel = site.getBel("AFF")
+		val q = bel.getBelPin("Q")
+		assertAll(
+			Executable { assertSame(q, bel.getBelPin("Q")) },
+			Executable { assertTrue(bel.sources.any { it === q }) },
+			Executable { assertTrue(bel.sinks.any { it === bel.getBelPin("D") }) },
+			Executable { assertSame(q.wire, bel.getWireOfPin("Q")) },
+			Executable { assertNull(bel.getBelPin("Z")) }
+		)
+	}
+
+	@Test
+	@DisplayName("site pins are returned as the same object")
+	fun sitePinIdentity() {
+		val aq = site.getSourcePin("AQ")
+		assertAll(
+			Executable { assertSame(aq, site.getPin("AQ")) },
+			Executable { assertTrue(site.sourcePins.any { it === aq }) },
+			Executable { assertTrue(site.sinkPins.any { it === site.getPin("A1") }) },
+			Executable { assertSame(aq.internalWire, aq.internalWire) },
+			Executable { assertEquals(11, site.getPin("A1").externalWire.wireEnum) }
+		)
+	}
+
+	@Test
+	@DisplayName("source and sink pins with the same name are distinct objects")
+	fun sameNamePins() {
+		val bel = site.getBel("AFF")
+		val belSource = bel.sources.single { it.name == "X" }
+		val belSink = bel.sinks.single { it.name == "X" }
+		val siteSource = site.getSourcePin("AX")
+		val siteSink = site.getSinkPin("AX")
+		assertAll(
+			Executable { assertNotSame(belSource, belSink) },
+			Executable { assertTrue(belSource.isOutput) },
+			Executable { assertTrue(belSink.isInput) },
+			Executable { assertSame(belSource, bel.sources.single { it.name == "X" }) },
+			Executable { assertSame(belSink, bel.sinks.single { it.name == "X" }) },
+			Executable { assertNotSame(siteSource, siteSink) },
+			Executable { assertTrue(siteSource.isOutput) },
+			Executable { assertTrue(siteSink.isInput) },
+			Executable { assertSame(siteSource, site.getSourcePin("AX")) },
+			Executable { assertSame(siteSink, site.getSinkPin("AX")) },
+			Executable { assertTrue(site.sourcePins.any { it === siteSource }) },
+			Executable { assertTrue(site.sinkPins.any { it === siteSink }) }
+		)
+	}
+}
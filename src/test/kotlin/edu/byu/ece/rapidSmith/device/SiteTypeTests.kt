@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class SiteTypeTests {
+	private val family = FamilyType.valueOf("siteTypeTestFamily")
+
+	@Test
+	@DisplayName("lookups ignore the case of the name")
+	fun caseInsensitive() {
+		val type = SiteType.valueOf(family, "SliceL")
+		assertAll(
+			Executable { assertEquals("SLICEL", type.name()) },
+			Executable { assertSame(type, SiteType.valueOf(family, "SLICEL")) },
+			Executable { assertSame(type, SiteType.valueOf(family, "slicel")) },
+			Executable { assertNotSame(type, SiteType.valueOf(FamilyType.valueOf("otherSiteTypeTestFamily"), "SLICEL")) }
+		)
+	}
+
+	@Test
+	@DisplayName("concurrent lookups create each type once")
+	fun concurrentLookups() {
+		val executor = Executors.newFixedThreadPool(8)
+		try {
+			val tasks = (0 until 8).map {
+				Callable { (0 until 300).map { SiteType.valueOf(family, "CONCURRENT_$it") } }
+			}
+			val results = executor.invokeAll(tasks).map { it.get() }
+			for (result in results)
+				assertTrue(result.indices.all { result[it] === results[0][it] })
+			assertEquals(300, results[0].map { it.ordinal() }.distinct().size)
+		} finally {
+			executor.shutdown()
+		}
+	}
+
+	@Test
+	@DisplayName("device looks up templates and compatible types by ordinal")
+	fun deviceTemplates() {
+		val slicel = SiteType.valueOf(family, "SLICEL")
+		val slicem = SiteType.valueOf(family, "SLICEM")
+		val template = SiteTemplate()
+		template.type = slicel
+		template.compatibleTypes = arrayOf(slicem)
+		val templates = hashMapOf(slicel to template)
+
+		val device = Device()
+		device.siteTemplates = templates
+		assertAll(
+			Executable { assertSame(template, device.getSiteTemplate(slicel)) },
+			Executable { assertArrayEquals(arrayOf(slicem), device.getCompatibleTypes(slicel)) },
+			Executable { assertNull(device.getSiteTemplate(slicem)) },
+			Executable { assertNull(device.getCompatibleTypes(slicem)) }
+		)
+
+		// templates added to the map after it is set are still found
+		val slicemTemplate = SiteTemplate()
+		slicemTemplate.type = slicem
+		templates[slicem] = slicemTemplate
+		assertSame(slicemTemplate, device.getSiteTemplate(slicem))
+	}
+}
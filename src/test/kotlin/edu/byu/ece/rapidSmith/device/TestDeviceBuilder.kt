@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device
+
+/**
+ * Builds the small synthetic devices used by the unit tests.  The tile array is
+ * created with [tiles], site templates are added with [siteTemplate] and tiles and
+ * their sites are described with [tile] and [site].  [build] then constructs the
+ * tile map and, optionally, the resources that depend on the templates.
+ */
+class TestDeviceBuilder(familyName: String, partName: String? = null) {
+	val family: FamilyType = FamilyType.valueOf(familyName)
+	val device = Device()
+	private val templates = LinkedHashMap<SiteType, SiteTemplate>()
+
+	init {
+		device.family = family
+		device.siteTemplates = emptyMap()
+		if (partName != null)
+			device.partName = partName
+	}
+
+	fun siteType(name: String): SiteType = SiteType.valueOf(family, name)
+
+	fun tileType(name: String): TileType = TileType.valueOf(family, name)
+
+	/** Names the wires of the device, enumerated in the order given. */
+	fun wires(vararg names: String) {
+		val we = WireEnumerator()
+		we.wires = arrayOf(*names)
+		we.wireMap = names.withIndex().associate { it.value to it.index }
+		device.wireEnumerator = we
+	}
+
+	fun tiles(rows: Int, columns: Int) {
+		device.createTileArray(rows, columns)
+	}
+
+	/** Adds the template of a site type to the device. */
+	fun siteTemplate(
+		type: SiteType,
+		bels: Map<String, BelTemplate> = emptyMap(),
+		sources: Map<String, SitePinTemplate> = emptyMap(),
+		sinks: Map<String, SitePinTemplate> = emptyMap()
+	): SiteTemplate {
+		val template = SiteTemplate()
+		template.type = type
+		template.belTemplates = bels
+		template.sources = sources
+		template.sinks = sinks
+		templates[type] = template
+		device.siteTemplates = LinkedHashMap(templates)
+		return template
+	}
+
+	/** Names and types the tile at the location, returning it. */
+	fun tile(row: Int, column: Int, name: String? = null, type: String? = null): Tile {
+		val tile = device.getTile(row, column)
+		if (name != null)
+			tile.name = name
+		if (type != null)
+			tile.type = tileType(type)
+		return tile
+	}
+
+	/**
+	 * Adds a site to the tile after its existing sites.  The site has the same
+	 * external wires for each of its possible types and is of its first possible type.
+	 */
+	fun site(tile: Tile, name: String, vararg possibleTypes: SiteType, externalWires: Map<String, Int> = emptyMap()): Site {
+		val site = Site()
+		site.name = name
+		site.tile = tile
+		site.index = tile.sites?.size ?: 0
+		site.possibleTypes = arrayOf(*possibleTypes)
+		site.externalWires = possibleTypes.associate { it to externalWires }
+		tile.sites = (tile.sites ?: emptyArray()) + site
+		if (possibleTypes.isNotEmpty() && possibleTypes[0] in templates)
+			site.setTypeUnchecked(possibleTypes[0])
+		return site
+	}
+
+	/**
+	 * Builds the two-tile routing fixture T0/OUT -> T0/A - T1/B, where T1/B can drive
+	 * the sink site pin I of site S0 on T1/IN or T1/X.  The device has a single row
+	 * of the two tiles, both of tile type INT.
+	 *
+	 * @param siteType the type of S0
+	 * @param bels names of the BELs in the template of the site type
+	 * @return the site S0
+	 */
+	fun routeChoice(siteType: SiteType, vararg bels: String): Site {
+		wires("OUT", "A", "B", "IN", "X")
+		device.routeThroughMap = emptyMap()
+		tiles(1, 2)
+		siteTemplate(siteType, bels = belTemplates(siteType, *bels),
+			sinks = mapOf("I" to sitePin(siteType, "I", direction = PinDirection.IN)))
+
+		val t0 = tile(0, 0, "T0", "INT")
+		t0.wireHashMap = WireHashMap()
+		t0.wireHashMap.put(0, arrayOf(WireConnection(1, 0, 0, true)))
+		t0.wireHashMap.put(1, arrayOf(WireConnection(2, 0, -1, false)))
+
+		val t1 = tile(0, 1, "T1", "INT")
+		t1.wireHashMap = WireHashMap()
+		t1.wireHashMap.put(2, arrayOf(WireConnection(3, 0, 0, true), WireConnection(4, 0, 0, true)))
+		return site(t1, "S0", siteType, externalWires = mapOf("I" to 3))
+	}
+
+	/**
+	 * Constructs the tile map of the device and, if [dependentResources] is set, the
+	 * resources built from the site templates.
+	 */
+	fun build(dependentResources: Boolean = true): Device {
+		device.constructTileMap()
+		if (dependentResources)
+			device.constructDependentResources()
+		return device
+	}
+}
+
+/** Creates BEL templates of the site type without pins, named and typed by [names]. */
+fun belTemplates(type: SiteType, vararg names: String): Map<String, BelTemplate> =
+	names.associate { it to BelTemplate(BelId(type, it), it) }
+
+fun belPin(id: BelId, name: String, wire: Int, direction: PinDirection): BelPinTemplate {
+	val pin = BelPinTemplate(id, name)
+	pin.wire = wire
+	pin.direction = direction
+	return pin
+}
+
+fun sitePin(type: SiteType, name: String, wire: Int? = null, direction: PinDirection? = null): SitePinTemplate {
+	val pin = SitePinTemplate(name, type)
+	if (wire != null)
+		pin.internalWire = wire
+	if (direction != null)
+		pin.direction = direction
+	return pin
+}
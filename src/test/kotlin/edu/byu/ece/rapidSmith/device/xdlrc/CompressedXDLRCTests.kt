@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.device.xdlrc
+
+import edu.byu.ece.rapidSmith.device.xdlrc.XDLRCParserListener.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+
+class CompressedXDLRCTests {
+	private val rows = 3
+	private val columns = 4
+	private lateinit var xdlrc: Path
+	private lateinit var cxdlrc: Path
+
+	@BeforeEach
+	fun writeXdlrc() {
+		xdlrc = Files.createTempFile("device", ".xdlrc")
+		cxdlrc = Files.createTempFile("device", ".cxdlrc")
+		val sb = StringBuilder("(xdl_resource_report v0.2 xctest testfamily\n")
+		sb.append("(tiles $rows $columns\n")
+		for (row in 0 until rows) {
+			for (col in 0 until columns) {
+				val name = "T_X${col}Y$row"
+				val clb = col % 2 == 1
+				sb.append("\t(tile $row $col $name ${if (clb) "CLB" else "INT"} ${if (clb) 1 else 0}\n")
+				if (clb) {
+					sb.append("\t\t(primitive_site SLICE_X${col}Y$row SLICE internal 2\n")
+					sb.append("\t\t\t(pinwire A input A_PIN)\n")
+					sb.append("\t\t\t(pinwire B output B_PIN)\n")
+					sb.append("\t\t)\n")
+				}
+				if (col + 1 < columns) {
+					sb.append("\t\t(wire W0 1\n")
+					sb.append("\t\t\t(conn T_X${col + 1}Y$row W1)\n")
+					sb.append("\t\t)\n")
+				} else {
+					sb.append("\t\t(wire W0 0)\n")
+				}
+				if (row + 1 < rows) {
+					sb.append("\t\t(wire W1 1\n")
+					sb.append("\t\t\t(conn T_X${col}Y${row + 1} W0)\n")
+					sb.append("\t\t)\n")
+				} else {
+					sb.append("\t\t(wire W1 0)\n")
+				}
+				sb.append("\t\t(wire W$row$col 0)\n")
+				sb.append("\t\t(pip $name W1 -> W0)\n")
+				if (clb)
+					sb.append("\t\t(pip $name A_PIN -> B_PIN (_ROUTETHROUGH-A-B SLICE))\n")
+				sb.append("\t\t(tile_summary $name TYPE 0 0 0)\n")
+				sb.append("\t)\n")
+			}
+		}
+		sb.append(")\n")
+		sb.append("(primitive_defs 1\n")
+		sb.append("\t(primitive_def SLICE 2 1\n")
+		sb.append("\t\t(pin A A input)\n")
+		sb.append("\t\t(pin B B output)\n")
+		sb.append("\t\t(element LUT 2 # BEL\n")
+		sb.append("\t\t\t(pin A1 input)\n")
+		sb.append("\t\t\t(pin O output)\n")
+		sb.append("\t\t\t(cfg #LUT:O=A1)\n")
+		sb.append("\t\t)\n")
+		sb.append("\t)\n")
+		sb.append(")\n")
+		sb.append("(summary tiles=${rows * columns} pips=${rows * columns * 3 / 2})\n")
+		sb.append(")\n")
+		Files.write(xdlrc, sb.toString().toByteArray())
+	}
+
+	@AfterEach
+	fun deleteFiles() {
+		Files.deleteIfExists(xdlrc)
+		Files.deleteIfExists(cxdlrc)
+	}
+
+	@Test
+	@DisplayName("a compressed XDLRC reads back as the original")
+	fun roundTrip() {
+		XDLRCCompressor(5, 2).compressXdlrc(xdlrc, cxdlrc)
+
+		val original = RecordingListener()
+		val parser = XDLRCParser()
+		parser.registerListener(original)
+		parser.parse(xdlrc)
+
+		val compressed = RecordingListener()
+		val reader = CompressedXDLRCReader()
+		reader.registerListener(compressed)
+		reader.parse(cxdlrc)
+
+		assertEquals(rows * columns, original.events.count { it.startsWith("tile ") })
+		assertEquals(original.events, compressed.events)
+	}
+
+	@Test
+	@DisplayName("sequential and parallel decoding produce the same result")
+	fun parallelDecode() {
+		XDLRCCompressor(2, 3).compressXdlrc(xdlrc, cxdlrc)
+
+		val sequential = RecordingListener()
+		val sequentialReader = CompressedXDLRCReader()
+		sequentialReader.setNumThreads(1)
+		sequentialReader.registerListener(sequential)
+		sequentialReader.parse(cxdlrc)
+
+		val parallel = RecordingListener()
+		val parallelReader = CompressedXDLRCReader()
+		parallelReader.setNumThreads(4)
+		parallelReader.registerListener(parallel)
+		parallelReader.parse(cxdlrc)
+
+		assertEquals(sequential.events, parallel.events)
+	}
+
+	@Test
+	@DisplayName("tiles are numbered in row-major order")
+	fun rowMajorTileNames() {
+		XDLRCCompressor(5, 2).compressXdlrc(xdlrc, cxdlrc)
+
+		FileChannel.open(cxdlrc).use { channel ->
+			val header = CompressedXDLRC.readBlockedHeader(channel)
+			val expected = (0 until rows).flatMap { row -> (0 until columns).map { col -> "T_X${col}Y$row" } }
+			assertEquals(expected, header.tileNames)
+
+			// the conns to the tile below have the same offset in every tile
+			val w1 = header.wireNames.indexOf("W1")
+			val tiles = (0 until header.blockIndex.size()).flatMap {
+				CompressedXDLRC.readBlock(channel, header.blockIndex, it)
+			}
+			val offsets = tiles.flatMap { it.wires[w1].orEmpty() }.map { it.sinkTileOffset }
+			assertEquals(columns * (rows - 1), offsets.size)
+			assertEquals(setOf(columns), offsets.toSet())
+		}
+	}
+
+	/**
+	 * Records the tiles, sites, wires, PIPs and primitive defs reported by a parser.
+	 * Tile summaries are not recorded as the compressed reader recomputes them.
+	 */
+	private class RecordingListener : XDLRCParserListener() {
+		val events = ArrayList<String>()
+
+		override fun enterXdlResourceReport(tokens: pl_XdlResourceReport) {
+			events.add("report ${tokens.version} ${tokens.part} ${tokens.family}")
+		}
+
+		override fun enterTiles(tokens: pl_Tiles) {
+			events.add("tiles ${tokens.rows} ${tokens.columns}")
+		}
+
+		override fun enterTile(tokens: pl_Tile) {
+			events.add("tile ${tokens.row} ${tokens.column} ${tokens.name} ${tokens.type} ${tokens.site_count}")
+		}
+
+		override fun enterPrimitiveSite(tokens: pl_PrimitiveSite) {
+			events.add("site ${tokens.name} ${tokens.type} ${tokens.bonded} ${tokens.pinwire_count}")
+		}
+
+		override fun enterPinWire(tokens: pl_PinWire) {
+			events.add("pinwire ${tokens.name} ${tokens.direction} ${tokens.external_wire}")
+		}
+
+		override fun enterWire(tokens: pl_Wire) {
+			events.add("wire ${tokens.name} ${tokens.connections_count}")
+		}
+
+		override fun enterConn(tokens: pl_Conn) {
+			events.add("conn ${tokens.tile} ${tokens.wire}")
+		}
+
+		override fun enterPip(tokens: pl_Pip) {
+			events.add("pip ${tokens.tile} ${tokens.start_wire} ${tokens.type} ${tokens.end_wire}")
+		}
+
+		override fun enterRoutethrough(tokens: pl_Routethrough) {
+			events.add("routethrough ${tokens.pins} ${tokens.site_type}")
+		}
+
+		override fun enterPrimitiveDef(tokens: pl_PrimitiveDef) {
+			events.add("def ${tokens.name} ${tokens.pin_count} ${tokens.element_count}")
+		}
+
+		override fun enterPin(tokens: pl_Pin) {
+			events.add("pin ${tokens.external_name} ${tokens.internal_name} ${tokens.direction}")
+		}
+
+		override fun enterElement(tokens: pl_Element) {
+			events.add("element ${tokens.name} ${tokens.pin_count} ${tokens.isBel}")
+		}
+
+		override fun enterElementPin(tokens: pl_ElementPin) {
+			events.add("element pin ${tokens.name} ${tokens.direction}")
+		}
+
+		override fun enterElementCfg(tokens: pl_ElementCfg) {
+			events.add("cfg ${tokens.cfgs}")
+		}
+
+		override fun enterSummary(tokens: pl_Summary) {
+			events.add("summary ${tokens.stats}")
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.interfaces.ise
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.xdl.XdlDesign
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import java.io.InputStreamReader
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
+import java.nio.file.Path
+import java.nio.file.Paths
+
+class XDLReaderTests {
+	private val family = FamilyType.valueOf("xdlReaderTestFamily")
+	private val slicel = SiteType.valueOf(family, "SLICEL")
+	private val iob = SiteType.valueOf(family, "IOB")
+	private val device = Device()
+	private val xdlFile: Path = Paths.get(javaClass.getResource("/design/xdl/readerTest.xdl").toURI())
+
+	@BeforeEach
+	fun buildDevice() {
+		device.partName = "xreadertest"
+		device.family = family
+		val we = WireEnumerator()
+		we.wires = arrayOf("A", "B", "C", "D")
+		we.wireMap = we.wires.withIndex().associate { it.value to it.index }
+		device.wireEnumerator = we
+		device.createTileArray(1, 2)
+		device.siteTemplates = listOf(slicel, iob).associate { it to template(it) }
+
+		val io = device.getTile(0, 0)
+		io.name = "IOB_X0Y0"
+		io.type = TileType.valueOf(family, "IOB")
+		io.sites = arrayOf(site(io, "IOB_X0Y0", 0, iob, BondedType.BONDED))
+
+		val clb = device.getTile(0, 1)
+		clb.name = "CLB_X1Y0"
+		clb.type = TileType.valueOf(family, "CLB")
+		clb.sites = Array(2) { site(clb, "SLICE_X${it}Y0", it, slicel, BondedType.INTERNAL) }
+		device.constructTileMap()
+	}
+
+	private fun site(tile: Tile, name: String, index: Int, type: SiteType, bonded: BondedType): Site {
+		val site = Site()
+		site.name = name
+		site.tile = tile
+		site.index = index
+		site.possibleTypes = arrayOf(type)
+		site.externalWires = mapOf(type to emptyMap<String, Int>())
+		site.bondedType = bonded
+		return site
+	}
+
+	private fun template(type: SiteType): SiteTemplate {
+		val template = SiteTemplate()
+		template.type = type
+		template.belTemplates = emptyMap()
+		template.sources = emptyMap()
+		template.sinks = emptyMap()
+		return template
+	}
+
+	/** Writes the design with the sorted, comment free XDL writer. */
+	private fun toXdl(design: XdlDesign): String {
+		val out = StringWriter()
+		XDLWriter().addComments(false).setLineSeparator("\n").writeXDL(design, out)
+		return out.toString()
+	}
+
+	@Test
+	@DisplayName("the streaming reader creates the same design as the parse tree reader")
+	fun streamingMatchesTree() {
+		val tree = XDLReader(device).readDesign(xdlFile)
+		val streamed = XDLReader(device).readDesignStreaming(xdlFile)
+
+		assertEquals(toXdl(tree), toXdl(streamed))
+		assertEquals(tree.name, streamed.name)
+		assertEquals(tree.ncdVersion, streamed.ncdVersion)
+		assertEquals(tree.instances.map { it.name }.toSet(), streamed.instances.map { it.name }.toSet())
+		assertEquals(tree.nets.map { it.name }.toSet(), streamed.nets.map { it.name }.toSet())
+	}
+
+	@Test
+	@DisplayName("the streaming reader reads the instances, nets and attributes of the design")
+	fun streamedDesign() {
+		val design = javaClass.getResourceAsStream("/design/xdl/readerTest.xdl").use {
+			XDLReader(device).readDesignStreaming(InputStreamReader(it, StandardCharsets.UTF_8))
+		}
+
+		assertEquals("readerTest", design.name)
+		assertEquals("xreadertest", design.partName)
+		assertEquals("v3.2", design.ncdVersion)
+		assertEquals(2, design.attributes.size)
+		assertEquals("EFFORT_LEVEL:high", design.attributes[1].value)
+
+		assertEquals(5, design.instances.size)
+		val pad = design.getInstance("clk_pad")
+		assertSame(device.getSite("IOB_X0Y0"), pad.site)
+		assertEquals(true, pad.bonded)
+		assertEquals("clk_pad_IBUF", pad.getAttribute("INBUF").logicalName)
+		assertFalse(design.getInstance("spare").isPlaced)
+		assertEquals(false, design.getInstance("out_pad").bonded)
+		assertEquals("XDL_SHAPE_MEMBER:Shape_0:0,0",
+			design.getInstance("u0/cnt_lut").getAttributeValue("_INST_PROP"))
+
+		assertEquals(5, design.nets.size)
+		val clk = design.getNet("clk")
+		assertEquals("clk_pad", clk.source.instanceName)
+		assertEquals(3, clk.pins.size)
+		assertEquals(listOf("IOB_X0Y0", "CLB_X1Y0"), clk.piPs.map { it.tile.name })
+		assertEquals(NetType.VCC, design.getNet("GLOBAL_LOGIC1").type)
+		assertEquals(NetType.GND, design.getNet("GLOBAL_LOGIC0").type)
+		assertEquals(NetType.WIRE, design.getNet("q").type)
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.interfaces.ise
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.xdl.*
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import java.nio.file.Files
+
+class XDLWriterTests {
+	private val family = FamilyType.valueOf("xdlWriterTestFamily")
+	private val slicel = SiteType.valueOf(family, "SLICEL")
+	private val device = Device()
+	private lateinit var design: XdlDesign
+
+	@BeforeEach
+	fun buildDesign() {
+		device.partName = "xwritertest"
+		device.family = family
+		val we = WireEnumerator()
+		we.wires = arrayOf("A", "B", "C")
+		device.wireEnumerator = we
+		device.createTileArray(1, 1)
+		val tile = device.getTile(0, 0)
+		tile.name = "INT_X0Y0"
+		tile.type = TileType.valueOf(family, "INT")
+		device.constructTileMap()
+
+		// enough instances and nets to be split over several chunks
+		design = XdlDesign("writerTest", "xwritertest", device)
+		design.addAttribute("_DESIGN_PROP", "", "P3_PLACE_OPTIONS:EFFORT_LEVEL:high")
+		for (i in 0 until 1000) {
+			val inst = XdlInstance("inst$i", slicel)
+			inst.addAttribute("A6LUT", "lut$i", "#LUT:O6=~A$i")
+			// characters encoded in more than one byte
+			inst.addAttribute("_INST_PROP", "", "µs:${i % 7}")
+			design.addInstance(inst)
+		}
+		for (i in 0 until 700) {
+			val net = XdlNet("net$i", if (i == 0) NetType.VCC else NetType.WIRE)
+			net.addPin(XdlPin(true, "AQ", design.getInstance("inst$i")))
+			net.addPin(XdlPin(false, "A1", design.getInstance("inst${i + 1}")))
+			for (w in 0 until i % 3)
+				net.addPIP(PIP(TileWire(tile, w), TileWire(tile, w + 1)))
+			design.addNet(net)
+		}
+	}
+
+	private fun write(parallelism: Int): ByteArray {
+		val file = Files.createTempFile("writerTest", ".xdl")
+		try {
+			XDLWriter().addComments(false).setParallelism(parallelism).writeXDL(design, file)
+			return Files.readAllBytes(file)
+		} finally {
+			Files.delete(file)
+		}
+	}
+
+	@Test
+	@DisplayName("writing in parallel produces the same bytes as writing sequentially")
+	fun parallelMatchesSequential() {
+		val sequential = write(1)
+		assertTrue(String(sequential, Charsets.UTF_8).contains("inst \"inst999\""))
+		assertTrue(String(sequential, Charsets.UTF_8).contains("pip INT_X0Y0 B -> C"))
+		for (parallelism in listOf(2, 4, 7))
+			assertArrayEquals(sequential, write(parallelism), "parallelism $parallelism")
+	}
+
+	@Test
+	@DisplayName("a file written over by a shorter design is truncated")
+	fun overwrite() {
+		val file = Files.createTempFile("writerTest", ".xdl")
+		try {
+			Files.write(file, ByteArray(write(1).size * 2) { '#'.toByte() })
+			XDLWriter().addComments(false).setParallelism(4).writeXDL(design, file)
+			assertArrayEquals(write(1), Files.readAllBytes(file))
+		} finally {
+			Files.delete(file)
+		}
+	}
+}
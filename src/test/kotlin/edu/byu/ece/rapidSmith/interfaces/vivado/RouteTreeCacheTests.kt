@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.interfaces.vivado
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import java.io.File
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class RouteTreeCacheTests {
+	private val port = SimpleLibraryCell("IPORT")
+	private val route = "ROUTE n T0/INT.OUT->A T1/INT.B->IN"
+	private lateinit var device: Device
+	private lateinit var cache: RouteTreeCache
+
+	init {
+		port.setIsPort(true)
+		port.libraryPins = listOf(LibraryPin("PAD", port, PinDirection.OUT))
+	}
+
+	@BeforeEach
+	fun buildDevice() {
+		val builder = TestDeviceBuilder("routeCacheTestFamily", "xroutecachetest")
+		builder.routeChoice(builder.siteType("SLICE"))
+		device = builder.build()
+		cache = RouteTreeCache(device)
+	}
+
+	/**
+	 * Imports the route of an out-of-context net driven by a port on T0/OUT into a
+	 * new design and returns the route tree of the net.
+	 */
+	private fun import(routeLine: String, cache: RouteTreeCache?): RouteTree {
+		val design = CellDesign()
+		val cell = design.addCell(Cell("p", port))
+		val net = design.addNet(CellNet("n", NetType.WIRE))
+		net.connectToPin(cell.getPin("PAD"))
+
+		val rsc = File.createTempFile("routing", ".rsc")
+		try {
+			rsc.writeText("OOC_PORT p T0/OUT\n$routeLine\n")
+			val routing = XdcRoutingInterface(design, device, HashMap(), ImplementationMode.OUT_OF_CONTEXT)
+			routing.setRouteTreeCache(cache)
+			routing.parseRoutingXDC(rsc.path)
+		} finally {
+			rsc.delete()
+		}
+		return net.intersiteRouteTree
+	}
+
+	@Test
+	@DisplayName("unchanged routes are copied from the cache")
+	fun cacheHit() {
+		val fresh = import(route, null)
+		val first = import(route, cache)
+		assertEquals(0, cache.hits)
+		assertEquals(1, cache.misses)
+
+		val second = import(route, cache)
+		assertEquals(1, cache.hits)
+		assertEquals(1, cache.size())
+		assertNotSame(first, second)
+		assertEquals(fresh.toRouteString(), second.toRouteString())
+		assertEquals(fresh.allPips, second.allPips)
+		assertTrue(second.toRouteString().contains("T1/IN"))
+	}
+
+	@Test
+	@DisplayName("changed PIPs rebuild the route")
+	fun changedPips() {
+		import(route, cache)
+		val changedRoute = "ROUTE n T0/INT.OUT->A T1/INT.B->X"
+		val changed = import(changedRoute, cache)
+		assertEquals(0, cache.hits)
+		assertEquals(2, cache.misses)
+		assertEquals(import(changedRoute, null).toRouteString(), changed.toRouteString())
+		assertFalse(changed.toRouteString().contains("T1/IN"))
+	}
+
+	@Test
+	@DisplayName("invalidated routes are rebuilt")
+	fun invalidate() {
+		import(route, cache)
+		cache.invalidate("n")
+		assertEquals(0, cache.size())
+		val rebuilt = import(route, cache)
+		assertEquals(0, cache.hits)
+		assertEquals(2, cache.misses)
+		assertEquals(import(route, null).toRouteString(), rebuilt.toRouteString())
+	}
+
+	@Test
+	@DisplayName("imports on several threads share the cache")
+	fun concurrentImports() {
+		val expected = import(route, null).toRouteString()
+		val pool = Executors.newFixedThreadPool(4)
+		try {
+			val routes = (0 until 32).map { pool.submit<RouteTree> { import(route, cache) } }
+				.map { it.get(30, TimeUnit.SECONDS) }
+			routes.forEach { assertEquals(expected, it.toRouteString()) }
+			assertEquals(32, cache.hits + cache.misses)
+			assertEquals(1, cache.size())
+		} finally {
+			pool.shutdownNow()
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.interfaces.vivado
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.*
+import edu.byu.ece.rapidSmith.util.Exceptions
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import java.io.File
+import java.nio.file.Files
+
+class VivadoDeltaTests {
+	private val builder = TestDeviceBuilder("deltaTestFamily", "xdeltatest")
+	private val device = builder.device
+	private val port = SimpleLibraryCell("IPORT")
+	private val ff = SimpleLibraryCell("FDRE")
+	private val design = CellDesign()
+	private val checkpoint = VivadoCheckpoint("xdeltatest", design, device, null)
+	private lateinit var site: Site
+	private lateinit var net: CellNet
+
+	init {
+		port.setIsPort(true)
+		port.libraryPins = listOf(LibraryPin("PAD", port, PinDirection.OUT))
+		ff.libraryPins = listOf(
+			LibraryPin("D", ff, PinDirection.IN),
+			LibraryPin("Q", ff, PinDirection.OUT))
+	}
+
+	@BeforeEach
+	fun buildDesign() {
+		site = builder.routeChoice(builder.siteType("SLICEL"), "AFF", "BFF")
+		builder.build()
+
+		design.implementationMode = ImplementationMode.OUT_OF_CONTEXT
+		val p = design.addCell(Cell("p", port))
+		net = design.addNet(CellNet("n", NetType.WIRE))
+		net.connectToPin(p.getPin("PAD"))
+		for (name in listOf("ff0", "ff1", "ff2"))
+			design.addCell(Cell(name, ff))
+
+		// the design as it was loaded from Vivado
+		applyDelta(
+			placement = "LOC ff0 S0 SLICEL AFF\nLOC ff2 S0 SLICEL BFF\n",
+			routing = "OOC_PORT p T0/OUT\nROUTE n T0/INT.OUT->A T1/INT.B->IN\n")
+	}
+
+	private fun applyDelta(placement: String, routing: String, removed: String? = null) {
+		val rscp = Files.createTempDirectory("delta").toFile()
+		try {
+			File(rscp, "placement.rsc").writeText(placement)
+			File(rscp, "routing.rsc").writeText(routing)
+			if (removed != null)
+				File(rscp, "removed.rsc").writeText(removed)
+			VivadoInterface.applyDeltaRSCP(rscp.path, checkpoint)
+		} finally {
+			rscp.deleteRecursively()
+		}
+	}
+
+	private fun writeDelta(): List<String> {
+		val tcl = File.createTempFile("delta", ".tcl")
+		try {
+			VivadoInterface.writeDeltaTcl(tcl.path, design, device)
+			return tcl.readLines()
+		} finally {
+			tcl.delete()
+		}
+	}
+
+	@Test
+	@DisplayName("a delta RSCP updates only the cells and nets it names")
+	fun applyDeltaRSCP() {
+		val ff0 = design.getCell("ff0")
+		val ff2 = design.getCell("ff2")
+		assertEquals(site.getBel("AFF"), ff0.bel)
+		assertTrue(net.intersiteRouteTree.toRouteString().contains("T1/IN"))
+		assertTrue(design.modifiedCells.isEmpty())
+		assertTrue(design.modifiedNets.isEmpty())
+
+		// Vivado moved ff0 out of the way for ff1 and rerouted the net to X
+		applyDelta(
+			removed = "UNPLACE ff0\n",
+			placement = "LOC ff1 S0 SLICEL AFF\n",
+			routing = "OOC_PORT p T0/OUT\nROUTE n T0/INT.OUT->A T1/INT.B->X\n")
+		assertFalse(ff0.isPlaced)
+		assertEquals(site.getBel("AFF"), design.getCell("ff1").bel)
+		assertEquals(site.getBel("BFF"), ff2.bel)
+		val routeString = net.intersiteRouteTree.toRouteString()
+		assertTrue(routeString.contains("T1/X"))
+		assertFalse(routeString.contains("T1/IN"))
+		assertTrue(design.modifiedCells.isEmpty())
+		assertTrue(design.modifiedNets.isEmpty())
+	}
+
+	@Test
+	@DisplayName("an unknown cell in a delta RSCP is reported")
+	fun unknownCell() {
+		assertThrows(Exceptions.ParseException::class.java) {
+			applyDelta(removed = "UNPLACE missing\n", placement = "", routing = "")
+		}
+	}
+
+	@Test
+	@DisplayName("the delta Tcl script holds only the modified cells and nets")
+	fun writeDeltaTcl() {
+		assertEquals(emptyList<String>(), writeDelta())
+
+		val ff0 = design.getCell("ff0")
+		design.unplaceCell(ff0)
+		design.placeCell(design.getCell("ff1"), site.getBel("AFF"))
+		val route = net.intersiteRouteTree
+		net.unrouteFull()
+		assertEquals(listOf(
+			"route_design -unroute -nets [get_nets {n}]",
+			"unplace_cell [get_cells {ff0}]",
+			"unplace_cell [get_cells {ff1}]",
+			"set_property BEL SLICEL.AFF [get_cells {ff1}]",
+			"set_property LOC S0 [get_cells {ff1}]"),
+			writeDelta())
+		assertTrue(design.modifiedCells.isEmpty())
+		assertTrue(design.modifiedNets.isEmpty())
+
+		net.addIntersiteRouteTree(route)
+		assertTrue(XdcRoutingInterface.getVivadoRouteString(net).contains("T0/OUT"))
+		assertEquals(listOf(
+			"route_design -unroute -nets [get_nets {n}]",
+			"set_property ROUTE ${XdcRoutingInterface.getVivadoRouteString(net)} [get_nets {n}]"),
+			writeDelta())
+	}
+
+	@Test
+	@DisplayName("moving a cell exports only its connections to the static nets")
+	fun staticNetDelta() {
+		val vcc = design.addNet(CellNet("VCC", NetType.VCC))
+		val ff0 = design.getCell("ff0")
+		vcc.connectToPin(ff0.getPin("D"))
+		vcc.connectToPin(design.getCell("ff2").getPin("D"))
+		design.clearModifications()
+
+		design.unplaceCell(ff0)
+		design.placeCell(ff0, site.getBel("AFF"))
+		assertFalse(vcc in design.modifiedNets)
+		assertEquals(listOf(
+			"route_design -unroute -pins [get_pins {ff0/D}]",
+			"unplace_cell [get_cells {ff0}]",
+			"set_property BEL SLICEL.AFF [get_cells {ff0}]",
+			"set_property LOC S0 [get_cells {ff0}]",
+			"route_design -pins [get_pins {ff0/D}]"),
+			writeDelta())
+	}
+}
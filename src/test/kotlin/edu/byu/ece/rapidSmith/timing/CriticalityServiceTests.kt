@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.PinDirection
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class CriticalityServiceTests {
+	private val netDelays = HashMap<String, Double>()
+	private val model = object : DelayModel {
+		override fun getNetDelays(net: CellNet, source: CellPin, sinks: List<CellPin>): DoubleArray =
+			DoubleArray(sinks.size) { netDelays[net.name] ?: 1.0 }
+		override fun getCellDelay(cell: Cell, input: CellPin, output: CellPin) = 1.0
+		override fun getClockToOutDelay(cell: Cell, output: CellPin) = 0.0
+		override fun getSetupTime(cell: Cell, input: CellPin) = 0.0
+	}
+
+	private val design = CellDesign()
+
+	@BeforeEach
+	fun buildDesign() {
+		val ff = SimpleLibraryCell("FF")
+		ff.libraryPins = listOf(LibraryPin("D", ff, PinDirection.IN), LibraryPin("C", ff, PinDirection.IN),
+			LibraryPin("Q", ff, PinDirection.OUT))
+		ff.getLibraryPin("C").pinType = CellPinType.CLOCK
+		val buf = SimpleLibraryCell("BUF")
+		buf.libraryPins = listOf(LibraryPin("I", buf, PinDirection.IN), LibraryPin("O", buf, PinDirection.OUT))
+
+		// ff1 drives ff2 directly and ff3 through a buffer
+		for (name in listOf("ff1", "ff2", "ff3"))
+			design.addCell(Cell(name, ff))
+		design.addCell(Cell("buf", buf))
+		connect("a", "ff1.Q", "ff2.D", "buf.I")
+		connect("b", "buf.O", "ff3.D")
+	}
+
+	private fun connect(name: String, source: String, vararg sinks: String) {
+		val net = design.addNet(CellNet(name, NetType.WIRE))
+		net.connectToPin(pin(source))
+		sinks.forEach { net.connectToPin(pin(it)) }
+	}
+
+	private fun pin(name: String): CellPin {
+		val (cell, pin) = name.split(".")
+		return design.getCell(cell).getPin(pin)
+	}
+
+	@Test
+	@DisplayName("connections on the longest path are the most critical")
+	fun criticalities() {
+		val service = CriticalityService(StaticTimingAnalyzer(design, model, 4.0))
+		val a = service.getNetIndex(design.getNet("a"))
+		// ff1 -> ff2 arrives at 1, ff1 -> buf -> ff3 arrives at 3
+		assertEquals(3.0, service.getSlack(a, service.getSinkIndex(pin("ff2.D"))), 1e-9)
+		assertEquals(1.0, service.getSlack(a, service.getSinkIndex(pin("buf.I"))), 1e-9)
+		assertEquals(0.25f, service.getCriticality(pin("ff2.D")), 1e-6f)
+		assertEquals(0.75f, service.getCriticality(pin("buf.I")), 1e-6f)
+		assertEquals(0.75f, service.getNetCriticality(a), 1e-6f)
+	}
+
+	@Test
+	@DisplayName("incremental updates refresh the changed connections")
+	fun incremental() {
+		val service = CriticalityService(StaticTimingAnalyzer(design, model, 4.0))
+		netDelays["b"] = 2.0
+		service.invalidate(design.getNet("b"))
+		service.update()
+
+		assertEquals(0.0, service.getSlack(service.getNetIndex(design.getNet("b")), 0), 1e-9)
+		assertEquals(1.0f, service.getCriticality(pin("buf.I")), 1e-6f)
+		assertEquals(0.25f, service.getCriticality(pin("ff2.D")), 1e-6f)
+	}
+
+	@Test
+	@DisplayName("sinks moved to another net since the last update are not critical")
+	fun movedSink() {
+		val service = CriticalityService(StaticTimingAnalyzer(design, model, 4.0))
+		design.getNet("a").disconnectFromPin(pin("ff2.D"))
+		assertEquals(0.0f, service.getCriticality(pin("ff2.D")))
+		design.getNet("b").connectToPin(pin("ff2.D"))
+		assertEquals(0.0f, service.getCriticality(pin("ff2.D")))
+	}
+}
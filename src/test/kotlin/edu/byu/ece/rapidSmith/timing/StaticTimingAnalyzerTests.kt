@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.timing
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.PinDirection
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+class StaticTimingAnalyzerTests {
+	private val cellDelays = HashMap<String, Double>()
+	private val model = object : DelayModel {
+		override fun getNetDelays(net: CellNet, source: CellPin, sinks: List<CellPin>) =
+			DoubleArray(sinks.size) { 1.0 }
+		override fun getCellDelay(cell: Cell, input: CellPin, output: CellPin) =
+			cellDelays[cell.name] ?: 1.0
+		override fun getClockToOutDelay(cell: Cell, output: CellPin) = 0.5
+		override fun getSetupTime(cell: Cell, input: CellPin) = 0.2
+	}
+
+	private val design = CellDesign()
+
+	@BeforeEach
+	fun buildDesign() {
+		val ff = libCell("FF", "D" to PinDirection.IN, "C" to PinDirection.IN, "Q" to PinDirection.OUT)
+		ff.getLibraryPin("C").pinType = CellPinType.CLOCK
+		val lut = libCell("LUT2", "I0" to PinDirection.IN, "I1" to PinDirection.IN, "O" to PinDirection.OUT)
+
+		val ff1 = design.addCell(Cell("ff1", ff))
+		val lut1 = design.addCell(Cell("lut1", lut))
+		val lut2 = design.addCell(Cell("lut2", lut))
+		val ff2 = design.addCell(Cell("ff2", ff))
+		connect("q1", ff1.getPin("Q"), lut1.getPin("I0"), lut2.getPin("I1"))
+		connect("o1", lut1.getPin("O"), lut2.getPin("I0"))
+		connect("o2", lut2.getPin("O"), ff2.getPin("D"))
+	}
+
+	private fun libCell(name: String, vararg pins: Pair<String, PinDirection>): LibraryCell {
+		val libCell = SimpleLibraryCell(name)
+		libCell.libraryPins = pins.map { LibraryPin(it.first, libCell, it.second) }
+		return libCell
+	}
+
+	private fun connect(name: String, source: CellPin, vararg sinks: CellPin) {
+		val net = design.addNet(CellNet(name, NetType.WIRE))
+		net.connectToPin(source)
+		sinks.forEach { net.connectToPin(it) }
+	}
+
+	private fun pin(name: String): CellPin {
+		val (cell, pin) = name.split(".")
+		return design.getCell(cell).getPin(pin)
+	}
+
+	@Test
+	@DisplayName("arrival and required times follow the longest path")
+	fun fullAnalysis() {
+		val sta = StaticTimingAnalyzer(design, model, 10.0)
+		sta.analyze()
+		assertAll(
+			Executable { assertEquals(0.5, sta.getArrivalTime(pin("ff1.Q")), 1e-9) },
+			Executable { assertEquals(1.5, sta.getArrivalTime(pin("lut2.I1")), 1e-9) },
+			Executable { assertEquals(4.5, sta.getArrivalTime(pin("lut2.O")), 1e-9) },
+			Executable { assertEquals(5.5, sta.getArrivalTime(pin("ff2.D")), 1e-9) },
+			Executable { assertEquals(9.8, sta.getRequiredTime(pin("ff2.D")), 1e-9) },
+			Executable { assertEquals(4.3, sta.getWorstSlack(), 1e-9) },
+			Executable { assertEquals(5.7, sta.getCriticalPathDelay(), 1e-9) },
+			Executable { assertEquals(6.3, sta.getSlack(pin("lut2.I1")), 1e-9) }
+		)
+		val expected = listOf("ff1.Q", "lut1.I0", "lut1.O", "lut2.I0", "lut2.O", "ff2.D").map { pin(it) }
+		assertEquals(expected, sta.criticalPath)
+	}
+
+	@Test
+	@DisplayName("incremental update matches a full analysis")
+	fun incrementalUpdate() {
+		val sta = StaticTimingAnalyzer(design, model, 10.0)
+		sta.analyze()
+
+		cellDelays["lut1"] = 3.0
+		sta.invalidate(design.getCell("lut1"))
+		sta.update()
+
+		val fresh = StaticTimingAnalyzer(design, model, 10.0)
+		fresh.analyze()
+		for (cell in design.cells) {
+			for (p in cell.pins) {
+				assertEquals(fresh.getArrivalTime(p), sta.getArrivalTime(p), 1e-9)
+				assertEquals(fresh.getRequiredTime(p), sta.getRequiredTime(p), 1e-9)
+			}
+		}
+		assertEquals(7.5, sta.getArrivalTime(pin("ff2.D")), 1e-9)
+	}
+
+	@Test
+	@DisplayName("clock pins are not timed")
+	fun clockPinsUntimed() {
+		val sta = StaticTimingAnalyzer(design, model, 10.0)
+		sta.analyze()
+		assertEquals(0.0, sta.getArrivalTime(pin("ff2.C")), 1e-9)
+		assertTrue(sta.getConnectionSlack(pin("ff1.Q"), pin("lut2.I1")).isFinite())
+		assertTrue(sta.getConnectionSlack(pin("ff1.Q"), pin("ff2.D")).isNaN())
+	}
+}
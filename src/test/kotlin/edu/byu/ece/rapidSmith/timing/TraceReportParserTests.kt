@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.timing
+
+import edu.byu.ece.rapidSmith.util.Exceptions
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+import java.io.File
+import java.util.stream.Collectors
+
+class TraceReportParserTests {
+	private lateinit var twr: File
+	private lateinit var index: File
+
+	@BeforeEach
+	fun writeReport() {
+		twr = File.createTempFile("report", ".twr")
+		index = File(twr.path + ".idx")
+		val sb = StringBuilder("Release 14.7 Trace\r\n\r\n")
+		for ((i, delay) in listOf("2.500", "4.867", "1.250").withIndex()) {
+			sb.append("Delay:                  ${delay}ns (data path - clock path skew + uncertainty)\r\n")
+			sb.append("  Source:               src$i (FF)\r\n")
+			sb.append("  Destination:          dst$i (FF)\r\n")
+			sb.append("  Data Path Delay:      4.867ns (Levels of Logic = 1)\r\n")
+			sb.append("  Clock Path Skew:      0.000ns\r\n")
+			sb.append("  Source Clock:         clk_net rising\r\n")
+			sb.append("  Destination Clock:    clk_net rising\r\n")
+			sb.append("  Clock Uncertainty:    0.000ns\r\n\r\n")
+			sb.append("  -------------------------------------------------  -------------------\r\n")
+			sb.append("    SLICE_X1Y1.AQ      Tcko                  0.447   inst_$i\r\n")
+			sb.append("                                                       reg_$i\r\n")
+			sb.append("    SLICE_X2Y2.A1      net (fanout=1)        0.700   net_$i\r\n")
+			sb.append("  -------------------------------------------------  -------------------\r\n")
+			sb.append("  Total                                      1.147ns\r\n\r\n")
+		}
+		twr.writeText(sb.toString(), Charsets.ISO_8859_1)
+	}
+
+	@AfterEach
+	fun deleteReport() {
+		twr.delete()
+		index.delete()
+	}
+
+	@Test
+	@DisplayName("streaming parse defers name resolution")
+	fun streamingNames() {
+		val paths = TraceReportParser().streamTWR(twr.path).use { it.collect(Collectors.toList()) }
+		assertEquals(3, paths.size)
+		val path = paths[1] as PathDelay
+		val logic = path.maxDataPath[0] as LogicPathElement
+		val routing = path.maxDataPath[1] as RoutingPathElement
+		assertAll(
+			Executable { assertEquals("src1", path.source) },
+			Executable { assertEquals("clk_net", path.sourceClockName) },
+			Executable { assertNull(path.sourceClock) },
+			Executable { assertEquals("inst_1", logic.instanceName) },
+			Executable { assertEquals(listOf("reg_1"), logic.logicalResources) },
+			Executable { assertEquals("net_1", routing.netName) },
+			Executable { assertEquals("SLICE_X2Y2", routing.siteName) },
+			Executable { assertEquals("A1", routing.pinName) }
+		)
+	}
+
+	@Test
+	@DisplayName("consumer receives the same paths as the eager parse")
+	fun consumerMatchesEager() {
+		val parser = TraceReportParser()
+		val streamed = ArrayList<Path>()
+		parser.parseTWR(twr.path) { streamed.add(it) }
+		parser.parseTWR(twr.path)
+		assertEquals(parser.pathDelays.map { it.source }, streamed.map { it.source })
+	}
+
+	@Test
+	@DisplayName("index returns the worst paths in order")
+	fun worstPaths() {
+		TraceReportIndex.build(twr.path, index.path)
+		val loaded = TraceReportIndex.load(twr.path, index.path)
+		assertEquals(3, loaded.size())
+		val worst = loaded.getWorstPaths(2).map { it as PathDelay }
+		assertEquals(listOf("src1", "src0"), worst.map { it.source })
+		assertEquals(4.867f, worst[0].delay)
+	}
+
+	@Test
+	@DisplayName("stale index is rebuilt")
+	fun staleIndex() {
+		TraceReportIndex.build(twr.path, index.path)
+		twr.appendText("\r\n")
+		assertThrows(Exception::class.java) { TraceReportIndex.load(twr.path, index.path) }
+		assertEquals(3, TraceReportIndex.open(twr.path, index.path).size())
+	}
+
+	@Test
+	@DisplayName("truncated index is rebuilt")
+	fun truncatedIndex() {
+		TraceReportIndex.build(twr.path, index.path)
+		val bytes = index.readBytes()
+		for (length in listOf(0, 6, 20, bytes.size - 5)) {
+			index.writeBytes(bytes.copyOf(length))
+			assertThrows(Exceptions.FileFormatException::class.java) {
+				TraceReportIndex.load(twr.path, index.path)
+			}
+			val rebuilt = TraceReportIndex.open(twr.path, index.path)
+			assertEquals(3, rebuilt.size())
+			assertEquals(bytes.size.toLong(), index.length())
+		}
+	}
+
+	@Test
+	@DisplayName("corrupt index is rebuilt")
+	fun corruptIndex() {
+		TraceReportIndex.build(twr.path, index.path)
+		val bytes = index.readBytes()
+		// path count larger than the entries in the file
+		val wrongCount = bytes.copyOf()
+		wrongCount[27] = 4
+		// first offset past the end of the report
+		val wrongOffset = bytes.copyOf()
+		wrongOffset[28] = 0x7f
+		for (corrupt in listOf(wrongCount, wrongOffset)) {
+			index.writeBytes(corrupt)
+			assertThrows(Exceptions.FileFormatException::class.java) {
+				TraceReportIndex.load(twr.path, index.path)
+			}
+			assertEquals(listOf("src1", "src0", "src2"),
+				TraceReportIndex.open(twr.path, index.path).getWorstPaths(3).map { it.source })
+		}
+	}
+
+	@Test
+	@DisplayName("worst paths match the paths parsed one at a time")
+	fun worstPathsMatchSinglePaths() {
+		val built = TraceReportIndex.build(twr.path, index.path)
+		val worst = built.getWorstPaths(10)
+		assertEquals(3, worst.size)
+		val single = listOf(1, 0, 2).map { built.getPath(it) }
+		assertEquals(single.map { it.source }, worst.map { it.source })
+		assertEquals(single.map { (it as PathDelay).maxDataPath.size }, worst.map { (it as PathDelay).maxDataPath.size })
+		assertEquals(listOf("inst_1", "inst_0", "inst_2"),
+			worst.map { ((it as PathDelay).maxDataPath[0] as LogicPathElement).instanceName })
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.PinDirection
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class CellDesignDifferTests {
+	private val lut = SimpleLibraryCell("LUT1")
+
+	init {
+		lut.libraryPins = listOf(
+			LibraryPin("I0", lut, PinDirection.IN),
+			LibraryPin("O", lut, PinDirection.OUT))
+	}
+
+	// a chain of LUTs long enough to be split into several shards
+	private fun chain(length: Int): CellDesign {
+		val design = CellDesign()
+		val cells = (0 until length).map { design.addCell(Cell("c$it", lut)) }
+		for (i in 1 until length) {
+			val net = design.addNet(CellNet("n$i", NetType.WIRE))
+			net.connectToPin(cells[i - 1].getPin("O"))
+			net.connectToPin(cells[i].getPin("I0"))
+		}
+		return design
+	}
+
+	@Test
+	@DisplayName("identical designs have no differences")
+	fun identicalDesigns() {
+		assertTrue(CellDesignDiffer().diffDesigns(chain(2000), chain(2000)).isEmpty)
+	}
+
+	@Test
+	@DisplayName("removed and added elements are reported")
+	fun changedDesigns() {
+		val design2 = chain(20)
+		design2.removeCell(design2.getCell("c5"))
+		design2.addNet(CellNet("extra", NetType.WIRE))
+		val diffs = CellDesignDiffer().diffDesigns(chain(20), design2).toString()
+		assertTrue(diffs.contains("- (cell) c5"))
+		assertTrue(diffs.contains("+ (net) extra"))
+		assertTrue(diffs.contains("- (pin) c5/I0"))
+		assertTrue(diffs.contains("- (pin) c5/O"))
+	}
+
+	@Test
+	@DisplayName("differences do not depend on the parallelism")
+	fun parallelDiff() {
+		val design2 = chain(3000)
+		for (i in 0 until 3000 step 7)
+			design2.removeCell(design2.getCell("c$i"))
+		val sequential = CellDesignDiffer().setParallelism(1).diffDesigns(chain(3000), design2)
+		val parallel = CellDesignDiffer().setParallelism(4).diffDesigns(chain(3000), design2)
+		assertEquals(sequential.toString(), parallel.toString())
+	}
+
+	@Test
+	@DisplayName("net differences are reported in name order")
+	fun orderedNetDiff() {
+		val design = CellDesign()
+		val cells = (0 until 50).map { design.addCell(Cell("c$it", lut)) }
+		val net1 = CellNet("n", NetType.WIRE)
+		net1.connectToPin(cells[0].getPin("O"))
+		val net2 = CellNet("n", NetType.WIRE)
+		val sinks = cells.drop(1).toMutableList()
+		java.util.Collections.shuffle(sinks, java.util.Random(1))
+		sinks.forEach { net2.connectToPin(it.getPin("I0")) }
+
+		val lines = CellDesignDiffer().diffNets(net1, net2).toString().lines()
+		val added = lines.filter { it.contains("+ (pin)") }
+		assertEquals(49, added.size)
+		assertEquals(added.sorted(), added)
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util
+
+import edu.byu.ece.rapidSmith.design.NetType
+import edu.byu.ece.rapidSmith.design.subsite.*
+import edu.byu.ece.rapidSmith.device.PinDirection
+import edu.byu.ece.rapidSmith.device.TestDeviceBuilder
+import edu.byu.ece.rapidSmith.device.TileWire
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class CellDesignVerifierTests {
+	private val builder = TestDeviceBuilder("verifierTestFamily")
+	private val design = CellDesign()
+	private val lut = SimpleLibraryCell("LUT1")
+
+	init {
+		lut.libraryPins = listOf(
+			LibraryPin("I0", lut, PinDirection.IN),
+			LibraryPin("O", lut, PinDirection.OUT))
+	}
+
+	@BeforeEach
+	fun buildDesign() {
+		builder.wires("W0", "W1", "W2")
+		builder.tiles(2, 2)
+		builder.tile(0, 0, "T_X0Y0")
+
+		val cells = (0 until 4).map { design.addCell(Cell("c$it", lut)) }
+		for (i in 1 until 4) {
+			val net = design.addNet(CellNet("n$i", NetType.WIRE))
+			net.connectToPin(cells[i - 1].getPin("O"))
+			net.connectToPin(cells[i].getPin("I0"))
+		}
+	}
+
+	private fun route(net: String, wire: Int) {
+		design.getNet(net).addIntersiteRouteTree(RouteTree(TileWire(builder.device.getTile(0, 0), wire)))
+	}
+
+	@Test
+	@DisplayName("a consistent design has no errors")
+	fun validDesign() {
+		route("n1", 0)
+		route("n2", 1)
+		val report = CellDesignVerifier().verify(design)
+		assertTrue(report.isValid, report.toString())
+	}
+
+	@Test
+	@DisplayName("wires shared by nets are reported once")
+	fun sharedWire() {
+		route("n1", 2)
+		route("n2", 2)
+		route("n3", 2)
+		val report = CellDesignVerifier().setParallelism(4).verify(design)
+		assertEquals(listOf("Wire T_X0Y0/W2 is used by nets [n1, n2, n3]"), report.errors)
+	}
+
+	@Test
+	@DisplayName("routed sinks without a route tree are reported")
+	fun unreachedSink() {
+		design.getNet("n1").addRoutedSink(design.getCell("c1").getPin("I0"))
+		val report = CellDesignVerifier().verify(design)
+		assertEquals(1, report.errors.size)
+		assertTrue(report.errors[0].startsWith("Routed sink c1/I0"))
+	}
+}
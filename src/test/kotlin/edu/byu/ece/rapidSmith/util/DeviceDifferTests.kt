@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util
+
+import edu.byu.ece.rapidSmith.device.*
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+
+class DeviceDifferTests {
+	private val family = FamilyType.valueOf("differTestFamily")
+
+	/**
+	 * Builds a 3x3 device where every tile has its own wire map.  Wire 0 of each tile
+	 * connects to wire 1 through a PIP and wire 1 to wire 2 of the next column.
+	 */
+	private fun buildDevice(wires: Array<String>): Device {
+		val builder = TestDeviceBuilder("differTestFamily", "xdiffertest")
+		builder.wires(*wires)
+		val device = builder.device
+		val we = device.wireEnumerator
+		we.wireTypes = Array(wires.size) { WireType.LONG }
+		builder.tiles(3, 3)
+		for (row in 0 until 3) {
+			for (col in 0 until 3) {
+				val tile = builder.tile(row, col, "T_X${col}Y$row", "INT")
+				tile.wireHashMap = WireHashMap()
+				tile.wireHashMap.put(we.getWireEnum("W0"), arrayOf(WireConnection(we.getWireEnum("W1"), 0, 0, true)))
+				if (col < 2)
+					tile.wireHashMap.put(we.getWireEnum("W1"), arrayOf(WireConnection(we.getWireEnum("W2"), 0, -1, false)))
+			}
+		}
+		return builder.build(false)
+	}
+
+	private fun buildDevices(): Pair<Device, Device> {
+		val gold = buildDevice(arrayOf("W0", "W1", "W2", "W3"))
+		// enumerate the wires of the test device differently, differences are by name
+		val test = buildDevice(arrayOf("W3", "W2", "W1", "W0"))
+		val we = test.wireEnumerator
+
+		test.getTile(1, 1).type = TileType.valueOf(family, "CLB")
+		test.getTile(2, 0).wireHashMap.put(we.getWireEnum("W3"),
+			arrayOf(WireConnection(we.getWireEnum("W0"), 0, 0, true)))
+		// the last column only has wire 0, drop it
+		test.getTile(0, 2).wireHashMap = WireHashMap()
+		test.getTile(2, 2).name = "T_RENAMED"
+		test.constructTileMap()
+		return Pair(gold, test)
+	}
+
+	private fun differ(gold: Device, test: Device): DeviceDiffer {
+		val differ = DeviceDiffer()
+		differ.setGold(gold)
+		differ.setTest(test)
+		return differ
+	}
+
+	/**
+	 * Flattens the differences into one line per difference holding the path to it.
+	 * The sequential diff visits tiles in hash order, so the lines are sorted.
+	 */
+	private fun flatten(differences: DeviceDiffer.DifferenceList): List<String> {
+		val path = ArrayList<String>()
+		val lines = ArrayList<String>()
+		for (line in differences.toString().lines().map { it.trim() }.filter { it.isNotEmpty() }) {
+			when {
+				line == ")" -> path.removeAt(path.size - 1)
+				line.endsWith(")") -> lines.add((path + line).joinToString(" / "))
+				else -> path.add(line)
+			}
+		}
+		return lines.sorted()
+	}
+
+	@Test
+	@DisplayName("parallel and sequential diffs find the same differences")
+	fun parallelMatchesSequential() {
+		val (gold, test) = buildDevices()
+		val sequential = flatten(differ(gold, test).diff())
+
+		val parallelDiffer = differ(gold, test)
+		parallelDiffer.setParallelism(4)
+		val parallel = flatten(parallelDiffer.diffParallel())
+
+		assertEquals(5, sequential.size, sequential.joinToString("\n"))
+		assertEquals(sequential, parallel)
+	}
+
+	@Test
+	@DisplayName("parallel diffs do not depend on the number of threads")
+	fun parallelismIndependent() {
+		val (gold, test) = buildDevices()
+		val single = differ(gold, test)
+		single.setParallelism(1)
+		val many = differ(gold, test)
+		many.setParallelism(4)
+		assertEquals(single.diffParallel().toString(), many.diffParallel().toString())
+	}
+
+	@Test
+	@DisplayName("identical devices are equivalent")
+	fun identicalDevices() {
+		val gold = buildDevice(arrayOf("W0", "W1", "W2", "W3"))
+		val test = buildDevice(arrayOf("W3", "W2", "W1", "W0"))
+		assertEquals("equivalent", differ(gold, test).diffParallel().toString())
+		assertEquals("equivalent", differ(gold, test).diff().toString())
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+
+package edu.byu.ece.rapidSmith.util
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.ThrowingSupplier
+import java.io.File
+import java.time.Duration
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * Runs the pool against a local tclsh in place of Vivado.  Skipped when tclsh
+ * is not installed.  The handling of the output of the process is also tested
+ * against shell scripts printing canned output.
+ */
+class VivadoConsolePoolTests {
+	private fun tclshAvailable(): Boolean = try {
+		val process = ProcessBuilder("tclsh").start()
+		process.outputStream.close()
+		process.waitFor(5, TimeUnit.SECONDS)
+	} catch (e: Exception) {
+		false
+	}
+
+	private fun pool(size: Int): VivadoConsolePool {
+		Assumptions.assumeTrue(tclshAvailable(), "tclsh is not installed")
+		return VivadoConsolePool(size, File(".").absolutePath, listOf("tclsh"))
+	}
+
+	@Test
+	@DisplayName("pipelined commands complete with their own results")
+	fun pipelinedResults() {
+		pool(2).use { pool ->
+			val futures = (0 until 100).map { pool.submit("expr {$it * 2}") }
+			futures.forEachIndexed { i, f ->
+				assertEquals(listOf("${i * 2}"), f.get(10, TimeUnit.SECONDS))
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("batched commands run in order on one process")
+	fun batchInOrder() {
+		pool(3).use { pool ->
+			val futures = pool.submitAll(listOf("set x 5", "incr x", "puts noise; set x"))
+			assertEquals(listOf("6"), futures[2].get(10, TimeUnit.SECONDS))
+		}
+	}
+
+	@Test
+	@DisplayName("nested commands and multi-line results are supported")
+	fun nestedCommands() {
+		pool(1).use { pool ->
+			assertEquals(listOf("a", "b"), pool.runCommand("join [list a b] \"\\n\"", 10000))
+		}
+	}
+
+	@Test
+	@DisplayName("tcl errors complete the future exceptionally")
+	fun tclError() {
+		pool(1).use { pool ->
+			val e = assertThrows(VivadoConsolePool.TclCommandException::class.java) {
+				pool.runCommand("error boom", 10000)
+			}
+			assertEquals("boom", e.message)
+			assertEquals(listOf("ok"), pool.runCommand("set y ok", 10000))
+		}
+	}
+
+	@Test
+	@DisplayName("output without a trailing newline does not hide the result")
+	fun partialOutputLine() {
+		pool(1).use { pool ->
+			assertEquals(listOf("1"), pool.runCommand("puts -nonewline partial; set x 1", 10000))
+			assertEquals(listOf("2"), pool.runCommand("set x 2", 10000))
+		}
+	}
+
+	@Test
+	@DisplayName("a timed out command restarts its process")
+	fun timeoutRestartsProcess() {
+		pool(1).use { pool ->
+			pool.runCommand("set x 5", 10000)
+			val slow = pool.submit("after 60000", 200)
+			val queued = pool.submit("set x")
+			val e = assertThrows(ExecutionException::class.java) {
+				slow.get(10, TimeUnit.SECONDS)
+			}
+			assertTrue(e.cause is TimeoutException)
+			assertThrows(ExecutionException::class.java) {
+				queued.get(10, TimeUnit.SECONDS)
+			}
+
+			// the new process does not have the state of the old one
+			assertEquals(listOf("ok"), pool.runCommand("set y ok", 10000))
+			assertThrows(VivadoConsolePool.TclCommandException::class.java) {
+				pool.runCommand("set x", 10000)
+			}
+		}
+	}
+
+	/**
+	 * Starts a pool of one process which reads the first command and prints the
+	 * lines, where {@code $line} is replaced by the command as it was read.
+	 */
+	private fun scriptedPool(vararg lines: String): VivadoConsolePool {
+		Assumptions.assumeTrue(File("/bin/sh").exists(), "sh is not installed")
+		val script = StringBuilder("IFS= read -r line\n")
+		for (line in lines)
+			script.append("printf '%s\\n' \"").append(line.replace("\"", "\\\"")).append("\"\n")
+		script.append("cat > /dev/null\n")
+		return VivadoConsolePool(1, File(".").absolutePath, listOf("/bin/sh", "-c", script.toString()))
+	}
+
+	@Test
+	@DisplayName("an echo of the command is not mistaken for its sentinel lines")
+	fun echoedCommand() {
+		scriptedPool("\$line", "@@rs_begin 0", "\$line", "@@rs_result 0 0", "hello", "@@rs_end 0").use { pool ->
+			assertEquals(listOf("hello"), pool.runCommand("set x hello", 10000))
+		}
+	}
+
+	@Test
+	@DisplayName("sentinel lines may follow a prompt and unknown ids are skipped")
+	fun promptsAndUnknownIds() {
+		scriptedPool(
+			"@@rs_begin 99999999999999999999",
+			"@@rs_begin 7",
+			"Vivado% @@rs_begin 0",
+			"INFO: @@rs_result 0 1",
+			"@@rs_result 0 0",
+			"a",
+			"@@rs_end 7",
+			"@@rs_end 0"
+		).use { pool ->
+			assertEquals(listOf("a", "@@rs_end 7"), pool.runCommand("set x a", 10000))
+		}
+	}
+
+	@Test
+	@DisplayName("a batch larger than the pipe buffers does not block its results")
+	fun batchLargerThanPipe() {
+		Assumptions.assumeTrue(File("/bin/sh").exists(), "sh is not installed")
+		// echoes every command before printing its sentinel lines, as a console
+		// with echo enabled does
+		val script = "i=0\n" +
+			"while IFS= read -r line; do\n" +
+			"printf '%s\\n' \"\$line\" \"@@rs_begin \$i\" \"@@rs_result \$i 0\" \"\$i\" \"@@rs_end \$i\"\n" +
+			"i=\$((i+1))\n" +
+			"done\n"
+		VivadoConsolePool(1, File(".").absolutePath, listOf("/bin/sh", "-c", script)).use { pool ->
+			val padding = "x".repeat(1000)
+			val cmds = (0 until 500).map { "set x $padding" }
+			val futures = assertTimeoutPreemptively(Duration.ofSeconds(60), ThrowingSupplier {
+				pool.submitAll(cmds)
+			})
+			futures.forEachIndexed { i, f ->
+				assertEquals(listOf("$i"), f.get(60, TimeUnit.SECONDS))
+			}
+		}
+	}
+}
@@ -286,4 +286,23 @@ class InitStringTests {
 	fun errorShortInputParse() {
 		assertThrows(IAE, { InitString.parse("0x0F", 0) })
 	}
+
+	@Test
+	@DisplayName("remapPins moves inputs to their new indices")
+	fun remapPins() {
+		// A1*~A2 -> A3*~A1
+		val init = InitString.convertToInitString(
+			BinaryOperation(OpType.AND, LutInput(1), LutInput(2, true)), 3)
+		val expected = InitString.convertToInitString(
+			BinaryOperation(OpType.AND, LutInput(3), LutInput(1, true)), 3)
+		assertEquals(expected, init.remapPins(mapOf(1 to 3, 2 to 1)))
+	}
+
+	@Test
+	@DisplayName("error when remapPins maps two used inputs to the same index")
+	fun errorRemapPinsCollision() {
+		val init = InitString.convertToInitString(
+			BinaryOperation(OpType.AND, LutInput(1), LutInput(2)), 3)
+		assertThrows(IAE, { init.remapPins(mapOf(1 to 2)) })
+	}
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+class LutFunctionCacheTests {
+	@Test
+	@DisplayName("cached equation is equal to the converted equation")
+	fun equationMatchesConversion() {
+		val cache = LutFunctionCache()
+		val init = InitString(0x6FFFFFFFEEEEL, 6)
+		assertEquals(LutEquation.convertToLutEquation(init), cache.getEquation(init))
+	}
+
+	@Test
+	@DisplayName("modifying a returned equation does not modify the cache")
+	fun returnsCopies() {
+		val cache = LutFunctionCache()
+		val init = InitString(0x2L, 1)
+		val eq = cache.getEquation(init)
+		eq.remapPins(mapOf(1 to 4))
+		assertEquals(LutInput(1), cache.getEquation(init))
+	}
+
+	@Test
+	@DisplayName("functions are cached once per configuration and number of inputs")
+	fun cachedByConfigAndNumInputs() {
+		val cache = LutFunctionCache()
+		cache.getEquation(InitString(0x8L, 2))
+		cache.getEquation(InitString(0x8L, 2))
+		cache.getEquation(InitString(0x8L, 3))
+		assertEquals(2, cache.size())
+		cache.clear()
+		assertEquals(0, cache.size())
+	}
+
+	@Test
+	@DisplayName("required inputs exclude don't care inputs")
+	fun requiredInputs() {
+		val cache = LutFunctionCache()
+		val eq = BinaryOperation(OpType.AND,
+			BinaryOperation(OpType.OR, LutInput(6), LutInput(6, true)), LutInput(5))
+		val init = InitString.convertToInitString(eq, 6)
+		assertEquals(setOf(5), cache.getRequiredInputs(init))
+	}
+
+	@Test
+	@DisplayName("reduced equation shifts inputs down")
+	fun reducedEquation() {
+		val cache = LutFunctionCache()
+		val eq = BinaryOperation(OpType.OR, LutInput(2), LutInput(6, true))
+		val init = InitString.convertToInitString(eq, 6)
+		val reduced = cache.getReducedEquation(init)
+		assertAll(
+			Executable { assertEquals(setOf(1, 2), reduced.usedInputs) },
+			Executable { assertEquals(InitString(0xBL, 2).resize(6),
+				InitString.convertToInitString(reduced, 6)) }
+		)
+	}
+
+	@Test
+	@DisplayName("NPN class is the same as the computed class")
+	fun npnClass() {
+		val cache = LutFunctionCache()
+		val init = InitString(0x6FFFFFFFEEEEL, 6)
+		assertAll(
+			Executable { assertEquals(NpnClass.compute(init), cache.getNpnClass(init)) },
+			Executable { assertSame(cache.getNpnClass(init), cache.getNpnClass(init)) }
+		)
+	}
+}
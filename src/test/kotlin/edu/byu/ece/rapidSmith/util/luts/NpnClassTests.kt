@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+class NpnClassTests {
+	@Test
+	@DisplayName("AND, NAND and OR with inverted inputs are in the same class")
+	fun andOrSameClass() {
+		val and = NpnClass.compute(InitString(0x8L, 2))
+		val nand = NpnClass.compute(InitString(0x7L, 2))
+		val or = NpnClass.compute(InitString(0xEL, 2))
+		val andInv = NpnClass.compute(InitString(0x4L, 2))
+		assertAll(
+			Executable { assertEquals(and, nand) },
+			Executable { assertEquals(and, or) },
+			Executable { assertEquals(and, andInv) },
+			Executable { assertEquals(0x1L, and.canonicalValue) }
+		)
+	}
+
+	@Test
+	@DisplayName("XOR and AND are in different classes")
+	fun xorAndDifferentClass() {
+		val xor = NpnClass.compute(InitString(0x6L, 2))
+		val and = NpnClass.compute(InitString(0x8L, 2))
+		assertAll(
+			Executable { assertNotEquals(xor, and) },
+			Executable { assertEquals(InitString(0x6L, 2), xor.canonicalForm) }
+		)
+	}
+
+	@Test
+	@DisplayName("3 input functions fall into 14 NPN classes")
+	fun threeInputClassCount() {
+		val classes = (0L until 256L).map { NpnClass.compute(InitString(it, 3)) }.toSet()
+		assertEquals(14, classes.size)
+	}
+
+	@Test
+	@DisplayName("recorded transform maps the function onto the canonical form")
+	fun transformProducesCanonicalForm() {
+		val cfg = 0x0123456789ABCDEFL
+		val npn = NpnClass.compute(InitString(cfg, 6))
+		val perm = npn.permutation
+		var transformed = 0L
+		for (x in 0 until 64) {
+			var y = 0
+			for (pos in 0 until 6) {
+				val orig = perm[pos]
+				val bit = ((x shr pos) and 1) xor ((npn.inputNegations shr orig) and 1)
+				y = y or (bit shl orig)
+			}
+			var value = (cfg ushr y) and 1L
+			if (npn.isOutputNegated)
+				value = value xor 1L
+			transformed = transformed or (value shl x)
+		}
+		assertEquals(npn.canonicalValue, transformed)
+	}
+
+	@Test
+	@DisplayName("permuted and inverted function is in the same class")
+	fun permutedFunctionSameClass() {
+		// (A1*A2)+A3 and (~A3*A1)+A2
+		val f = InitString.convertToInitString(BinaryOperation(OpType.OR,
+			BinaryOperation(OpType.AND, LutInput(1), LutInput(2)), LutInput(3)), 6)
+		val g = InitString.convertToInitString(BinaryOperation(OpType.OR,
+			BinaryOperation(OpType.AND, LutInput(3, true), LutInput(1)), LutInput(2)), 6)
+		assertEquals(NpnClass.compute(f), NpnClass.compute(g))
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Brigham Young University
+ *
+ * This file is part of the BYU RapidSmith Tools.
+ *
+ * BYU RapidSmith Tools is free software: you may redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * BYU RapidSmith Tools is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * A copy of the GNU General Public License is included with the BYU
+ * RapidSmith Tools. It can be found at doc/LICENSE.GPL3.TXT. You may
+ * also get a copy of the license at <http://www.gnu.org/licenses/>.
+ */
+
+package edu.byu.ece.rapidSmith.util.luts
+
+import org.junit.jupiter.api.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.function.Executable
+
+private val IAE = IllegalArgumentException::class.java
+
+private fun eqn(equation: LutEquation, numInputs: Int = 6) =
+	InitString.convertToInitString(equation, numInputs).cfgValue
+
+class TruthTablesTests {
+	@Test
+	@DisplayName("swapping inputs exchanges them in the function")
+	fun swapInputs() {
+		// A1*~A4 -> A4*~A1
+		val f = eqn(BinaryOperation(OpType.AND, LutInput(1), LutInput(4, true)))
+		val expected = eqn(BinaryOperation(OpType.AND, LutInput(4), LutInput(1, true)))
+		assertEquals(expected, TruthTables.swapInputs(f, 0, 3))
+	}
+
+	@Test
+	@DisplayName("permuting inputs moves each input to its new position")
+	fun permuteInputs() {
+		// (A1*A2)+A3 with A1->A3, A2->A1, A3->A2 = (A3*A1)+A2
+		val f = eqn(BinaryOperation(OpType.OR,
+			BinaryOperation(OpType.AND, LutInput(1), LutInput(2)), LutInput(3)), 3)
+		val expected = eqn(BinaryOperation(OpType.OR,
+			BinaryOperation(OpType.AND, LutInput(3), LutInput(1)), LutInput(2)), 3)
+		assertEquals(expected, TruthTables.permuteInputs(f, intArrayOf(2, 0, 1)))
+	}
+
+	@Test
+	@DisplayName("invalid permutation causes IAE")
+	fun invalidPermutation() {
+		assertThrows(IAE, { TruthTables.permuteInputs(0x8L, intArrayOf(1, 1)) })
+	}
+
+	@Test
+	@DisplayName("cofactors fix the input to a constant")
+	fun cofactors() {
+		// A1@A2
+		val f = eqn(BinaryOperation(OpType.XOR, LutInput(1), LutInput(2)))
+		assertAll(
+			Executable { assertEquals(eqn(LutInput(1)), TruthTables.cofactor0(f, 1)) },
+			Executable { assertEquals(eqn(LutInput(1, true)), TruthTables.cofactor1(f, 1)) }
+		)
+	}
+
+	@Test
+	@DisplayName("support excludes don't care inputs")
+	fun support() {
+		// (A6+~A6)*A5*A2
+		val f = eqn(BinaryOperation(OpType.AND,
+			BinaryOperation(OpType.AND,
+				BinaryOperation(OpType.OR, LutInput(6), LutInput(6, true)), LutInput(5)),
+			LutInput(2)))
+		assertAll(
+			Executable { assertEquals(0b010010, TruthTables.getSupport(f, 6)) },
+			Executable { assertTrue(TruthTables.dependsOn(f, 6, 4)) },
+			Executable { assertFalse(TruthTables.dependsOn(f, 6, 5)) }
+		)
+	}
+
+	@Test
+	@DisplayName("compact shifts used inputs down")
+	fun compact() {
+		// A2+~A6 -> A1+~A2
+		val f = eqn(BinaryOperation(OpType.OR, LutInput(2), LutInput(6, true)))
+		assertEquals(0xBL, TruthTables.compact(f, 6))
+	}
+
+	@Test
+	@DisplayName("extend replicates the function into the new inputs")
+	fun extend() {
+		assertEquals(InitString(0xBL, 2).resize(6).cfgValue, TruthTables.extend(0xBL, 2, 6))
+	}
+
+	@Test
+	@DisplayName("functions not using A6 can share a dual output LUT6")
+	fun packDualLut5() {
+		val o6 = TruthTables.extend(0x1234L, 5, 6)
+		val o5 = TruthTables.extend(0xABCD0000L, 5, 6)
+		assertAll(
+			Executable { assertTrue(TruthTables.canPackDualLut5(o6, o5)) },
+			Executable { assertEquals(0x00001234ABCD0000L, TruthTables.packDualLut5(o6, o5)) }
+		)
+	}
+
+	@Test
+	@DisplayName("functions using A6 cannot share a dual output LUT6")
+	fun cannotPackDualLut5() {
+		val o6 = eqn(LutInput(6))
+		val o5 = eqn(LutInput(1))
+		assertAll(
+			Executable { assertFalse(TruthTables.canPackDualLut5(o6, o5)) },
+			Executable { assertFalse(TruthTables.fitsInLut5(o6)) },
+			Executable { assertThrows(IAE, { TruthTables.packDualLut5(o6, o5) }) }
+		)
+	}
+}